@@ -0,0 +1,216 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.ds.AsyncRedisConnection;
+import org.idevlab.rjc.ds.MultiplexedDataSource;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisKeyword;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <code>AsyncRedisOperations</code> of one Redis server. Commands are pipelined through the shared socket
+ * of <code>MultiplexedDataSource</code> and their replies complete the futures on its reader thread,
+ * so waiting for many commands takes one round trip instead of one per command.
+ * Commands sent by one node are executed in order. The node is thread safe.
+ *
+ * @author Evgeny Dolgov
+ */
+public class AsyncRedisNode implements AsyncRedisOperations {
+
+    private AsyncRedisConnection connection;
+
+    public AsyncRedisNode() {
+    }
+
+    public AsyncRedisNode(MultiplexedDataSource dataSource) {
+        this.connection = dataSource.getAsyncConnection();
+    }
+
+    public AsyncRedisNode(AsyncRedisConnection connection) {
+        this.connection = connection;
+    }
+
+    public void setDataSource(MultiplexedDataSource dataSource) {
+        this.connection = dataSource.getAsyncConnection();
+    }
+
+    public RedisFuture<String> set(final String key, final String value) {
+        return connection.send(ReplyConverters.STATUS, RedisCommand.SET, key, value);
+    }
+
+    public <T> RedisFuture<String> set(final String key, final T value, final Codec<T> codec) {
+        return connection.send(ReplyConverters.STATUS, RedisCommand.SET, codec, value, key);
+    }
+
+    public RedisFuture<String> setex(final String key, final int seconds, final String value) {
+        return connection.send(ReplyConverters.STATUS, RedisCommand.SETEX, key, String.valueOf(seconds), value);
+    }
+
+    public RedisFuture<String> get(final String key) {
+        return connection.send(ReplyConverters.STRING, RedisCommand.GET, key);
+    }
+
+    public <T> RedisFuture<T> get(final String key, final Codec<T> codec) {
+        return connection.send(ReplyConverters.bulk(codec), RedisCommand.GET, key);
+    }
+
+    public RedisFuture<String> getSet(final String key, final String value) {
+        return connection.send(ReplyConverters.STRING, RedisCommand.GETSET, key, value);
+    }
+
+    public RedisFuture<Boolean> setnx(final String key, final String value) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.SETNX, key, value);
+    }
+
+    public RedisFuture<Boolean> exists(final String key) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.EXISTS, key);
+    }
+
+    public RedisFuture<Long> del(final String... keys) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.DEL, keys);
+    }
+
+    public RedisFuture<Boolean> expire(final String key, final int seconds) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.EXPIRE, key, String.valueOf(seconds));
+    }
+
+    public RedisFuture<Long> ttl(final String key) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.TTL, key);
+    }
+
+    public RedisFuture<Long> incr(final String key) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.INCR, key);
+    }
+
+    public RedisFuture<Long> incrBy(final String key, final int value) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.INCRBY, key, String.valueOf(value));
+    }
+
+    public RedisFuture<Long> decr(final String key) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.DECR, key);
+    }
+
+    public RedisFuture<Long> decrBy(final String key, final int value) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.DECRBY, key, String.valueOf(value));
+    }
+
+    public RedisFuture<Boolean> hset(final String key, final String field, final String value) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.HSET, key, field, value);
+    }
+
+    public RedisFuture<String> hget(final String key, final String field) {
+        return connection.send(ReplyConverters.STRING, RedisCommand.HGET, key, field);
+    }
+
+    public RedisFuture<Boolean> hdel(final String key, final String field) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.HDEL, key, field);
+    }
+
+    public RedisFuture<Boolean> hexists(final String key, final String field) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.HEXISTS, key, field);
+    }
+
+    public RedisFuture<Long> hincrBy(final String key, final String field, final int value) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.HINCRBY, key, field, String.valueOf(value));
+    }
+
+    public RedisFuture<Map<String, String>> hgetAll(final String key) {
+        return connection.send(ReplyConverters.STRING_MAP, RedisCommand.HGETALL, key);
+    }
+
+    public RedisFuture<Long> rpush(final String key, final String value) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.RPUSH, key, value);
+    }
+
+    public RedisFuture<Long> lpush(final String key, final String value) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.LPUSH, key, value);
+    }
+
+    public RedisFuture<Long> llen(final String key) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.LLEN, key);
+    }
+
+    public RedisFuture<List<String>> lrange(final String key, final int start, final int end) {
+        return connection.send(ReplyConverters.STRING_LIST, RedisCommand.LRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public RedisFuture<String> lpop(final String key) {
+        return connection.send(ReplyConverters.STRING, RedisCommand.LPOP, key);
+    }
+
+    public RedisFuture<String> rpop(final String key) {
+        return connection.send(ReplyConverters.STRING, RedisCommand.RPOP, key);
+    }
+
+    public RedisFuture<Boolean> sadd(final String key, final String member) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.SADD, key, member);
+    }
+
+    public RedisFuture<Boolean> srem(final String key, final String member) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.SREM, key, member);
+    }
+
+    public RedisFuture<Set<String>> smembers(final String key) {
+        return connection.send(ReplyConverters.STRING_SET, RedisCommand.SMEMBERS, key);
+    }
+
+    public RedisFuture<Boolean> sismember(final String key, final String member) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.SISMEMBER, key, member);
+    }
+
+    public RedisFuture<Long> scard(final String key) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.SCARD, key);
+    }
+
+    public RedisFuture<Boolean> zadd(final String key, final double score, final String member) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.ZADD, key, String.valueOf(score), member);
+    }
+
+    public RedisFuture<Boolean> zrem(final String key, final String member) {
+        return connection.send(ReplyConverters.BOOLEAN, RedisCommand.ZREM, key, member);
+    }
+
+    public RedisFuture<Double> zincrby(final String key, final double score, final String member) {
+        return connection.send(ReplyConverters.DOUBLE, RedisCommand.ZINCRBY, key, String.valueOf(score), member);
+    }
+
+    public RedisFuture<Double> zscore(final String key, final String member) {
+        return connection.send(ReplyConverters.DOUBLE, RedisCommand.ZSCORE, key, member);
+    }
+
+    public RedisFuture<Long> zcard(final String key) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.ZCARD, key);
+    }
+
+    public RedisFuture<List<String>> zrange(final String key, final int start, final int end) {
+        return connection.send(ReplyConverters.STRING_LIST, RedisCommand.ZRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public RedisFuture<List<ElementScore>> zrangeWithScores(final String key, final int start, final int end) {
+        return connection.send(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str);
+    }
+
+    public RedisFuture<Long> publish(final String channel, final String message) {
+        return connection.send(ReplyConverters.LONG, RedisCommand.PUBLISH, channel, message);
+    }
+}
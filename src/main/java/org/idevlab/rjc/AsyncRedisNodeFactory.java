@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.ds.DataSource;
+import org.idevlab.rjc.ds.MultiplexedDataSource;
+
+/**
+ * Creates <code>AsyncRedisNode</code>s, e.g. for <code>ShardsFactoryImpl</code> with
+ * <code>MultiplexedDataSourceFactory</code>.
+ *
+ * @author Evgeny Dolgov
+ */
+public class AsyncRedisNodeFactory implements NodeFactory<AsyncRedisOperations> {
+
+    /**
+     * @throws IllegalArgumentException if the data source is not a <code>MultiplexedDataSource</code>
+     */
+    public AsyncRedisOperations create(DataSource dataSource) {
+        if (!(dataSource instanceof MultiplexedDataSource)) {
+            throw new IllegalArgumentException("MultiplexedDataSource is required, got " + dataSource);
+        }
+        return new AsyncRedisNode((MultiplexedDataSource) dataSource);
+    }
+}
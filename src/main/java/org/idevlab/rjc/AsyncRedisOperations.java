@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asynchronous variants of the most used <code>RedisOperations</code>. Every method sends the command
+ * and returns at once, the result is delivered through the returned <code>RedisFuture</code>.
+ *
+ * @author Evgeny Dolgov
+ * @see AsyncRedisNode
+ * @see org.idevlab.rjc.sharding.AsyncShardedRedis
+ */
+public interface AsyncRedisOperations {
+
+    /**
+     * SET key value
+     */
+    RedisFuture<String> set(String key, String value);
+
+    /**
+     * SET key value with the value encoded by the codec
+     */
+    <T> RedisFuture<String> set(String key, T value, Codec<T> codec);
+
+    /**
+     * SETEX key seconds value
+     */
+    RedisFuture<String> setex(String key, int seconds, String value);
+
+    /**
+     * GET key
+     */
+    RedisFuture<String> get(String key);
+
+    /**
+     * GET key with the value decoded by the codec
+     */
+    <T> RedisFuture<T> get(String key, Codec<T> codec);
+
+    /**
+     * GETSET key value
+     */
+    RedisFuture<String> getSet(String key, String value);
+
+    /**
+     * SETNX key value
+     */
+    RedisFuture<Boolean> setnx(String key, String value);
+
+    /**
+     * EXISTS key
+     */
+    RedisFuture<Boolean> exists(String key);
+
+    /**
+     * DEL key [key ...], the keys must be on the same node for sharded operations
+     */
+    RedisFuture<Long> del(String... keys);
+
+    /**
+     * EXPIRE key seconds
+     */
+    RedisFuture<Boolean> expire(String key, int seconds);
+
+    /**
+     * TTL key
+     */
+    RedisFuture<Long> ttl(String key);
+
+    /**
+     * INCR key
+     */
+    RedisFuture<Long> incr(String key);
+
+    /**
+     * INCRBY key increment
+     */
+    RedisFuture<Long> incrBy(String key, int value);
+
+    /**
+     * DECR key
+     */
+    RedisFuture<Long> decr(String key);
+
+    /**
+     * DECRBY key decrement
+     */
+    RedisFuture<Long> decrBy(String key, int value);
+
+    /**
+     * HSET key field value
+     */
+    RedisFuture<Boolean> hset(String key, String field, String value);
+
+    /**
+     * HGET key field
+     */
+    RedisFuture<String> hget(String key, String field);
+
+    /**
+     * HDEL key field
+     */
+    RedisFuture<Boolean> hdel(String key, String field);
+
+    /**
+     * HEXISTS key field
+     */
+    RedisFuture<Boolean> hexists(String key, String field);
+
+    /**
+     * HINCRBY key field increment
+     */
+    RedisFuture<Long> hincrBy(String key, String field, int value);
+
+    /**
+     * HGETALL key
+     */
+    RedisFuture<Map<String, String>> hgetAll(String key);
+
+    /**
+     * RPUSH key value
+     */
+    RedisFuture<Long> rpush(String key, String value);
+
+    /**
+     * LPUSH key value
+     */
+    RedisFuture<Long> lpush(String key, String value);
+
+    /**
+     * LLEN key
+     */
+    RedisFuture<Long> llen(String key);
+
+    /**
+     * LRANGE key start end
+     */
+    RedisFuture<List<String>> lrange(String key, int start, int end);
+
+    /**
+     * LPOP key
+     */
+    RedisFuture<String> lpop(String key);
+
+    /**
+     * RPOP key
+     */
+    RedisFuture<String> rpop(String key);
+
+    /**
+     * SADD key member
+     */
+    RedisFuture<Boolean> sadd(String key, String member);
+
+    /**
+     * SREM key member
+     */
+    RedisFuture<Boolean> srem(String key, String member);
+
+    /**
+     * SMEMBERS key
+     */
+    RedisFuture<Set<String>> smembers(String key);
+
+    /**
+     * SISMEMBER key member
+     */
+    RedisFuture<Boolean> sismember(String key, String member);
+
+    /**
+     * SCARD key
+     */
+    RedisFuture<Long> scard(String key);
+
+    /**
+     * ZADD key score member
+     */
+    RedisFuture<Boolean> zadd(String key, double score, String member);
+
+    /**
+     * ZREM key member
+     */
+    RedisFuture<Boolean> zrem(String key, String member);
+
+    /**
+     * ZINCRBY key increment member
+     */
+    RedisFuture<Double> zincrby(String key, double score, String member);
+
+    /**
+     * ZSCORE key member, <code>Double.NaN</code> if there is no such member
+     */
+    RedisFuture<Double> zscore(String key, String member);
+
+    /**
+     * ZCARD key
+     */
+    RedisFuture<Long> zcard(String key);
+
+    /**
+     * ZRANGE key start end
+     */
+    RedisFuture<List<String>> zrange(String key, int start, int end);
+
+    /**
+     * ZRANGE key start end WITHSCORES
+     */
+    RedisFuture<List<ElementScore>> zrangeWithScores(String key, int start, int end);
+
+    /**
+     * PUBLISH channel message
+     */
+    RedisFuture<Long> publish(String channel, String message);
+}
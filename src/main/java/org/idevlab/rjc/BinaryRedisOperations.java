@@ -0,0 +1,403 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary safe variants of <code>RedisOperations</code>: keys, fields, members and values are passed
+ * and returned as raw bytes, so they are never converted to or from String.
+ * <p/>
+ * Arrays compare by identity, so the replies which are sets in <code>RedisOperations</code> are lists here,
+ * and keys of the <code>hgetAll</code> map can only be iterated, not looked up.
+ *
+ * @author Evgeny Dolgov
+ */
+public interface BinaryRedisOperations {
+
+    /**
+     * @see RedisOperations#set(String, String)
+     */
+    String set(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#get(String)
+     */
+    byte[] get(byte[] key);
+
+    /**
+     * @see RedisOperations#exists(String)
+     */
+    Boolean exists(byte[] key);
+
+    /**
+     * @see RedisOperations#del(String...)
+     */
+    Long del(byte[]... keys);
+
+    /**
+     * @see RedisOperations#type(String)
+     */
+    String type(byte[] key);
+
+    /**
+     * @see RedisOperations#expire(String, int)
+     */
+    Boolean expire(byte[] key, int seconds);
+
+    /**
+     * @see RedisOperations#expireAt(String, long)
+     */
+    Boolean expireAt(byte[] key, long unixTime);
+
+    /**
+     * @see RedisOperations#ttl(String)
+     */
+    Long ttl(byte[] key);
+
+    /**
+     * @see RedisOperations#getSet(String, String)
+     */
+    byte[] getSet(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#setnx(String, String)
+     */
+    Boolean setnx(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#setex(String, int, String)
+     */
+    String setex(byte[] key, int seconds, byte[] value);
+
+    /**
+     * @see RedisOperations#decrBy(String, int)
+     */
+    Long decrBy(byte[] key, int value);
+
+    /**
+     * @see RedisOperations#decr(String)
+     */
+    Long decr(byte[] key);
+
+    /**
+     * @see RedisOperations#incrBy(String, int)
+     */
+    Long incrBy(byte[] key, int value);
+
+    /**
+     * @see RedisOperations#incr(String)
+     */
+    Long incr(byte[] key);
+
+    /**
+     * @see RedisOperations#append(String, String)
+     */
+    Long append(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#getRange(String, int, int)
+     */
+    byte[] getRange(byte[] key, int start, int end);
+
+    /**
+     * @see RedisOperations#setRange(String, int, String)
+     */
+    Long setRange(byte[] key, int offset, byte[] value);
+
+    /**
+     * @see RedisOperations#strlen(String)
+     */
+    Long strlen(byte[] key);
+
+    /**
+     * @see RedisOperations#keys(String)
+     */
+    List<byte[]> keys(byte[] pattern);
+
+    /**
+     * @see RedisOperations#persist(String)
+     */
+    Boolean persist(byte[] key);
+
+    /**
+     * @see RedisOperations#hset(String, String, String)
+     */
+    Boolean hset(byte[] key, byte[] field, byte[] value);
+
+    /**
+     * @see RedisOperations#hget(String, String)
+     */
+    byte[] hget(byte[] key, byte[] field);
+
+    /**
+     * @see RedisOperations#hsetnx(String, String, String)
+     */
+    Boolean hsetnx(byte[] key, byte[] field, byte[] value);
+
+    /**
+     * @see RedisOperations#hmset(String, java.util.Map)
+     */
+    String hmset(byte[] key, Map<byte[], byte[]> hash);
+
+    /**
+     * @see RedisOperations#hmget(String, String...)
+     */
+    List<byte[]> hmget(byte[] key, byte[]... fields);
+
+    /**
+     * @see RedisOperations#hincrBy(String, String, int)
+     */
+    Long hincrBy(byte[] key, byte[] field, int value);
+
+    /**
+     * @see RedisOperations#hexists(String, String)
+     */
+    Boolean hexists(byte[] key, byte[] field);
+
+    /**
+     * @see RedisOperations#hdel(String, String)
+     */
+    Boolean hdel(byte[] key, byte[] field);
+
+    /**
+     * @see RedisOperations#hlen(String)
+     */
+    Long hlen(byte[] key);
+
+    /**
+     * @see RedisOperations#hkeys(String)
+     */
+    List<byte[]> hkeys(byte[] key);
+
+    /**
+     * @see RedisOperations#hvals(String)
+     */
+    List<byte[]> hvals(byte[] key);
+
+    /**
+     * @see RedisOperations#hgetAll(String)
+     */
+    Map<byte[], byte[]> hgetAll(byte[] key);
+
+    /**
+     * @see RedisOperations#rpush(String, String)
+     */
+    Long rpush(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#rpushx(String, String)
+     */
+    Long rpushx(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#lpush(String, String)
+     */
+    Long lpush(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#lpushx(String, String)
+     */
+    Long lpushx(byte[] key, byte[] value);
+
+    /**
+     * @see RedisOperations#llen(String)
+     */
+    Long llen(byte[] key);
+
+    /**
+     * @see RedisOperations#lrange(String, int, int)
+     */
+    List<byte[]> lrange(byte[] key, int start, int end);
+
+    /**
+     * @see RedisOperations#ltrim(String, int, int)
+     */
+    String ltrim(byte[] key, int start, int end);
+
+    /**
+     * @see RedisOperations#lindex(String, int)
+     */
+    byte[] lindex(byte[] key, int index);
+
+    /**
+     * @see RedisOperations#lset(String, int, String)
+     */
+    String lset(byte[] key, int index, byte[] value);
+
+    /**
+     * @see RedisOperations#lrem(String, int, String)
+     */
+    Long lrem(byte[] key, int count, byte[] value);
+
+    /**
+     * @see RedisOperations#lpop(String)
+     */
+    byte[] lpop(byte[] key);
+
+    /**
+     * @see RedisOperations#rpop(String)
+     */
+    byte[] rpop(byte[] key);
+
+    /**
+     * @see RedisOperations#sadd(String, String)
+     */
+    Boolean sadd(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#smembers(String)
+     */
+    List<byte[]> smembers(byte[] key);
+
+    /**
+     * @see RedisOperations#srem(String, String)
+     */
+    Boolean srem(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#spop(String)
+     */
+    byte[] spop(byte[] key);
+
+    /**
+     * @see RedisOperations#scard(String)
+     */
+    Long scard(byte[] key);
+
+    /**
+     * @see RedisOperations#sismember(String, String)
+     */
+    Boolean sismember(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#srandmember(String)
+     */
+    byte[] srandmember(byte[] key);
+
+    /**
+     * @see RedisOperations#zadd(String, Number, String)
+     */
+    Boolean zadd(byte[] key, Number score, byte[] member);
+
+    /**
+     * @see RedisOperations#zrange(String, int, int)
+     */
+    List<byte[]> zrange(byte[] key, int start, int end);
+
+    /**
+     * @see RedisOperations#zrem(String, String)
+     */
+    Boolean zrem(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#zincrby(String, Number, String)
+     */
+    double zincrby(byte[] key, Number score, byte[] member);
+
+    /**
+     * @see RedisOperations#zrank(String, String)
+     */
+    Long zrank(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#zrevrank(String, String)
+     */
+    Long zrevrank(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#zrevrange(String, int, int)
+     */
+    List<byte[]> zrevrange(byte[] key, int start, int end);
+
+    /**
+     * @see RedisOperations#zrevrangeByScore(String, String, String)
+     */
+    List<byte[]> zrevrangeByScore(byte[] key, String max, String min);
+
+    /**
+     * @see RedisOperations#zrevrangeByScore(String, String, String, int, int)
+     */
+    List<byte[]> zrevrangeByScore(byte[] key, String max, String min, int offset, int count);
+
+    /**
+     * @see RedisOperations#zcard(String)
+     */
+    Long zcard(byte[] key);
+
+    /**
+     * @see RedisOperations#zscoreAsDouble(String, String)
+     */
+    double zscore(byte[] key, byte[] member);
+
+    /**
+     * @see RedisOperations#sort(String)
+     */
+    List<byte[]> sort(byte[] key);
+
+    /**
+     * @see RedisOperations#sort(String, SortingParams)
+     */
+    List<byte[]> sort(byte[] key, SortingParams sortingParameters);
+
+    /**
+     * @see RedisOperations#zcount(String, Number, Number)
+     */
+    Long zcount(byte[] key, Number min, Number max);
+
+    /**
+     * @see RedisOperations#zrangeByScore(String, String, String)
+     */
+    List<byte[]> zrangeByScore(byte[] key, String min, String max);
+
+    /**
+     * @see RedisOperations#zrangeByScore(String, String, String, int, int)
+     */
+    List<byte[]> zrangeByScore(byte[] key, String min, String max, int offset, int count);
+
+    /**
+     * @see RedisOperations#zremrangeByRank(String, int, int)
+     */
+    Long zremrangeByRank(byte[] key, int start, int end);
+
+    /**
+     * @see RedisOperations#zremrangeByScore(String, String, String)
+     */
+    Long zremrangeByScore(byte[] key, String min, String max);
+
+    /**
+     * @see RedisOperations#linsert(String, ListPosition, String, String)
+     */
+    Long linsert(byte[] key, ListPosition where, byte[] pivot, byte[] value);
+
+    /**
+     * @see RedisOperations#publish(String, String)
+     */
+    Long publish(byte[] channel, byte[] message);
+
+    /**
+     * @see RedisOperations#getBit(String, int)
+     */
+    Long getBit(byte[] key, int offset);
+
+    /**
+     * @see RedisOperations#setBit(String, int, String)
+     */
+    Long setBit(byte[] key, int offset, String value);
+}
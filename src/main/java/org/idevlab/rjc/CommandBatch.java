@@ -0,0 +1,735 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisKeyword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Commands recorded to be sent together. Every command returns a <code>Response</code>
+ * which is resolved with the typed reply when the batch is executed.
+ * A batch is not thread safe and is executed once.
+ * <p/>
+ * The typed methods cover the data commands of <code>RedisOperations</code> and <code>SingleRedisOperations</code>.
+ * Blocking pops, scans, pub/sub subscriptions and server administration are left out: they do not fit into
+ * a batch sent in one round trip. Any other command can be queued with <code>queue</code>.
+ *
+ * @author Evgeny Dolgov
+ * @see Transaction
+ * @see CommandPipeline
+ */
+public abstract class CommandBatch {
+    private final List<QueuedCommand> commands = new ArrayList<QueuedCommand>();
+    private final Map<String, RedisScript> scripts = new LinkedHashMap<String, RedisScript>();
+    private Map<String, RedisException> scriptErrors;
+    private boolean executed;
+
+    CommandBatch() {
+    }
+
+    /**
+     * Queues any command.
+     *
+     * @param converter converter of the raw reply
+     * @param command   redis command
+     * @param args      command arguments
+     * @return placeholder of the reply
+     */
+    public <T> Response<T> queue(final ReplyConverter<T> converter, final RedisCommand command, final String... args) {
+        return add(new QueuedCommand(converter, command, args, null, null, null));
+    }
+
+    public <T> Response<T> queue(final ReplyConverter<T> converter, final RedisCommand command, final byte[]... args) {
+        return add(new QueuedCommand(converter, command, null, args, null, null));
+    }
+
+    /**
+     * Queues the command with the value encoded by the codec as the last argument.
+     */
+    public <T, V> Response<T> queue(final ReplyConverter<T> converter, final RedisCommand command, final Codec<V> codec,
+                                    final V value, final String... args) {
+        return add(new QueuedCommand(converter, command, args, null, codec, value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Response<T> add(QueuedCommand command) {
+        if (executed) {
+            throw new IllegalStateException("Batch has been executed already");
+        }
+        commands.add(command);
+        return (Response<T>) command.response;
+    }
+
+    /**
+     * Queues EVALSHA of the script. Scripts of a batch are loaded by SCRIPT LOAD sent in front of the batch,
+     * so EVALSHA does not fail with NOSCRIPT and the batch still takes one round trip.
+     *
+     * @param script the script
+     * @param keys   KEYS of the script
+     * @param args   ARGV of the script
+     * @return reply of the script with bulk values decoded to String
+     */
+    public Response<Object> eval(final RedisScript script, final List<String> keys, final List<String> args) {
+        return eval(script, ReplyConverters.OBJECT, keys, args);
+    }
+
+    public <T> Response<T> eval(final RedisScript script, final ReplyConverter<T> converter, final List<String> keys,
+                                final List<String> args) {
+        final Response<T> response = queue(converter, RedisCommand.EVALSHA, RedisScript.args(script.getSha1(), keys, args));
+        scripts.put(script.getSha1(), script);
+        return response;
+    }
+
+    /**
+     * @return number of the queued commands
+     */
+    public int size() {
+        return commands.size();
+    }
+
+    public Response<String> ping() {
+        return queue(ReplyConverters.STATUS, RedisCommand.PING, new String[0]);
+    }
+
+    public Response<byte[]> get(final byte[] key) {
+        return queue(ReplyConverters.BYTES, RedisCommand.GET, key);
+    }
+
+    public Response<String> set(final byte[] key, final byte[] value) {
+        return queue(ReplyConverters.STATUS, RedisCommand.SET, key, value);
+    }
+
+    public Response<List<String>> mget(final String... keys) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.MGET, keys);
+    }
+
+    public Response<List<byte[]>> mget(final byte[]... keys) {
+        return queue(ReplyConverters.BYTES_LIST, RedisCommand.MGET, keys);
+    }
+
+    public Response<byte[]> hget(final byte[] key, final byte[] field) {
+        return queue(ReplyConverters.BYTES, RedisCommand.HGET, key, field);
+    }
+
+    public Response<Boolean> hset(final byte[] key, final byte[] field, final byte[] value) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.HSET, key, field, value);
+    }
+
+    public Response<List<byte[]>> lrange(final byte[] key, final int start, final int end) {
+        return queue(ReplyConverters.BYTES_LIST, RedisCommand.LRANGE, key, Protocol.toByteArray(start), Protocol.toByteArray(end));
+    }
+
+    public Response<String> set(final String key, final String value) {
+        return queue(ReplyConverters.STATUS, RedisCommand.SET, key, value);
+    }
+
+    public <T> Response<String> set(final String key, final T value, final Codec<T> codec) {
+        return queue(ReplyConverters.STATUS, RedisCommand.SET, codec, value, key);
+    }
+
+    public Response<String> setex(final String key, final int seconds, final String value) {
+        return queue(ReplyConverters.STATUS, RedisCommand.SETEX, key, String.valueOf(seconds), value);
+    }
+
+    public Response<String> get(final String key) {
+        return queue(ReplyConverters.STRING, RedisCommand.GET, key);
+    }
+
+    public <T> Response<T> get(final String key, final Codec<T> codec) {
+        return queue(ReplyConverters.bulk(codec), RedisCommand.GET, key);
+    }
+
+    public Response<String> getSet(final String key, final String value) {
+        return queue(ReplyConverters.STRING, RedisCommand.GETSET, key, value);
+    }
+
+    public Response<Boolean> setnx(final String key, final String value) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.SETNX, key, value);
+    }
+
+    public Response<Boolean> exists(final String key) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.EXISTS, key);
+    }
+
+    public Response<Long> del(final String... keys) {
+        return queue(ReplyConverters.LONG, RedisCommand.DEL, keys);
+    }
+
+    public Response<Boolean> expire(final String key, final int seconds) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.EXPIRE, key, String.valueOf(seconds));
+    }
+
+    public Response<Long> ttl(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.TTL, key);
+    }
+
+    public Response<Long> incr(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.INCR, key);
+    }
+
+    public Response<Long> incrBy(final String key, final int value) {
+        return queue(ReplyConverters.LONG, RedisCommand.INCRBY, key, String.valueOf(value));
+    }
+
+    public Response<Long> decr(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.DECR, key);
+    }
+
+    public Response<Long> decrBy(final String key, final int value) {
+        return queue(ReplyConverters.LONG, RedisCommand.DECRBY, key, String.valueOf(value));
+    }
+
+    public Response<String> type(final String key) {
+        return queue(ReplyConverters.STATUS, RedisCommand.TYPE, key);
+    }
+
+    public Response<Boolean> expireAt(final String key, final long unixTime) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.EXPIREAT, key, String.valueOf(unixTime));
+    }
+
+    public Response<Boolean> persist(final String key) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.PERSIST, key);
+    }
+
+    public Response<Set<String>> keys(final String pattern) {
+        return queue(ReplyConverters.STRING_SET, RedisCommand.KEYS, pattern);
+    }
+
+    public Response<String> randomKey() {
+        return queue(ReplyConverters.STRING, RedisCommand.RANDOMKEY, new String[0]);
+    }
+
+    public Response<String> rename(final String key, final String newKey) {
+        return queue(ReplyConverters.STATUS, RedisCommand.RENAME, key, newKey);
+    }
+
+    public Response<Boolean> renamenx(final String key, final String newKey) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.RENAMENX, key, newKey);
+    }
+
+    public Response<Long> dbSize() {
+        return queue(ReplyConverters.LONG, RedisCommand.DBSIZE, new String[0]);
+    }
+
+    public Response<String> echo(final String string) {
+        return queue(ReplyConverters.STRING, RedisCommand.ECHO, string);
+    }
+
+    public <T> Response<String> setex(final String key, final int seconds, final T value, final Codec<T> codec) {
+        return queue(ReplyConverters.STATUS, RedisCommand.SETEX, codec, value, key, String.valueOf(seconds));
+    }
+
+    public <T> Response<T> getSet(final String key, final T value, final Codec<T> codec) {
+        return queue(ReplyConverters.bulk(codec), RedisCommand.GETSET, codec, value, key);
+    }
+
+    public Response<String> mset(final String... keysvalues) {
+        return queue(ReplyConverters.STATUS, RedisCommand.MSET, keysvalues);
+    }
+
+    public Response<Boolean> msetnx(final String... keysvalues) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.MSETNX, keysvalues);
+    }
+
+    public Response<Long> append(final String key, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.APPEND, key, value);
+    }
+
+    public Response<String> getRange(final String key, final int start, final int end) {
+        return queue(ReplyConverters.STRING, RedisCommand.GETRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<Long> setRange(final String key, final int offset, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.SETRANGE, key, String.valueOf(offset), value);
+    }
+
+    public Response<Long> strlen(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.STRLEN, key);
+    }
+
+    public Response<Long> getBit(final String key, final int offset) {
+        return queue(ReplyConverters.LONG, RedisCommand.GETBIT, key, String.valueOf(offset));
+    }
+
+    public Response<Long> setBit(final String key, final int offset, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.SETBIT, key, String.valueOf(offset), value);
+    }
+
+    public Response<Boolean> hset(final String key, final String field, final String value) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.HSET, key, field, value);
+    }
+
+    public Response<String> hget(final String key, final String field) {
+        return queue(ReplyConverters.STRING, RedisCommand.HGET, key, field);
+    }
+
+    public Response<Boolean> hdel(final String key, final String field) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.HDEL, key, field);
+    }
+
+    public Response<Boolean> hexists(final String key, final String field) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.HEXISTS, key, field);
+    }
+
+    public Response<Long> hincrBy(final String key, final String field, final int value) {
+        return queue(ReplyConverters.LONG, RedisCommand.HINCRBY, key, field, String.valueOf(value));
+    }
+
+    public Response<Map<String, String>> hgetAll(final String key) {
+        return queue(ReplyConverters.STRING_MAP, RedisCommand.HGETALL, key);
+    }
+
+    public <T> Response<Boolean> hset(final String key, final String field, final T value, final Codec<T> codec) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.HSET, codec, value, key, field);
+    }
+
+    public <T> Response<T> hget(final String key, final String field, final Codec<T> codec) {
+        return queue(ReplyConverters.bulk(codec), RedisCommand.HGET, key, field);
+    }
+
+    public Response<Boolean> hsetnx(final String key, final String field, final String value) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.HSETNX, key, field, value);
+    }
+
+    public Response<String> hmset(final String key, final Map<String, String> hash) {
+        final List<String> args = new ArrayList<String>(1 + 2 * hash.size());
+        args.add(key);
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            args.add(entry.getKey());
+            args.add(entry.getValue());
+        }
+        return queue(ReplyConverters.STATUS, RedisCommand.HMSET, args.toArray(new String[args.size()]));
+    }
+
+    public Response<List<String>> hmget(final String key, final String... fields) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.HMGET, join(key, fields));
+    }
+
+    public Response<Long> hlen(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.HLEN, key);
+    }
+
+    public Response<Set<String>> hkeys(final String key) {
+        return queue(ReplyConverters.STRING_SET, RedisCommand.HKEYS, key);
+    }
+
+    public Response<List<String>> hvals(final String key) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.HVALS, key);
+    }
+
+    public Response<Long> rpush(final String key, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.RPUSH, key, value);
+    }
+
+    public Response<Long> lpush(final String key, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.LPUSH, key, value);
+    }
+
+    public Response<Long> llen(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.LLEN, key);
+    }
+
+    public Response<List<String>> lrange(final String key, final int start, final int end) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.LRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<String> lpop(final String key) {
+        return queue(ReplyConverters.STRING, RedisCommand.LPOP, key);
+    }
+
+    public Response<String> rpop(final String key) {
+        return queue(ReplyConverters.STRING, RedisCommand.RPOP, key);
+    }
+
+    public <T> Response<Long> rpush(final String key, final T value, final Codec<T> codec) {
+        return queue(ReplyConverters.LONG, RedisCommand.RPUSH, codec, value, key);
+    }
+
+    public <T> Response<Long> lpush(final String key, final T value, final Codec<T> codec) {
+        return queue(ReplyConverters.LONG, RedisCommand.LPUSH, codec, value, key);
+    }
+
+    public Response<Long> rpushx(final String key, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.RPUSHX, key, value);
+    }
+
+    public Response<Long> lpushx(final String key, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.LPUSHX, key, value);
+    }
+
+    public <T> Response<List<T>> lrange(final String key, final int start, final int end, final Codec<T> codec) {
+        return queue(ReplyConverters.multiBulk(codec), RedisCommand.LRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<String> ltrim(final String key, final int start, final int end) {
+        return queue(ReplyConverters.STATUS, RedisCommand.LTRIM, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<String> lindex(final String key, final int index) {
+        return queue(ReplyConverters.STRING, RedisCommand.LINDEX, key, String.valueOf(index));
+    }
+
+    public <T> Response<T> lindex(final String key, final int index, final Codec<T> codec) {
+        return queue(ReplyConverters.bulk(codec), RedisCommand.LINDEX, key, String.valueOf(index));
+    }
+
+    public Response<String> lset(final String key, final int index, final String value) {
+        return queue(ReplyConverters.STATUS, RedisCommand.LSET, key, String.valueOf(index), value);
+    }
+
+    public Response<Long> lrem(final String key, final int count, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.LREM, key, String.valueOf(count), value);
+    }
+
+    public <T> Response<T> lpop(final String key, final Codec<T> codec) {
+        return queue(ReplyConverters.bulk(codec), RedisCommand.LPOP, key);
+    }
+
+    public <T> Response<T> rpop(final String key, final Codec<T> codec) {
+        return queue(ReplyConverters.bulk(codec), RedisCommand.RPOP, key);
+    }
+
+    public Response<Long> linsert(final String key, final ListPosition where, final String pivot, final String value) {
+        return queue(ReplyConverters.LONG, RedisCommand.LINSERT, key, where.name(), pivot, value);
+    }
+
+    public Response<String> rpoplpush(final String srckey, final String dstkey) {
+        return queue(ReplyConverters.STRING, RedisCommand.RPOPLPUSH, srckey, dstkey);
+    }
+
+    public Response<Boolean> sadd(final String key, final String member) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.SADD, key, member);
+    }
+
+    public Response<Boolean> srem(final String key, final String member) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.SREM, key, member);
+    }
+
+    public Response<Set<String>> smembers(final String key) {
+        return queue(ReplyConverters.STRING_SET, RedisCommand.SMEMBERS, key);
+    }
+
+    public Response<Boolean> sismember(final String key, final String member) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.SISMEMBER, key, member);
+    }
+
+    public Response<Long> scard(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.SCARD, key);
+    }
+
+    public Response<String> spop(final String key) {
+        return queue(ReplyConverters.STRING, RedisCommand.SPOP, key);
+    }
+
+    public Response<String> srandmember(final String key) {
+        return queue(ReplyConverters.STRING, RedisCommand.SRANDMEMBER, key);
+    }
+
+    public Response<Boolean> smove(final String srckey, final String dstkey, final String member) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.SMOVE, srckey, dstkey, member);
+    }
+
+    public Response<Set<String>> sinter(final String... keys) {
+        return queue(ReplyConverters.STRING_SET, RedisCommand.SINTER, keys);
+    }
+
+    public Response<Long> sinterstore(final String dstkey, final String... keys) {
+        return queue(ReplyConverters.LONG, RedisCommand.SINTERSTORE, join(dstkey, keys));
+    }
+
+    public Response<Set<String>> sunion(final String... keys) {
+        return queue(ReplyConverters.STRING_SET, RedisCommand.SUNION, keys);
+    }
+
+    public Response<Long> sunionstore(final String dstkey, final String... keys) {
+        return queue(ReplyConverters.LONG, RedisCommand.SUNIONSTORE, join(dstkey, keys));
+    }
+
+    public Response<Set<String>> sdiff(final String... keys) {
+        return queue(ReplyConverters.STRING_SET, RedisCommand.SDIFF, keys);
+    }
+
+    public Response<Long> sdiffstore(final String dstkey, final String... keys) {
+        return queue(ReplyConverters.LONG, RedisCommand.SDIFFSTORE, join(dstkey, keys));
+    }
+
+    public Response<Boolean> zadd(final String key, final double score, final String member) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.ZADD, key, String.valueOf(score), member);
+    }
+
+    public Response<Boolean> zrem(final String key, final String member) {
+        return queue(ReplyConverters.BOOLEAN, RedisCommand.ZREM, key, member);
+    }
+
+    public Response<Double> zincrby(final String key, final double score, final String member) {
+        return queue(ReplyConverters.DOUBLE, RedisCommand.ZINCRBY, key, String.valueOf(score), member);
+    }
+
+    public Response<Double> zscore(final String key, final String member) {
+        return queue(ReplyConverters.DOUBLE, RedisCommand.ZSCORE, key, member);
+    }
+
+    public Response<Long> zcard(final String key) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZCARD, key);
+    }
+
+    public Response<List<String>> zrange(final String key, final int start, final int end) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.ZRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<List<ElementScore>> zrangeWithScores(final String key, final int start, final int end) {
+        return queue(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str);
+    }
+
+    public Response<Long> zrank(final String key, final String member) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZRANK, key, member);
+    }
+
+    public Response<Long> zrevrank(final String key, final String member) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZREVRANK, key, member);
+    }
+
+    public Response<List<String>> zrevrange(final String key, final int start, final int end) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.ZREVRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<List<ElementScore>> zrevrangeWithScores(final String key, final int start, final int end) {
+        return queue(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZREVRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str);
+    }
+
+    public Response<Long> zcount(final String key, final Number min, final Number max) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZCOUNT, key, String.valueOf(min), String.valueOf(max));
+    }
+
+    public Response<List<String>> zrangeByScore(final String key, final String min, final String max) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.ZRANGEBYSCORE, key, min, max);
+    }
+
+    public Response<List<String>> zrangeByScore(final String key, final String min, final String max, final int offset, final int count) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.ZRANGEBYSCORE, key, min, max, RedisKeyword.LIMIT.str, String.valueOf(offset), String.valueOf(count));
+    }
+
+    public Response<List<ElementScore>> zrangeByScoreWithScores(final String key, final String min, final String max) {
+        return queue(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZRANGEBYSCORE, key, min, max, RedisKeyword.WITHSCORES.str);
+    }
+
+    public Response<List<ElementScore>> zrangeByScoreWithScores(final String key, final String min, final String max, final int offset, final int count) {
+        return queue(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZRANGEBYSCORE, key, min, max, RedisKeyword.LIMIT.str, String.valueOf(offset), String.valueOf(count), RedisKeyword.WITHSCORES.str);
+    }
+
+    public Response<List<String>> zrevrangeByScore(final String key, final String max, final String min) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.ZREVRANGEBYSCORE, key, max, min);
+    }
+
+    public Response<List<String>> zrevrangeByScore(final String key, final String max, final String min, final int offset, final int count) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.ZREVRANGEBYSCORE, key, max, min, RedisKeyword.LIMIT.str, String.valueOf(offset), String.valueOf(count));
+    }
+
+    public Response<List<ElementScore>> zrevrangeByScoreWithScores(final String key, final String max, final String min) {
+        return queue(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZREVRANGEBYSCORE, key, max, min, RedisKeyword.WITHSCORES.str);
+    }
+
+    public Response<List<ElementScore>> zrevrangeByScoreWithScores(final String key, final String max, final String min, final int offset, final int count) {
+        return queue(ReplyConverters.ELEMENT_SCORES, RedisCommand.ZREVRANGEBYSCORE, key, max, min, RedisKeyword.LIMIT.str, String.valueOf(offset), String.valueOf(count), RedisKeyword.WITHSCORES.str);
+    }
+
+    public Response<Long> zremrangeByRank(final String key, final int start, final int end) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZREMRANGEBYRANK, key, String.valueOf(start), String.valueOf(end));
+    }
+
+    public Response<Long> zremrangeByScore(final String key, final String min, final String max) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZREMRANGEBYSCORE, key, min, max);
+    }
+
+    public Response<Long> zunionstore(final String dstkey, final String... sets) {
+        return zunionstore(dstkey, new ZParams(), sets);
+    }
+
+    public Response<Long> zunionstore(final String dstkey, final ZParams params, final String... sets) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZUNIONSTORE, zstoreArgs(dstkey, params, sets));
+    }
+
+    public Response<Long> zinterstore(final String dstkey, final String... sets) {
+        return zinterstore(dstkey, new ZParams(), sets);
+    }
+
+    public Response<Long> zinterstore(final String dstkey, final ZParams params, final String... sets) {
+        return queue(ReplyConverters.LONG, RedisCommand.ZINTERSTORE, zstoreArgs(dstkey, params, sets));
+    }
+
+    public Response<List<String>> sort(final String key) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.SORT, key);
+    }
+
+    public Response<List<String>> sort(final String key, final SortingParams sortingParameters) {
+        return queue(ReplyConverters.STRING_LIST, RedisCommand.SORT, sortArgs(key, sortingParameters));
+    }
+
+    public Response<Long> sort(final String key, final SortingParams sortingParameters, final String dstkey) {
+        final String[] args = sortArgs(key, sortingParameters);
+        final String[] store = new String[args.length + 2];
+        System.arraycopy(args, 0, store, 0, args.length);
+        store[args.length] = RedisKeyword.STORE.str;
+        store[args.length + 1] = dstkey;
+        return queue(ReplyConverters.LONG, RedisCommand.SORT, store);
+    }
+
+    public Response<Long> sort(final String key, final String dstkey) {
+        return queue(ReplyConverters.LONG, RedisCommand.SORT, key, RedisKeyword.STORE.str, dstkey);
+    }
+
+    public Response<Long> publish(final String channel, final String message) {
+        return queue(ReplyConverters.LONG, RedisCommand.PUBLISH, channel, message);
+    }
+
+    private static String[] join(final String first, final String[] rest) {
+        final String[] args = new String[rest.length + 1];
+        args[0] = first;
+        System.arraycopy(rest, 0, args, 1, rest.length);
+        return args;
+    }
+
+    private static String[] zstoreArgs(final String dstkey, final ZParams params, final String[] sets) {
+        final List<String> args = new ArrayList<String>();
+        args.add(dstkey);
+        args.add(String.valueOf(sets.length));
+        args.addAll(Arrays.asList(sets));
+        args.addAll(params.getParams());
+        return args.toArray(new String[args.size()]);
+    }
+
+    private static String[] sortArgs(final String key, final SortingParams sortingParameters) {
+        final List<String> args = new ArrayList<String>();
+        args.add(key);
+        args.addAll(sortingParameters.getParams());
+        return args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * Marks the batch as executed and returns its commands.
+     */
+    List<QueuedCommand> execute() {
+        if (executed) {
+            throw new IllegalStateException("Batch has been executed already");
+        }
+        executed = true;
+        return commands;
+    }
+
+    boolean hasScripts() {
+        return !scripts.isEmpty();
+    }
+
+    int getScriptCount() {
+        return scripts.size();
+    }
+
+    /**
+     * Sends the commands written so far and reads their replies after a command failed to be written,
+     * so the connection is not given back with unread replies. Failures are ignored, the original one is thrown.
+     *
+     * @param count number of the commands written before the failure
+     */
+    static void skipReplies(RedisClientImpl client, int count) {
+        try {
+            client.setAutoFlush(true);
+            for (int i = 0; i < count && client.isConnected(); i++) {
+                client.getReply();
+            }
+        } catch (RuntimeException ignored) {
+            // the connection is broken, it is not reused
+        }
+    }
+
+    void sendScripts(RedisClient client) {
+        for (RedisScript script : scripts.values()) {
+            client.noReply(RedisCommand.SCRIPT, RedisKeyword.LOAD.str, script.getSource());
+        }
+    }
+
+    void receiveScripts(RedisClient client) {
+        for (String sha1 : scripts.keySet()) {
+            final Object reply = client.getReply();
+            if (reply instanceof RedisException) {
+                if (scriptErrors == null) {
+                    scriptErrors = new HashMap<String, RedisException>();
+                }
+                scriptErrors.put(sha1, (RedisException) reply);
+            }
+        }
+    }
+
+    /**
+     * @return the reply or the error of SCRIPT LOAD if EVALSHA failed because the script could not be loaded
+     */
+    Object reply(QueuedCommand command, Object reply) {
+        if (scriptErrors != null && reply instanceof RedisException && command.command == RedisCommand.EVALSHA) {
+            final RedisException loadError = scriptErrors.get(command.args[0]);
+            if (loadError != null) {
+                return loadError;
+            }
+        }
+        return reply;
+    }
+
+    static final class QueuedCommand {
+        private final RedisCommand command;
+        private final String[] args;
+        private final byte[][] binaryArgs;
+        private final Codec<Object> codec;
+        private final Object value;
+        private final ReplyConverter<?> converter;
+        final Response<?> response;
+
+        @SuppressWarnings("unchecked")
+        <T> QueuedCommand(ReplyConverter<T> converter, RedisCommand command, String[] args, byte[][] binaryArgs,
+                          Codec<?> codec, Object value) {
+            this.command = command;
+            this.args = args;
+            this.binaryArgs = binaryArgs;
+            this.codec = (Codec<Object>) codec;
+            this.value = value;
+            this.converter = converter;
+            this.response = new Response<T>(converter);
+        }
+
+        Object convert(Object reply) {
+            return converter.convert(reply);
+        }
+
+        void send(RedisClient client) {
+            if (binaryArgs != null) {
+                client.noReply(command, binaryArgs);
+            } else if (codec != null) {
+                client.noReply(command, codec, value, args);
+            } else {
+                client.noReply(command, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed pipeline: commands are recorded, sent with as few writes as possible and their replies are read
+ * in one pass. Each command returns a <code>Response</code> resolved with the reply converted for that
+ * command, e.g. <code>get(String)</code> decodes a String and <code>get(byte[])</code> keeps the bytes:
+ * <pre>
+ * CommandPipeline pipeline = new CommandPipeline();
+ * Response&lt;String&gt; name = pipeline.hget("user:1", "name");
+ * Response&lt;Long&gt; visits = pipeline.incr("user:1:visits");
+ * node.pipeline(pipeline);
+ * </pre>
+ * Unlike a transaction the commands are not atomic and a failed command does not affect the others.
+ *
+ * @author Evgeny Dolgov
+ * @see SingleRedisOperations#pipeline(CommandPipeline, ReplyCallback)
+ */
+public class CommandPipeline extends CommandBatch {
+
+    /**
+     * Sends the commands, resolves their responses and collects the results.
+     *
+     * @return results of the commands, <code>RedisException</code> objects for failed commands
+     */
+    List<Object> execute(final RedisClientImpl client) {
+        final List<QueuedCommand> commands = execute();
+        final List<Object> results = new ArrayList<Object>(commands.size());
+        send(client, commands);
+        receiveScripts(client);
+        RuntimeException failure = null;
+        for (QueuedCommand command : commands) {
+            final Object reply = reply(command, client.getReply());
+            if (failure != null) {
+                continue;
+            }
+            try {
+                command.response.set(reply);
+                results.add(reply instanceof RedisException ? reply : command.response.get());
+            } catch (RuntimeException e) {
+                // the remaining replies are read before the failure of the converter is thrown
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Sends the commands and passes every converted reply to the callback as soon as it is read.
+     * Responses are not resolved and the replies are not kept. If the callback or a converter fails
+     * the callback is not called any more, the remaining replies are read and the failure is thrown.
+     */
+    void execute(final RedisClientImpl client, final ReplyCallback<Object> callback) {
+        final List<QueuedCommand> commands = execute();
+        send(client, commands);
+        receiveScripts(client);
+        RuntimeException failure = null;
+        for (QueuedCommand command : commands) {
+            final Object reply = reply(command, client.getReply());
+            if (failure != null) {
+                continue;
+            }
+            try {
+                if (reply instanceof RedisException) {
+                    callback.onError((RedisException) reply);
+                } else {
+                    callback.onReply(command.convert(reply));
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void send(final RedisClientImpl client, final List<QueuedCommand> commands) {
+        client.setAutoFlush(false);
+        int sent = 0;
+        try {
+            sendScripts(client);
+            sent = getScriptCount();
+            for (QueuedCommand command : commands) {
+                command.send(client);
+                sent++;
+            }
+        } catch (RuntimeException e) {
+            skipReplies(client, sent);
+            throw e;
+        }
+        // switching auto flush on sends the buffered commands
+        client.setAutoFlush(true);
+    }
+}
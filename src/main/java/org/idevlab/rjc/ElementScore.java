@@ -16,12 +16,23 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.protocol.Protocol;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
 /**
+ * Element of a sorted set with its score. The score is kept in the form it was created with
+ * and converted to the other form on the first request, a double score is formatted the way Redis formats it.
+ *
  * @author Evgeny Dolgov
  */
 public class ElementScore {
     private String element;
     private String score;
+    private double scoreValue;
+    private boolean hasScoreValue;
 
     public ElementScore() {
     }
@@ -31,6 +42,12 @@ public class ElementScore {
         this.score = score;
     }
 
+    public ElementScore(String element, double score) {
+        this.element = element;
+        this.scoreValue = score;
+        this.hasScoreValue = true;
+    }
+
     public String getElement() {
         return element;
     }
@@ -40,11 +57,78 @@ public class ElementScore {
     }
 
     public String getScore() {
+        if (score == null && hasScoreValue) {
+            score = format(scoreValue);
+        }
         return score;
     }
 
     public void setScore(String score) {
         this.score = score;
+        this.hasScoreValue = false;
+    }
+
+    /**
+     * @return score as double, <code>Double.NaN</code> if the score is not set
+     */
+    public double getScoreAsDouble() {
+        if (!hasScoreValue) {
+            scoreValue = score == null ? Double.NaN : Protocol.toDouble(score);
+            hasScoreValue = true;
+        }
+        return scoreValue;
+    }
+
+    /**
+     * Formats the score like Redis does in replies, <code>%.17g</code>, so a score read as double gives
+     * the same String as a score read as String.
+     */
+    static String format(double value) {
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        } else if (Double.isNaN(value)) {
+            return "nan";
+        }
+        final BigDecimal rounded = new BigDecimal(value).round(new MathContext(17, RoundingMode.HALF_EVEN));
+        String digits = rounded.unscaledValue().abs().toString();
+        final int exponent = digits.length() - 1 - rounded.scale();
+        int length = digits.length();
+        while (length > 1 && digits.charAt(length - 1) == '0') {
+            length--;
+        }
+        digits = digits.substring(0, length);
+
+        final StringBuilder result = new StringBuilder(24);
+        if (value < 0) {
+            result.append('-');
+        }
+        if (exponent < -4 || exponent >= 17) {
+            result.append(digits.charAt(0));
+            if (length > 1) {
+                result.append('.').append(digits, 1, length);
+            }
+            result.append(exponent < 0 ? "e-" : "e+");
+            if (Math.abs(exponent) < 10) {
+                result.append('0');
+            }
+            result.append(Math.abs(exponent));
+        } else if (exponent < 0) {
+            result.append("0.");
+            for (int i = -1; i > exponent; i--) {
+                result.append('0');
+            }
+            result.append(digits);
+        } else if (length <= exponent + 1) {
+            result.append(digits);
+            for (int i = length; i <= exponent; i++) {
+                result.append('0');
+            }
+        } else {
+            result.append(digits, 0, exponent + 1).append('.').append(digits, exponent + 1, length);
+        }
+        return result.toString();
     }
 
     @Override
@@ -55,7 +139,9 @@ public class ElementScore {
         ElementScore elementScore = (ElementScore) o;
 
         if (element != null ? !element.equals(elementScore.element) : elementScore.element != null) return false;
-        if (score != null ? !score.equals(elementScore.score) : elementScore.score != null) return false;
+        String score = getScore();
+        String otherScore = elementScore.getScore();
+        if (score != null ? !score.equals(otherScore) : otherScore != null) return false;
 
         return true;
     }
@@ -63,6 +149,7 @@ public class ElementScore {
     @Override
     public int hashCode() {
         int result = element != null ? element.hashCode() : 0;
+        String score = getScore();
         result = 31 * result + (score != null ? score.hashCode() : 0);
         return result;
     }
@@ -16,8 +16,13 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.PreparedCommand;
 import org.idevlab.rjc.protocol.RedisCommand;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /**
@@ -31,6 +36,8 @@ public interface RedisClient {
 
     void noReply(RedisCommand command, byte[]... args);
 
+    <T> void noReply(RedisCommand command, Codec<T> codec, T value, String... args);
+
     String getStatusReply(RedisCommand command);
 
     String getStatusReply(RedisCommand command, String... args);
@@ -43,6 +50,26 @@ public interface RedisClient {
 
     Long getIntegerReply(RedisCommand command, byte[]... args);
 
+    long getIntegerReplyAsLong(RedisCommand command, String... args);
+
+    long getIntegerReplyAsLong(RedisCommand command, byte[]... args);
+
+    /**
+     * @param command redis command
+     * @param args    command arguments
+     * @return bulk reply parsed to double or <code>Double.NaN</code> for nil reply
+     */
+    double getBulkReplyAsDouble(RedisCommand command, String... args);
+
+    double getBulkReplyAsDouble(RedisCommand command, byte[]... args);
+
+    /**
+     * @param command redis command with WITHSCORES argument
+     * @param args    command arguments
+     * @return elements with scores parsed to double
+     */
+    List<ElementScore> getElementScoreReply(RedisCommand command, String... args);
+
     String getBulkReply();
 
     String getBulkReply(RedisCommand command);
@@ -53,6 +80,93 @@ public interface RedisClient {
 
     byte[] getBinaryBulkReply(RedisCommand command);
 
+    /**
+     * Copies bulk reply to the output stream in chunks, i.e. a large value is never loaded into memory as a whole.
+     *
+     * @param command redis command
+     * @param out     destination of the value
+     * @param args    command arguments
+     * @return value length or -1 if the value does not exist
+     */
+    int getBulkReplyTo(RedisCommand command, OutputStream out, byte[]... args);
+
+    /**
+     * Copies bulk reply to the channel in chunks, i.e. a large value is never loaded into memory as a whole.
+     *
+     * @param command redis command
+     * @param channel destination of the value, must be in blocking mode
+     * @param args    command arguments
+     * @return value length or -1 if the value does not exist
+     */
+    int getBulkReplyTo(RedisCommand command, WritableByteChannel channel, byte[]... args);
+
+    /**
+     * Sends the command with the value read from the input stream as the last argument,
+     * for instance SET key value. The value is copied in chunks and is never loaded into memory as a whole.
+     *
+     * @param command redis command
+     * @param value   the last argument source
+     * @param length  exact number of bytes to read from <code>value</code>
+     * @param args    command arguments before the value
+     * @return status code reply
+     */
+    String getStatusReplyFrom(RedisCommand command, InputStream value, int length, byte[]... args);
+
+    /**
+     * Sends the command with the value encoded by the codec as the last argument.
+     *
+     * @param command redis command
+     * @param codec   value codec
+     * @param value   the last argument, not null
+     * @param args    command arguments before the value
+     * @return status code reply
+     */
+    <T> String getStatusReply(RedisCommand command, Codec<T> codec, T value, String... args);
+
+    <T> Long getIntegerReply(RedisCommand command, Codec<T> codec, T value, String... args);
+
+    /**
+     * Sends the command with the value encoded by the codec as the last argument and decodes
+     * the bulk reply with the same codec, e.g. GETSET.
+     */
+    <T> T getBulkReply(RedisCommand command, Codec<T> codec, T value, String... args);
+
+    /**
+     * @param codec   codec of the reply
+     * @param command redis command
+     * @param args    command arguments
+     * @return bulk reply decoded straight from the input buffer, null for nil reply
+     */
+    <T> T getBulkReply(Codec<T> codec, RedisCommand command, String... args);
+
+    <T> List<T> getMultiBulkReply(Codec<T> codec, RedisCommand command, String... args);
+
+    /**
+     * Sends the command with the header encoded in advance.
+     * Methods taking <code>PreparedCommand</code> are usable inside <code>Pipeline</code> bodies as well.
+     *
+     * @param command prepared command
+     * @param args    command arguments, their number must match the command arity
+     */
+    void noReply(PreparedCommand command, String... args);
+
+    void noReply(PreparedCommand command, byte[]... args);
+
+    String getStatusReply(PreparedCommand command, String... args);
+
+    String getStatusReply(PreparedCommand command, byte[]... args);
+
+    Long getIntegerReply(PreparedCommand command, String... args);
+
+    Long getIntegerReply(PreparedCommand command, byte[]... args);
+
+    String getBulkReply(PreparedCommand command, String... args);
+
+    byte[] getBinaryBulkReply(PreparedCommand command, byte[]... args);
+
+    List<Object> getMultiBulkReply(PreparedCommand command, String... args);
+
+    List<Object> getBinaryMultiBulkReply(PreparedCommand command, byte[]... args);
 
     /**
      * Converts all bytes responses to the String object
@@ -104,6 +218,27 @@ public interface RedisClient {
      */
     List<Object> getBinaryMultiBulkReply(RedisCommand command, byte[]... args);
 
+    /**
+     * Keeps bulk values of the reply in one array and decodes them to String only on <code>get(i)</code>.
+     * It saves memory and time when only a part of a large reply is used.
+     *
+     * @param command redis command
+     * @param args    command arguments
+     * @return Long, String and List objects
+     * @see org.idevlab.rjc.protocol.SlabMultiBulkReply
+     */
+    List<Object> getSlabMultiBulkReply(RedisCommand command, String... args);
+
+    /**
+     * Keeps bulk values of the reply in one array and copies them to byte[] only on <code>get(i)</code>.
+     *
+     * @param command redis command
+     * @param args    command arguments
+     * @return Long, byte[], String and List objects
+     * @see org.idevlab.rjc.protocol.SlabMultiBulkReply
+     */
+    List<Object> getBinarySlabMultiBulkReply(RedisCommand command, byte[]... args);
+
     /**
      * May contain Long and String objects
      *
@@ -118,5 +253,13 @@ public interface RedisClient {
      */
     List<Object> getBinaryAll();
 
+    /**
+     * Reads the reply of the oldest sent command as is, error replies are returned as <code>RedisException</code>.
+     *
+     * @return byte[], String, Long, List or RedisException object
+     * @see org.idevlab.rjc.ds.RedisConnection#getReply()
+     */
+    Object getReply();
+
     void close();
 }
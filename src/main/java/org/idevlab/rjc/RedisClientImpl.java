@@ -16,9 +16,14 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.codec.Codec;
 import org.idevlab.rjc.ds.RedisConnection;
+import org.idevlab.rjc.protocol.PreparedCommand;
 import org.idevlab.rjc.protocol.RedisCommand;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /**
@@ -73,6 +78,31 @@ public class RedisClientImpl implements RedisClient {
         return connection.getIntegerReply();
     }
 
+    public long getIntegerReplyAsLong(RedisCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getIntegerReplyAsLong();
+    }
+
+    public long getIntegerReplyAsLong(RedisCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getIntegerReplyAsLong();
+    }
+
+    public double getBulkReplyAsDouble(RedisCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getBulkReplyAsDouble();
+    }
+
+    public double getBulkReplyAsDouble(RedisCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getBulkReplyAsDouble();
+    }
+
+    public List<ElementScore> getElementScoreReply(RedisCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getElementScoreReply();
+    }
+
     public String getBulkReply() {
         return connection.getBulkReply();
     }
@@ -97,6 +127,94 @@ public class RedisClientImpl implements RedisClient {
         return connection.getBinaryBulkReply();
     }
 
+    public int getBulkReplyTo(RedisCommand command, OutputStream out, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getBulkReplyTo(out);
+    }
+
+    public int getBulkReplyTo(RedisCommand command, WritableByteChannel channel, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getBulkReplyTo(channel);
+    }
+
+    public String getStatusReplyFrom(RedisCommand command, InputStream value, int length, byte[]... args) {
+        connection.sendCommand(command, value, length, args);
+        return connection.getStatusCodeReply();
+    }
+
+    public <T> String getStatusReply(RedisCommand command, Codec<T> codec, T value, String... args) {
+        connection.sendCommand(command, codec, value, args);
+        return connection.getStatusCodeReply();
+    }
+
+    public <T> Long getIntegerReply(RedisCommand command, Codec<T> codec, T value, String... args) {
+        connection.sendCommand(command, codec, value, args);
+        return connection.getIntegerReply();
+    }
+
+    public <T> T getBulkReply(RedisCommand command, Codec<T> codec, T value, String... args) {
+        connection.sendCommand(command, codec, value, args);
+        return connection.getBulkReply(codec);
+    }
+
+    public <T> T getBulkReply(Codec<T> codec, RedisCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getBulkReply(codec);
+    }
+
+    public <T> List<T> getMultiBulkReply(Codec<T> codec, RedisCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getMultiBulkReply(codec);
+    }
+
+    public void noReply(PreparedCommand command, String... args) {
+        connection.sendCommand(command, args);
+    }
+
+    public void noReply(PreparedCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+    }
+
+    public String getStatusReply(PreparedCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getStatusCodeReply();
+    }
+
+    public String getStatusReply(PreparedCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getStatusCodeReply();
+    }
+
+    public Long getIntegerReply(PreparedCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getIntegerReply();
+    }
+
+    public Long getIntegerReply(PreparedCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getIntegerReply();
+    }
+
+    public String getBulkReply(PreparedCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getBulkReply();
+    }
+
+    public byte[] getBinaryBulkReply(PreparedCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getBinaryBulkReply();
+    }
+
+    public List<Object> getMultiBulkReply(PreparedCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getObjectMultiBulkReply();
+    }
+
+    public List<Object> getBinaryMultiBulkReply(PreparedCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getBinaryObjectMultiBulkReply();
+    }
+
     public List<Object> getMultiBulkReply() {
         return connection.getObjectMultiBulkReply();
     }
@@ -130,6 +248,16 @@ public class RedisClientImpl implements RedisClient {
         return connection.getBinaryObjectMultiBulkReply();
     }
 
+    public List<Object> getSlabMultiBulkReply(RedisCommand command, String... args) {
+        connection.sendCommand(command, args);
+        return connection.getSlabMultiBulkReply();
+    }
+
+    public List<Object> getBinarySlabMultiBulkReply(RedisCommand command, byte[]... args) {
+        connection.sendCommand(command, args);
+        return connection.getBinarySlabMultiBulkReply();
+    }
+
     public List<Object> getAll() {
         return connection.getAll();
     }
@@ -138,6 +266,10 @@ public class RedisClientImpl implements RedisClient {
         return connection.getBinaryAll();
     }
 
+    public Object getReply() {
+        return connection.getReply();
+    }
+
     public void noReply(RedisCommand command) {
         connection.sendCommand(command);
     }
@@ -150,6 +282,10 @@ public class RedisClientImpl implements RedisClient {
         connection.sendCommand(command, args);
     }
 
+    public <T> void noReply(RedisCommand command, Codec<T> codec, T value, String... args) {
+        connection.sendCommand(command, codec, value, args);
+    }
+
     public void close() {
         connection.close();
     }
@@ -165,4 +301,12 @@ public class RedisClientImpl implements RedisClient {
     public void rollbackTimeout() {
         connection.rollbackTimeout();
     }
+
+    public void setAutoFlush(boolean autoFlush) {
+        connection.setAutoFlush(autoFlush);
+    }
+
+    public void flush() {
+        connection.flush();
+    }
 }
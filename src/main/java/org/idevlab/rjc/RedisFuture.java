@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import java.util.concurrent.Future;
+
+/**
+ * Result of a command sent asynchronously. <code>get</code> throws <code>ExecutionException</code>
+ * with <code>RedisException</code> as the cause for error replies and connection failures.
+ * Commands cannot be cancelled once they are sent.
+ *
+ * @author Evgeny Dolgov
+ */
+public interface RedisFuture<T> extends Future<T> {
+
+    /**
+     * Registers a callback invoked once the reply is received, or at once if it has been received already.
+     * Callbacks run on the connection reader thread, so they must not block.
+     *
+     * @param callback reply callback
+     */
+    void addCallback(ReplyCallback<? super T> callback);
+}
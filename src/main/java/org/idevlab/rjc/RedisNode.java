@@ -16,28 +16,62 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.codec.Codec;
 import org.idevlab.rjc.ds.DataSource;
+import org.idevlab.rjc.ds.MultiplexedDataSource;
+import org.idevlab.rjc.protocol.RedisCommand;
 
 import java.util.*;
 
 /**
  * Creates new Session object for each command execution
+ * <p/>
+ * With a <code>MultiplexedDataSource</code> commands of concurrent callers may be coalesced into one write,
+ * see {@link #setCoalescingWindow(long)}.
  */
-public class RedisNode implements SingleRedisOperations {
+public class RedisNode implements SingleRedisOperations, BinaryRedisOperations {
 
     private RedisTemplate template;
+    private DataSource dataSource;
 
     public RedisNode() {
     }
 
     public RedisNode(DataSource dataSource) {
-        this.template = new RedisTemplate(new SessionFactoryImpl(dataSource));
+        setDataSource(dataSource);
     }
 
     public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
         this.template = new RedisTemplate(new SessionFactoryImpl(dataSource));
     }
 
+    /**
+     * Turns on coalescing: commands of concurrent callers are collected for up to <code>micros</code>
+     * and sent in one write, each caller still gets its own reply.
+     *
+     * @param micros batching window in microseconds, 0 to send commands at once
+     * @throws IllegalStateException if the node does not use a <code>MultiplexedDataSource</code>
+     */
+    public void setCoalescingWindow(long micros) {
+        getMultiplexedDataSource().setFlushWindowMicros(micros);
+    }
+
+    /**
+     * @param maxBatchSize number of collected commands which are sent before the coalescing window ends
+     * @throws IllegalStateException if the node does not use a <code>MultiplexedDataSource</code>
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        getMultiplexedDataSource().setMaxBatchSize(maxBatchSize);
+    }
+
+    private MultiplexedDataSource getMultiplexedDataSource() {
+        if (!(dataSource instanceof MultiplexedDataSource)) {
+            throw new IllegalStateException("Coalescing requires MultiplexedDataSource, got " + dataSource);
+        }
+        return (MultiplexedDataSource) dataSource;
+    }
+
     public String ping() {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -64,6 +98,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> String set(final String key, final T value, final Codec<T> codec) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.set(key, value, codec);
+            }
+        });
+    }
+
     public String get(final String key) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -73,6 +115,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> T get(final String key, final Codec<T> codec) {
+        return execute(new RedisCallback<T>() {
+            public T doIt(Session session) {
+                return session.get(key, codec);
+            }
+        });
+    }
+
     public void quit() {
         execute(new RedisCallback<Object>() {
             public Object doIt(Session session) {
@@ -204,6 +254,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> T getSet(final String key, final T value, final Codec<T> codec) {
+        return execute(new RedisCallback<T>() {
+            public T doIt(Session session) {
+                return session.getSet(key, value, codec);
+            }
+        });
+    }
+
     public List<String> mget(final String... keys) {
         return execute(new RedisCallback<List<String>>() {
             public List<String> doIt(Session session) {
@@ -231,6 +289,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> String setex(final String key, final int seconds, final T value, final Codec<T> codec) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.setex(key, seconds, value, codec);
+            }
+        });
+    }
+
     public String mset(final String... keysvalues) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -257,6 +323,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public long decrByAsLong(final String key, final int value) {
+        Session session = openSession();
+        try {
+            return session.decrByAsLong(key, value);
+        } finally {
+            session.close();
+        }
+    }
+
     public Long decr(final String key) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -266,6 +341,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public long decrAsLong(final String key) {
+        Session session = openSession();
+        try {
+            return session.decrAsLong(key);
+        } finally {
+            session.close();
+        }
+    }
+
     public Long incrBy(final String key, final int value) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -275,6 +359,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public long incrByAsLong(final String key, final int value) {
+        Session session = openSession();
+        try {
+            return session.incrByAsLong(key, value);
+        } finally {
+            session.close();
+        }
+    }
+
     public Long incr(final String key) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -283,6 +376,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public long incrAsLong(final String key) {
+        Session session = openSession();
+        try {
+            return session.incrAsLong(key);
+        } finally {
+            session.close();
+        }
+    }
+
     public Long append(final String key, final String value) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -316,6 +418,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> Boolean hset(final String key, final String field, final T value, final Codec<T> codec) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.hset(key, field, value, codec);
+            }
+        });
+    }
+
     public String hget(final String key, final String field) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -325,6 +435,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> T hget(final String key, final String field, final Codec<T> codec) {
+        return execute(new RedisCallback<T>() {
+            public T doIt(Session session) {
+                return session.hget(key, field, codec);
+            }
+        });
+    }
+
     public Boolean hsetnx(final String key, final String field, final String value) {
         return execute(new RedisCallback<Boolean>() {
             public Boolean doIt(Session session) {
@@ -357,6 +475,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public long hincrByAsLong(final String key, final String field, final int value) {
+        Session session = openSession();
+        try {
+            return session.hincrByAsLong(key, field, value);
+        } finally {
+            session.close();
+        }
+    }
+
     public Boolean hexists(final String key, final String field) {
         return execute(new RedisCallback<Boolean>() {
             public Boolean doIt(Session session) {
@@ -414,6 +541,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> Long rpush(final String key, final T value, final Codec<T> codec) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.rpush(key, value, codec);
+            }
+        });
+    }
+
     public Long lpush(final String key, final String value) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -423,6 +558,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> Long lpush(final String key, final T value, final Codec<T> codec) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.lpush(key, value, codec);
+            }
+        });
+    }
+
     public Long llen(final String key) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -440,6 +583,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> List<T> lrange(final String key, final int start, final int end, final Codec<T> codec) {
+        return execute(new RedisCallback<List<T>>() {
+            public List<T> doIt(Session session) {
+                return session.lrange(key, start, end, codec);
+            }
+        });
+    }
+
     public String ltrim(final String key, final int start, final int end) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -458,6 +609,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> T lindex(final String key, final int index, final Codec<T> codec) {
+        return execute(new RedisCallback<T>() {
+            public T doIt(Session session) {
+                return session.lindex(key, index, codec);
+            }
+        });
+    }
+
     public String lset(final String key, final int index, final String value) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -484,6 +643,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> T lpop(final String key, final Codec<T> codec) {
+        return execute(new RedisCallback<T>() {
+            public T doIt(Session session) {
+                return session.lpop(key, codec);
+            }
+        });
+    }
+
     public String rpop(final String key) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -492,6 +659,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public <T> T rpop(final String key, final Codec<T> codec) {
+        return execute(new RedisCallback<T>() {
+            public T doIt(Session session) {
+                return session.rpop(key, codec);
+            }
+        });
+    }
+
     public String rpoplpush(final String srckey, final String dstkey) {
         return execute(new RedisCallback<String>() {
             public String doIt(Session session) {
@@ -653,6 +828,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public double zincrbyAsDouble(final String key, final double score, final String member) {
+        Session session = openSession();
+        try {
+            return session.zincrbyAsDouble(key, score, member);
+        } finally {
+            session.close();
+        }
+    }
+
     public Long zrank(final String key, final String member) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -687,6 +871,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public List<ElementScore> zrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return execute(new RedisCallback<List<ElementScore>>() {
+            public List<ElementScore> doIt(Session session) {
+                return session.zrangeWithScoresAsDouble(key, start, end);
+            }
+        });
+    }
+
     public List<ElementScore> zrevrangeWithScores(final String key, final int start,
                                                   final int end) {
         return execute(new RedisCallback<List<ElementScore>>() {
@@ -696,6 +888,14 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public List<ElementScore> zrevrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return execute(new RedisCallback<List<ElementScore>>() {
+            public List<ElementScore> doIt(Session session) {
+                return session.zrevrangeWithScoresAsDouble(key, start, end);
+            }
+        });
+    }
+
     public List<String> zrevrangeByScore(final String key, final String max, final String min) {
         return execute(new RedisCallback<List<String>>() {
             public List<String> doIt(Session session) {
@@ -747,6 +947,15 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public double zscoreAsDouble(final String key, final String member) {
+        Session session = openSession();
+        try {
+            return session.zscoreAsDouble(key, member);
+        } finally {
+            session.close();
+        }
+    }
+
     public List<String> sort(final String key) {
         return execute(new RedisCallback<List<String>>() {
             public List<String> doIt(Session session) {
@@ -818,6 +1027,39 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public List<Object> pipeline(final CommandPipeline pipeline) {
+        return execute(new RedisCallback<List<Object>>() {
+            public List<Object> doIt(Session session) {
+                return session.pipeline(pipeline);
+            }
+        });
+    }
+
+    public void pipeline(final CommandPipeline pipeline, final ReplyCallback<Object> callback) {
+        execute(new RedisCallback<Object>() {
+            public Object doIt(Session session) {
+                session.pipeline(pipeline, callback);
+                return null;
+            }
+        });
+    }
+
+    public long pipeline(final int window, final ReplyCallback<Object> callback, final CommandStream stream) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.pipeline(window, callback, stream);
+            }
+        });
+    }
+
+    public List<Object> exec(final Transaction transaction) {
+        return execute(new RedisCallback<List<Object>>() {
+            public List<Object> doIt(Session session) {
+                return session.exec(transaction);
+            }
+        });
+    }
+
     public Long publish(final String channel, final String message) {
         return execute(new RedisCallback<Long>() {
             public Long doIt(Session session) {
@@ -1112,6 +1354,718 @@ public class RedisNode implements SingleRedisOperations {
         });
     }
 
+    public String set(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.set(key, value);
+            }
+        });
+    }
+
+    public byte[] get(final byte[] key) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.get(key);
+            }
+        });
+    }
+
+    public Boolean exists(final byte[] key) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.exists(key);
+            }
+        });
+    }
+
+    public Long del(final byte[]... keys) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.del(keys);
+            }
+        });
+    }
+
+    public String type(final byte[] key) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.type(key);
+            }
+        });
+    }
+
+    public Boolean expire(final byte[] key, final int seconds) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.expire(key, seconds);
+            }
+        });
+    }
+
+    public Boolean expireAt(final byte[] key, final long unixTime) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.expireAt(key, unixTime);
+            }
+        });
+    }
+
+    public Long ttl(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.ttl(key);
+            }
+        });
+    }
+
+    public byte[] getSet(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.getSet(key, value);
+            }
+        });
+    }
+
+    public Boolean setnx(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.setnx(key, value);
+            }
+        });
+    }
+
+    public String setex(final byte[] key, final int seconds, final byte[] value) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.setex(key, seconds, value);
+            }
+        });
+    }
+
+    public Long decrBy(final byte[] key, final int value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.decrBy(key, value);
+            }
+        });
+    }
+
+    public Long decr(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.decr(key);
+            }
+        });
+    }
+
+    public Long incrBy(final byte[] key, final int value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.incrBy(key, value);
+            }
+        });
+    }
+
+    public Long incr(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.incr(key);
+            }
+        });
+    }
+
+    public Long append(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.append(key, value);
+            }
+        });
+    }
+
+    public byte[] getRange(final byte[] key, final int start, final int end) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.getRange(key, start, end);
+            }
+        });
+    }
+
+    public Long setRange(final byte[] key, final int offset, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.setRange(key, offset, value);
+            }
+        });
+    }
+
+    public Long strlen(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.strlen(key);
+            }
+        });
+    }
+
+    public List<byte[]> keys(final byte[] pattern) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.keys(pattern);
+            }
+        });
+    }
+
+    public Boolean persist(final byte[] key) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.persist(key);
+            }
+        });
+    }
+
+    public Boolean hset(final byte[] key, final byte[] field, final byte[] value) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.hset(key, field, value);
+            }
+        });
+    }
+
+    public byte[] hget(final byte[] key, final byte[] field) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.hget(key, field);
+            }
+        });
+    }
+
+    public Boolean hsetnx(final byte[] key, final byte[] field, final byte[] value) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.hsetnx(key, field, value);
+            }
+        });
+    }
+
+    public String hmset(final byte[] key, final Map<byte[], byte[]> hash) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.hmset(key, hash);
+            }
+        });
+    }
+
+    public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.hmget(key, fields);
+            }
+        });
+    }
+
+    public Long hincrBy(final byte[] key, final byte[] field, final int value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.hincrBy(key, field, value);
+            }
+        });
+    }
+
+    public Boolean hexists(final byte[] key, final byte[] field) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.hexists(key, field);
+            }
+        });
+    }
+
+    public Boolean hdel(final byte[] key, final byte[] field) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.hdel(key, field);
+            }
+        });
+    }
+
+    public Long hlen(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.hlen(key);
+            }
+        });
+    }
+
+    public List<byte[]> hkeys(final byte[] key) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.hkeys(key);
+            }
+        });
+    }
+
+    public List<byte[]> hvals(final byte[] key) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.hvals(key);
+            }
+        });
+    }
+
+    public Map<byte[], byte[]> hgetAll(final byte[] key) {
+        return execute(new RedisCallback<Map<byte[], byte[]>>() {
+            public Map<byte[], byte[]> doIt(Session session) {
+                return session.hgetAll(key);
+            }
+        });
+    }
+
+    public Long rpush(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.rpush(key, value);
+            }
+        });
+    }
+
+    public Long rpushx(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.rpushx(key, value);
+            }
+        });
+    }
+
+    public Long lpush(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.lpush(key, value);
+            }
+        });
+    }
+
+    public Long lpushx(final byte[] key, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.lpushx(key, value);
+            }
+        });
+    }
+
+    public Long llen(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.llen(key);
+            }
+        });
+    }
+
+    public List<byte[]> lrange(final byte[] key, final int start, final int end) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.lrange(key, start, end);
+            }
+        });
+    }
+
+    public String ltrim(final byte[] key, final int start, final int end) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.ltrim(key, start, end);
+            }
+        });
+    }
+
+    public byte[] lindex(final byte[] key, final int index) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.lindex(key, index);
+            }
+        });
+    }
+
+    public String lset(final byte[] key, final int index, final byte[] value) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.lset(key, index, value);
+            }
+        });
+    }
+
+    public Long lrem(final byte[] key, final int count, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.lrem(key, count, value);
+            }
+        });
+    }
+
+    public byte[] lpop(final byte[] key) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.lpop(key);
+            }
+        });
+    }
+
+    public byte[] rpop(final byte[] key) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.rpop(key);
+            }
+        });
+    }
+
+    public Boolean sadd(final byte[] key, final byte[] member) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.sadd(key, member);
+            }
+        });
+    }
+
+    public List<byte[]> smembers(final byte[] key) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.smembers(key);
+            }
+        });
+    }
+
+    public Boolean srem(final byte[] key, final byte[] member) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.srem(key, member);
+            }
+        });
+    }
+
+    public byte[] spop(final byte[] key) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.spop(key);
+            }
+        });
+    }
+
+    public Long scard(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.scard(key);
+            }
+        });
+    }
+
+    public Boolean sismember(final byte[] key, final byte[] member) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.sismember(key, member);
+            }
+        });
+    }
+
+    public byte[] srandmember(final byte[] key) {
+        return execute(new RedisCallback<byte[]>() {
+            public byte[] doIt(Session session) {
+                return session.srandmember(key);
+            }
+        });
+    }
+
+    public Boolean zadd(final byte[] key, final Number score, final byte[] member) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.zadd(key, score, member);
+            }
+        });
+    }
+
+    public List<byte[]> zrange(final byte[] key, final int start, final int end) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.zrange(key, start, end);
+            }
+        });
+    }
+
+    public Boolean zrem(final byte[] key, final byte[] member) {
+        return execute(new RedisCallback<Boolean>() {
+            public Boolean doIt(Session session) {
+                return session.zrem(key, member);
+            }
+        });
+    }
+
+    public double zincrby(final byte[] key, final Number score, final byte[] member) {
+        Session session = openSession();
+        try {
+            return session.zincrby(key, score, member);
+        } finally {
+            session.close();
+        }
+    }
+
+    public Long zrank(final byte[] key, final byte[] member) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.zrank(key, member);
+            }
+        });
+    }
+
+    public Long zrevrank(final byte[] key, final byte[] member) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.zrevrank(key, member);
+            }
+        });
+    }
+
+    public List<byte[]> zrevrange(final byte[] key, final int start, final int end) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.zrevrange(key, start, end);
+            }
+        });
+    }
+
+    public List<byte[]> zrevrangeByScore(final byte[] key, final String max, final String min) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.zrevrangeByScore(key, max, min);
+            }
+        });
+    }
+
+    public List<byte[]> zrevrangeByScore(final byte[] key, final String max, final String min, final int offset, final int count) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.zrevrangeByScore(key, max, min, offset, count);
+            }
+        });
+    }
+
+    public Long zcard(final byte[] key) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.zcard(key);
+            }
+        });
+    }
+
+    public double zscore(final byte[] key, final byte[] member) {
+        Session session = openSession();
+        try {
+            return session.zscore(key, member);
+        } finally {
+            session.close();
+        }
+    }
+
+    public List<byte[]> sort(final byte[] key) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.sort(key);
+            }
+        });
+    }
+
+    public List<byte[]> sort(final byte[] key, final SortingParams sortingParameters) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.sort(key, sortingParameters);
+            }
+        });
+    }
+
+    public Long zcount(final byte[] key, final Number min, final Number max) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.zcount(key, min, max);
+            }
+        });
+    }
+
+    public List<byte[]> zrangeByScore(final byte[] key, final String min, final String max) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.zrangeByScore(key, min, max);
+            }
+        });
+    }
+
+    public List<byte[]> zrangeByScore(final byte[] key, final String min, final String max, final int offset, final int count) {
+        return execute(new RedisCallback<List<byte[]>>() {
+            public List<byte[]> doIt(Session session) {
+                return session.zrangeByScore(key, min, max, offset, count);
+            }
+        });
+    }
+
+    public Long zremrangeByRank(final byte[] key, final int start, final int end) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.zremrangeByRank(key, start, end);
+            }
+        });
+    }
+
+    public Long zremrangeByScore(final byte[] key, final String min, final String max) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.zremrangeByScore(key, min, max);
+            }
+        });
+    }
+
+    public Long linsert(final byte[] key, final ListPosition where, final byte[] pivot, final byte[] value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.linsert(key, where, pivot, value);
+            }
+        });
+    }
+
+    public Long publish(final byte[] channel, final byte[] message) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.publish(channel, message);
+            }
+        });
+    }
+
+    public Long getBit(final byte[] key, final int offset) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.getBit(key, offset);
+            }
+        });
+    }
+
+    public Long setBit(final byte[] key, final int offset, final String value) {
+        return execute(new RedisCallback<Long>() {
+            public Long doIt(Session session) {
+                return session.setBit(key, offset, value);
+            }
+        });
+    }
+
+    /**
+     * Primitive variants use the session directly since a callback would box the result.
+     */
+    private Session openSession() {
+        return template.getFactory().create();
+    }
+
+    public Object eval(final RedisScript script, final List<String> keys, final List<String> args) {
+        return execute(new RedisCallback<Object>() {
+            public Object doIt(Session session) {
+                return session.eval(script, keys, args);
+            }
+        });
+    }
+
+    public String scriptLoad(final String script) {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.scriptLoad(script);
+            }
+        });
+    }
+
+    public List<Boolean> scriptExists(final String... sha1) {
+        return execute(new RedisCallback<List<Boolean>>() {
+            public List<Boolean> doIt(Session session) {
+                return session.scriptExists(sha1);
+            }
+        });
+    }
+
+    public String scriptFlush() {
+        return execute(new RedisCallback<String>() {
+            public String doIt(Session session) {
+                return session.scriptFlush();
+            }
+        });
+    }
+
+    public ScanResult<String> scan(final String cursor, final ScanParams params) {
+        return execute(new RedisCallback<ScanResult<String>>() {
+            public ScanResult<String> doIt(Session session) {
+                return session.scan(cursor, params);
+            }
+        });
+    }
+
+    public ScanResult<String> sscan(final String key, final String cursor, final ScanParams params) {
+        return execute(new RedisCallback<ScanResult<String>>() {
+            public ScanResult<String> doIt(Session session) {
+                return session.sscan(key, cursor, params);
+            }
+        });
+    }
+
+    public ScanResult<Map.Entry<String, String>> hscan(final String key, final String cursor, final ScanParams params) {
+        return execute(new RedisCallback<ScanResult<Map.Entry<String, String>>>() {
+            public ScanResult<Map.Entry<String, String>> doIt(Session session) {
+                return session.hscan(key, cursor, params);
+            }
+        });
+    }
+
+    public ScanResult<ElementScore> zscan(final String key, final String cursor, final ScanParams params) {
+        return execute(new RedisCallback<ScanResult<ElementScore>>() {
+            public ScanResult<ElementScore> doIt(Session session) {
+                return session.zscan(key, cursor, params);
+            }
+        });
+    }
+
+    /**
+     * Iterates the keys of the database with SCAN, every page is fetched with its own connection, so the iteration
+     * may be abandoned at any point. Every <code>iterator()</code> call starts a new iteration.
+     *
+     * @param params options, may be null
+     * @return lazy iterable of the keys
+     */
+    public Iterable<String> scanKeys(final ScanParams params) {
+        return scanIterable(RedisCommand.SCAN, null, params, ReplyConverters.STRING_LIST);
+    }
+
+    /**
+     * Iterates the members of the set with SSCAN.
+     *
+     * @see #scanKeys(ScanParams)
+     */
+    public Iterable<String> scanMembers(final String key, final ScanParams params) {
+        return scanIterable(RedisCommand.SSCAN, key, params, ReplyConverters.STRING_LIST);
+    }
+
+    /**
+     * Iterates the fields and values of the hash with HSCAN.
+     *
+     * @see #scanKeys(ScanParams)
+     */
+    public Iterable<Map.Entry<String, String>> scanHash(final String key, final ScanParams params) {
+        return scanIterable(RedisCommand.HSCAN, key, params, ReplyConverters.STRING_ENTRIES);
+    }
+
+    /**
+     * Iterates the elements and scores of the sorted set with ZSCAN.
+     *
+     * @see #scanKeys(ScanParams)
+     */
+    public Iterable<ElementScore> scanSortedSet(final String key, final ScanParams params) {
+        return scanIterable(RedisCommand.ZSCAN, key, params, ReplyConverters.ELEMENT_SCORES);
+    }
+
+    private <T> Iterable<T> scanIterable(final RedisCommand command, final String key, final ScanParams params,
+                                         final ReplyConverter<List<T>> converter) {
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return new ScanIterator<T>(dataSource, command, key, params, converter);
+            }
+        };
+    }
+
     private <R> R execute(RedisCallback<R> cmd) {
         return template.execute(cmd);
     }
@@ -16,6 +16,8 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.codec.Codec;
+
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,6 +37,11 @@ public interface RedisOperations {
      */
     String set(String key, String value);
 
+    /**
+     * Same as {@link #set(String, String)} with the value encoded by the codec.
+     */
+    <T> String set(String key, T value, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * <p/>
@@ -46,6 +53,11 @@ public interface RedisOperations {
      */
     String get(String key);
 
+    /**
+     * Same as {@link #get(String)} with the value decoded by the codec.
+     */
+    <T> T get(String key, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * <p/>
@@ -140,6 +152,11 @@ public interface RedisOperations {
      */
     String getSet(String key, String value);
 
+    /**
+     * Same as {@link #getSet(String, String)} with the values encoded and decoded by the codec.
+     */
+    <T> T getSet(String key, T value, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * <p/>
@@ -174,6 +191,11 @@ public interface RedisOperations {
      */
     String setex(String key, int seconds, String value);
 
+    /**
+     * Same as {@link #setex(String, int, String)} with the value encoded by the codec.
+     */
+    <T> String setex(String key, int seconds, T value, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * <p/>
@@ -189,6 +211,11 @@ public interface RedisOperations {
      */
     Long decrBy(String key, int value);
 
+    /**
+     * Same as {@link #decrBy(String, int)} but returns primitive value.
+     */
+    long decrByAsLong(String key, int value);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * <p/>
@@ -202,6 +229,11 @@ public interface RedisOperations {
      */
     Long decr(String key);
 
+    /**
+     * Same as {@link #decr(String)} but returns primitive value.
+     */
+    long decrAsLong(String key);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * Increments the number stored at key by increment. If the key does not exist or contains
@@ -215,6 +247,11 @@ public interface RedisOperations {
      */
     Long incrBy(String key, int value);
 
+    /**
+     * Same as {@link #incrBy(String, int)} but returns primitive value.
+     */
+    long incrByAsLong(String key, int value);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * Increments the number stored at key by one. If the key does not exist or contains a value
@@ -230,6 +267,11 @@ public interface RedisOperations {
      */
     Long incr(String key);
 
+    /**
+     * Same as {@link #incr(String)} but returns primitive value.
+     */
+    long incrAsLong(String key);
+
     /**
      * <h4>Time complexity</h4>
      * O(1). The amortized time complexity is O(1) assuming the appended value is small and the already present
@@ -353,6 +395,11 @@ public interface RedisOperations {
      */
     Boolean hset(String key, String field, String value);
 
+    /**
+     * Same as {@link #hset(String, String, String)} with the value encoded by the codec.
+     */
+    <T> Boolean hset(String key, String field, T value, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * <p/>
@@ -364,6 +411,11 @@ public interface RedisOperations {
      */
     String hget(String key, String field);
 
+    /**
+     * Same as {@link #hget(String, String)} with the value decoded by the codec.
+     */
+    <T> T hget(String key, String field, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -429,6 +481,11 @@ public interface RedisOperations {
      */
     Long hincrBy(String key, String field, int value);
 
+    /**
+     * Same as {@link #hincrBy(String, String, int)} but returns primitive value.
+     */
+    long hincrByAsLong(String key, String field, int value);
+
     /**
      * <h4>Time complexity</h4> O(1)
      * Returns if field is an existing field in the hash stored at key.
@@ -513,6 +570,11 @@ public interface RedisOperations {
      */
     Long rpush(String key, String value);
 
+    /**
+     * Same as {@link #rpush(String, String)} with the value encoded by the codec.
+     */
+    <T> Long rpush(String key, T value, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -542,6 +604,11 @@ public interface RedisOperations {
      */
     Long lpush(String key, String value);
 
+    /**
+     * Same as {@link #lpush(String, String)} with the value encoded by the codec.
+     */
+    <T> Long lpush(String key, T value, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -600,6 +667,11 @@ public interface RedisOperations {
      */
     List<String> lrange(String key, int start, int end);
 
+    /**
+     * Same as {@link #lrange(String, int, int)} with the elements decoded by the codec.
+     */
+    <T> List<T> lrange(String key, int start, int end, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -656,6 +728,11 @@ public interface RedisOperations {
      */
     String lindex(String key, int index);
 
+    /**
+     * Same as {@link #lindex(String, int)} with the value decoded by the codec.
+     */
+    <T> T lindex(String key, int index, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -707,6 +784,11 @@ public interface RedisOperations {
      */
     String lpop(String key);
 
+    /**
+     * Same as {@link #lpop(String)} with the value decoded by the codec.
+     */
+    <T> T lpop(String key, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -719,6 +801,11 @@ public interface RedisOperations {
      */
     String rpop(String key);
 
+    /**
+     * Same as {@link #rpop(String)} with the value decoded by the codec.
+     */
+    <T> T rpop(String key, Codec<T> codec);
+
     /**
      * <h4>Time complexity</h4>
      * <p/>
@@ -909,6 +996,11 @@ public interface RedisOperations {
      */
     String zincrby(String key, Number score, String member);
 
+    /**
+     * Same as {@link #zincrby(String, Number, String)} but returns the new score as double.
+     */
+    double zincrbyAsDouble(String key, double score, String member);
+
     /**
      * Time complexity
      * <p/>
@@ -991,6 +1083,12 @@ public interface RedisOperations {
      */
     List<ElementScore> zrangeWithScores(String key, int start, int end);
 
+    /**
+     * Same as {@link #zrangeWithScores(String, int, int)} but scores are parsed straight from the reply,
+     * use {@link ElementScore#getScoreAsDouble()} to get them.
+     */
+    List<ElementScore> zrangeWithScoresAsDouble(String key, int start, int end);
+
     /**
      * Time complexity
      * <p/>
@@ -1007,6 +1105,12 @@ public interface RedisOperations {
      */
     List<ElementScore> zrevrangeWithScores(String key, int start, int end);
 
+    /**
+     * Same as {@link #zrevrangeWithScores(String, int, int)} but scores are parsed straight from the reply,
+     * use {@link ElementScore#getScoreAsDouble()} to get them.
+     */
+    List<ElementScore> zrevrangeWithScoresAsDouble(String key, int start, int end);
+
     /**
      * Time complexity
      * <p/>
@@ -1122,6 +1226,13 @@ public interface RedisOperations {
      */
     String zscore(String key, String member);
 
+    /**
+     * Same as {@link #zscore(String, String)} but returns the score as double.
+     *
+     * @return the score of member or <code>Double.NaN</code> if member does not exist
+     */
+    double zscoreAsDouble(String key, String member);
+
     /**
      * <h4>Time complexity</h4> O(N*log(N)) where N is the number of elements returned.
      * When the elements are not sorted, complexity is O(N).
@@ -1443,4 +1554,15 @@ public interface RedisOperations {
      * @since 2.1.8.
      */
     Long setBit(String key, int offset, String value);
+
+    /**
+     * Executes the script by EVALSHA, its source is sent by EVAL only if the server does not know the script yet.
+     *
+     * @param script the script
+     * @param keys   KEYS of the script, sharded implementations route the script by the first key
+     * @param args   ARGV of the script
+     * @return reply of the script: String, Long, List of them or null
+     * @since 2.6.0
+     */
+    Object eval(RedisScript script, List<String> keys, List<String> args);
 }
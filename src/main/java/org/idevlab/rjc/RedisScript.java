@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Lua script executed by EVALSHA. The SHA1 digest is computed once when the script is created,
+ * so executing it sends only the digest. A server which does not know the script yet replies
+ * with NOSCRIPT and the script is sent once by EVAL, which also caches it on the server.
+ * Instances are immutable and are meant to be kept in static fields:
+ * <pre>
+ * static final RedisScript CAS = new RedisScript(
+ *         "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('set', KEYS[1], ARGV[2]) end");
+ * ...
+ * node.eval(CAS, Arrays.asList("key"), Arrays.asList("old", "new"));
+ * </pre>
+ *
+ * @author Evgeny Dolgov
+ */
+public final class RedisScript {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String source;
+    private final String sha1;
+
+    public RedisScript(String source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Script source is null");
+        }
+        this.source = source;
+        this.sha1 = sha1(source);
+    }
+
+    private static String sha1(String source) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(SafeEncoder.encode(source));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported", e);
+        }
+        final char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return lower case hex SHA1 digest of the source, the same as SCRIPT LOAD returns
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * @param error error reply of EVALSHA
+     * @return true if the server does not know the script
+     */
+    static boolean isNoScript(RedisException error) {
+        return error.getMessage() != null && error.getMessage().startsWith("NOSCRIPT");
+    }
+
+    /**
+     * @return EVAL or EVALSHA arguments: script or digest, number of keys, keys and arguments
+     */
+    static String[] args(String script, List<String> keys, List<String> args) {
+        final String[] result = new String[2 + keys.size() + args.size()];
+        result[0] = script;
+        result[1] = String.valueOf(keys.size());
+        int i = 2;
+        for (String key : keys) {
+            result[i++] = key;
+        }
+        for (String arg : args) {
+            result[i++] = arg;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof RedisScript && sha1.equals(((RedisScript) o).sha1);
+    }
+
+    @Override
+    public int hashCode() {
+        return sha1.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RedisScript{" + sha1 + "}";
+    }
+}
@@ -16,10 +16,13 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.codec.Codec;
 import org.idevlab.rjc.ds.RedisConnection;
+import org.idevlab.rjc.protocol.Protocol;
 import org.idevlab.rjc.protocol.RedisCommand;
 import org.idevlab.rjc.protocol.RedisKeyword;
 import org.idevlab.rjc.util.KeyUtil;
+import org.idevlab.rjc.util.SafeEncoder;
 
 import java.util.*;
 
@@ -37,10 +40,18 @@ public class RedisSessionImpl implements Session {
         return client.getStatusReply(RedisCommand.SET, key, value);
     }
 
+    public <T> String set(final String key, final T value, final Codec<T> codec) {
+        return client.getStatusReply(RedisCommand.SET, codec, value, key);
+    }
+
     public String get(final String key) {
         return client.getBulkReply(RedisCommand.GET, key);
     }
 
+    public <T> T get(final String key, final Codec<T> codec) {
+        return client.getBulkReply(codec, RedisCommand.GET, key);
+    }
+
     public void quit() {
         client.noReply(RedisCommand.QUIT);
     }
@@ -111,6 +122,10 @@ public class RedisSessionImpl implements Session {
         return client.getBulkReply(RedisCommand.GETSET, key, value);
     }
 
+    public <T> T getSet(final String key, final T value, final Codec<T> codec) {
+        return client.getBulkReply(RedisCommand.GETSET, codec, value, key);
+    }
+
     public List<String> mget(final String... keys) {
         return client.getStringMultiBulkReply(RedisCommand.MGET, keys);
     }
@@ -123,6 +138,10 @@ public class RedisSessionImpl implements Session {
         return client.getStatusReply(RedisCommand.SETEX, key, String.valueOf(seconds), value);
     }
 
+    public <T> String setex(final String key, final int seconds, final T value, final Codec<T> codec) {
+        return client.getStatusReply(RedisCommand.SETEX, codec, value, key, String.valueOf(seconds));
+    }
+
     public String mset(final String... keysvalues) {
         return client.getStatusReply(RedisCommand.MSET, keysvalues);
     }
@@ -135,18 +154,34 @@ public class RedisSessionImpl implements Session {
         return client.getIntegerReply(RedisCommand.DECRBY, key, String.valueOf(value));
     }
 
+    public long decrByAsLong(final String key, final int value) {
+        return client.getIntegerReplyAsLong(RedisCommand.DECRBY, key, String.valueOf(value));
+    }
+
     public Long decr(final String key) {
         return client.getIntegerReply(RedisCommand.DECR, key);
     }
 
+    public long decrAsLong(final String key) {
+        return client.getIntegerReplyAsLong(RedisCommand.DECR, key);
+    }
+
     public Long incrBy(final String key, final int value) {
         return client.getIntegerReply(RedisCommand.INCRBY, key, String.valueOf(value));
     }
 
+    public long incrByAsLong(final String key, final int value) {
+        return client.getIntegerReplyAsLong(RedisCommand.INCRBY, key, String.valueOf(value));
+    }
+
     public Long incr(final String key) {
         return client.getIntegerReply(RedisCommand.INCR, key);
     }
 
+    public long incrAsLong(final String key) {
+        return client.getIntegerReplyAsLong(RedisCommand.INCR, key);
+    }
+
     public Long append(final String key, final String value) {
         return client.getIntegerReply(RedisCommand.APPEND, key, value);
     }
@@ -163,10 +198,18 @@ public class RedisSessionImpl implements Session {
         return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HSET, key, field, value));
     }
 
+    public <T> Boolean hset(final String key, final String field, final T value, final Codec<T> codec) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HSET, codec, value, key, field));
+    }
+
     public String hget(final String key, final String field) {
         return client.getBulkReply(RedisCommand.HGET, key, field);
     }
 
+    public <T> T hget(final String key, final String field, final Codec<T> codec) {
+        return client.getBulkReply(codec, RedisCommand.HGET, key, field);
+    }
+
     public Boolean hsetnx(final String key, final String field, final String value) {
         return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HSETNX, key, field, value));
     }
@@ -194,6 +237,10 @@ public class RedisSessionImpl implements Session {
         return client.getIntegerReply(RedisCommand.HINCRBY, key, field, String.valueOf(value));
     }
 
+    public long hincrByAsLong(final String key, final String field, final int value) {
+        return client.getIntegerReplyAsLong(RedisCommand.HINCRBY, key, field, String.valueOf(value));
+    }
+
     public Boolean hexists(final String key, final String field) {
         return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HEXISTS, key, field));
     }
@@ -229,10 +276,18 @@ public class RedisSessionImpl implements Session {
         return client.getIntegerReply(RedisCommand.RPUSH, key, value);
     }
 
+    public <T> Long rpush(final String key, final T value, final Codec<T> codec) {
+        return client.getIntegerReply(RedisCommand.RPUSH, codec, value, key);
+    }
+
     public Long lpush(final String key, final String value) {
         return client.getIntegerReply(RedisCommand.LPUSH, key, value);
     }
 
+    public <T> Long lpush(final String key, final T value, final Codec<T> codec) {
+        return client.getIntegerReply(RedisCommand.LPUSH, codec, value, key);
+    }
+
     public Long llen(final String key) {
         return client.getIntegerReply(RedisCommand.LLEN, key);
     }
@@ -241,6 +296,10 @@ public class RedisSessionImpl implements Session {
         return client.getStringMultiBulkReply(RedisCommand.LRANGE, key, String.valueOf(start), String.valueOf(end));
     }
 
+    public <T> List<T> lrange(final String key, final int start, final int end, final Codec<T> codec) {
+        return client.getMultiBulkReply(codec, RedisCommand.LRANGE, key, String.valueOf(start), String.valueOf(end));
+    }
+
     public String ltrim(final String key, final int start, final int end) {
         return client.getStatusReply(RedisCommand.LTRIM, key, String.valueOf(start), String.valueOf(end));
     }
@@ -249,6 +308,10 @@ public class RedisSessionImpl implements Session {
         return client.getBulkReply(RedisCommand.LINDEX, key, String.valueOf(index));
     }
 
+    public <T> T lindex(final String key, final int index, final Codec<T> codec) {
+        return client.getBulkReply(codec, RedisCommand.LINDEX, key, String.valueOf(index));
+    }
+
     public String lset(final String key, final int index, final String value) {
         return client.getStatusReply(RedisCommand.LSET, key, String.valueOf(index), value);
     }
@@ -261,10 +324,18 @@ public class RedisSessionImpl implements Session {
         return client.getBulkReply(RedisCommand.LPOP, key);
     }
 
+    public <T> T lpop(final String key, final Codec<T> codec) {
+        return client.getBulkReply(codec, RedisCommand.LPOP, key);
+    }
+
     public String rpop(final String key) {
         return client.getBulkReply(RedisCommand.RPOP, key);
     }
 
+    public <T> T rpop(final String key, final Codec<T> codec) {
+        return client.getBulkReply(codec, RedisCommand.RPOP, key);
+    }
+
     public String rpoplpush(final String srckey, final String dstkey) {
         return client.getBulkReply(RedisCommand.RPOPLPUSH, srckey, dstkey);
     }
@@ -354,11 +425,19 @@ public class RedisSessionImpl implements Session {
         return getReplyAsElementScoreSet(client.getStringMultiBulkReply(RedisCommand.ZRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str));
     }
 
+    public List<ElementScore> zrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return client.getElementScoreReply(RedisCommand.ZRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str);
+    }
+
     public List<ElementScore> zrevrangeWithScores(final String key, final int start,
                                                   final int end) {
         return getReplyAsElementScoreSet(client.getStringMultiBulkReply(RedisCommand.ZREVRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str));
     }
 
+    public List<ElementScore> zrevrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return client.getElementScoreReply(RedisCommand.ZREVRANGE, key, String.valueOf(start), String.valueOf(end), RedisKeyword.WITHSCORES.str);
+    }
+
     public List<String> zrevrangeByScore(String key, String max, String min) {
         return client.getStringMultiBulkReply(RedisCommand.ZREVRANGEBYSCORE, key, max, min);
     }
@@ -383,6 +462,10 @@ public class RedisSessionImpl implements Session {
         return client.getBulkReply(RedisCommand.ZSCORE, key, member);
     }
 
+    public double zscoreAsDouble(final String key, final String member) {
+        return client.getBulkReplyAsDouble(RedisCommand.ZSCORE, key, member);
+    }
+
     public String watch(final String... keys) {
         return client.getStatusReply(RedisCommand.WATCH, keys);
     }
@@ -395,6 +478,33 @@ public class RedisSessionImpl implements Session {
         return client.getMultiBulkReply(RedisCommand.EXEC);
     }
 
+    public List<Object> pipeline(final CommandPipeline pipeline) {
+        return pipeline.execute(client);
+    }
+
+    public void pipeline(final CommandPipeline pipeline, final ReplyCallback<Object> callback) {
+        pipeline.execute(client, callback);
+    }
+
+    public long pipeline(final int window, final ReplyCallback<Object> callback, final CommandStream stream) {
+        final StreamingPipeline pipeline = new StreamingPipeline(client, window, callback);
+        client.setAutoFlush(false);
+        try {
+            stream.execute(pipeline);
+            pipeline.sync();
+            return pipeline.getSentCount();
+        } catch (RuntimeException e) {
+            pipeline.drain();
+            throw e;
+        } finally {
+            client.setAutoFlush(true);
+        }
+    }
+
+    public List<Object> exec(final Transaction transaction) {
+        return transaction.execute(client);
+    }
+
     public void close() {
         client.close();
     }
@@ -569,6 +679,10 @@ public class RedisSessionImpl implements Session {
         return client.getBulkReply(RedisCommand.ZINCRBY, key, String.valueOf(score), member);
     }
 
+    public double zincrbyAsDouble(final String key, final double score, final String member) {
+        return client.getBulkReplyAsDouble(RedisCommand.ZINCRBY, key, String.valueOf(score), member);
+    }
+
     public RedisClient multi() {
         client.getStatusReply(RedisCommand.MULTI);
         return client;
@@ -579,8 +693,14 @@ public class RedisSessionImpl implements Session {
     }
 
     public List<Object> pipeline(final Pipeline pipeline) {
-        pipeline.execute(client);
-        return client.getAll();
+        // commands are buffered and go to the server in as few writes as possible
+        client.setAutoFlush(false);
+        try {
+            pipeline.execute(client);
+            return client.getAll();
+        } finally {
+            client.setAutoFlush(true);
+        }
     }
 
     public Long zremrangeByScore(final String key, final String min, final String max) {
@@ -649,6 +769,322 @@ public class RedisSessionImpl implements Session {
         return client.getStatusReply(RedisCommand.DEBUG, params.getCommand());
     }
 
+    public String set(final byte[] key, final byte[] value) {
+        return client.getStatusReply(RedisCommand.SET, key, value);
+    }
+
+    public byte[] get(final byte[] key) {
+        return client.getBinaryBulkReply(RedisCommand.GET, key);
+    }
+
+    public Boolean exists(final byte[] key) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.EXISTS, key));
+    }
+
+    public Long del(final byte[]... keys) {
+        return client.getIntegerReply(RedisCommand.DEL, keys);
+    }
+
+    public String type(final byte[] key) {
+        return client.getStatusReply(RedisCommand.TYPE, key);
+    }
+
+    public Boolean expire(final byte[] key, final int seconds) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.EXPIRE, key, Protocol.toByteArray(seconds)));
+    }
+
+    public Boolean expireAt(final byte[] key, final long unixTime) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.EXPIREAT, key, Protocol.toByteArray(unixTime)));
+    }
+
+    public Long ttl(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.TTL, key);
+    }
+
+    public byte[] getSet(final byte[] key, final byte[] value) {
+        return client.getBinaryBulkReply(RedisCommand.GETSET, key, value);
+    }
+
+    public Boolean setnx(final byte[] key, final byte[] value) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.SETNX, key, value));
+    }
+
+    public String setex(final byte[] key, final int seconds, final byte[] value) {
+        return client.getStatusReply(RedisCommand.SETEX, key, Protocol.toByteArray(seconds), value);
+    }
+
+    public Long decrBy(final byte[] key, final int value) {
+        return client.getIntegerReply(RedisCommand.DECRBY, key, Protocol.toByteArray(value));
+    }
+
+    public Long decr(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.DECR, key);
+    }
+
+    public Long incrBy(final byte[] key, final int value) {
+        return client.getIntegerReply(RedisCommand.INCRBY, key, Protocol.toByteArray(value));
+    }
+
+    public Long incr(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.INCR, key);
+    }
+
+    public Long append(final byte[] key, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.APPEND, key, value);
+    }
+
+    public byte[] getRange(final byte[] key, final int start, final int end) {
+        return client.getBinaryBulkReply(RedisCommand.GETRANGE, key, Protocol.toByteArray(start), Protocol.toByteArray(end));
+    }
+
+    public Long setRange(final byte[] key, final int offset, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.SETRANGE, key, Protocol.toByteArray(offset), value);
+    }
+
+    public Long strlen(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.STRLEN, key);
+    }
+
+    public List<byte[]> keys(final byte[] pattern) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.KEYS, pattern));
+    }
+
+    public Boolean persist(final byte[] key) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.PERSIST, key));
+    }
+
+    public Boolean hset(final byte[] key, final byte[] field, final byte[] value) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HSET, key, field, value));
+    }
+
+    public byte[] hget(final byte[] key, final byte[] field) {
+        return client.getBinaryBulkReply(RedisCommand.HGET, key, field);
+    }
+
+    public Boolean hsetnx(final byte[] key, final byte[] field, final byte[] value) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HSETNX, key, field, value));
+    }
+
+    public String hmset(final byte[] key, final Map<byte[], byte[]> hash) {
+        final List<byte[]> params = new ArrayList<byte[]>();
+        params.add(key);
+        for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
+            params.add(entry.getKey());
+            params.add(entry.getValue());
+        }
+        return client.getStatusReply(RedisCommand.HMSET, params.toArray(new byte[params.size()][]));
+    }
+
+    public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
+        byte[][] params = new byte[fields.length + 1][];
+        params[0] = key;
+        System.arraycopy(fields, 0, params, 1, fields.length);
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.HMGET, params));
+    }
+
+    public Long hincrBy(final byte[] key, final byte[] field, final int value) {
+        return client.getIntegerReply(RedisCommand.HINCRBY, key, field, Protocol.toByteArray(value));
+    }
+
+    public Boolean hexists(final byte[] key, final byte[] field) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HEXISTS, key, field));
+    }
+
+    public Boolean hdel(final byte[] key, final byte[] field) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.HDEL, key, field));
+    }
+
+    public Long hlen(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.HLEN, key);
+    }
+
+    public List<byte[]> hkeys(final byte[] key) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.HKEYS, key));
+    }
+
+    public List<byte[]> hvals(final byte[] key) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.HVALS, key));
+    }
+
+    public Map<byte[], byte[]> hgetAll(final byte[] key) {
+        final List<byte[]> flatHash = toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.HGETALL, key));
+        final Map<byte[], byte[]> hash = new LinkedHashMap<byte[], byte[]>();
+        final Iterator<byte[]> iterator = flatHash.iterator();
+        while (iterator.hasNext()) {
+            hash.put(iterator.next(), iterator.next());
+        }
+        return hash;
+    }
+
+    public Long rpush(final byte[] key, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.RPUSH, key, value);
+    }
+
+    public Long rpushx(final byte[] key, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.RPUSHX, key, value);
+    }
+
+    public Long lpush(final byte[] key, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.LPUSH, key, value);
+    }
+
+    public Long lpushx(final byte[] key, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.LPUSHX, key, value);
+    }
+
+    public Long llen(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.LLEN, key);
+    }
+
+    public List<byte[]> lrange(final byte[] key, final int start, final int end) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.LRANGE, key, Protocol.toByteArray(start), Protocol.toByteArray(end)));
+    }
+
+    public String ltrim(final byte[] key, final int start, final int end) {
+        return client.getStatusReply(RedisCommand.LTRIM, key, Protocol.toByteArray(start), Protocol.toByteArray(end));
+    }
+
+    public byte[] lindex(final byte[] key, final int index) {
+        return client.getBinaryBulkReply(RedisCommand.LINDEX, key, Protocol.toByteArray(index));
+    }
+
+    public String lset(final byte[] key, final int index, final byte[] value) {
+        return client.getStatusReply(RedisCommand.LSET, key, Protocol.toByteArray(index), value);
+    }
+
+    public Long lrem(final byte[] key, final int count, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.LREM, key, Protocol.toByteArray(count), value);
+    }
+
+    public byte[] lpop(final byte[] key) {
+        return client.getBinaryBulkReply(RedisCommand.LPOP, key);
+    }
+
+    public byte[] rpop(final byte[] key) {
+        return client.getBinaryBulkReply(RedisCommand.RPOP, key);
+    }
+
+    public Boolean sadd(final byte[] key, final byte[] member) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.SADD, key, member));
+    }
+
+    public List<byte[]> smembers(final byte[] key) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.SMEMBERS, key));
+    }
+
+    public Boolean srem(final byte[] key, final byte[] member) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.SREM, key, member));
+    }
+
+    public byte[] spop(final byte[] key) {
+        return client.getBinaryBulkReply(RedisCommand.SPOP, key);
+    }
+
+    public Long scard(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.SCARD, key);
+    }
+
+    public Boolean sismember(final byte[] key, final byte[] member) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.SISMEMBER, key, member));
+    }
+
+    public byte[] srandmember(final byte[] key) {
+        return client.getBinaryBulkReply(RedisCommand.SRANDMEMBER, key);
+    }
+
+    public Boolean zadd(final byte[] key, final Number score, final byte[] member) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.ZADD, key, Protocol.toByteArray(score.doubleValue()), member));
+    }
+
+    public List<byte[]> zrange(final byte[] key, final int start, final int end) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.ZRANGE, key, Protocol.toByteArray(start), Protocol.toByteArray(end)));
+    }
+
+    public Boolean zrem(final byte[] key, final byte[] member) {
+        return integerReplayToBoolean(client.getIntegerReply(RedisCommand.ZREM, key, member));
+    }
+
+    public double zincrby(final byte[] key, final Number score, final byte[] member) {
+        return client.getBulkReplyAsDouble(RedisCommand.ZINCRBY, key, Protocol.toByteArray(score.doubleValue()), member);
+    }
+
+    public Long zrank(final byte[] key, final byte[] member) {
+        return client.getIntegerReply(RedisCommand.ZRANK, key, member);
+    }
+
+    public Long zrevrank(final byte[] key, final byte[] member) {
+        return client.getIntegerReply(RedisCommand.ZREVRANK, key, member);
+    }
+
+    public List<byte[]> zrevrange(final byte[] key, final int start, final int end) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.ZREVRANGE, key, Protocol.toByteArray(start), Protocol.toByteArray(end)));
+    }
+
+    public List<byte[]> zrevrangeByScore(final byte[] key, final String max, final String min) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.ZREVRANGEBYSCORE, key, SafeEncoder.encode(max), SafeEncoder.encode(min)));
+    }
+
+    public List<byte[]> zrevrangeByScore(final byte[] key, final String max, final String min, final int offset, final int count) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.ZREVRANGEBYSCORE, key, SafeEncoder.encode(max), SafeEncoder.encode(min), RedisKeyword.LIMIT.raw, Protocol.toByteArray(offset), Protocol.toByteArray(count)));
+    }
+
+    public Long zcard(final byte[] key) {
+        return client.getIntegerReply(RedisCommand.ZCARD, key);
+    }
+
+    public double zscore(final byte[] key, final byte[] member) {
+        return client.getBulkReplyAsDouble(RedisCommand.ZSCORE, key, member);
+    }
+
+    public List<byte[]> sort(final byte[] key) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.SORT, key));
+    }
+
+    public List<byte[]> sort(final byte[] key, final SortingParams sortingParameters) {
+        final List<byte[]> args = new ArrayList<byte[]>();
+        args.add(key);
+        for (String param : sortingParameters.getParams()) {
+            args.add(SafeEncoder.encode(param));
+        }
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.SORT, args.toArray(new byte[args.size()][])));
+    }
+
+    public Long zcount(final byte[] key, final Number min, final Number max) {
+        return client.getIntegerReply(RedisCommand.ZCOUNT, key, Protocol.toByteArray(min.doubleValue()), Protocol.toByteArray(max.doubleValue()));
+    }
+
+    public List<byte[]> zrangeByScore(final byte[] key, final String min, final String max) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.ZRANGEBYSCORE, key, SafeEncoder.encode(min), SafeEncoder.encode(max)));
+    }
+
+    public List<byte[]> zrangeByScore(final byte[] key, final String min, final String max, final int offset, final int count) {
+        return toBinaryList(client.getBinaryMultiBulkReply(RedisCommand.ZRANGEBYSCORE, key, SafeEncoder.encode(min), SafeEncoder.encode(max), RedisKeyword.LIMIT.raw, Protocol.toByteArray(offset), Protocol.toByteArray(count)));
+    }
+
+    public Long zremrangeByRank(final byte[] key, final int start, final int end) {
+        return client.getIntegerReply(RedisCommand.ZREMRANGEBYRANK, key, Protocol.toByteArray(start), Protocol.toByteArray(end));
+    }
+
+    public Long zremrangeByScore(final byte[] key, final String min, final String max) {
+        return client.getIntegerReply(RedisCommand.ZREMRANGEBYSCORE, key, SafeEncoder.encode(min), SafeEncoder.encode(max));
+    }
+
+    public Long linsert(final byte[] key, final ListPosition where, final byte[] pivot, final byte[] value) {
+        return client.getIntegerReply(RedisCommand.LINSERT, key, SafeEncoder.encode(where.name()), pivot, value);
+    }
+
+    public Long publish(final byte[] channel, final byte[] message) {
+        return client.getIntegerReply(RedisCommand.PUBLISH, channel, message);
+    }
+
+    public Long getBit(final byte[] key, final int offset) {
+        return client.getIntegerReply(RedisCommand.GETBIT, key, Protocol.toByteArray(offset));
+    }
+
+    public Long setBit(final byte[] key, final int offset, final String value) {
+        return client.getIntegerReply(RedisCommand.SETBIT, key, Protocol.toByteArray(offset), SafeEncoder.encode(value));
+    }
+
     private Boolean integerReplayToBoolean(Long replay) {
         if (replay == null) {
             return null;
@@ -657,6 +1093,11 @@ public class RedisSessionImpl implements Session {
         }
     }
 
+    @SuppressWarnings({"unchecked"})
+    private List<byte[]> toBinaryList(List<Object> reply) {
+        return (List<byte[]>) (List) reply;
+    }
+
     private List<ElementScore> getReplyAsElementScoreSet(List<String> membersWithScores) {
         List<ElementScore> result = new ArrayList<ElementScore>();
         Iterator<String> iterator = membersWithScores.iterator();
@@ -665,4 +1106,71 @@ public class RedisSessionImpl implements Session {
         }
         return result;
     }
+
+    public Object eval(final RedisScript script, final List<String> keys, final List<String> args) {
+        client.noReply(RedisCommand.EVALSHA, RedisScript.args(script.getSha1(), keys, args));
+        Object reply = client.getReply();
+        if (reply instanceof RedisException && RedisScript.isNoScript((RedisException) reply)) {
+            client.noReply(RedisCommand.EVAL, RedisScript.args(script.getSource(), keys, args));
+            reply = client.getReply();
+        }
+        if (reply instanceof RedisException) {
+            throw (RedisException) reply;
+        }
+        return ReplyConverters.OBJECT.convert(reply);
+    }
+
+    public String scriptLoad(final String script) {
+        return client.getBulkReply(RedisCommand.SCRIPT, RedisKeyword.LOAD.str, script);
+    }
+
+    public List<Boolean> scriptExists(final String... sha1) {
+        final String[] args = new String[sha1.length + 1];
+        args[0] = RedisKeyword.EXISTS.str;
+        System.arraycopy(sha1, 0, args, 1, sha1.length);
+        final List<Object> reply = client.getMultiBulkReply(RedisCommand.SCRIPT, args);
+        final List<Boolean> result = new ArrayList<Boolean>(reply.size());
+        for (Object exists : reply) {
+            result.add((Long) exists == 1);
+        }
+        return result;
+    }
+
+    public String scriptFlush() {
+        return client.getStatusReply(RedisCommand.SCRIPT, RedisKeyword.FLUSH.str);
+    }
+
+    public ScanResult<String> scan(String cursor, ScanParams params) {
+        return scan(RedisCommand.SCAN, null, cursor, params, ReplyConverters.STRING_LIST);
+    }
+
+    public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
+        return scan(RedisCommand.SSCAN, key, cursor, params, ReplyConverters.STRING_LIST);
+    }
+
+    public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+        return scan(RedisCommand.HSCAN, key, cursor, params, ReplyConverters.STRING_ENTRIES);
+    }
+
+    public ScanResult<ElementScore> zscan(String key, String cursor, ScanParams params) {
+        return scan(RedisCommand.ZSCAN, key, cursor, params, ReplyConverters.ELEMENT_SCORES);
+    }
+
+    private <T> ScanResult<T> scan(RedisCommand command, String key, String cursor, ScanParams params,
+                                   ReplyConverter<List<T>> converter) {
+        final List<String> args = new ArrayList<String>();
+        if (key != null) {
+            args.add(key);
+        }
+        args.add(cursor);
+        if (params != null) {
+            args.addAll(params.getParams(0));
+        }
+        client.noReply(command, args.toArray(new String[args.size()]));
+        final Object reply = client.getReply();
+        if (reply instanceof RedisException) {
+            throw (RedisException) reply;
+        }
+        return ScanResult.of(reply, converter);
+    }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+/**
+ * Converts a raw reply to the result type of a command.
+ * A raw reply is <code>byte[]</code> for bulk values, <code>String</code> for status,
+ * <code>Long</code> for integers and <code>List</code> of raw replies for multi bulk replies.
+ *
+ * @author Evgeny Dolgov
+ * @see ReplyConverters
+ */
+public interface ReplyConverter<T> {
+
+    T convert(Object reply);
+}
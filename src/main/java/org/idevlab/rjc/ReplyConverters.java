@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <code>ReplyConverter</code>s of the usual reply types.
+ *
+ * @author Evgeny Dolgov
+ */
+public final class ReplyConverters {
+
+    /**
+     * Reply of any type with bulk values decoded to String, also inside multi bulk replies
+     */
+    public static final ReplyConverter<Object> OBJECT = new ReplyConverter<Object>() {
+        public Object convert(Object reply) {
+            if (reply instanceof byte[]) {
+                return SafeEncoder.encode((byte[]) reply);
+            }
+            if (reply instanceof List) {
+                final List<?> list = (List<?>) reply;
+                final List<Object> result = new ArrayList<Object>(list.size());
+                for (Object element : list) {
+                    result.add(convert(element));
+                }
+                return result;
+            }
+            return reply;
+        }
+    };
+
+    public static final ReplyConverter<String> STATUS = new ReplyConverter<String>() {
+        public String convert(Object reply) {
+            return (String) reply;
+        }
+    };
+
+    public static final ReplyConverter<String> STRING = new ReplyConverter<String>() {
+        public String convert(Object reply) {
+            return reply == null ? null : SafeEncoder.encode((byte[]) reply);
+        }
+    };
+
+    public static final ReplyConverter<byte[]> BYTES = new ReplyConverter<byte[]>() {
+        public byte[] convert(Object reply) {
+            return (byte[]) reply;
+        }
+    };
+
+    public static final ReplyConverter<Long> LONG = new ReplyConverter<Long>() {
+        public Long convert(Object reply) {
+            return (Long) reply;
+        }
+    };
+
+    public static final ReplyConverter<Boolean> BOOLEAN = new ReplyConverter<Boolean>() {
+        public Boolean convert(Object reply) {
+            return reply == null ? null : (Long) reply == 1;
+        }
+    };
+
+    /**
+     * Bulk value as double, <code>Double.NaN</code> for nil
+     */
+    public static final ReplyConverter<Double> DOUBLE = new ReplyConverter<Double>() {
+        public Double convert(Object reply) {
+            final byte[] bytes = (byte[]) reply;
+            return bytes == null ? Double.NaN : Protocol.toDouble(bytes, 0, bytes.length);
+        }
+    };
+
+    public static final ReplyConverter<List<String>> STRING_LIST = new ReplyConverter<List<String>>() {
+        public List<String> convert(Object reply) {
+            if (reply == null) {
+                return null;
+            }
+            final List<?> list = (List<?>) reply;
+            final List<String> result = new ArrayList<String>(list.size());
+            for (Object element : list) {
+                result.add(STRING.convert(element));
+            }
+            return result;
+        }
+    };
+
+    public static final ReplyConverter<List<byte[]>> BYTES_LIST = new ReplyConverter<List<byte[]>>() {
+        @SuppressWarnings("unchecked")
+        public List<byte[]> convert(Object reply) {
+            return (List<byte[]>) reply;
+        }
+    };
+
+    public static final ReplyConverter<Set<String>> STRING_SET = new ReplyConverter<Set<String>>() {
+        public Set<String> convert(Object reply) {
+            if (reply == null) {
+                return null;
+            }
+            final List<?> list = (List<?>) reply;
+            final Set<String> result = new LinkedHashSet<String>(list.size());
+            for (Object element : list) {
+                result.add(STRING.convert(element));
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Multi bulk reply of alternating keys and values
+     */
+    public static final ReplyConverter<Map<String, String>> STRING_MAP = new ReplyConverter<Map<String, String>>() {
+        public Map<String, String> convert(Object reply) {
+            if (reply == null) {
+                return null;
+            }
+            final List<?> list = (List<?>) reply;
+            final Map<String, String> result = new LinkedHashMap<String, String>(list.size());
+            for (int i = 0; i < list.size(); i += 2) {
+                result.put(STRING.convert(list.get(i)), STRING.convert(list.get(i + 1)));
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Multi bulk reply of alternating keys and values as a list of entries
+     */
+    public static final ReplyConverter<List<Map.Entry<String, String>>> STRING_ENTRIES = new ReplyConverter<List<Map.Entry<String, String>>>() {
+        public List<Map.Entry<String, String>> convert(Object reply) {
+            final Map<String, String> map = STRING_MAP.convert(reply);
+            return map == null ? null : new ArrayList<Map.Entry<String, String>>(map.entrySet());
+        }
+    };
+
+    /**
+     * Multi bulk reply of alternating elements and scores
+     */
+    public static final ReplyConverter<List<ElementScore>> ELEMENT_SCORES = new ReplyConverter<List<ElementScore>>() {
+        public List<ElementScore> convert(Object reply) {
+            if (reply == null) {
+                return null;
+            }
+            final List<?> list = (List<?>) reply;
+            final List<ElementScore> result = new ArrayList<ElementScore>(list.size() / 2);
+            for (int i = 0; i < list.size(); i += 2) {
+                result.add(new ElementScore(STRING.convert(list.get(i)), DOUBLE.convert(list.get(i + 1))));
+            }
+            return result;
+        }
+    };
+
+    private ReplyConverters() {
+    }
+
+    /**
+     * @param codec value codec
+     * @return converter of a bulk reply decoded by the codec
+     */
+    public static <T> ReplyConverter<T> bulk(final Codec<T> codec) {
+        return new ReplyConverter<T>() {
+            public T convert(Object reply) {
+                final byte[] bytes = (byte[]) reply;
+                return bytes == null ? null : codec.decode(bytes, 0, bytes.length);
+            }
+        };
+    }
+
+    /**
+     * @param codec value codec
+     * @return converter of a multi bulk reply whose elements are decoded by the codec
+     */
+    public static <T> ReplyConverter<List<T>> multiBulk(final Codec<T> codec) {
+        return new ReplyConverter<List<T>>() {
+            public List<T> convert(Object reply) {
+                if (reply == null) {
+                    return null;
+                }
+                final List<?> list = (List<?>) reply;
+                final List<T> result = new ArrayList<T>(list.size());
+                for (Object element : list) {
+                    final byte[] bytes = (byte[]) element;
+                    result.add(bytes == null ? null : codec.decode(bytes, 0, bytes.length));
+                }
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+/**
+ * Placeholder of the result of a command queued in a <code>CommandBatch</code>.
+ * It is resolved when the batch is executed, <code>get()</code> fails before that.
+ *
+ * @author Evgeny Dolgov
+ */
+public final class Response<T> {
+    private final ReplyConverter<T> converter;
+    private boolean done;
+    private T value;
+    private RedisException error;
+
+    Response(ReplyConverter<T> converter) {
+        this.converter = converter;
+    }
+
+    /**
+     * @param reply raw reply or <code>RedisException</code> for an error reply
+     */
+    void set(Object reply) {
+        if (reply instanceof RedisException) {
+            error = (RedisException) reply;
+        } else {
+            value = converter.convert(reply);
+        }
+        done = true;
+    }
+
+    /**
+     * @return converted reply
+     * @throws RedisException        if the command failed
+     * @throws IllegalStateException if the batch has not been executed yet
+     */
+    public T get() {
+        if (!done) {
+            throw new IllegalStateException("Reply has not been received yet");
+        }
+        if (error != null) {
+            throw new RedisException(error.getMessage(), error);
+        }
+        return value;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return true if the command failed, its error is thrown by <code>get()</code>
+     */
+    public boolean isError() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Response{" + (!done ? "pending" : error != null ? error.getMessage() : String.valueOf(value)) + "}";
+    }
+}
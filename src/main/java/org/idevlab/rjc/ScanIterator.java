@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.ds.DataSource;
+import org.idevlab.rjc.ds.RedisConnection;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over a SCAN-family command. Every page is fetched with a connection borrowed from the data source
+ * for that page only, the cursor is kept by the iterator, so nothing is held between pages and an iterator
+ * abandoned in the middle of the iteration needs no cleanup. Like SCAN itself the iterator may return an element
+ * more than once and does not return the elements added during the iteration reliably.
+ *
+ * @author Evgeny Dolgov
+ */
+public class ScanIterator<T> implements Iterator<T> {
+    /**
+     * COUNT hint used if <code>ScanParams</code> do not set it
+     */
+    public static final int DEFAULT_COUNT = 1000;
+
+    private final DataSource dataSource;
+    private final RedisCommand command;
+    private final String key;
+    private final List<String> params;
+    private final ReplyConverter<List<T>> converter;
+
+    private String cursor = ScanResult.START;
+    private boolean complete;
+    private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+    /**
+     * @param dataSource source of the connections
+     * @param command    SCAN, SSCAN, HSCAN or ZSCAN
+     * @param key        key of the collection, null for SCAN
+     * @param params     scan options, may be null
+     * @param converter  converter of the elements of a page
+     */
+    public ScanIterator(DataSource dataSource, RedisCommand command, String key, ScanParams params,
+                        ReplyConverter<List<T>> converter) {
+        this.dataSource = dataSource;
+        this.command = command;
+        this.key = key;
+        this.params = (params != null ? params : new ScanParams()).getParams(DEFAULT_COUNT);
+        this.converter = converter;
+    }
+
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (complete) {
+                return false;
+            }
+            fetch();
+        }
+        return true;
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void fetch() {
+        final ScanResult<T> result;
+        final RedisConnection connection = dataSource.getConnection();
+        try {
+            connection.sendCommand(command, args());
+            final Object reply = connection.getReply();
+            if (reply instanceof RedisException) {
+                throw (RedisException) reply;
+            }
+            result = ScanResult.of(reply, converter);
+        } catch (RuntimeException e) {
+            complete = true;
+            throw e;
+        } finally {
+            connection.close();
+        }
+        cursor = result.getCursor();
+        complete = result.isComplete();
+        page = result.getResult().iterator();
+    }
+
+    private String[] args() {
+        final String[] args = new String[(key != null ? 2 : 1) + params.size()];
+        int i = 0;
+        if (key != null) {
+            args[i++] = key;
+        }
+        args[i++] = cursor;
+        for (String param : params) {
+            args[i++] = param;
+        }
+        return args;
+    }
+
+    /**
+     * Stops the iteration, it is optional since no connection is held between pages.
+     */
+    public void close() {
+        complete = true;
+        page = Collections.<T>emptyList().iterator();
+    }
+}
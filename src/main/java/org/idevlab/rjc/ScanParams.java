@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.protocol.RedisKeyword;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder of the SCAN, SSCAN, HSCAN and ZSCAN options.
+ *
+ * @author Evgeny Dolgov
+ */
+public class ScanParams {
+    private String pattern;
+    private int count;
+
+    /**
+     * Returns only the elements matching the glob-style pattern. The pattern is applied after the elements
+     * are fetched, so pages may be empty.
+     *
+     * @param pattern glob-style pattern
+     * @return the ScanParams object
+     */
+    public ScanParams match(final String pattern) {
+        this.pattern = pattern;
+        return this;
+    }
+
+    /**
+     * Hint of the amount of work done by one call, 10 by default on the server.
+     *
+     * @param count number of elements to look at per call
+     * @return the ScanParams object
+     */
+    public ScanParams count(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count <= 0");
+        }
+        this.count = count;
+        return this;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return count hint, 0 if it is not set
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param defaultCount count hint used if it is not set
+     * @return arguments of the command after the cursor
+     */
+    List<String> getParams(final int defaultCount) {
+        final List<String> params = new ArrayList<String>(4);
+        if (pattern != null) {
+            params.add(RedisKeyword.MATCH.str);
+            params.add(pattern);
+        }
+        if (count > 0 || defaultCount > 0) {
+            params.add(RedisKeyword.COUNT.str);
+            params.add(String.valueOf(count > 0 ? count : defaultCount));
+        }
+        return params;
+    }
+}
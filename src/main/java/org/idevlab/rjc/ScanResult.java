@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.util.List;
+
+/**
+ * One page of a SCAN-family command.
+ *
+ * @author Evgeny Dolgov
+ */
+public class ScanResult<T> {
+    /**
+     * Cursor which starts and ends a full iteration
+     */
+    public static final String START = "0";
+
+    private final String cursor;
+    private final List<T> result;
+
+    public ScanResult(String cursor, List<T> result) {
+        this.cursor = cursor;
+        this.result = result;
+    }
+
+    /**
+     * @param reply     raw reply: the cursor and the multi bulk of elements
+     * @param converter converter of the elements
+     */
+    static <T> ScanResult<T> of(Object reply, ReplyConverter<List<T>> converter) {
+        final List<?> list = (List<?>) reply;
+        return new ScanResult<T>(SafeEncoder.encode((byte[]) list.get(0)), converter.convert(list.get(1)));
+    }
+
+    /**
+     * @return cursor of the next call, <code>START</code> if the iteration is complete
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean isComplete() {
+        return START.equals(cursor);
+    }
+
+    public List<T> getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResult{cursor=" + cursor + ", result=" + result + "}";
+    }
+}
@@ -21,7 +21,7 @@ import java.util.List;
 /**
  * @author Evgeny Dolgov
  */
-public interface Session extends SingleRedisOperations {
+public interface Session extends SingleRedisOperations, BinaryRedisOperations {
 
     String select(int index);
 
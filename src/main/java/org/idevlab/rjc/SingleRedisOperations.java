@@ -17,6 +17,7 @@
 package org.idevlab.rjc;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -379,6 +380,45 @@ public interface SingleRedisOperations extends RedisOperations {
 
     List<Object> pipeline(Pipeline pipeline);
 
+    /**
+     * Executes the typed pipeline and resolves the responses of its commands.
+     *
+     * @param pipeline recorded commands
+     * @return results of the commands, <code>RedisException</code> objects for the failed ones
+     */
+    List<Object> pipeline(CommandPipeline pipeline);
+
+    /**
+     * Executes the typed pipeline and passes the replies to the callback in order as they are read,
+     * so the results are never collected. The responses of the commands are not resolved.
+     *
+     * @param pipeline recorded commands
+     * @param callback receiver of the converted replies and of the error replies
+     */
+    void pipeline(CommandPipeline pipeline, ReplyCallback<Object> callback);
+
+    /**
+     * Streams commands with at most <code>window</code> of them in flight, replies are passed to the callback
+     * as they are read. Memory use does not depend on the number of commands.
+     *
+     * @param window   maximum number of the commands whose replies have not been read
+     * @param callback receiver of the replies
+     * @param stream   sender of the commands
+     * @return number of the sent commands
+     * @see StreamingPipeline
+     */
+    long pipeline(int window, ReplyCallback<Object> callback, CommandStream stream);
+
+    /**
+     * Executes the transaction with one round trip and resolves the responses of its commands.
+     *
+     * @param transaction queued commands
+     * @return results of the commands, <code>RedisException</code> objects for the failed ones,
+     *         or null if the transaction was aborted because a watched key was modified
+     * @throws RedisException if the server discarded the transaction because a command was rejected
+     */
+    List<Object> exec(Transaction transaction);
+
     /**
      * Time complexity
      * <p/>
@@ -520,4 +560,62 @@ public interface SingleRedisOperations extends RedisOperations {
     String echo(String string);
 
     String debug(DebugParams params);
+
+    /**
+     * Loads the script into the script cache of the server without executing it.
+     *
+     * @param script source of the script
+     * @return SHA1 digest of the script
+     * @since 2.6.0
+     */
+    String scriptLoad(String script);
+
+    /**
+     * @param sha1 digests of the scripts
+     * @return for each digest true if the script is in the script cache
+     * @since 2.6.0
+     */
+    List<Boolean> scriptExists(String... sha1);
+
+    /**
+     * Flushes the script cache of the server.
+     *
+     * @return always OK
+     * @since 2.6.0
+     */
+    String scriptFlush();
+
+    /**
+     * Returns one page of the keys of the database.
+     *
+     * @param cursor <code>ScanResult.START</code> or the cursor returned by the previous call
+     * @param params options, may be null
+     * @return keys and the cursor of the next call
+     * @since 2.8.0
+     */
+    ScanResult<String> scan(String cursor, ScanParams params);
+
+    /**
+     * Returns one page of the members of the set.
+     *
+     * @since 2.8.0
+     * @see #scan(String, ScanParams)
+     */
+    ScanResult<String> sscan(String key, String cursor, ScanParams params);
+
+    /**
+     * Returns one page of the fields and values of the hash.
+     *
+     * @since 2.8.0
+     * @see #scan(String, ScanParams)
+     */
+    ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params);
+
+    /**
+     * Returns one page of the elements and scores of the sorted set.
+     *
+     * @since 2.8.0
+     * @see #scan(String, ScanParams)
+     */
+    ScanResult<ElementScore> zscan(String key, String cursor, ScanParams params);
 }
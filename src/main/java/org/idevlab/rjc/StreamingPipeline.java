@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.protocol.PreparedCommand;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+/**
+ * Pipeline of any length with at most <code>window</code> commands in flight. Commands are buffered
+ * and when the window is full the buffer is flushed and the replies of the older half of the window
+ * are read, while the server still has the newer half to execute. So the connection is never idle,
+ * and neither the client nor the server keeps more than a window of replies.
+ * <p/>
+ * Replies are passed to the callback in order as they are read: byte[] for bulk values, String for status,
+ * Long or List. Error replies go to <code>onError</code> and do not stop the pipeline. If the stream or
+ * the callback throws, the replies in flight are read and dropped before the failure is rethrown.
+ *
+ * @author Evgeny Dolgov
+ * @see CommandStream
+ */
+public class StreamingPipeline {
+    private final RedisClientImpl client;
+    private final int window;
+    private final ReplyCallback<Object> callback;
+    private int inFlight;
+    private long sent;
+    private long errors;
+
+    StreamingPipeline(RedisClientImpl client, int window, ReplyCallback<Object> callback) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window <= 0");
+        }
+        this.client = client;
+        this.window = window;
+        this.callback = callback;
+    }
+
+    public void send(final RedisCommand command, final String... args) {
+        client.noReply(command, args);
+        sent();
+    }
+
+    public void send(final RedisCommand command, final byte[]... args) {
+        client.noReply(command, args);
+        sent();
+    }
+
+    public void send(final PreparedCommand command, final String... args) {
+        client.noReply(command, args);
+        sent();
+    }
+
+    public void send(final PreparedCommand command, final byte[]... args) {
+        client.noReply(command, args);
+        sent();
+    }
+
+    private void sent() {
+        sent++;
+        if (++inFlight >= window) {
+            client.flush();
+            receive(window / 2);
+        }
+    }
+
+    private void receive(final int target) {
+        while (inFlight > target) {
+            final Object reply = client.getReply();
+            inFlight--;
+            if (reply instanceof RedisException) {
+                errors++;
+                callback.onError((RedisException) reply);
+            } else {
+                callback.onReply(reply);
+            }
+        }
+    }
+
+    /**
+     * Sends the buffered commands without waiting for their replies, e.g. before waiting for more commands.
+     */
+    public void flush() {
+        client.flush();
+    }
+
+    /**
+     * Sends the buffered commands and waits for all replies.
+     */
+    public void sync() {
+        client.flush();
+        receive(0);
+    }
+
+    /**
+     * Reads and drops the replies in flight after the stream or the callback failed,
+     * so the connection is not given back with unread replies.
+     */
+    void drain() {
+        try {
+            client.flush();
+            while (inFlight > 0 && client.isConnected()) {
+                client.getReply();
+                inFlight--;
+            }
+        } catch (RuntimeException ignored) {
+            // the connection is broken, it is not reused
+        }
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @return number of the commands sent so far
+     */
+    public long getSentCount() {
+        return sent;
+    }
+
+    /**
+     * @return number of the commands whose replies have not been read yet
+     */
+    public int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * @return number of the error replies read so far
+     */
+    public long getErrorCount() {
+        return errors;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.protocol.RedisCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Commands executed atomically by MULTI/EXEC. MULTI, the commands and EXEC are sent with one flush
+ * and all replies are read in one pass, so a transaction costs one round trip whatever its size,
+ * plus one for loading the scripts if it contains <code>eval</code>:
+ * <pre>
+ * Transaction tx = new Transaction();
+ * Response&lt;Long&gt; counter = tx.incr("counter");
+ * tx.expire("counter", 60);
+ * node.exec(tx);
+ * long value = counter.get();
+ * </pre>
+ * A command rejected by the server while queueing, e.g. with wrong number of arguments, makes the server
+ * discard the whole transaction. A command failed during EXEC does not affect the others, its
+ * <code>Response</code> throws the error.
+ *
+ * @author Evgeny Dolgov
+ */
+public class Transaction extends CommandBatch {
+
+    /**
+     * Sends the transaction and reads all replies.
+     *
+     * @param client client of the connection, WATCH must have been sent through it if it is used
+     * @return results of the commands, <code>RedisException</code> objects for failed commands,
+     *         or null if the transaction was aborted because a watched key was modified
+     * @throws RedisException if the server discarded the transaction
+     */
+    List<Object> execute(final RedisClientImpl client) {
+        final List<QueuedCommand> commands = execute();
+        client.setAutoFlush(false);
+        try {
+            if (hasScripts()) {
+                // loaded before MULTI is sent: a multiplexed connection switches to a dedicated socket
+                // for MULTI, which it cannot do while replies on the shared one are pending
+                sendScripts(client);
+                client.flush();
+                receiveScripts(client);
+            }
+            client.noReply(RedisCommand.MULTI);
+            send(client, commands);
+            client.noReply(RedisCommand.EXEC);
+            return receive(client, commands);
+        } finally {
+            client.setAutoFlush(true);
+        }
+    }
+
+    private void send(final RedisClientImpl client, final List<QueuedCommand> commands) {
+        int sent = 0;
+        try {
+            for (QueuedCommand command : commands) {
+                command.send(client);
+                sent++;
+            }
+        } catch (RuntimeException e) {
+            // the connection must not be left in MULTI state, DISCARD is skipped with MULTI and the queued commands
+            try {
+                client.noReply(RedisCommand.DISCARD);
+            } catch (RuntimeException ignored) {
+                // the connection is broken
+            }
+            skipReplies(client, sent + 2);
+            throw e;
+        }
+    }
+
+    private List<Object> receive(final RedisClient client, final List<QueuedCommand> commands) {
+        // all replies are read before any error is reported, so the connection stays usable
+        final Object multi = client.getReply();
+        final RedisException[] rejected = new RedisException[commands.size()];
+        RedisException firstRejected = null;
+        for (int i = 0; i < rejected.length; i++) {
+            final Object ack = client.getReply();
+            if (ack instanceof RedisException) {
+                rejected[i] = (RedisException) ack;
+                if (firstRejected == null) {
+                    firstRejected = rejected[i];
+                }
+            }
+        }
+        final Object exec = client.getReply();
+        if (multi instanceof RedisException) {
+            throw (RedisException) multi;
+        }
+        if (exec instanceof RedisException) {
+            final RedisException error = (RedisException) exec;
+            for (int i = 0; i < rejected.length; i++) {
+                commands.get(i).response.set(rejected[i] != null ? rejected[i] : error);
+            }
+            throw firstRejected != null ? new RedisException(error.getMessage() + " " + firstRejected.getMessage()) : error;
+        }
+        if (exec == null) {
+            final RedisException aborted = new RedisException("Transaction aborted, a watched key has been modified");
+            for (QueuedCommand command : commands) {
+                command.response.set(aborted);
+            }
+            return null;
+        }
+
+        // servers before 2.6.5 execute the accepted commands even if some were rejected
+        final List<?> replies = (List<?>) exec;
+        final List<Object> results = new ArrayList<Object>(commands.size());
+        int next = 0;
+        for (int i = 0; i < rejected.length; i++) {
+            final Object reply = rejected[i] != null ? rejected[i] : reply(commands.get(i), replies.get(next++));
+            final Response<?> response = commands.get(i).response;
+            response.set(reply);
+            results.add(reply instanceof RedisException ? reply : response.get());
+        }
+        return results;
+    }
+}
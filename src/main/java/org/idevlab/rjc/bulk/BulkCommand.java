@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.bulk;
+
+import org.idevlab.rjc.StreamingPipeline;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.sharding.BinaryNodeLocator;
+import org.idevlab.rjc.sharding.NodeLocator;
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.util.Arrays;
+
+/**
+ * Command loaded by <code>BulkLoader</code>. The first argument is the key which selects the shard.
+ *
+ * @author Evgeny Dolgov
+ */
+public final class BulkCommand {
+    private final RedisCommand command;
+    private final String[] args;
+    private final byte[][] binaryArgs;
+
+    public BulkCommand(RedisCommand command, String... args) {
+        this.command = command;
+        this.args = args;
+        this.binaryArgs = null;
+    }
+
+    public BulkCommand(RedisCommand command, byte[]... args) {
+        this.command = command;
+        this.args = null;
+        this.binaryArgs = args;
+    }
+
+    public RedisCommand getCommand() {
+        return command;
+    }
+
+    void send(StreamingPipeline pipeline) {
+        if (args != null) {
+            pipeline.send(command, args);
+        } else {
+            pipeline.send(command, binaryArgs);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T locate(NodeLocator<T> locator) {
+        if (args != null && args.length > 0) {
+            return locator.getNode(args[0]);
+        }
+        if (binaryArgs != null && binaryArgs.length > 0) {
+            return locator instanceof BinaryNodeLocator
+                    ? ((BinaryNodeLocator<T>) locator).getNode(binaryArgs[0])
+                    : locator.getNode(SafeEncoder.encode(binaryArgs[0]));
+        }
+        throw new IllegalArgumentException(command + " has no key to select the shard");
+    }
+
+    @Override
+    public String toString() {
+        return command + " " + (args != null ? Arrays.toString(args) : binaryArgs.length + " binary args");
+    }
+}
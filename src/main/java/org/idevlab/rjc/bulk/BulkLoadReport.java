@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.bulk;
+
+/**
+ * Result of <code>BulkLoader.load</code>.
+ *
+ * @author Evgeny Dolgov
+ */
+public class BulkLoadReport {
+    private final long commands;
+    private final long errors;
+    private final String firstError;
+    private final long elapsedNanos;
+
+    BulkLoadReport(long commands, long errors, String firstError, long elapsedNanos) {
+        this.commands = commands;
+        this.errors = errors;
+        this.firstError = firstError;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return number of the executed commands including the failed ones
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return number of the commands which got an error reply or could not be read
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return message of the first error reply, null if there were no errors
+     */
+    public String getFirstError() {
+        return firstError;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    public long getCommandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : 1000000000L * commands / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoadReport{commands=" + commands + ", errors=" + errors + ", elapsed=" + getElapsedMillis()
+                + " ms, " + getCommandsPerSecond() + " commands/s" + (firstError != null ? ", firstError=" + firstError : "") + "}";
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.bulk;
+
+import org.idevlab.rjc.CommandStream;
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisOperations;
+import org.idevlab.rjc.ReplyCallback;
+import org.idevlab.rjc.SingleRedisOperations;
+import org.idevlab.rjc.StreamingPipeline;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.sharding.NodeLocator;
+import org.idevlab.rjc.sharding.ShardedRedis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads large amounts of commands, e.g. reloads a keyspace from a batch job. Commands are streamed through
+ * a <code>StreamingPipeline</code> with a bounded number of commands in flight, error replies are counted
+ * and do not stop the load. Commands the iterator fails to produce, e.g. malformed lines of
+ * <code>CommandReader</code>, are counted as errors as well.
+ * <p/>
+ * With several shards the commands are routed by their first argument and every shard is loaded
+ * by its own thread, so all shards are loaded in parallel. Nodes must be <code>SingleRedisOperations</code>,
+ * e.g. <code>RedisNode</code>.
+ *
+ * @author Evgeny Dolgov
+ */
+public class BulkLoader {
+    private final static Logger LOG = LoggerFactory.getLogger(BulkLoader.class);
+
+    public static final int DEFAULT_WINDOW = 1000;
+    public static final long DEFAULT_PROGRESS_INTERVAL = 1000000;
+
+    private static final BulkCommand END = new BulkCommand(RedisCommand.PING, new String[0]);
+
+    private final SingleRedisOperations node;
+    private final NodeLocator<? extends RedisOperations> locator;
+    private int window = DEFAULT_WINDOW;
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    public BulkLoader(SingleRedisOperations node) {
+        this.node = node;
+        this.locator = null;
+    }
+
+    public BulkLoader(ShardedRedis redis) {
+        this(redis.getLocator());
+    }
+
+    public BulkLoader(NodeLocator<? extends RedisOperations> locator) {
+        this.node = null;
+        this.locator = locator;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window maximum number of commands in flight per shard
+     */
+    public void setWindow(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window <= 0");
+        }
+        this.window = window;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * @param progressInterval number of commands between progress log messages, 0 to log only the result
+     */
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Loads the commands of the file in the format of <code>CommandReader</code>, UTF-8 encoded.
+     */
+    public BulkLoadReport load(File file) throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            return load(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Loads the commands in the format of <code>CommandReader</code>, the reader is not closed.
+     */
+    public BulkLoadReport load(Reader reader) {
+        return load(new CommandReader(reader));
+    }
+
+    /**
+     * @param commands commands to execute, an <code>IllegalArgumentException</code> of <code>next</code> is counted
+     *                 as an error and the load continues with the following command
+     * @return numbers of the executed and failed commands and the throughput
+     * @throws RedisException if a connection failed, the load stops then
+     */
+    public BulkLoadReport load(final Iterator<BulkCommand> commands) {
+        final Progress progress = new Progress();
+        if (node != null) {
+            node.pipeline(window, progress, new CommandStream() {
+                public void execute(StreamingPipeline pipeline) {
+                    BulkCommand command;
+                    while ((command = progress.next(commands)) != null) {
+                        command.send(pipeline);
+                        progress.sent();
+                    }
+                }
+            });
+        } else {
+            loadShards(commands, progress);
+        }
+        final BulkLoadReport report = progress.getReport();
+        LOG.info("Bulk load finished: {}", report);
+        return report;
+    }
+
+    private void loadShards(final Iterator<BulkCommand> commands, final Progress progress) {
+        final Map<Object, ShardLoader> loaders = new IdentityHashMap<Object, ShardLoader>();
+        for (RedisOperations shard : locator.getNodes()) {
+            if (!(shard instanceof SingleRedisOperations)) {
+                throw new IllegalArgumentException("Bulk load requires SingleRedisOperations nodes, got " + shard);
+            }
+            loaders.put(shard, new ShardLoader((SingleRedisOperations) shard, progress, loaders.size()));
+        }
+        for (ShardLoader loader : loaders.values()) {
+            loader.start();
+        }
+        boolean completed = false;
+        try {
+            BulkCommand command;
+            while ((command = progress.next(commands)) != null) {
+                loaders.get(command.locate(locator)).put(command);
+                progress.sent();
+            }
+            completed = true;
+        } finally {
+            for (ShardLoader loader : loaders.values()) {
+                loader.finish(!completed);
+            }
+        }
+        for (ShardLoader loader : loaders.values()) {
+            loader.join();
+        }
+        for (ShardLoader loader : loaders.values()) {
+            if (loader.failure != null) {
+                throw new RedisException("Bulk load to " + loader.node + " failed: " + loader.failure.getMessage(), loader.failure);
+            }
+        }
+    }
+
+    private class Progress implements ReplyCallback<Object> {
+        private final long begin = System.nanoTime();
+        private final AtomicLong replies = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicReference<String> firstError = new AtomicReference<String>();
+        private long sent;
+
+        public void onReply(Object reply) {
+            replies.incrementAndGet();
+        }
+
+        public void onError(RedisException e) {
+            replies.incrementAndGet();
+            errors.incrementAndGet();
+            firstError.compareAndSet(null, e.getMessage());
+        }
+
+        /**
+         * @return the next command, null at the end, a command which can not be read is counted as an error
+         */
+        BulkCommand next(Iterator<BulkCommand> commands) {
+            while (true) {
+                try {
+                    return commands.hasNext() ? commands.next() : null;
+                } catch (IllegalArgumentException e) {
+                    onError(new RedisException(e.getMessage(), e));
+                    sent();
+                }
+            }
+        }
+
+        void sent() {
+            sent++;
+            if (progressInterval > 0 && sent % progressInterval == 0) {
+                LOG.info("Bulk load progress: {}", getReport());
+            }
+        }
+
+        BulkLoadReport getReport() {
+            return new BulkLoadReport(replies.get(), errors.get(), firstError.get(), System.nanoTime() - begin);
+        }
+    }
+
+    private class ShardLoader implements Runnable {
+        private final SingleRedisOperations node;
+        private final Progress progress;
+        private final BlockingQueue<BulkCommand> queue = new ArrayBlockingQueue<BulkCommand>(2 * window);
+        private final Thread thread;
+        private volatile RuntimeException failure;
+
+        ShardLoader(SingleRedisOperations node, Progress progress, int index) {
+            this.node = node;
+            this.progress = progress;
+            this.thread = new Thread(this, "rjc-bulk-loader-" + index);
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        public void run() {
+            try {
+                node.pipeline(window, progress, new CommandStream() {
+                    public void execute(StreamingPipeline pipeline) {
+                        while (true) {
+                            BulkCommand command = queue.poll();
+                            if (command == null) {
+                                // nothing to send, so the buffered commands should not wait
+                                pipeline.flush();
+                                command = take();
+                            }
+                            if (command == END) {
+                                return;
+                            }
+                            command.send(pipeline);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                failure = e;
+                queue.clear();
+            }
+        }
+
+        private BulkCommand take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                throw new RedisException(e.getMessage(), e);
+            }
+        }
+
+        void put(BulkCommand command) {
+            try {
+                while (!queue.offer(command, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) {
+                        throw new RedisException("Bulk load to " + node + " failed: " + failure.getMessage(), failure);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisException(e.getMessage(), e);
+            }
+        }
+
+        void finish(boolean abort) {
+            if (abort) {
+                queue.clear();
+            }
+            try {
+                put(END);
+            } catch (RedisException e) {
+                // the loader has failed already
+            }
+        }
+
+        void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.bulk;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads commands in the text form of redis-cli, one per line:
+ * <pre>
+ * SET user:1 "John Smith"
+ * HSET user:1:props "city" "New York"
+ * </pre>
+ * Arguments are separated by spaces, double quoted arguments may contain spaces and the
+ * <code>\" \\ \n \r \t</code> escapes. Empty lines and lines starting with # are skipped.
+ * A malformed line throws <code>IllegalArgumentException</code>, the next call continues with the following line.
+ * The reader is not closed by the iterator.
+ *
+ * @author Evgeny Dolgov
+ */
+public class CommandReader implements Iterator<BulkCommand> {
+    private final BufferedReader reader;
+    private BulkCommand next;
+    private int lineNumber;
+
+    public CommandReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+    }
+
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.length() != 0 && line.charAt(0) != '#') {
+                    next = parse(line);
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    public BulkCommand next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final BulkCommand command = next;
+        next = null;
+        return command;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private BulkCommand parse(String line) {
+        final List<String> tokens = new ArrayList<String>();
+        final StringBuilder token = new StringBuilder();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            token.setLength(0);
+            if (c == '"') {
+                i++;
+                boolean closed = false;
+                while (i < line.length()) {
+                    c = line.charAt(i++);
+                    if (c == '"') {
+                        closed = true;
+                        break;
+                    }
+                    if (c == '\\' && i < line.length()) {
+                        c = line.charAt(i++);
+                        c = c == 'n' ? '\n' : c == 'r' ? '\r' : c == 't' ? '\t' : c;
+                    }
+                    token.append(c);
+                }
+                if (!closed) {
+                    throw new IllegalArgumentException("Unclosed quote at line " + lineNumber);
+                }
+            } else {
+                while (i < line.length() && (c = line.charAt(i)) != ' ' && c != '\t') {
+                    token.append(c);
+                    i++;
+                }
+            }
+            tokens.add(token.toString());
+        }
+
+        final RedisCommand command;
+        try {
+            command = RedisCommand.valueOf(tokens.get(0).toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown command at line " + lineNumber + ": " + tokens.get(0));
+        }
+        return new BulkCommand(command, tokens.subList(1, tokens.size()).toArray(new String[tokens.size() - 1]));
+    }
+
+    /**
+     * @return number of the lines read so far
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
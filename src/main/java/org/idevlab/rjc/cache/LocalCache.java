@@ -0,0 +1,305 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LRU map of the cached lookups of <code>NearCache</code> grouped by Redis key, so an invalidation
+ * of a key drops all its lookups (e.g. GET, HGETALL and HGET of every field).
+ * <p/>
+ * The size counts lookups, not keys, so a hash read field by field is limited like many string keys. A key
+ * without lookups which only keeps a deadline counts as one lookup.
+ * <p/>
+ * Keys are hashed to segments, each an access ordered map with its own lock and its own share of the max size,
+ * so readers of different keys do not contend. The eviction is LRU within a segment. Small caches use
+ * a single segment.
+ * <p/>
+ * A key may have a deadline, the time the key expires in Redis as set by SETEX, EXPIRE or EXPIREAT through
+ * a near cache. Lookups of the key are not cached beyond the deadline. An invalidation keeps the deadline,
+ * since most writes keep the TTL of the key, and the deadline is dropped once it has passed.
+ * <p/>
+ * Keys are hashed to generation stripes and every invalidation advances the generation of the stripe of the key.
+ * A value loaded from Redis is stored only if no invalidation of its stripe happened since the load started,
+ * so a load racing with a write cannot put back the old value, while writes of unrelated keys rarely
+ * prevent a load from being cached.
+ *
+ * @author Evgeny Dolgov
+ */
+class LocalCache {
+    static final Object MISS = new Object();
+
+    private static final int STRIPES = 64;
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 256;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private volatile Segment[] segments;
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    LocalCache(int maxSize) {
+        this.segments = createSegments(maxSize);
+    }
+
+    private Segment[] createSegments(int maxSize) {
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_SIZE <= maxSize) {
+            count *= 2;
+        }
+        final Segment[] segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentSize(maxSize, count));
+        }
+        return segments;
+    }
+
+    private static int segmentSize(int maxSize, int count) {
+        return (maxSize + count - 1) / count;
+    }
+
+    private static int hash(String key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segment(int hash) {
+        final Segment[] segments = this.segments;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * @return cached value, may be null, or <code>MISS</code>
+     */
+    Object get(String key, String lookup, long now) {
+        final Segment segment = segment(hash(key));
+        synchronized (segment) {
+            final Key cached = segment.keys.get(key);
+            if (cached == null) {
+                return MISS;
+            }
+            final Entry entry = cached.lookups.get(lookup);
+            if (entry == null) {
+                return MISS;
+            }
+            if (entry.expiresAt <= now) {
+                expirations.incrementAndGet();
+                final int weight = cached.weight();
+                cached.lookups.remove(lookup);
+                if (cached.lookups.isEmpty()) {
+                    segment.keys.remove(key);
+                    segment.size -= weight;
+                } else {
+                    segment.size -= weight - cached.weight();
+                }
+                return MISS;
+            }
+            return entry.value;
+        }
+    }
+
+    long getGeneration(String key) {
+        return generations.get(hash(key) & (STRIPES - 1));
+    }
+
+    /**
+     * @param generation generation of the key at the start of the load
+     * @param expiresAt  expiration time of the entry, it is capped at the deadline of the key
+     */
+    void put(String key, String lookup, Object value, long generation, long now, long expiresAt) {
+        final int hash = hash(key);
+        final Segment segment = segment(hash);
+        synchronized (segment) {
+            if (segment.retired || generation != generations.get(hash & (STRIPES - 1))) {
+                return;
+            }
+            Key cached = segment.keys.get(key);
+            int weight = 0;
+            if (cached == null) {
+                cached = new Key();
+                segment.keys.put(key, cached);
+            } else {
+                weight = cached.weight();
+                if (cached.deadline <= now) {
+                    cached.deadline = Long.MAX_VALUE;
+                }
+            }
+            cached.lookups.put(lookup, new Entry(value, Math.min(expiresAt, cached.deadline)));
+            segment.size += cached.weight() - weight;
+            segment.evict();
+        }
+    }
+
+    void invalidate(String key) {
+        final int hash = hash(key);
+        for (; ;) {
+            final Segment segment = segment(hash);
+            synchronized (segment) {
+                if (segment.retired) {
+                    continue;
+                }
+                generations.incrementAndGet(hash & (STRIPES - 1));
+                final Key cached = segment.keys.get(key);
+                if (cached != null) {
+                    if (cached.deadline == Long.MAX_VALUE) {
+                        segment.keys.remove(key);
+                        segment.size -= cached.weight();
+                    } else {
+                        segment.size -= cached.weight() - 1;
+                        cached.lookups.clear();
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Invalidates the key and sets its deadline.
+     */
+    void expire(String key, long deadline) {
+        final int hash = hash(key);
+        for (; ;) {
+            final Segment segment = segment(hash);
+            synchronized (segment) {
+                if (segment.retired) {
+                    continue;
+                }
+                generations.incrementAndGet(hash & (STRIPES - 1));
+                Key cached = segment.keys.get(key);
+                if (cached == null) {
+                    cached = new Key();
+                    segment.keys.put(key, cached);
+                    segment.size++;
+                } else {
+                    segment.size -= cached.weight() - 1;
+                    cached.lookups.clear();
+                }
+                cached.deadline = deadline;
+                segment.evict();
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Changes the size of the segments, or drops the cached lookups if the number of segments changes.
+     */
+    synchronized void setMaxSize(int maxSize) {
+        final Segment[] current = segments;
+        final Segment[] resized = createSegments(maxSize);
+        if (resized.length == current.length) {
+            for (Segment segment : current) {
+                synchronized (segment) {
+                    segment.maxSize = segmentSize(maxSize, current.length);
+                    segment.evict();
+                }
+            }
+            return;
+        }
+        segments = resized;
+        for (Segment segment : current) {
+            synchronized (segment) {
+                segment.retired = true;
+                segment.clear();
+            }
+        }
+        // loads and invalidations which still saw the old segments
+        clear();
+    }
+
+    /**
+     * @return number of the cached lookups
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    long getExpirations() {
+        return expirations.get();
+    }
+
+    private class Segment {
+        final LinkedHashMap<String, Key> keys = new LinkedHashMap<String, Key>(16, 0.75f, true);
+        int maxSize;
+        int size;
+        boolean retired;
+
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        void evict() {
+            final Iterator<Key> iterator = keys.values().iterator();
+            while (size > maxSize) {
+                size -= iterator.next().weight();
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        void clear() {
+            keys.clear();
+            size = 0;
+        }
+    }
+
+    private static class Key {
+        final Map<String, Entry> lookups = new HashMap<String, Entry>(4);
+        long deadline = Long.MAX_VALUE;
+
+        int weight() {
+            return Math.max(1, lookups.size());
+        }
+    }
+
+    private static class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,894 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.cache;
+
+import org.idevlab.rjc.*;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.ds.DataSource;
+import org.idevlab.rjc.message.MessageListener;
+import org.idevlab.rjc.message.RedisNodeSubscriber;
+import org.idevlab.rjc.message.SubscribeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorator of <code>RedisOperations</code> which keeps the results of GET, HGET, HGETALL and SMEMBERS
+ * in local memory. Entries are evicted in LRU order above <code>maxSize</code> lookups and expire
+ * <code>ttl</code> milliseconds after they are loaded.
+ * <p/>
+ * Writes of strings, hashes and sets through the cache, DEL, PERSIST, SORT with STORE and EVAL publish the written
+ * keys to the invalidation channel. Every cache listens to the channel with a <code>RedisNodeSubscriber</code>
+ * on the data source given to the constructor, which must be the server the channel is published to, and drops
+ * the published keys. SETEX, EXPIRE and EXPIREAT publish the key with its TTL to the <code>channel + ":expire"</code>
+ * channel, so no cache keeps the key longer than Redis does. Changes which are not made through a near cache,
+ * e.g. writes of other clients, are seen only after the TTL.
+ * <p/>
+ * While the subscription is not active (before <code>start()</code>, after <code>close()</code> or while
+ * reconnecting) reads go to Redis and nothing is cached, the cache is cleared whenever the subscription is
+ * (re)established, so invalidations lost on a broken connection cannot leave stale entries.
+ * <pre>
+ * NearCache cache = new NearCache(node, dataSource);
+ * cache.setMaxSize(100000);
+ * cache.setTtl(60000);
+ * cache.start();
+ * ...
+ * cache.close();
+ * </pre>
+ *
+ * @author Evgeny Dolgov
+ */
+public class NearCache implements RedisOperations {
+
+    private final static Logger LOG = LoggerFactory.getLogger(NearCache.class);
+
+    /**
+     * Default invalidation channel
+     */
+    public static final String DEFAULT_CHANNEL = "rjc:near-cache:invalidate";
+
+    private static final String GET = "get";
+    private static final String HGETALL = "hgetall";
+    private static final String SMEMBERS = "smembers";
+    private static final String HGET = "hget:";
+
+    private final RedisOperations delegate;
+    private final DataSource dataSource;
+    private final LocalCache cache = new LocalCache(10000);
+    private String channel = DEFAULT_CHANNEL;
+    private long ttl = 60000;
+    private long reconnectDelay = 1000;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean subscribed;
+    private volatile RedisNodeSubscriber subscriber;
+    private Thread thread;
+
+    /**
+     * @param delegate   cached operations
+     * @param dataSource data source of the subscription to the invalidation channel
+     */
+    public NearCache(RedisOperations delegate, DataSource dataSource) {
+        this.delegate = delegate;
+        this.dataSource = dataSource;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * @param channel invalidation channel, must be the same for all caches of the data, it cannot be changed after start
+     */
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param maxSize max number of the cached lookups, e.g. every HGET field counts, 10000 by default
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size <= 0");
+        }
+        cache.setMaxSize(maxSize);
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @param ttl time to live of an entry in milliseconds, 60000 by default
+     */
+    public void setTtl(long ttl) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL <= 0");
+        }
+        this.ttl = ttl;
+    }
+
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+
+    /**
+     * @param reconnectDelay delay in milliseconds before the broken subscription is established again, 1000 by default
+     */
+    public void setReconnectDelay(long reconnectDelay) {
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Starts the subscription to the invalidation channel in a daemon thread. Values are cached as soon as
+     * the subscription is confirmed.
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Near cache is already started");
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            public void run() {
+                subscribe();
+            }
+        }, "rjc-near-cache-" + channel);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the subscription and clears the cache, the decorator keeps working without caching.
+     */
+    public void close() {
+        final Thread stopped;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            stopped = thread;
+            thread = null;
+        }
+        try {
+            // the subscription may be connecting right now, so it is stopped until the thread ends
+            for (int i = 0; i < 50 && stopped.isAlive(); i++) {
+                final RedisNodeSubscriber current = subscriber;
+                if (current != null && current.isConnected()) {
+                    current.unsubscribe();
+                }
+                stopped.interrupt();
+                stopped.join(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        disconnected();
+    }
+
+    /**
+     * @return true if the subscription is active and values are cached
+     */
+    public boolean isSubscribed() {
+        return subscribed;
+    }
+
+    private void subscribe() {
+        while (running) {
+            final RedisNodeSubscriber current = new RedisNodeSubscriber(dataSource);
+            current.setMessageListener(new MessageListener() {
+                public void onMessage(String channel, String message) {
+                    invalidations.incrementAndGet();
+                    if (channel.equals(NearCache.this.channel)) {
+                        cache.invalidate(message);
+                    } else {
+                        expired(message);
+                    }
+                }
+            });
+            current.setSubscribeListener(new InvalidationSubscribeListener());
+            current.subscribe(channel, getExpireChannel());
+            subscriber = current;
+            try {
+                if (running) {
+                    current.runSubscription();
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Near cache subscription to " + channel + " failed", e);
+            } finally {
+                disconnected();
+            }
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+        subscriber = null;
+    }
+
+    private void disconnected() {
+        subscribed = false;
+        cache.clear();
+    }
+
+    private class InvalidationSubscribeListener implements SubscribeListener {
+        public void onSubscribe(String channel, long subscribedChannels) {
+            cache.clear();
+            if (subscribedChannels == 2) {
+                subscribed = true;
+            }
+        }
+
+        public void onUnsubscribe(String channel, long subscribedChannels) {
+            disconnected();
+        }
+
+        public void onPSubscribe(String pattern, long subscribedChannels) {
+        }
+
+        public void onPUnsubscribe(String pattern, long subscribedChannels) {
+        }
+    }
+
+    /**
+     * Drops the keys from this cache and publishes them to the other caches.
+     */
+    public void invalidate(String... keys) {
+        for (String key : keys) {
+            cache.invalidate(key);
+            delegate.publish(channel, key);
+        }
+    }
+
+    private String getExpireChannel() {
+        return channel + ":expire";
+    }
+
+    /**
+     * Drops the key from this cache and publishes it with the time to live to the other caches,
+     * the key is cached at most <code>millis</code> from now.
+     */
+    private void expire(String key, long millis) {
+        cache.expire(key, System.currentTimeMillis() + millis);
+        delegate.publish(getExpireChannel(), millis + " " + key);
+    }
+
+    private void expired(String message) {
+        final int separator = message.indexOf(' ');
+        try {
+            final long millis = Long.parseLong(message.substring(0, separator));
+            cache.expire(message.substring(separator + 1), System.currentTimeMillis() + millis);
+        } catch (RuntimeException e) {
+            LOG.warn("Illegal expiration message on " + getExpireChannel() + ": " + message, e);
+            cache.clear();
+        }
+    }
+
+    /**
+     * Drops all entries of this cache.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    private interface Loader {
+        Object load();
+    }
+
+    private Object cached(String key, String lookup, Loader loader) {
+        if (!subscribed) {
+            misses.incrementAndGet();
+            return loader.load();
+        }
+        final long now = System.currentTimeMillis();
+        Object value = cache.get(key, lookup, now);
+        if (value != LocalCache.MISS) {
+            hits.incrementAndGet();
+            return value;
+        }
+        misses.incrementAndGet();
+        final long generation = cache.getGeneration(key);
+        value = loader.load();
+        cache.put(key, lookup, value, generation, now, now + ttl);
+        return value;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of the reads which went to Redis
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 if there were no reads
+     */
+    public double getHitRatio() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return number of the invalidation messages received
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return number of the keys evicted by the size limit
+     */
+    public long getEvictionCount() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * @return number of the entries dropped because of the TTL
+     */
+    public long getExpiredCount() {
+        return cache.getExpirations();
+    }
+
+    /**
+     * @return number of the cached lookups
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "NearCache{channel=" + channel + ", subscribed=" + subscribed + ", size=" + getSize()
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", invalidations=" + getInvalidationCount()
+                + ", evictions=" + getEvictionCount() + ", expired=" + getExpiredCount() + "}";
+    }
+
+    public String set(final String key, final String value) {
+        final String result = delegate.set(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public <T> String set(final String key, final T value, final Codec<T> codec) {
+        final String result = delegate.set(key, value, codec);
+        invalidate(key);
+        return result;
+    }
+
+    public String get(final String key) {
+        return (String) cached(key, GET, new Loader() {
+            public Object load() {
+                return delegate.get(key);
+            }
+        });
+    }
+
+    public <T> T get(final String key, final Codec<T> codec) {
+        return delegate.get(key, codec);
+    }
+
+    public Boolean exists(final String key) {
+        return delegate.exists(key);
+    }
+
+    public Long del(final String... keys) {
+        final Long result = delegate.del(keys);
+        invalidate(keys);
+        return result;
+    }
+
+    public String type(final String key) {
+        return delegate.type(key);
+    }
+
+    public Boolean expire(final String key, final int seconds) {
+        final Boolean result = delegate.expire(key, seconds);
+        expire(key, seconds * 1000L);
+        return result;
+    }
+
+    public Boolean expireAt(final String key, final long unixTime) {
+        final Boolean result = delegate.expireAt(key, unixTime);
+        expire(key, unixTime * 1000 - System.currentTimeMillis());
+        return result;
+    }
+
+    public Long ttl(final String key) {
+        return delegate.ttl(key);
+    }
+
+    public String getSet(final String key, final String value) {
+        final String result = delegate.getSet(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public <T> T getSet(final String key, final T value, final Codec<T> codec) {
+        final T result = delegate.getSet(key, value, codec);
+        invalidate(key);
+        return result;
+    }
+
+    public Boolean setnx(final String key, final String value) {
+        final Boolean result = delegate.setnx(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public String setex(final String key, final int seconds, final String value) {
+        final String result = delegate.setex(key, seconds, value);
+        expire(key, seconds * 1000L);
+        return result;
+    }
+
+    public <T> String setex(final String key, final int seconds, final T value, final Codec<T> codec) {
+        final String result = delegate.setex(key, seconds, value, codec);
+        expire(key, seconds * 1000L);
+        return result;
+    }
+
+    public Long decrBy(final String key, final int value) {
+        final Long result = delegate.decrBy(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public long decrByAsLong(final String key, final int value) {
+        final long result = delegate.decrByAsLong(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public Long decr(final String key) {
+        final Long result = delegate.decr(key);
+        invalidate(key);
+        return result;
+    }
+
+    public long decrAsLong(final String key) {
+        final long result = delegate.decrAsLong(key);
+        invalidate(key);
+        return result;
+    }
+
+    public Long incrBy(final String key, final int value) {
+        final Long result = delegate.incrBy(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public long incrByAsLong(final String key, final int value) {
+        final long result = delegate.incrByAsLong(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public Long incr(final String key) {
+        final Long result = delegate.incr(key);
+        invalidate(key);
+        return result;
+    }
+
+    public long incrAsLong(final String key) {
+        final long result = delegate.incrAsLong(key);
+        invalidate(key);
+        return result;
+    }
+
+    public Long append(final String key, final String value) {
+        final Long result = delegate.append(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    public String getRange(final String key, final int start, final int end) {
+        return delegate.getRange(key, start, end);
+    }
+
+    public Long setRange(final String key, final int offset, final String value) {
+        final Long result = delegate.setRange(key, offset, value);
+        invalidate(key);
+        return result;
+    }
+
+    public Long strlen(final String key) {
+        return delegate.strlen(key);
+    }
+
+    public Set<String> keys(final String pattern) {
+        return delegate.keys(pattern);
+    }
+
+    public Boolean persist(final String key) {
+        final Boolean result = delegate.persist(key);
+        invalidate(key);
+        return result;
+    }
+
+    public Boolean hset(final String key, final String field, final String value) {
+        final Boolean result = delegate.hset(key, field, value);
+        invalidate(key);
+        return result;
+    }
+
+    public <T> Boolean hset(final String key, final String field, final T value, final Codec<T> codec) {
+        final Boolean result = delegate.hset(key, field, value, codec);
+        invalidate(key);
+        return result;
+    }
+
+    public String hget(final String key, final String field) {
+        return (String) cached(key, HGET + field, new Loader() {
+            public Object load() {
+                return delegate.hget(key, field);
+            }
+        });
+    }
+
+    public <T> T hget(final String key, final String field, final Codec<T> codec) {
+        return delegate.hget(key, field, codec);
+    }
+
+    public Boolean hsetnx(final String key, final String field, final String value) {
+        final Boolean result = delegate.hsetnx(key, field, value);
+        invalidate(key);
+        return result;
+    }
+
+    public String hmset(final String key, final Map<String, String> hash) {
+        final String result = delegate.hmset(key, hash);
+        invalidate(key);
+        return result;
+    }
+
+    public List<String> hmget(final String key, final String... fields) {
+        return delegate.hmget(key, fields);
+    }
+
+    public Long hincrBy(final String key, final String field, final int value) {
+        final Long result = delegate.hincrBy(key, field, value);
+        invalidate(key);
+        return result;
+    }
+
+    public long hincrByAsLong(final String key, final String field, final int value) {
+        final long result = delegate.hincrByAsLong(key, field, value);
+        invalidate(key);
+        return result;
+    }
+
+    public Boolean hexists(final String key, final String field) {
+        return delegate.hexists(key, field);
+    }
+
+    public Boolean hdel(final String key, final String field) {
+        final Boolean result = delegate.hdel(key, field);
+        invalidate(key);
+        return result;
+    }
+
+    public Long hlen(final String key) {
+        return delegate.hlen(key);
+    }
+
+    public Set<String> hkeys(final String key) {
+        return delegate.hkeys(key);
+    }
+
+    public List<String> hvals(final String key) {
+        return delegate.hvals(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, String> hgetAll(final String key) {
+        final Map<String, String> hash = (Map<String, String>) cached(key, HGETALL, new Loader() {
+            public Object load() {
+                final Map<String, String> hash = delegate.hgetAll(key);
+                return hash != null ? new HashMap<String, String>(hash) : null;
+            }
+        });
+        return hash != null ? new HashMap<String, String>(hash) : null;
+    }
+
+    public Long rpush(final String key, final String value) {
+        return delegate.rpush(key, value);
+    }
+
+    public <T> Long rpush(final String key, final T value, final Codec<T> codec) {
+        return delegate.rpush(key, value, codec);
+    }
+
+    public Long rpushx(final String key, final String value) {
+        return delegate.rpushx(key, value);
+    }
+
+    public Long lpush(final String key, final String value) {
+        return delegate.lpush(key, value);
+    }
+
+    public <T> Long lpush(final String key, final T value, final Codec<T> codec) {
+        return delegate.lpush(key, value, codec);
+    }
+
+    public Long lpushx(final String key, final String value) {
+        return delegate.lpushx(key, value);
+    }
+
+    public Long llen(final String key) {
+        return delegate.llen(key);
+    }
+
+    public List<String> lrange(final String key, final int start, final int end) {
+        return delegate.lrange(key, start, end);
+    }
+
+    public <T> List<T> lrange(final String key, final int start, final int end, final Codec<T> codec) {
+        return delegate.lrange(key, start, end, codec);
+    }
+
+    public String ltrim(final String key, final int start, final int end) {
+        return delegate.ltrim(key, start, end);
+    }
+
+    public String lindex(final String key, final int index) {
+        return delegate.lindex(key, index);
+    }
+
+    public <T> T lindex(final String key, final int index, final Codec<T> codec) {
+        return delegate.lindex(key, index, codec);
+    }
+
+    public String lset(final String key, final int index, final String value) {
+        return delegate.lset(key, index, value);
+    }
+
+    public Long lrem(final String key, final int count, final String value) {
+        return delegate.lrem(key, count, value);
+    }
+
+    public String lpop(final String key) {
+        return delegate.lpop(key);
+    }
+
+    public <T> T lpop(final String key, final Codec<T> codec) {
+        return delegate.lpop(key, codec);
+    }
+
+    public String rpop(final String key) {
+        return delegate.rpop(key);
+    }
+
+    public <T> T rpop(final String key, final Codec<T> codec) {
+        return delegate.rpop(key, codec);
+    }
+
+    public Boolean sadd(final String key, final String member) {
+        final Boolean result = delegate.sadd(key, member);
+        invalidate(key);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Set<String> smembers(final String key) {
+        final Set<String> members = (Set<String>) cached(key, SMEMBERS, new Loader() {
+            public Object load() {
+                final Set<String> members = delegate.smembers(key);
+                return members != null ? new HashSet<String>(members) : null;
+            }
+        });
+        return members != null ? new HashSet<String>(members) : null;
+    }
+
+    public Boolean srem(final String key, final String member) {
+        final Boolean result = delegate.srem(key, member);
+        invalidate(key);
+        return result;
+    }
+
+    public String spop(final String key) {
+        final String result = delegate.spop(key);
+        invalidate(key);
+        return result;
+    }
+
+    public Long scard(final String key) {
+        return delegate.scard(key);
+    }
+
+    public Boolean sismember(final String key, final String member) {
+        return delegate.sismember(key, member);
+    }
+
+    public String srandmember(final String key) {
+        return delegate.srandmember(key);
+    }
+
+    public Boolean zadd(final String key, final Number score, final String member) {
+        return delegate.zadd(key, score, member);
+    }
+
+    public List<String> zrange(final String key, final int start, final int end) {
+        return delegate.zrange(key, start, end);
+    }
+
+    public Boolean zrem(final String key, final String member) {
+        return delegate.zrem(key, member);
+    }
+
+    public String zincrby(final String key, final Number score, final String member) {
+        return delegate.zincrby(key, score, member);
+    }
+
+    public double zincrbyAsDouble(final String key, final double score, final String member) {
+        return delegate.zincrbyAsDouble(key, score, member);
+    }
+
+    public Long zrank(final String key, final String member) {
+        return delegate.zrank(key, member);
+    }
+
+    public Long zrevrank(final String key, final String member) {
+        return delegate.zrevrank(key, member);
+    }
+
+    public List<String> zrevrange(final String key, final int start, final int end) {
+        return delegate.zrevrange(key, start, end);
+    }
+
+    public List<ElementScore> zrangeWithScores(final String key, final int start, final int end) {
+        return delegate.zrangeWithScores(key, start, end);
+    }
+
+    public List<ElementScore> zrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return delegate.zrangeWithScoresAsDouble(key, start, end);
+    }
+
+    public List<ElementScore> zrevrangeWithScores(final String key, final int start, final int end) {
+        return delegate.zrevrangeWithScores(key, start, end);
+    }
+
+    public List<ElementScore> zrevrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return delegate.zrevrangeWithScoresAsDouble(key, start, end);
+    }
+
+    public List<String> zrevrangeByScore(final String key, final String max, final String min) {
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    public List<String> zrevrangeByScore(final String key, final String max, final String min, final int offset, final int count) {
+        return delegate.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    public List<ElementScore> zrevrangeByScoreWithScores(final String key, final String max, final String min) {
+        return delegate.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    public List<ElementScore> zrevrangeByScoreWithScores(final String key, final String max, final String min, final int offset, final int count) {
+        return delegate.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    public Long zcard(final String key) {
+        return delegate.zcard(key);
+    }
+
+    public String zscore(final String key, final String member) {
+        return delegate.zscore(key, member);
+    }
+
+    public double zscoreAsDouble(final String key, final String member) {
+        return delegate.zscoreAsDouble(key, member);
+    }
+
+    public List<String> sort(final String key) {
+        return delegate.sort(key);
+    }
+
+    public List<String> sort(final String key, final SortingParams sortingParameters) {
+        return delegate.sort(key, sortingParameters);
+    }
+
+    /**
+     * SORT with STORE, the delegate must be a <code>SingleRedisOperations</code>.
+     */
+    public Long sort(final String key, final SortingParams sortingParameters, final String dstkey) {
+        final Long result = single().sort(key, sortingParameters, dstkey);
+        invalidate(dstkey);
+        return result;
+    }
+
+    /**
+     * SORT with STORE, the delegate must be a <code>SingleRedisOperations</code>.
+     */
+    public Long sort(final String key, final String dstkey) {
+        final Long result = single().sort(key, dstkey);
+        invalidate(dstkey);
+        return result;
+    }
+
+    private SingleRedisOperations single() {
+        if (!(delegate instanceof SingleRedisOperations)) {
+            throw new UnsupportedOperationException("SORT with STORE is not supported by " + delegate.getClass().getName());
+        }
+        return (SingleRedisOperations) delegate;
+    }
+
+    public Long zcount(final String key, final Number min, final Number max) {
+        return delegate.zcount(key, min, max);
+    }
+
+    public List<String> zrangeByScore(final String key, final String min, final String max) {
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    public List<String> zrangeByScore(final String key, final String min, final String max, final int offset, final int count) {
+        return delegate.zrangeByScore(key, min, max, offset, count);
+    }
+
+    public List<ElementScore> zrangeByScoreWithScores(final String key, final String min, final String max) {
+        return delegate.zrangeByScoreWithScores(key, min, max);
+    }
+
+    public List<ElementScore> zrangeByScoreWithScores(final String key, final String min, final String max, final int offset, final int count) {
+        return delegate.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    public Long zremrangeByRank(final String key, final int start, final int end) {
+        return delegate.zremrangeByRank(key, start, end);
+    }
+
+    public Long zremrangeByScore(final String key, final String min, final String max) {
+        return delegate.zremrangeByScore(key, min, max);
+    }
+
+    public Long linsert(final String key, final ListPosition where, final String pivot, final String value) {
+        return delegate.linsert(key, where, pivot, value);
+    }
+
+    public Long publish(final String channel, final String message) {
+        return delegate.publish(channel, message);
+    }
+
+    public Long getBit(final String key, final int offset) {
+        return delegate.getBit(key, offset);
+    }
+
+    public Long setBit(final String key, final int offset, final String value) {
+        final Long result = delegate.setBit(key, offset, value);
+        invalidate(key);
+        return result;
+    }
+
+    public Object eval(final RedisScript script, final List<String> keys, final List<String> args) {
+        final Object result = delegate.eval(script, keys, args);
+        invalidate(keys.toArray(new String[keys.size()]));
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.codec;
+
+import org.idevlab.rjc.protocol.RedisOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Converts values of type <code>T</code> to Redis bulk values and back without intermediate
+ * String or byte[] copies where possible.
+ * <p/>
+ * Implementations must be thread safe, the same codec is usually shared by all connections.
+ *
+ * @author Evgeny Dolgov
+ * @see Codecs
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes the value as exactly one bulk argument: <code>$length CRLF data CRLF</code>,
+     * e.g. with {@link RedisOutputStream#writeBulk(byte[], int, int)}.
+     *
+     * @param value not null value
+     * @param out   command output stream
+     * @throws IOException if an I/O error occurs
+     */
+    void encode(T value, RedisOutputStream out) throws IOException;
+
+    /**
+     * Decodes a bulk value. The array is the input buffer of the connection, so the codec
+     * must not keep a reference to it.
+     *
+     * @param buf    source bytes
+     * @param offset offset of the value
+     * @param length length of the value
+     * @return decoded value
+     */
+    T decode(byte[] buf, int offset, int length);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.codec;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.io.IOException;
+
+/**
+ * Built-in codecs.
+ *
+ * @author Evgeny Dolgov
+ */
+public final class Codecs {
+
+    /**
+     * UTF-8 strings, the same encoding <code>RedisOperations</code> uses.
+     */
+    public static final Codec<String> STRING = new Codec<String>() {
+        public void encode(String value, RedisOutputStream out) throws IOException {
+            out.write(Protocol.DOLLAR_BYTE);
+            out.writeIntCrLf(RedisOutputStream.utf8Length(value));
+            out.writeUtf8CrLf(value);
+        }
+
+        public String decode(byte[] buf, int offset, int length) {
+            return SafeEncoder.encode(buf, offset, length);
+        }
+    };
+
+    /**
+     * Raw bytes. Large arrays may be sent without copying, see <code>RedisOutputStream.setCopyThreshold</code>.
+     */
+    public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+        public void encode(byte[] value, RedisOutputStream out) throws IOException {
+            out.writeBulk(value, 0, value.length);
+        }
+
+        public byte[] decode(byte[] buf, int offset, int length) {
+            final byte[] value = new byte[length];
+            System.arraycopy(buf, offset, value, 0, length);
+            return value;
+        }
+    };
+
+    /**
+     * Decimal integers as INCR and friends store them.
+     */
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        public void encode(Long value, RedisOutputStream out) throws IOException {
+            out.write(Protocol.DOLLAR_BYTE);
+            out.writeIntCrLf(RedisOutputStream.asciiLength(value));
+            out.writeLongCrLf(value);
+        }
+
+        public Long decode(byte[] buf, int offset, int length) {
+            return parseLong(buf, offset, length);
+        }
+    };
+
+    /**
+     * Decimal floating point numbers as INCRBYFLOAT and sorted set scores use, <code>inf</code> included.
+     */
+    public static final Codec<Double> DOUBLE = new Codec<Double>() {
+        public void encode(Double value, RedisOutputStream out) throws IOException {
+            final String str;
+            if (value.isInfinite()) {
+                str = value > 0 ? "inf" : "-inf";
+            } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                LONG.encode(value.longValue(), out);
+                return;
+            } else {
+                str = value.toString();
+            }
+            out.write(Protocol.DOLLAR_BYTE);
+            out.writeIntCrLf(str.length());
+            out.writeAsciiCrLf(str);
+        }
+
+        public Double decode(byte[] buf, int offset, int length) {
+            return Protocol.toDouble(buf, offset, length);
+        }
+    };
+
+    private Codecs() {
+    }
+
+    /**
+     * Parses a decimal integer from ASCII bytes.
+     *
+     * @param b   the bytes
+     * @param off offset of the value
+     * @param len length of the value
+     * @return parsed value
+     * @throws RedisException if the bytes are not a 64 bit integer
+     */
+    public static long parseLong(final byte[] b, final int off, final int len) {
+        final int end = off + len;
+        int i = off;
+        final boolean negative = len > 0 && b[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end || end - i > 19) {
+            throw new RedisException("Unexpected integer value: " + SafeEncoder.encode(b, off, len));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            final int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new RedisException("Unexpected integer value: " + SafeEncoder.encode(b, off, len));
+            }
+            // accumulate negatively to cover Long.MIN_VALUE
+            final long next = value * 10 - digit;
+            if (next > value) {
+                throw new RedisException("Unexpected integer value: " + SafeEncoder.encode(b, off, len));
+            }
+            value = next;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new RedisException("Unexpected integer value: " + SafeEncoder.encode(b, off, len));
+            }
+            value = -value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.RedisFuture;
+import org.idevlab.rjc.ReplyConverter;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+/**
+ * Connection which sends commands without waiting for their replies. Commands sent through one
+ * connection are executed in order. Implementations are thread safe.
+ *
+ * @author Evgeny Dolgov
+ * @see MultiplexedDataSource#getAsyncConnection()
+ */
+public interface AsyncRedisConnection {
+
+    <T> RedisFuture<T> send(ReplyConverter<T> converter, RedisCommand cmd, String... args);
+
+    <T> RedisFuture<T> send(ReplyConverter<T> converter, RedisCommand cmd, byte[]... args);
+
+    /**
+     * Sends a command whose last argument is encoded by the codec.
+     */
+    <T, V> RedisFuture<T> send(ReplyConverter<T> converter, RedisCommand cmd, Codec<V> codec, V value, String... args);
+}
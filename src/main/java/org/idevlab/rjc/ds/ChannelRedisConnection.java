@@ -0,0 +1,315 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.GatheringOutput;
+import org.idevlab.rjc.protocol.RedisInputStream;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection based on non-blocking <code>SocketChannel</code> and pooled direct buffers.
+ * A direct buffer is taken from the pool for every socket read or write, so idle connections hold no direct memory.
+ * <p/>
+ * The channel waits on selectors, so read timeouts work the same way as <code>SO_TIMEOUT</code>
+ * of the socket based connection. The timeout bounds the connect as well.
+ *
+ * @author Evgeny Dolgov
+ */
+class ChannelRedisConnection extends RedisConnectionImpl {
+    private final DirectBufferPool directBufferPool;
+    private SocketChannel channel;
+    private Selector readSelector;
+    private Selector writeSelector;
+    private ByteBuffer readBuffer;
+    private volatile int soTimeout;
+
+    public ChannelRedisConnection(final String host, final int port) {
+        this(host, port, DirectBufferPool.DEFAULT);
+    }
+
+    public ChannelRedisConnection(final String host, final int port, final DirectBufferPool directBufferPool) {
+        super(host, port);
+        this.directBufferPool = directBufferPool;
+    }
+
+    @Override
+    public void connect() throws UnknownHostException, IOException {
+        if (!isConnected()) {
+            InetSocketAddress address = new InetSocketAddress(getHost(), getPort());
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(getHost());
+            }
+
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                readSelector = Selector.open();
+                writeSelector = Selector.open();
+                final SelectionKey writeKey = channel.register(writeSelector, SelectionKey.OP_CONNECT);
+                if (!channel.connect(address)) {
+                    finishConnect(channel);
+                }
+                writeKey.interestOps(SelectionKey.OP_WRITE);
+                channel.register(readSelector, SelectionKey.OP_READ);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                closeQuietly(readSelector);
+                closeQuietly(writeSelector);
+                readSelector = null;
+                writeSelector = null;
+                throw e;
+            }
+
+            this.channel = channel;
+            soTimeout = getTimeout();
+            outputStream = new RedisOutputStream(new ChannelOutputStream(), directBufferPool.getBufferSize(), getBufferPool());
+            outputStream.setCopyThreshold(getCopyThreshold());
+            inputStream = new RedisInputStream(new ChannelInputStream(), directBufferPool.getBufferSize(), getBufferPool());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                if (readSelector != null) {
+                    readSelector.close();
+                }
+                if (writeSelector != null) {
+                    writeSelector.close();
+                }
+                channel.close();
+            } catch (IOException ex) {
+                throw new RedisException(ex);
+            } finally {
+                channel = null;
+                directBufferPool.release(readBuffer);
+                readBuffer = null;
+                closeStreams();
+            }
+        }
+    }
+
+    @Override
+    void abort() {
+        final SocketChannel channel = this.channel;
+        if (channel != null) {
+            closeQuietly(channel);
+            // a blocked select does not notice the closed channel by itself
+            final Selector readSelector = this.readSelector;
+            final Selector writeSelector = this.writeSelector;
+            if (readSelector != null) {
+                readSelector.wakeup();
+            }
+            if (writeSelector != null) {
+                writeSelector.wakeup();
+            }
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel != null && channel.isOpen() && channel.isConnected();
+    }
+
+    @Override
+    public void setTimeoutInfinite() {
+        soTimeout = 0;
+    }
+
+    @Override
+    public void rollbackTimeout() {
+        soTimeout = getTimeout();
+    }
+
+    private void await(Selector selector, String operation) throws IOException {
+        final int timeout = soTimeout;
+        final long deadline = System.currentTimeMillis() + timeout;
+        try {
+            long wait = timeout;
+            while (selector.select(wait) == 0) {
+                if (!selector.isOpen() || !isConnected()) {
+                    throw new ClosedChannelException();
+                }
+                if (timeout > 0) {
+                    wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        throw new SocketTimeoutException(operation + " timed out");
+                    }
+                }
+            }
+            selector.selectedKeys().clear();
+        } catch (ClosedSelectorException e) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Waits for the connection to be established within the timeout, like <code>Socket.connect</code> with a timeout.
+     */
+    private void finishConnect(SocketChannel channel) throws IOException {
+        final int timeout = getTimeout();
+        final long deadline = System.currentTimeMillis() + timeout;
+        long wait = timeout;
+        while (!channel.finishConnect()) {
+            if (writeSelector.select(wait) == 0 && timeout > 0) {
+                wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new SocketTimeoutException("Connect to " + getHost() + ":" + getPort() + " timed out");
+                }
+            }
+            writeSelector.selectedKeys().clear();
+        }
+    }
+
+    private void closeStreams() {
+        try {
+            // gives the heap buffers back, unsent data can not be written to the closed channel anyway
+            inputStream.close();
+            outputStream.close();
+        } catch (IOException e) {
+            // the channel is already closed
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the original exception is more important
+        }
+    }
+
+    private static void closeQuietly(Selector selector) {
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // the original exception is more important
+            }
+        }
+    }
+
+    private class ChannelInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final SocketChannel channel = ChannelRedisConnection.this.channel;
+            if (channel == null) {
+                throw new ClosedChannelException();
+            }
+            // data left by a short read, RedisInputStream always reads the whole buffer
+            ByteBuffer buffer = readBuffer;
+            readBuffer = null;
+            if (buffer == null) {
+                buffer = directBufferPool.acquire();
+                int n;
+                try {
+                    while ((n = channel.read(buffer)) == 0) {
+                        await(readSelector, "Read");
+                    }
+                } catch (IOException e) {
+                    directBufferPool.release(buffer);
+                    throw e;
+                }
+                if (n == -1) {
+                    directBufferPool.release(buffer);
+                    return -1;
+                }
+                buffer.flip();
+            }
+            final int length = Math.min(len, buffer.remaining());
+            buffer.get(b, off, length);
+            if (buffer.hasRemaining()) {
+                readBuffer = buffer;
+            } else {
+                directBufferPool.release(buffer);
+            }
+            return length;
+        }
+    }
+
+    private class ChannelOutputStream extends OutputStream implements GatheringOutput {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final SocketChannel channel = ChannelRedisConnection.this.channel;
+            if (channel == null) {
+                throw new ClosedChannelException();
+            }
+            final ByteBuffer buffer = directBufferPool.acquire();
+            try {
+                while (len > 0) {
+                    final int length = Math.min(len, buffer.capacity());
+                    buffer.clear();
+                    buffer.put(b, off, length);
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        if (channel.write(buffer) == 0) {
+                            await(writeSelector, "Write");
+                        }
+                    }
+                    off += length;
+                    len -= length;
+                }
+            } finally {
+                directBufferPool.release(buffer);
+            }
+        }
+
+        public void write(ByteBuffer[] buffers) throws IOException {
+            final SocketChannel channel = ChannelRedisConnection.this.channel;
+            if (channel == null) {
+                throw new ClosedChannelException();
+            }
+            int first = 0;
+            while (first < buffers.length) {
+                if (channel.write(buffers, first, buffers.length - first) == 0) {
+                    await(writeSelector, "Write");
+                }
+                while (first < buffers.length && !buffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        }
+    }
+}
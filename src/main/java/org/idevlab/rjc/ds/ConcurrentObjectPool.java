@@ -0,0 +1,717 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.PoolableObjectFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <code>ObjectPool</code> whose borrow and return paths are lock free: idle objects are kept in
+ * a Treiber stack and the active and idle counts are maintained with CAS.
+ * A thread blocks on a monitor only when the pool is exhausted and it has to wait for a returned object.
+ * <p/>
+ * The configuration mirrors <code>GenericObjectPool</code> with the <code>WHEN_EXHAUSTED_BLOCK</code> action.
+ * Idle objects are reused in LIFO order like in <code>GenericObjectPool</code>, so the objects above the load
+ * stay idle and can reach <code>minEvictableIdleTimeMillis</code>. The idle object evictor examines
+ * the oldest ones first, it claims an object with a flag and leaves the unlinking of the claimed objects
+ * to the borrowers and its next runs.
+ * <p/>
+ * With <code>threadAffinity</code> enabled a returned object is parked in a cache of the returning thread
+ * and handed back to that thread on its next borrow without touching the shared state. A parked object
+ * still counts as active: threads waiting on an exhausted pool take parked objects of other threads, and
+ * the idle object evictor moves objects parked by finished threads or not reused since its previous run
+ * back to the idle objects. Without the evictor the caches of finished threads are reclaimed when a new
+ * thread uses the pool and at most once a second on a borrow which misses the cache.
+ * An object taken from a cache is activated and validated like an idle one, if it fails the borrow
+ * goes on with the idle objects.
+ *
+ * @author Evgeny Dolgov
+ */
+public class ConcurrentObjectPool implements ObjectPool {
+
+    public static final int DEFAULT_MAX_ACTIVE = 8;
+    public static final int DEFAULT_MAX_IDLE = 8;
+    public static final int DEFAULT_MIN_IDLE = 0;
+    public static final long DEFAULT_MAX_WAIT = -1L;
+    public static final long DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS = -1L;
+    public static final int DEFAULT_NUM_TESTS_PER_EVICTION_RUN = 3;
+    public static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS = 1000L * 60L * 30L;
+    private static final long DEAD_SLOTS_CHECK_INTERVAL_MILLIS = 1000L;
+
+    private static Timer evictionTimer;
+
+    private volatile PoolableObjectFactory factory;
+
+    private volatile int maxActive = DEFAULT_MAX_ACTIVE;
+    private volatile int maxIdle = DEFAULT_MAX_IDLE;
+    private volatile int minIdle = DEFAULT_MIN_IDLE;
+    private volatile long maxWait = DEFAULT_MAX_WAIT;
+    private volatile boolean testOnBorrow;
+    private volatile boolean testOnReturn;
+    private volatile boolean testWhileIdle;
+    private volatile long timeBetweenEvictionRunsMillis = DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS;
+    private volatile int numTestsPerEvictionRun = DEFAULT_NUM_TESTS_PER_EVICTION_RUN;
+    private volatile long minEvictableIdleTimeMillis = DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+    private volatile boolean threadAffinity;
+
+    private final AtomicReference<IdleObject> idle = new AtomicReference<IdleObject>();
+    private final AtomicInteger numIdle = new AtomicInteger();
+    private final AtomicInteger numActive = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object exhaustedLock = new Object();
+    private volatile boolean closed;
+    private TimerTask evictor;
+
+    private final Queue<ParkingSlot> slots = new ConcurrentLinkedQueue<ParkingSlot>();
+    private final AtomicLong lastDeadSlotsCheck = new AtomicLong();
+    private final ThreadLocal<ParkingSlot> localSlot = new ThreadLocal<ParkingSlot>() {
+        @Override
+        protected ParkingSlot initialValue() {
+            // a new thread may replace a finished one, so the slots do not grow with every thread ever seen
+            reclaimDeadSlots();
+            ParkingSlot slot = new ParkingSlot(Thread.currentThread());
+            slots.offer(slot);
+            return slot;
+        }
+    };
+
+    public ConcurrentObjectPool() {
+    }
+
+    public ConcurrentObjectPool(PoolableObjectFactory factory) {
+        this.factory = factory;
+    }
+
+    public Object borrowObject() throws Exception {
+        assertOpen();
+        Object obj = null;
+        if (threadAffinity) {
+            obj = localSlot.get().getAndSet(null);
+        }
+        if (obj == null && threadAffinity) {
+            final long now = System.currentTimeMillis();
+            final long lastCheck = lastDeadSlotsCheck.get();
+            if (now - lastCheck >= DEAD_SLOTS_CHECK_INTERVAL_MILLIS && lastDeadSlotsCheck.compareAndSet(lastCheck, now)) {
+                reclaimDeadSlots();
+            }
+        }
+        // an object taken from a slot comes with its reservation
+        if (obj == null) {
+            obj = tryReserve() ? null : awaitReservation();
+        }
+        try {
+            for (; ;) {
+                boolean created = false;
+                if (obj == null) {
+                    final IdleObject idleObject = pollIdle();
+                    if (idleObject == null) {
+                        created = true;
+                        obj = factory.makeObject();
+                    } else {
+                        numIdle.decrementAndGet();
+                        obj = idleObject.object;
+                    }
+                }
+                try {
+                    factory.activateObject(obj);
+                    if (testOnBorrow && !factory.validateObject(obj)) {
+                        throw new Exception("ValidateObject failed");
+                    }
+                    return obj;
+                } catch (Throwable e) {
+                    destroy(obj);
+                    obj = null;
+                    if (created) {
+                        NoSuchElementException nse = new NoSuchElementException("Could not create a validated object");
+                        nse.initCause(e);
+                        throw nse;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            release();
+            throw e;
+        } catch (Error e) {
+            release();
+            throw e;
+        }
+    }
+
+    public void returnObject(Object obj) throws Exception {
+        if (threadAffinity && waiters.get() == 0 && park(localSlot.get(), obj)) {
+            return;
+        }
+        unpark(obj);
+    }
+
+    private boolean park(ParkingSlot slot, Object obj) {
+        if (slot.get() != null) {
+            return false;
+        }
+        if (testOnReturn && !validate(obj)) {
+            destroy(obj);
+            release();
+            return true;
+        }
+        slot.used = true;
+        slot.set(obj);
+        // a thread which started waiting or closed the pool meanwhile may have missed the object,
+        // if it did not take it the object goes the usual way
+        return !(waiters.get() > 0 || closed) || slot.getAndSet(null) == null;
+    }
+
+    private void unpark(Object obj) throws Exception {
+        try {
+            addIdle(obj, testOnReturn);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * @return an object parked by any thread, null if there are none
+     */
+    private Object takeParked() {
+        for (ParkingSlot slot : slots) {
+            final Object obj = slot.getAndSet(null);
+            if (obj != null) {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    private boolean validate(Object obj) {
+        try {
+            return factory.validateObject(obj);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public void invalidateObject(Object obj) throws Exception {
+        try {
+            factory.destroyObject(obj);
+        } finally {
+            release();
+        }
+    }
+
+    public void addObject() throws Exception {
+        assertOpen();
+        addIdle(factory.makeObject(), false);
+    }
+
+    private void addIdle(Object obj, boolean validate) throws Exception {
+        boolean keep = !closed && (!validate || factory.validateObject(obj));
+        if (keep) {
+            try {
+                factory.passivateObject(obj);
+            } catch (Exception e) {
+                keep = false;
+            }
+        }
+        if (keep) {
+            for (; ;) {
+                final int n = numIdle.get();
+                if (maxIdle >= 0 && n >= maxIdle) {
+                    break;
+                }
+                if (numIdle.compareAndSet(n, n + 1)) {
+                    pushIdle(new IdleObject(obj, System.currentTimeMillis()));
+                    if (closed) {
+                        // close() may have drained the queue already
+                        clear();
+                    }
+                    return;
+                }
+            }
+        }
+        factory.destroyObject(obj);
+    }
+
+    private boolean tryReserve() {
+        for (; ;) {
+            final int n = numActive.get();
+            if (maxActive >= 0 && n >= maxActive) {
+                return false;
+            }
+            if (numActive.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return object parked by some thread or null if a new reservation is made
+     */
+    private Object awaitReservation() throws InterruptedException {
+        final long maxWait = this.maxWait;
+        final long deadline = System.currentTimeMillis() + maxWait;
+        waiters.incrementAndGet();
+        try {
+            synchronized (exhaustedLock) {
+                while (!tryReserve()) {
+                    assertOpen();
+                    final Object parked = takeParked();
+                    if (parked != null) {
+                        return parked;
+                    }
+                    if (maxWait <= 0) {
+                        exhaustedLock.wait();
+                    } else {
+                        final long timeout = deadline - System.currentTimeMillis();
+                        if (timeout <= 0) {
+                            throw new NoSuchElementException("Timeout waiting for idle object");
+                        }
+                        exhaustedLock.wait(timeout);
+                    }
+                }
+                return null;
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        numActive.decrementAndGet();
+        signalWaiters();
+    }
+
+    private void signalWaiters() {
+        if (waiters.get() > 0) {
+            synchronized (exhaustedLock) {
+                exhaustedLock.notifyAll();
+            }
+        }
+    }
+
+    private void destroy(Object obj) {
+        try {
+            factory.destroyObject(obj);
+        } catch (Exception e) {
+            // ignored, the object is dropped anyway
+        }
+    }
+
+    private void assertOpen() {
+        if (closed) {
+            throw new IllegalStateException("Pool not open");
+        }
+    }
+
+    public int getNumIdle() {
+        return numIdle.get();
+    }
+
+    /**
+     * @return number of borrowed objects including the parked ones
+     */
+    public int getNumActive() {
+        return numActive.get();
+    }
+
+    /**
+     * @return number of objects parked in the thread caches, computed by iterating the caches
+     */
+    public int getNumParked() {
+        int count = 0;
+        for (ParkingSlot slot : slots) {
+            if (slot.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of the thread caches including the ones of finished threads not reclaimed yet
+     */
+    int getNumSlots() {
+        return slots.size();
+    }
+
+    /**
+     * Destroys the idle objects and the objects parked in the thread caches.
+     */
+    public void clear() {
+        Object parked;
+        while ((parked = takeParked()) != null) {
+            destroy(parked);
+            release();
+        }
+        IdleObject idleObject;
+        while ((idleObject = pollIdle()) != null) {
+            numIdle.decrementAndGet();
+            destroy(idleObject.object);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        setTimeBetweenEvictionRunsMillis(-1);
+        clear();
+        signalWaiters();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setFactory(PoolableObjectFactory factory) {
+        assertOpen();
+        if (numActive.get() > 0) {
+            throw new IllegalStateException("Objects are already active");
+        }
+        clear();
+        this.factory = factory;
+    }
+
+    /**
+     * Moves objects parked by finished threads or not reused since the previous run to the idle objects.
+     * Examines up to <code>numTestsPerEvictionRun</code> oldest idle objects, destroys the ones idle for too long
+     * or failed validation, then creates objects up to <code>minIdle</code>.
+     *
+     * @throws Exception if the factory fails to create an object
+     */
+    public void evict() throws Exception {
+        reclaimParked(false);
+        final int tests = getNumTests();
+        final long now = System.currentTimeMillis();
+        final List<IdleObject> oldest = idleObjects();
+        for (int i = oldest.size() - 1; i >= 0 && i >= oldest.size() - tests && !closed; i--) {
+            final IdleObject idleObject = oldest.get(i);
+            final boolean expired = minEvictableIdleTimeMillis > 0 && now - idleObject.since > minEvictableIdleTimeMillis;
+            if (!expired && !testWhileIdle || !idleObject.claim()) {
+                continue;
+            }
+            numIdle.decrementAndGet();
+            boolean remove = expired;
+            if (!remove) {
+                try {
+                    factory.activateObject(idleObject.object);
+                    remove = !factory.validateObject(idleObject.object);
+                    if (!remove) {
+                        factory.passivateObject(idleObject.object);
+                    }
+                } catch (Exception e) {
+                    remove = true;
+                }
+            }
+            if (remove) {
+                destroy(idleObject.object);
+            } else {
+                // a borrower may have unlinked the claimed node meanwhile, so the object goes back in a new one
+                numIdle.incrementAndGet();
+                pushIdle(new IdleObject(idleObject.object, idleObject.since));
+            }
+        }
+        ensureMinIdle();
+    }
+
+    private void pushIdle(IdleObject idleObject) {
+        IdleObject top;
+        do {
+            top = idle.get();
+            idleObject.next = top;
+        } while (!idle.compareAndSet(top, idleObject));
+    }
+
+    /**
+     * @return the most recently returned idle object, null if there are none
+     */
+    private IdleObject pollIdle() {
+        for (; ;) {
+            final IdleObject top = idle.get();
+            if (top == null) {
+                return null;
+            }
+            if (idle.compareAndSet(top, top.next) && top.claim()) {
+                return top;
+            }
+        }
+    }
+
+    /**
+     * @return the unclaimed idle objects from the newest to the oldest, claimed ones are unlinked on the way
+     */
+    private List<IdleObject> idleObjects() {
+        final List<IdleObject> result = new ArrayList<IdleObject>(numIdle.get());
+        IdleObject previous = null;
+        for (IdleObject node = idle.get(); node != null; node = node.next) {
+            if (node.get()) {
+                if (previous != null) {
+                    // only claimed nodes are skipped, pushes and polls never change the links below the top
+                    previous.next = node.next;
+                }
+            } else {
+                result.add(node);
+                previous = node;
+            }
+        }
+        return result;
+    }
+
+    private void reclaimParked(boolean all) {
+        for (Iterator<ParkingSlot> it = slots.iterator(); it.hasNext();) {
+            final ParkingSlot slot = it.next();
+            final boolean dead = slot.isDead();
+            if (dead) {
+                it.remove();
+            }
+            if (all || dead || !slot.used) {
+                reclaim(slot);
+            }
+            slot.used = false;
+        }
+    }
+
+    /**
+     * Removes the slots of finished threads and moves their objects to the idle objects.
+     */
+    private void reclaimDeadSlots() {
+        for (Iterator<ParkingSlot> it = slots.iterator(); it.hasNext();) {
+            final ParkingSlot slot = it.next();
+            if (slot.isDead()) {
+                it.remove();
+                reclaim(slot);
+            }
+        }
+    }
+
+    private void reclaim(ParkingSlot slot) {
+        final Object obj = slot.getAndSet(null);
+        if (obj != null) {
+            try {
+                unpark(obj);
+            } catch (Exception e) {
+                // the object has been destroyed
+            }
+        }
+    }
+
+    private int getNumTests() {
+        final int idleCount = numIdle.get();
+        if (numTestsPerEvictionRun >= 0) {
+            return Math.min(numTestsPerEvictionRun, idleCount);
+        }
+        return (int) Math.ceil(idleCount / Math.abs((double) numTestsPerEvictionRun));
+    }
+
+    private void ensureMinIdle() throws Exception {
+        while (!closed && numIdle.get() < minIdle && (maxActive < 0 || numIdle.get() + numActive.get() < maxActive)) {
+            addObject();
+        }
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    /**
+     * @param maxActive the maximum number of borrowed objects, negative for no limit
+     */
+    public void setMaxActive(int maxActive) {
+        this.maxActive = maxActive;
+        signalWaiters();
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * @param maxIdle the maximum number of idle objects, negative for no limit
+     */
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * @param minIdle the number of idle objects the evictor keeps in the pool
+     */
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * @param maxWait milliseconds to wait for an object when the pool is exhausted, non-positive to wait indefinitely
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public boolean getTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean getTestOnReturn() {
+        return testOnReturn;
+    }
+
+    public void setTestOnReturn(boolean testOnReturn) {
+        this.testOnReturn = testOnReturn;
+    }
+
+    public boolean getTestWhileIdle() {
+        return testWhileIdle;
+    }
+
+    public void setTestWhileIdle(boolean testWhileIdle) {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public long getTimeBetweenEvictionRunsMillis() {
+        return timeBetweenEvictionRunsMillis;
+    }
+
+    /**
+     * Starts, reschedules or stops the idle object evictor.
+     *
+     * @param timeBetweenEvictionRunsMillis period of the evictor runs, non-positive to stop it
+     */
+    public synchronized void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+        this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+        if (evictor != null) {
+            evictor.cancel();
+            evictor = null;
+        }
+        if (timeBetweenEvictionRunsMillis > 0 && !closed) {
+            evictor = new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        evict();
+                    } catch (Exception e) {
+                        // try again on the next run
+                    }
+                }
+            };
+            getEvictionTimer().schedule(evictor, timeBetweenEvictionRunsMillis, timeBetweenEvictionRunsMillis);
+        }
+    }
+
+    private static synchronized Timer getEvictionTimer() {
+        if (evictionTimer == null) {
+            evictionTimer = new Timer("rjc-pool-evictor", true);
+        }
+        return evictionTimer;
+    }
+
+    public int getNumTestsPerEvictionRun() {
+        return numTestsPerEvictionRun;
+    }
+
+    /**
+     * @param numTestsPerEvictionRun number of idle objects examined per evictor run,
+     *                               negative <code>-n</code> means <code>1/n</code> of the idle objects
+     */
+    public void setNumTestsPerEvictionRun(int numTestsPerEvictionRun) {
+        this.numTestsPerEvictionRun = numTestsPerEvictionRun;
+    }
+
+    public long getMinEvictableIdleTimeMillis() {
+        return minEvictableIdleTimeMillis;
+    }
+
+    /**
+     * @param minEvictableIdleTimeMillis idle time after which the evictor destroys an object, non-positive to keep them
+     */
+    public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+        this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+    }
+
+    public boolean getThreadAffinity() {
+        return threadAffinity;
+    }
+
+    /**
+     * @param threadAffinity whether a returned object is kept for the next borrow by the same thread,
+     *                       disabling moves all parked objects to the idle objects
+     */
+    public void setThreadAffinity(boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+        if (!threadAffinity) {
+            reclaimParked(true);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentObjectPool{active=" + getNumActive() + ", idle=" + getNumIdle() + "}";
+    }
+
+    private static final class ParkingSlot extends AtomicReference<Object> {
+        final WeakReference<Thread> owner;
+        volatile boolean used;
+
+        ParkingSlot(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        boolean isDead() {
+            final Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    /**
+     * Node of the idle stack, set once claimed by a borrower or the evictor.
+     */
+    private static final class IdleObject extends AtomicBoolean {
+        final Object object;
+        final long since;
+        volatile IdleObject next;
+
+        IdleObject(Object object, long since) {
+            this.object = object;
+            this.since = since;
+        }
+
+        boolean claim() {
+            return compareAndSet(false, true);
+        }
+    }
+}
@@ -17,7 +17,9 @@
 package org.idevlab.rjc.ds;
 
 import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.BufferPool;
 import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
 
 /**
  * @author Evgeny Dolgov
@@ -27,21 +29,43 @@ class ConnectionFactoryImpl implements ConnectionFactory {
     private final int port;
     private final int timeout;
     private final String password;
+    private final Transport transport;
+    private int copyThreshold;
+    private BufferPool bufferPool = SizeClassedBufferPool.DEFAULT;
 
     public ConnectionFactoryImpl(String host, int port, int timeout, String password) {
+        this(host, port, timeout, password, Transport.SOCKET);
+    }
+
+    public ConnectionFactoryImpl(String host, int port, int timeout, String password, Transport transport) {
         this.host = host;
         this.port = port;
         this.timeout = (timeout > 0) ? timeout : -1;
         this.password = password;
+        this.transport = transport;
     }
 
 
+    public void setCopyThreshold(int copyThreshold) {
+        this.copyThreshold = copyThreshold;
+    }
+
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     public RedisConnection create() throws Exception {
         final RedisConnectionImpl redis;
-        redis = new RedisConnectionImpl(this.host, this.port);
+        if (transport == Transport.CHANNEL) {
+            redis = new ChannelRedisConnection(this.host, this.port);
+        } else {
+            redis = new RedisConnectionImpl(this.host, this.port);
+        }
         if (timeout > 0) {
             redis.setTimeout(timeout);
         }
+        redis.setCopyThreshold(copyThreshold);
+        redis.setBufferPool(bufferPool);
 
 
         redis.connect();
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisFuture;
+import org.idevlab.rjc.ReplyConverter;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+/**
+ * <code>AsyncRedisConnection</code> bound to one <code>SharedConnection</code> of a data source, so that
+ * its commands keep their order. Another shared connection is taken when the bound one breaks.
+ *
+ * @author Evgeny Dolgov
+ */
+class MultiplexedAsyncConnection implements AsyncRedisConnection {
+
+    private final MultiplexedDataSource dataSource;
+    private volatile SharedConnection shared;
+
+    MultiplexedAsyncConnection(MultiplexedDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    private SharedConnection getShared(RedisCommand cmd) {
+        if (MultiplexedRedisConnection.DEDICATED_COMMANDS.contains(cmd)) {
+            throw new RedisException(cmd + " is not supported by an asynchronous connection");
+        }
+        SharedConnection connection = shared;
+        if (connection == null || connection.isBroken()) {
+            connection = dataSource.getSharedConnection();
+            shared = connection;
+        }
+        return connection;
+    }
+
+    public <T> RedisFuture<T> send(ReplyConverter<T> converter, RedisCommand cmd, String... args) {
+        final SharedConnection connection = getShared(cmd);
+        final PendingFuture<T> future = connection.beginWrite(new PendingFuture<T>(converter));
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        connection.endWrite(future, error, true);
+        return future;
+    }
+
+    public <T> RedisFuture<T> send(ReplyConverter<T> converter, RedisCommand cmd, byte[]... args) {
+        final SharedConnection connection = getShared(cmd);
+        final PendingFuture<T> future = connection.beginWrite(new PendingFuture<T>(converter));
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        connection.endWrite(future, error, true);
+        return future;
+    }
+
+    public <T, V> RedisFuture<T> send(ReplyConverter<T> converter, RedisCommand cmd, Codec<V> codec, V value,
+                                      String... args) {
+        final SharedConnection connection = getShared(cmd);
+        final PendingFuture<T> future = connection.beginWrite(new PendingFuture<T>(converter));
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, codec, value, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        connection.endWrite(future, error, true);
+        return future;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.BufferPool;
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source whose connections share a few sockets: commands of all callers are appended to the socket
+ * and one reader thread per socket hands the replies back in the order the commands were sent,
+ * so concurrent callers are pipelined automatically.
+ * <p/>
+ * Commands which block a connection or change its state (<code>BLPOP</code>, <code>BRPOP</code>,
+ * <code>BRPOPLPUSH</code>, <code>MONITOR</code>, the subscribe commands, <code>MULTI</code>, <code>WATCH</code>,
+ * <code>SELECT</code>, ...) make the caller's connection switch to a dedicated connection of
+ * <code>dedicatedDataSource</code> until it is closed. With <code>rejectDedicatedCommands</code> they fail instead.
+ * <p/>
+ * By default commands are sent as soon as no other caller is writing. With <code>flushWindowMicros</code>
+ * commands of concurrent callers are gathered for the window, or until <code>maxBatchSize</code> of them
+ * are buffered, and sent in one write.
+ *
+ * @author Evgeny Dolgov
+ */
+public class MultiplexedDataSource implements DataSource {
+
+    private String host;
+    private int port = Protocol.DEFAULT_PORT;
+    private int timeout = Protocol.DEFAULT_TIMEOUT;
+    private String password;
+    private Transport transport = Transport.SOCKET;
+    private int copyThreshold;
+    private BufferPool bufferPool = SizeClassedBufferPool.DEFAULT;
+    private int connections = 1;
+    private boolean rejectDedicatedCommands;
+    private DataSource dedicatedDataSource;
+    private volatile long flushWindowMicros;
+    private volatile int maxBatchSize = Integer.MAX_VALUE;
+
+    private PoolableDataSource ownDedicatedDataSource;
+
+    private volatile SharedConnection[] shared;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean closed;
+
+    public MultiplexedDataSource() {
+    }
+
+    public MultiplexedDataSource(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public MultiplexedDataSource(String host, int port, int timeout) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return new connection, the socket is opened on the first command
+     */
+    public RedisConnection getConnection() {
+        if (closed) {
+            throw new RedisException("Data source is closed");
+        }
+        return new MultiplexedRedisConnection(this);
+    }
+
+    /**
+     * @return thread safe connection whose commands return futures, the socket is opened on the first command
+     * @see org.idevlab.rjc.AsyncRedisNode
+     */
+    public AsyncRedisConnection getAsyncConnection() {
+        if (closed) {
+            throw new RedisException("Data source is closed");
+        }
+        return new MultiplexedAsyncConnection(this);
+    }
+
+    /**
+     * @return open shared connection, taken in turn
+     */
+    SharedConnection getSharedConnection() {
+        final int index = (next.getAndIncrement() & Integer.MAX_VALUE) % connections;
+        final SharedConnection[] shared = this.shared;
+        if (shared != null && !closed) {
+            final SharedConnection connection = shared[index];
+            if (connection != null && !connection.isBroken()) {
+                return connection;
+            }
+        }
+        return open(index);
+    }
+
+    private synchronized SharedConnection open(int index) {
+        if (closed) {
+            throw new RedisException("Data source is closed");
+        }
+        if (shared == null) {
+            shared = new SharedConnection[connections];
+        }
+        SharedConnection connection = shared[index];
+        if (connection == null || connection.isBroken()) {
+            final ConnectionFactoryImpl factory = new ConnectionFactoryImpl(host, port, timeout, password, transport);
+            factory.setCopyThreshold(copyThreshold);
+            factory.setBufferPool(bufferPool);
+            try {
+                connection = new SharedConnection((RedisConnectionImpl) factory.create());
+                connection.setFlushWindowNanos(flushWindowMicros * 1000L);
+                connection.setMaxBatchSize(maxBatchSize);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RedisException("Cannot get a connection", e);
+            }
+            shared[index] = connection;
+        }
+        return connection;
+    }
+
+    /**
+     * Closes the shared sockets, replies which have not been received fail.
+     * Dedicated connections are closed by their callers, the default dedicated data source is closed as well.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (shared != null) {
+            for (SharedConnection connection : shared) {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+            shared = null;
+        }
+        if (ownDedicatedDataSource != null) {
+            ownDedicatedDataSource.close();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout milliseconds a caller waits for a reply, non-positive to wait forever.
+     *                It also bounds reading the AUTH reply of a new socket, the TCP connect itself
+     *                is not limited by it, like with the other data sources
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getCopyThreshold() {
+        return copyThreshold;
+    }
+
+    public void setCopyThreshold(int copyThreshold) {
+        this.copyThreshold = copyThreshold;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Sets the number of shared sockets, 1 by default. Must be set before the first command.
+     *
+     * @param connections number of sockets
+     */
+    public synchronized void setConnections(int connections) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("Connections <= 0");
+        }
+        if (shared != null) {
+            throw new IllegalStateException("Shared connections are already open");
+        }
+        this.connections = connections;
+    }
+
+    public long getFlushWindowMicros() {
+        return flushWindowMicros;
+    }
+
+    /**
+     * Sets how long a command waits for commands of other callers to be sent together, 0 by default.
+     * A few tens of microseconds are usually enough under high concurrency, the window is the upper bound
+     * of the latency added to a command.
+     *
+     * @param flushWindowMicros window in microseconds, 0 to send commands at once
+     */
+    public synchronized void setFlushWindowMicros(long flushWindowMicros) {
+        if (flushWindowMicros < 0) {
+            throw new IllegalArgumentException("Flush window < 0");
+        }
+        this.flushWindowMicros = flushWindowMicros;
+        if (shared != null) {
+            for (SharedConnection connection : shared) {
+                if (connection != null) {
+                    connection.setFlushWindowNanos(flushWindowMicros * 1000L);
+                }
+            }
+        }
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize number of buffered commands which are sent before the flush window ends,
+     *                     unlimited by default
+     */
+    public synchronized void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size <= 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+        if (shared != null) {
+            for (SharedConnection connection : shared) {
+                if (connection != null) {
+                    connection.setMaxBatchSize(maxBatchSize);
+                }
+            }
+        }
+    }
+
+    public boolean isRejectDedicatedCommands() {
+        return rejectDedicatedCommands;
+    }
+
+    /**
+     * @param rejectDedicatedCommands true to throw <code>RedisException</code> on the commands which
+     *                                need a dedicated connection instead of opening one
+     */
+    public void setRejectDedicatedCommands(boolean rejectDedicatedCommands) {
+        this.rejectDedicatedCommands = rejectDedicatedCommands;
+    }
+
+    /**
+     * @return data source of the dedicated connections, by default <code>PoolableDataSource</code>
+     *         with the same host, port, timeout, password and transport
+     */
+    public synchronized DataSource getDedicatedDataSource() {
+        if (dedicatedDataSource == null) {
+            final PoolableDataSource dataSource = new PoolableDataSource();
+            dataSource.setHost(host);
+            dataSource.setPort(port);
+            dataSource.setTimeout(timeout);
+            dataSource.setPassword(password);
+            dataSource.setTransport(transport);
+            dataSource.setBufferPool(bufferPool);
+            dedicatedDataSource = ownDedicatedDataSource = dataSource;
+        }
+        return dedicatedDataSource;
+    }
+
+    public synchronized void setDedicatedDataSource(DataSource dedicatedDataSource) {
+        this.dedicatedDataSource = dedicatedDataSource;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.protocol.Protocol;
+
+/**
+ * Creates MultiplexedDataSource instances
+ *
+ * @author Evgeny Dolgov
+ */
+public class MultiplexedDataSourceFactory implements DataSourceFactory {
+
+    private int timeout = Protocol.DEFAULT_TIMEOUT;
+    private String password;
+    private Transport transport = Transport.SOCKET;
+    private int connections = 1;
+    private boolean rejectDedicatedCommands;
+    private long flushWindowMicros;
+    private int maxBatchSize = Integer.MAX_VALUE;
+
+    public DataSource create(String host, int port) {
+        MultiplexedDataSource dataSource = new MultiplexedDataSource(host, port, timeout);
+        dataSource.setPassword(password);
+        dataSource.setTransport(transport);
+        dataSource.setConnections(connections);
+        dataSource.setRejectDedicatedCommands(rejectDedicatedCommands);
+        dataSource.setFlushWindowMicros(flushWindowMicros);
+        dataSource.setMaxBatchSize(maxBatchSize);
+        return dataSource;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * @param connections number of shared sockets per server
+     */
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public boolean isRejectDedicatedCommands() {
+        return rejectDedicatedCommands;
+    }
+
+    public void setRejectDedicatedCommands(boolean rejectDedicatedCommands) {
+        this.rejectDedicatedCommands = rejectDedicatedCommands;
+    }
+
+    public long getFlushWindowMicros() {
+        return flushWindowMicros;
+    }
+
+    public void setFlushWindowMicros(long flushWindowMicros) {
+        this.flushWindowMicros = flushWindowMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.ElementScore;
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.ReplyConverters;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.PreparedCommand;
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Connection of one caller to a <code>SharedConnection</code> of <code>MultiplexedDataSource</code>.
+ * Like any other connection it must not be used by several threads at once, but it is cheap to get
+ * and <code>close</code> does not close the socket.
+ * <p/>
+ * Commands which block the connection or change its state are sent through a dedicated connection
+ * which the caller keeps until <code>close</code>, or rejected if the data source is configured so.
+ *
+ * @author Evgeny Dolgov
+ */
+class MultiplexedRedisConnection implements RedisConnection {
+
+    static final Set<RedisCommand> DEDICATED_COMMANDS = EnumSet.of(
+            RedisCommand.BLPOP, RedisCommand.BRPOP, RedisCommand.BRPOPLPUSH, RedisCommand.MONITOR, RedisCommand.SYNC,
+            RedisCommand.SUBSCRIBE, RedisCommand.PSUBSCRIBE, RedisCommand.UNSUBSCRIBE, RedisCommand.PUNSUBSCRIBE,
+            RedisCommand.MULTI, RedisCommand.WATCH, RedisCommand.SELECT, RedisCommand.AUTH, RedisCommand.QUIT);
+
+    private final MultiplexedDataSource dataSource;
+    private final LinkedList<SharedConnection.PendingReply> replies = new LinkedList<SharedConnection.PendingReply>();
+    private final Protocol protocol = new Protocol();
+    private SharedConnection shared;
+    private RedisConnection dedicated;
+    private boolean timeoutInfinite;
+    private boolean autoFlush = true;
+    private boolean unflushed;
+
+    MultiplexedRedisConnection(MultiplexedDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    private boolean isDedicated(RedisCommand cmd) {
+        if (dedicated != null) {
+            return true;
+        }
+        if (!DEDICATED_COMMANDS.contains(cmd)) {
+            return false;
+        }
+        if (dataSource.isRejectDedicatedCommands()) {
+            throw new RedisException(cmd + " is not supported by a multiplexed connection");
+        }
+        if (!replies.isEmpty()) {
+            throw new RedisException(cmd + " cannot be sent while replies of the multiplexed connection are pending");
+        }
+        dedicated = dataSource.getDedicatedDataSource().getConnection();
+        if (timeoutInfinite) {
+            dedicated.setTimeoutInfinite();
+        }
+        dedicated.setAutoFlush(autoFlush);
+        return true;
+    }
+
+    private SharedConnection beginWrite() {
+        // commands of the caller stay on one socket to keep their order, another one is taken if it is broken
+        if (shared == null || (shared.isBroken() && replies.isEmpty())) {
+            shared = dataSource.getSharedConnection();
+        }
+        replies.add(shared.beginWrite());
+        return shared;
+    }
+
+    private void endWrite(SharedConnection connection, RuntimeException error) {
+        connection.endWrite(replies.getLast(), error, autoFlush);
+        if (error != null) {
+            // the failed command has no reply to read
+            replies.removeLast();
+            throw error;
+        }
+        unflushed = !autoFlush;
+    }
+
+    public void sendCommand(final RedisCommand cmd, final String... args) {
+        if (isDedicated(cmd)) {
+            dedicated.sendCommand(cmd, args);
+            return;
+        }
+        final SharedConnection connection = beginWrite();
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        endWrite(connection, error);
+    }
+
+    public void sendCommand(final RedisCommand cmd, final byte[]... args) {
+        if (isDedicated(cmd)) {
+            dedicated.sendCommand(cmd, args);
+            return;
+        }
+        final SharedConnection connection = beginWrite();
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        endWrite(connection, error);
+    }
+
+    public void sendCommand(final RedisCommand cmd) {
+        sendCommand(cmd, new byte[0][]);
+    }
+
+    public void sendCommand(final PreparedCommand cmd, final String... args) {
+        if (isDedicated(cmd.getCommand())) {
+            dedicated.sendCommand(cmd, args);
+            return;
+        }
+        final SharedConnection connection = beginWrite();
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        endWrite(connection, error);
+    }
+
+    public void sendCommand(final PreparedCommand cmd, final byte[]... args) {
+        if (isDedicated(cmd.getCommand())) {
+            dedicated.sendCommand(cmd, args);
+            return;
+        }
+        final SharedConnection connection = beginWrite();
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        endWrite(connection, error);
+    }
+
+    public void sendCommand(final RedisCommand cmd, final InputStream value, final int length, final byte[]... args) {
+        if (isDedicated(cmd)) {
+            dedicated.sendCommand(cmd, value, length, args);
+            return;
+        }
+        final SharedConnection connection = beginWrite();
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, value, length, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        endWrite(connection, error);
+    }
+
+    public <T> void sendCommand(final RedisCommand cmd, final Codec<T> codec, final T value, final String... args) {
+        if (isDedicated(cmd)) {
+            dedicated.sendCommand(cmd, codec, value, args);
+            return;
+        }
+        final SharedConnection connection = beginWrite();
+        RuntimeException error = null;
+        try {
+            connection.getConnection().sendCommand(cmd, codec, value, args);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        endWrite(connection, error);
+    }
+
+    /**
+     * @return raw reply of the oldest command: byte[] for bulk values, Long, String for status or List
+     */
+    private Object nextReply() {
+        if (replies.isEmpty()) {
+            throw new RedisException("No command has been sent");
+        }
+        if (unflushed) {
+            unflushed = false;
+            shared.flush();
+        }
+        return replies.removeFirst().get(timeoutInfinite ? 0 : dataSource.getTimeout());
+    }
+
+    public String getStatusCodeReply() {
+        if (dedicated != null) {
+            return dedicated.getStatusCodeReply();
+        }
+        return (String) nextReply();
+    }
+
+    public String getBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getBulkReply();
+        }
+        return (String) toStrings(nextReply());
+    }
+
+    public byte[] getBinaryBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getBinaryBulkReply();
+        }
+        return (byte[]) nextReply();
+    }
+
+    public Long getIntegerReply() {
+        if (dedicated != null) {
+            return dedicated.getIntegerReply();
+        }
+        return (Long) nextReply();
+    }
+
+    public long getIntegerReplyAsLong() {
+        if (dedicated != null) {
+            return dedicated.getIntegerReplyAsLong();
+        }
+        return (Long) nextReply();
+    }
+
+    public double getBulkReplyAsDouble() {
+        if (dedicated != null) {
+            return dedicated.getBulkReplyAsDouble();
+        }
+        return toDouble((byte[]) nextReply());
+    }
+
+    public List<ElementScore> getElementScoreReply() {
+        if (dedicated != null) {
+            return dedicated.getElementScoreReply();
+        }
+        return ReplyConverters.ELEMENT_SCORES.convert(nextReply());
+    }
+
+    public <T> T getBulkReply(final Codec<T> codec) {
+        if (dedicated != null) {
+            return dedicated.getBulkReply(codec);
+        }
+        return ReplyConverters.bulk(codec).convert(nextReply());
+    }
+
+    public <T> List<T> getMultiBulkReply(final Codec<T> codec) {
+        if (dedicated != null) {
+            return dedicated.getMultiBulkReply(codec);
+        }
+        return ReplyConverters.multiBulk(codec).convert(nextReply());
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getMultiBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getMultiBulkReply();
+        }
+        return (List<String>) toStrings(nextReply());
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Object> getObjectMultiBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getObjectMultiBulkReply();
+        }
+        return (List<Object>) toStrings(nextReply());
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Object> getBinaryObjectMultiBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getBinaryObjectMultiBulkReply();
+        }
+        return (List<Object>) nextReply();
+    }
+
+    /**
+     * The reply is already read by the reader thread, so it is returned as a plain list.
+     */
+    public List<Object> getSlabMultiBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getSlabMultiBulkReply();
+        }
+        return getObjectMultiBulkReply();
+    }
+
+    public List<Object> getBinarySlabMultiBulkReply() {
+        if (dedicated != null) {
+            return dedicated.getBinarySlabMultiBulkReply();
+        }
+        return getBinaryObjectMultiBulkReply();
+    }
+
+    public List<Object> getAll() {
+        if (dedicated != null) {
+            return dedicated.getAll();
+        }
+        final List<Object> all = new ArrayList<Object>(replies.size());
+        while (!replies.isEmpty()) {
+            all.add(toStrings(nextReply()));
+        }
+        return all;
+    }
+
+    public List<Object> getBinaryAll() {
+        if (dedicated != null) {
+            return dedicated.getBinaryAll();
+        }
+        final List<Object> all = new ArrayList<Object>(replies.size());
+        while (!replies.isEmpty()) {
+            all.add(nextReply());
+        }
+        return all;
+    }
+
+    public Object getOne() {
+        if (dedicated != null) {
+            return dedicated.getOne();
+        }
+        return toStrings(nextReply());
+    }
+
+    public Object getBinaryOne() {
+        if (dedicated != null) {
+            return dedicated.getBinaryOne();
+        }
+        return nextReply();
+    }
+
+    public Object getReply() {
+        if (dedicated != null) {
+            return dedicated.getReply();
+        }
+        if (replies.isEmpty()) {
+            throw new RedisException("No command has been sent");
+        }
+        if (unflushed) {
+            unflushed = false;
+            shared.flush();
+        }
+        return replies.removeFirst().getReply(timeoutInfinite ? 0 : dataSource.getTimeout());
+    }
+
+    public int getBulkReplyTo(final OutputStream out) {
+        if (dedicated != null) {
+            return dedicated.getBulkReplyTo(out);
+        }
+        final byte[] reply = (byte[]) nextReply();
+        if (reply == null) {
+            return -1;
+        }
+        try {
+            out.write(reply);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+        return reply.length;
+    }
+
+    public int getBulkReplyTo(final WritableByteChannel channel) {
+        if (dedicated != null) {
+            return dedicated.getBulkReplyTo(channel);
+        }
+        final byte[] reply = (byte[]) nextReply();
+        if (reply == null) {
+            return -1;
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(reply);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+        return reply.length;
+    }
+
+    private static Object toStrings(final Object reply) {
+        if (reply instanceof byte[]) {
+            return SafeEncoder.encode((byte[]) reply);
+        }
+        if (reply instanceof List) {
+            final List<?> list = (List<?>) reply;
+            final List<Object> result = new ArrayList<Object>(list.size());
+            for (Object element : list) {
+                result.add(toStrings(element));
+            }
+            return result;
+        }
+        return reply;
+    }
+
+    private static double toDouble(final byte[] value) {
+        return value == null ? Double.NaN : Protocol.toDouble(value, 0, value.length);
+    }
+
+    public int getTimeout() {
+        return dataSource.getTimeout();
+    }
+
+    public void setTimeoutInfinite() {
+        timeoutInfinite = true;
+        if (dedicated != null) {
+            dedicated.setTimeoutInfinite();
+        }
+    }
+
+    public void rollbackTimeout() {
+        timeoutInfinite = false;
+        if (dedicated != null) {
+            dedicated.rollbackTimeout();
+        }
+    }
+
+    public String getHost() {
+        return dataSource.getHost();
+    }
+
+    public int getPort() {
+        return dataSource.getPort();
+    }
+
+    public void connect() throws UnknownHostException, IOException {
+        if (shared == null || shared.isBroken()) {
+            shared = dataSource.getSharedConnection();
+        }
+    }
+
+    /**
+     * Closes the dedicated connection if there is one. The shared connection stays open,
+     * replies of the commands which were not read are dropped.
+     */
+    public void close() {
+        replies.clear();
+        shared = null;
+        if (dedicated != null) {
+            final RedisConnection connection = dedicated;
+            dedicated = null;
+            connection.close();
+        }
+    }
+
+    public boolean isConnected() {
+        if (dedicated != null) {
+            return dedicated.isConnected();
+        }
+        return !dataSource.isClosed() && (shared == null || !shared.isBroken());
+    }
+
+    public void setAutoFlush(final boolean autoFlush) {
+        if (autoFlush && unflushed) {
+            flush();
+        }
+        this.autoFlush = autoFlush;
+        if (dedicated != null) {
+            dedicated.setAutoFlush(autoFlush);
+        }
+    }
+
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    public void flush() {
+        if (dedicated != null) {
+            dedicated.flush();
+        } else if (unflushed) {
+            unflushed = false;
+            shared.flush();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisFuture;
+import org.idevlab.rjc.ReplyCallback;
+import org.idevlab.rjc.ReplyConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <code>RedisFuture</code> completed by the reader of a <code>SharedConnection</code>.
+ * The reply is converted once by the reader before the callbacks are invoked.
+ *
+ * @author Evgeny Dolgov
+ */
+class PendingFuture<T> extends SharedConnection.PendingReply implements RedisFuture<T> {
+
+    private final ReplyConverter<T> converter;
+    private T result;
+    private RedisException failure;
+    private List<ReplyCallback<? super T>> callbacks;
+    private boolean notified;
+
+    PendingFuture(ReplyConverter<T> converter) {
+        this.converter = converter;
+    }
+
+    @Override
+    void onDone() {
+        try {
+            result = converter.convert(getValue());
+        } catch (RedisException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new RedisException("Cannot convert reply", e);
+        }
+        super.onDone();
+
+        final List<ReplyCallback<? super T>> toNotify;
+        synchronized (this) {
+            notified = true;
+            toNotify = callbacks;
+            callbacks = null;
+        }
+        if (toNotify != null) {
+            for (ReplyCallback<? super T> callback : toNotify) {
+                notify(callback);
+            }
+        }
+    }
+
+    public void addCallback(ReplyCallback<? super T> callback) {
+        synchronized (this) {
+            if (!notified) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<ReplyCallback<? super T>>(1);
+                }
+                callbacks.add(callback);
+                return;
+            }
+        }
+        notify(callback);
+    }
+
+    private void notify(ReplyCallback<? super T> callback) {
+        try {
+            if (failure != null) {
+                callback.onError(failure);
+            } else {
+                callback.onReply(result);
+            }
+        } catch (RuntimeException e) {
+            // a failing callback must not stop the reader or the other callbacks
+        }
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return false;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        await();
+        return getResult();
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!await(timeout, unit)) {
+            throw new TimeoutException("Timeout waiting for reply");
+        }
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+}
@@ -16,32 +16,40 @@
 
 package org.idevlab.rjc.ds;
 
+import org.idevlab.rjc.protocol.BufferPool;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
 import org.idevlab.rjc.RedisException;
 import org.idevlab.rjc.protocol.Protocol;
 import org.apache.commons.pool.BasePoolableObjectFactory;
 import org.apache.commons.pool.ObjectPool;
-import org.apache.commons.pool.impl.GenericObjectPool;
 import org.idevlab.rjc.protocol.RedisCommand;
 
 /**
- * Provides a poolable implementation of <code>DataSource</code> based on <em>commons-pool</em>
+ * Provides a poolable implementation of <code>DataSource</code> based on <code>ConcurrentObjectPool</code>
  *
  * @author Evgeny Dolgov
  */
 public class PoolableDataSource implements DataSource {
 
-    private volatile GenericObjectPool connectionPool;
+    private volatile ConcurrentObjectPool connectionPool;
 
     private String host;
     private int port = Protocol.DEFAULT_PORT;
     private int timeout = Protocol.DEFAULT_TIMEOUT;
     private String password;
+    private Transport transport = Transport.SOCKET;
+    private int copyThreshold;
+    private BufferPool bufferPool = SizeClassedBufferPool.DEFAULT;
     protected boolean closed;
 
 
     public RedisConnection getConnection() {
         try {
-            return (RedisConnection) createPool().borrowObject();
+            ConcurrentObjectPool pool = connectionPool;
+            if (pool == null) {
+                pool = createPool();
+            }
+            return (RedisConnection) pool.borrowObject();
         } catch (Exception e) {
             throw new RedisException("Cannot get a connection", e);
         }
@@ -51,14 +59,13 @@ public class PoolableDataSource implements DataSource {
         getConnection().close();
     }
 
-    private synchronized GenericObjectPool createPool() {
+    private synchronized ConcurrentObjectPool createPool() {
         if (closed) {
             throw new RedisException("Data source is closed");
         }
 
-
         if (connectionPool == null) {
-            GenericObjectPool gop = new GenericObjectPool();
+            ConcurrentObjectPool gop = new ConcurrentObjectPool();
             gop.setMaxActive(maxActive);
             gop.setMaxIdle(maxIdle);
             gop.setMinIdle(minIdle);
@@ -69,22 +76,24 @@ public class PoolableDataSource implements DataSource {
             gop.setNumTestsPerEvictionRun(numTestsPerEvictionRun);
             gop.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
             gop.setTestWhileIdle(testWhileIdle);
-            connectionPool = gop;
-            createConnectionFactory();
+            gop.setThreadAffinity(threadAffinity);
+            createConnectionFactory(gop);
             try {
                 for (int i = 0; i < initialSize; i++) {
-                    connectionPool.addObject();
+                    gop.addObject();
                 }
             } catch (Exception e) {
                 throw new RedisException("Error preloading the connection pool", e);
             }
+            // published only when ready, getConnection() reads it without locking
+            connectionPool = gop;
         }
 
         return connectionPool;
     }
 
-    private void createConnectionFactory() {
-        PoolableConnectionFactory connectionFactory = new PoolableConnectionFactory(host, port, timeout, password, connectionPool);
+    private void createConnectionFactory(ObjectPool pool) {
+        PoolableConnectionFactory connectionFactory = new PoolableConnectionFactory(host, port, timeout, password, transport, copyThreshold, bufferPool, pool);
         try {
             validateConnectionFactory(connectionFactory);
         } catch (RuntimeException e) {
@@ -137,9 +146,50 @@ public class PoolableDataSource implements DataSource {
         this.password = password;
     }
 
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets network transport of the connections, <code>Transport.SOCKET</code> by default.
+     *
+     * @param transport network transport
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getCopyThreshold() {
+        return copyThreshold;
+    }
+
+    /**
+     * Sets the argument size from which arguments are not copied into the output buffer of connections.
+     * With <code>Transport.CHANNEL</code> such arguments are sent by vectored writes together with the command header.
+     *
+     * @param copyThreshold size in bytes, non-positive value means the buffer size (default)
+     */
+    public void setCopyThreshold(int copyThreshold) {
+        this.copyThreshold = copyThreshold;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the source of the stream buffers of connections, shared <code>SizeClassedBufferPool.DEFAULT</code> by default.
+     * Use it to read the pool statistics as well.
+     *
+     * @param bufferPool buffer pool, null to allocate buffers for every connection
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     public synchronized void close() {
         closed = true;
-        GenericObjectPool oldPool = connectionPool;
+        ConcurrentObjectPool oldPool = connectionPool;
         connectionPool = null;
         try {
             if (oldPool != null) {
@@ -156,7 +206,7 @@ public class PoolableDataSource implements DataSource {
      * The maximum number of active connections that can be allocated from
      * this pool at the same time, or negative for no limit.
      */
-    protected int maxActive = GenericObjectPool.DEFAULT_MAX_ACTIVE;
+    protected int maxActive = ConcurrentObjectPool.DEFAULT_MAX_ACTIVE;
 
     /**
      * <p>Returns the maximum number of active connections that can be
@@ -194,7 +244,7 @@ public class PoolableDataSource implements DataSource {
      * connections to rise above maxIdle. The best value for maxIdle for heavily
      * loaded system will vary but the default is a good starting point.
      */
-    protected int maxIdle = GenericObjectPool.DEFAULT_MAX_IDLE;
+    protected int maxIdle = ConcurrentObjectPool.DEFAULT_MAX_IDLE;
 
     /**
      * <p>Returns the maximum number of connections that can remain idle in the
@@ -226,13 +276,13 @@ public class PoolableDataSource implements DataSource {
      * The minimum number of active connections that can remain idle in the
      * pool, without extra ones being created, or 0 to create none.
      */
-    protected int minIdle = GenericObjectPool.DEFAULT_MIN_IDLE;
+    protected int minIdle = ConcurrentObjectPool.DEFAULT_MIN_IDLE;
 
     /**
      * Returns the minimum number of idle connections in the pool
      *
      * @return the minimum number of idle connections
-     * @see GenericObjectPool#getMinIdle()
+     * @see ConcurrentObjectPool#getMinIdle()
      */
     public synchronized int getMinIdle() {
         return this.minIdle;
@@ -242,7 +292,7 @@ public class PoolableDataSource implements DataSource {
      * Sets the minimum number of idle connections in the pool.
      *
      * @param minIdle the new value for minIdle
-     * @see GenericObjectPool#setMinIdle(int)
+     * @see ConcurrentObjectPool#setMinIdle(int)
      */
     public synchronized void setMinIdle(int minIdle) {
         this.minIdle = minIdle;
@@ -286,7 +336,7 @@ public class PoolableDataSource implements DataSource {
      * are no available connections) for a connection to be returned before
      * throwing an exception, or <= 0 to wait indefinitely.
      */
-    protected long maxWait = GenericObjectPool.DEFAULT_MAX_WAIT;
+    protected long maxWait = ConcurrentObjectPool.DEFAULT_MAX_WAIT;
 
     /**
      * <p>Returns the maximum number of milliseconds that the pool will wait
@@ -388,7 +438,7 @@ public class PoolableDataSource implements DataSource {
      * be run.
      */
     protected long timeBetweenEvictionRunsMillis =
-            GenericObjectPool.DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS;
+            ConcurrentObjectPool.DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS;
 
     /**
      * Returns the value of the {@link #timeBetweenEvictionRunsMillis}
@@ -419,7 +469,7 @@ public class PoolableDataSource implements DataSource {
      * evictor thread (if any).
      */
     protected int numTestsPerEvictionRun =
-            GenericObjectPool.DEFAULT_NUM_TESTS_PER_EVICTION_RUN;
+            ConcurrentObjectPool.DEFAULT_NUM_TESTS_PER_EVICTION_RUN;
 
     /**
      * Returns the value of the {@link #numTestsPerEvictionRun} property.
@@ -451,7 +501,7 @@ public class PoolableDataSource implements DataSource {
      * is eligable for eviction by the idle object evictor (if any).
      */
     protected long minEvictableIdleTimeMillis =
-            GenericObjectPool.DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+            ConcurrentObjectPool.DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
 
     /**
      * Returns the {@link #minEvictableIdleTimeMillis} property.
@@ -510,6 +560,27 @@ public class PoolableDataSource implements DataSource {
         }
     }
 
+    /**
+     * The indication of whether a connection closed by a thread is kept for the next
+     * <code>getConnection()</code> of the same thread instead of being returned to the pool.
+     * Kept connections count as active. Threads waiting for a connection of the exhausted pool take
+     * connections kept by other threads, the idle object evictor (if any) returns connections not
+     * reused since its previous run to the pool. Connections kept by finished threads are returned to the pool
+     * without the evictor too. A kept connection is validated like a pooled one if {@link #testOnBorrow} is set.
+     */
+    protected boolean threadAffinity = false;
+
+    public synchronized boolean getThreadAffinity() {
+        return this.threadAffinity;
+    }
+
+    public synchronized void setThreadAffinity(boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+        if (connectionPool != null) {
+            connectionPool.setThreadAffinity(threadAffinity);
+        }
+    }
+
     /**
      * [Read Only] The current number of active connections that have been
      * allocated from this data source.
@@ -545,10 +616,14 @@ public class PoolableDataSource implements DataSource {
         private final ConnectionFactory connectionFactory;
 
 
-        public PoolableConnectionFactory(final String host, final int port,
-                                         final int timeout, final String password, ObjectPool pool) {
+        public PoolableConnectionFactory(final String host, final int port, final int timeout, final String password,
+                                         final Transport transport, final int copyThreshold,
+                                         final BufferPool bufferPool, ObjectPool pool) {
             super();
-            this.connectionFactory = new ConnectionFactoryImpl(host, port, timeout, password);
+            ConnectionFactoryImpl factory = new ConnectionFactoryImpl(host, port, timeout, password, transport);
+            factory.setCopyThreshold(copyThreshold);
+            factory.setBufferPool(bufferPool);
+            this.connectionFactory = factory;
             this.pool = pool;
 
             pool.setFactory(this);
@@ -572,6 +647,16 @@ public class PoolableDataSource implements DataSource {
             }
         }
 
+        /**
+         * Idle connections do not hold stream buffers, see <code>RedisConnectionImpl.releaseBuffers()</code>
+         */
+        @Override
+        public void passivateObject(final Object obj) throws Exception {
+            if (obj instanceof PoolableRedisConnection) {
+                ((PoolableRedisConnection) obj).releaseBuffers();
+            }
+        }
+
         public boolean validateObject(final Object obj) {
             if (obj instanceof RedisConnection) {
                 final RedisConnection redis = (RedisConnection) obj;
@@ -16,8 +16,9 @@
 
 package org.idevlab.rjc.ds;
 
+import org.idevlab.rjc.protocol.BufferPool;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
 import org.idevlab.rjc.protocol.Protocol;
-import org.apache.commons.pool.impl.GenericObjectPool;
 
 /**
  * @author Evgeny Dolgov
@@ -26,6 +27,9 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
 
     private int timeout = Protocol.DEFAULT_TIMEOUT;
     private String password;
+    private Transport transport = Transport.SOCKET;
+    private int copyThreshold;
+    private BufferPool bufferPool = SizeClassedBufferPool.DEFAULT;
     private boolean initAfterCreation = false;
 
 
@@ -44,8 +48,12 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
         dataSource.setTestOnBorrow(testOnBorrow);
         dataSource.setTestOnReturn(testOnReturn);
         dataSource.setTestWhileIdle(testWhileIdle);
+        dataSource.setThreadAffinity(threadAffinity);
         dataSource.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
         dataSource.setTimeout(timeout);
+        dataSource.setTransport(transport);
+        dataSource.setCopyThreshold(copyThreshold);
+        dataSource.setBufferPool(bufferPool);
         if (initAfterCreation) {
             dataSource.init();
         }
@@ -76,11 +84,52 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
         this.password = password;
     }
 
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets network transport of the connections, <code>Transport.SOCKET</code> by default.
+     *
+     * @param transport network transport
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getCopyThreshold() {
+        return copyThreshold;
+    }
+
+    /**
+     * Sets the argument size from which arguments are not copied into the output buffer of connections.
+     * With <code>Transport.CHANNEL</code> such arguments are sent by vectored writes together with the command header.
+     *
+     * @param copyThreshold size in bytes, non-positive value means the buffer size (default)
+     */
+    public void setCopyThreshold(int copyThreshold) {
+        this.copyThreshold = copyThreshold;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the source of the stream buffers of connections, shared <code>SizeClassedBufferPool.DEFAULT</code> by default.
+     * Use it to read the pool statistics as well.
+     *
+     * @param bufferPool buffer pool, null to allocate buffers for every connection
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     /**
      * The maximum number of active connections that can be allocated from
      * this pool at the same time, or negative for no limit.
      */
-    protected int maxActive = GenericObjectPool.DEFAULT_MAX_ACTIVE;
+    protected int maxActive = ConcurrentObjectPool.DEFAULT_MAX_ACTIVE;
 
     /**
      * <p>Returns the maximum number of active connections that can be
@@ -115,7 +164,7 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * connections to rise above maxIdle. The best value for maxIdle for heavily
      * loaded system will vary but the default is a good starting point.
      */
-    protected int maxIdle = GenericObjectPool.DEFAULT_MAX_IDLE;
+    protected int maxIdle = ConcurrentObjectPool.DEFAULT_MAX_IDLE;
 
     /**
      * <p>Returns the maximum number of connections that can remain idle in the
@@ -144,13 +193,13 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * The minimum number of active connections that can remain idle in the
      * pool, without extra ones being created, or 0 to create none.
      */
-    protected int minIdle = GenericObjectPool.DEFAULT_MIN_IDLE;
+    protected int minIdle = ConcurrentObjectPool.DEFAULT_MIN_IDLE;
 
     /**
      * Returns the minimum number of idle connections in the pool
      *
      * @return the minimum number of idle connections
-     * @see GenericObjectPool#getMinIdle()
+     * @see ConcurrentObjectPool#getMinIdle()
      */
     public synchronized int getMinIdle() {
         return this.minIdle;
@@ -160,7 +209,7 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * Sets the minimum number of idle connections in the pool.
      *
      * @param minIdle the new value for minIdle
-     * @see GenericObjectPool#setMinIdle(int)
+     * @see ConcurrentObjectPool#setMinIdle(int)
      */
     public synchronized void setMinIdle(int minIdle) {
         this.minIdle = minIdle;
@@ -201,7 +250,7 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * are no available connections) for a connection to be returned before
      * throwing an exception, or <= 0 to wait indefinitely.
      */
-    protected long maxWait = GenericObjectPool.DEFAULT_MAX_WAIT;
+    protected long maxWait = ConcurrentObjectPool.DEFAULT_MAX_WAIT;
 
     /**
      * <p>Returns the maximum number of milliseconds that the pool will wait
@@ -294,7 +343,7 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * be run.
      */
     protected long timeBetweenEvictionRunsMillis =
-            GenericObjectPool.DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS;
+            ConcurrentObjectPool.DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS;
 
     /**
      * Returns the value of the {@link #timeBetweenEvictionRunsMillis}
@@ -322,7 +371,7 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * evictor thread (if any).
      */
     protected int numTestsPerEvictionRun =
-            GenericObjectPool.DEFAULT_NUM_TESTS_PER_EVICTION_RUN;
+            ConcurrentObjectPool.DEFAULT_NUM_TESTS_PER_EVICTION_RUN;
 
     /**
      * Returns the value of the {@link #numTestsPerEvictionRun} property.
@@ -351,7 +400,7 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
      * is eligable for eviction by the idle object evictor (if any).
      */
     protected long minEvictableIdleTimeMillis =
-            GenericObjectPool.DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+            ConcurrentObjectPool.DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
 
     /**
      * Returns the {@link #minEvictableIdleTimeMillis} property.
@@ -403,4 +452,21 @@ public class PoolableDataSourceFactory implements DataSourceFactory {
     public synchronized void setTestWhileIdle(boolean testWhileIdle) {
         this.testWhileIdle = testWhileIdle;
     }
+
+    /**
+     * The indication of whether a connection closed by a thread is kept for the next
+     * <code>getConnection()</code> of the same thread instead of being returned to the pool.
+     * Kept connections count as active. Threads waiting for a connection of the exhausted pool take
+     * connections kept by other threads, the idle object evictor (if any) returns connections not
+     * reused since its previous run to the pool.
+     */
+    protected boolean threadAffinity = false;
+
+    public synchronized boolean getThreadAffinity() {
+        return this.threadAffinity;
+    }
+
+    public synchronized void setThreadAffinity(boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+    }
 }
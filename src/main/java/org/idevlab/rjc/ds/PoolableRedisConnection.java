@@ -16,12 +16,18 @@
 
 package org.idevlab.rjc.ds;
 
+import org.idevlab.rjc.ElementScore;
+import org.idevlab.rjc.codec.Codec;
 import org.idevlab.rjc.RedisException;
 import org.apache.commons.pool.ObjectPool;
+import org.idevlab.rjc.protocol.PreparedCommand;
 import org.idevlab.rjc.protocol.RedisCommand;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.UnknownHostException;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /**
@@ -89,17 +95,17 @@ class PoolableRedisConnection implements RedisConnection {
                 throw new RedisException("Cannot close connection (return to pool failed)", e);
             }
         } else {
-            // Abnormal close: underlying connection closed unexpectedly, so we
-            // must destroy this proxy
+            // Abnormal close: underlying connection closed unexpectedly, e.g. after a failed command,
+            // so we must destroy this proxy. The failure has already been thrown to the caller,
+            // so nothing is thrown here to hide it in a finally block
             try {
                 pool.invalidateObject(this); // XXX should be guarded to happen at most once
             } catch (IllegalStateException e) {
                 // pool is closed, so close the connection
                 conn.close();
             } catch (Exception ie) {
-                // DO NOTHING, "Already closed" exception thrown below
+                // DO NOTHING, the connection is dropped anyway
             }
-            throw new RedisException("Already closed.");
         }
     }
 
@@ -127,6 +133,26 @@ class PoolableRedisConnection implements RedisConnection {
         return conn.getIntegerReply();
     }
 
+    public long getIntegerReplyAsLong() {
+        return conn.getIntegerReplyAsLong();
+    }
+
+    public double getBulkReplyAsDouble() {
+        return conn.getBulkReplyAsDouble();
+    }
+
+    public List<ElementScore> getElementScoreReply() {
+        return conn.getElementScoreReply();
+    }
+
+    public <T> T getBulkReply(Codec<T> codec) {
+        return conn.getBulkReply(codec);
+    }
+
+    public <T> List<T> getMultiBulkReply(Codec<T> codec) {
+        return conn.getMultiBulkReply(codec);
+    }
+
     public List<String> getMultiBulkReply() {
         return conn.getMultiBulkReply();
     }
@@ -139,6 +165,14 @@ class PoolableRedisConnection implements RedisConnection {
         return conn.getBinaryObjectMultiBulkReply();
     }
 
+    public List<Object> getSlabMultiBulkReply() {
+        return conn.getSlabMultiBulkReply();
+    }
+
+    public List<Object> getBinarySlabMultiBulkReply() {
+        return conn.getBinarySlabMultiBulkReply();
+    }
+
     public List<Object> getAll() {
         return conn.getAll();
     }
@@ -155,6 +189,10 @@ class PoolableRedisConnection implements RedisConnection {
         return conn.getBinaryOne();
     }
 
+    public Object getReply() {
+        return conn.getReply();
+    }
+
     public void sendCommand(RedisCommand cmd, String... args) {
         conn.sendCommand(cmd, args);
     }
@@ -167,6 +205,48 @@ class PoolableRedisConnection implements RedisConnection {
         conn.sendCommand(cmd);
     }
 
+    public void sendCommand(PreparedCommand cmd, String... args) {
+        conn.sendCommand(cmd, args);
+    }
+
+    public void sendCommand(PreparedCommand cmd, byte[]... args) {
+        conn.sendCommand(cmd, args);
+    }
+
+    public void sendCommand(RedisCommand cmd, InputStream value, int length, byte[]... args) {
+        conn.sendCommand(cmd, value, length, args);
+    }
+
+    public <T> void sendCommand(RedisCommand cmd, Codec<T> codec, T value, String... args) {
+        conn.sendCommand(cmd, codec, value, args);
+    }
+
+    public int getBulkReplyTo(OutputStream out) {
+        return conn.getBulkReplyTo(out);
+    }
+
+    public int getBulkReplyTo(WritableByteChannel channel) {
+        return conn.getBulkReplyTo(channel);
+    }
+
+    public void setAutoFlush(boolean autoFlush) {
+        conn.setAutoFlush(autoFlush);
+    }
+
+    public boolean isAutoFlush() {
+        return conn.isAutoFlush();
+    }
+
+    public void flush() {
+        conn.flush();
+    }
+
+    void releaseBuffers() {
+        if (conn instanceof RedisConnectionImpl) {
+            ((RedisConnectionImpl) conn).releaseBuffers();
+        }
+    }
+
     public void reallyDisconnect() {
         conn.close();
     }
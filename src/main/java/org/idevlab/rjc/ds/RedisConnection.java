@@ -16,10 +16,16 @@
 
 package org.idevlab.rjc.ds;
 
+import org.idevlab.rjc.ElementScore;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.PreparedCommand;
 import org.idevlab.rjc.protocol.RedisCommand;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.UnknownHostException;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /**
@@ -50,6 +56,43 @@ public interface RedisConnection {
 
     Long getIntegerReply();
 
+    /**
+     * Reads integer reply without boxing.
+     *
+     * @return integer reply
+     */
+    long getIntegerReplyAsLong();
+
+    /**
+     * Reads bulk reply holding a number, e.g. a score, and parses it without intermediate strings.
+     *
+     * @return parsed value or <code>Double.NaN</code> for nil reply
+     */
+    double getBulkReplyAsDouble();
+
+    /**
+     * Reads multi bulk reply of the WITHSCORES commands with scores parsed to double.
+     *
+     * @return elements with scores
+     */
+    List<ElementScore> getElementScoreReply();
+
+    /**
+     * Reads bulk reply with the codec straight from the input buffer.
+     *
+     * @param codec value codec
+     * @return decoded value or null for nil reply
+     */
+    <T> T getBulkReply(Codec<T> codec);
+
+    /**
+     * Reads multi bulk reply of bulk values with the codec.
+     *
+     * @param codec value codec
+     * @return decoded values or null for nil reply
+     */
+    <T> List<T> getMultiBulkReply(Codec<T> codec);
+
     List<String> getMultiBulkReply();
 
     /**
@@ -66,6 +109,22 @@ public interface RedisConnection {
      */
     List<Object> getBinaryObjectMultiBulkReply();
 
+    /**
+     * Reads multi bulk reply with bulk values kept in one array and decoded to String on access.
+     *
+     * @return Long, String and List objects or null for nil reply
+     * @see org.idevlab.rjc.protocol.SlabMultiBulkReply
+     */
+    List<Object> getSlabMultiBulkReply();
+
+    /**
+     * Reads multi bulk reply with bulk values kept in one array and copied to byte[] on access.
+     *
+     * @return Long, byte[], String and List objects or null for nil reply
+     * @see org.idevlab.rjc.protocol.SlabMultiBulkReply
+     */
+    List<Object> getBinarySlabMultiBulkReply();
+
     List<Object> getAll();
 
     List<Object> getBinaryAll();
@@ -74,9 +133,82 @@ public interface RedisConnection {
 
     Object getBinaryOne();
 
+    /**
+     * Reads the reply as is: byte[] for bulk values, String for status, Long or List.
+     * Error replies, also the ones inside multi bulk replies, are returned as <code>RedisException</code>
+     * instead of being thrown, so a thrown exception means that the connection is unusable.
+     *
+     * @return raw reply or <code>RedisException</code> for an error reply
+     */
+    Object getReply();
+
     void sendCommand(final RedisCommand cmd, final String... args);
 
     void sendCommand(final RedisCommand cmd, final byte[]... args);
 
     void sendCommand(final RedisCommand cmd);
+
+    /**
+     * Sends the command with the header encoded in advance.
+     *
+     * @param cmd  prepared command
+     * @param args command arguments, their number must match the command arity
+     */
+    void sendCommand(final PreparedCommand cmd, final String... args);
+
+    void sendCommand(final PreparedCommand cmd, final byte[]... args);
+
+    /**
+     * Sends the command with the value read from the input stream as the last argument.
+     *
+     * @param cmd    redis command
+     * @param value  the last argument source
+     * @param length exact number of bytes to read from <code>value</code>
+     * @param args   command arguments before the value
+     */
+    void sendCommand(final RedisCommand cmd, final InputStream value, final int length, final byte[]... args);
+
+    /**
+     * Sends the command with the value encoded by the codec as the last argument.
+     *
+     * @param cmd   redis command
+     * @param codec value codec
+     * @param value the last argument, not null
+     * @param args  command arguments before the value
+     */
+    <T> void sendCommand(final RedisCommand cmd, final Codec<T> codec, final T value, final String... args);
+
+    /**
+     * Copies bulk reply to the output stream without loading it into memory as a whole.
+     *
+     * @param out destination
+     * @return value length or -1 for nil reply
+     */
+    int getBulkReplyTo(OutputStream out);
+
+    /**
+     * Copies bulk reply to the blocking channel without loading it into memory as a whole.
+     *
+     * @param channel destination
+     * @return value length or -1 for nil reply
+     */
+    int getBulkReplyTo(WritableByteChannel channel);
+
+    /**
+     * Switches flushing of the sent commands on or off.
+     * <p/>
+     * When auto flush is off commands are only written into the output buffer and go to the server
+     * when the buffer is full, when a reply is read or when auto flush is switched on again.
+     * It allows to send a whole pipeline with a few socket writes.
+     *
+     * @param autoFlush true to flush every command (default), false to defer flushing
+     */
+    void setAutoFlush(boolean autoFlush);
+
+    boolean isAutoFlush();
+
+    /**
+     * Sends all buffered commands to the server.
+     */
+    void flush();
 }
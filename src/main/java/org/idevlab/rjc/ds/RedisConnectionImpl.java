@@ -16,29 +16,43 @@
 
 package org.idevlab.rjc.ds;
 
+import org.idevlab.rjc.ElementScore;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.protocol.BufferPool;
+import org.idevlab.rjc.protocol.PreparedCommand;
 import org.idevlab.rjc.protocol.Protocol;
 import org.idevlab.rjc.RedisException;
 import org.idevlab.rjc.protocol.RedisCommand;
 import org.idevlab.rjc.protocol.RedisInputStream;
 import org.idevlab.rjc.protocol.RedisOutputStream;
-import org.idevlab.rjc.util.SafeEncoder;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 class RedisConnectionImpl implements RedisConnection {
+    static final int BUFFER_SIZE = 8192;
+
     private String host;
     private int port = Protocol.DEFAULT_PORT;
     private Socket socket;
     private Protocol protocol = new Protocol();
-    private RedisOutputStream outputStream;
-    private RedisInputStream inputStream;
+    protected RedisOutputStream outputStream;
+    protected RedisInputStream inputStream;
     private int pipelinedCommands = 0;
     private int timeout = Protocol.DEFAULT_TIMEOUT;
+    private volatile boolean reconnect = true;
+    private boolean commandDiscarded;
+    private boolean autoFlush = true;
+    private int copyThreshold;
+    private BufferPool bufferPool = SizeClassedBufferPool.DEFAULT;
 
     public int getTimeout() {
         return timeout;
@@ -75,10 +89,134 @@ class RedisConnectionImpl implements RedisConnection {
 
 
     public void sendCommand(final RedisCommand cmd, final String... args) {
-        sendCommand(cmd, SafeEncoder.encode(args));
+        beginCommand();
+        try {
+            if (autoFlush) {
+                protocol.sendCommand(outputStream, cmd, args);
+            } else {
+                protocol.writeCommand(outputStream, cmd, args);
+            }
+        } catch (RuntimeException e) {
+            throw discardCommand(e);
+        }
+        pipelinedCommands++;
     }
 
     public void sendCommand(final RedisCommand cmd, final byte[]... args) {
+        beginCommand();
+        try {
+            if (autoFlush) {
+                protocol.sendCommand(outputStream, cmd, args);
+            } else {
+                protocol.writeCommand(outputStream, cmd, args);
+            }
+        } catch (RuntimeException e) {
+            throw discardCommand(e);
+        }
+        pipelinedCommands++;
+    }
+
+    public void sendCommand(final PreparedCommand cmd, final String... args) {
+        beginCommand();
+        try {
+            if (autoFlush) {
+                protocol.sendCommand(outputStream, cmd, args);
+            } else {
+                protocol.writeCommand(outputStream, cmd, args);
+            }
+        } catch (RuntimeException e) {
+            throw discardCommand(e);
+        }
+        pipelinedCommands++;
+    }
+
+    public void sendCommand(final PreparedCommand cmd, final byte[]... args) {
+        beginCommand();
+        try {
+            if (autoFlush) {
+                protocol.sendCommand(outputStream, cmd, args);
+            } else {
+                protocol.writeCommand(outputStream, cmd, args);
+            }
+        } catch (RuntimeException e) {
+            throw discardCommand(e);
+        }
+        pipelinedCommands++;
+    }
+
+    public void sendCommand(final RedisCommand cmd, final InputStream value, final int length, final byte[]... args) {
+        beginCommand();
+        try {
+            // the value is likely bigger than the buffer, so there is no reason to defer flushing
+            protocol.sendCommand(outputStream, cmd, value, length, args);
+        } catch (RuntimeException e) {
+            throw discardCommand(e);
+        }
+        pipelinedCommands++;
+    }
+
+    public <T> void sendCommand(final RedisCommand cmd, final Codec<T> codec, final T value, final String... args) {
+        beginCommand();
+        try {
+            if (autoFlush) {
+                protocol.sendCommand(outputStream, cmd, codec, value, args);
+            } else {
+                protocol.writeCommand(outputStream, cmd, codec, value, args);
+            }
+        } catch (RuntimeException e) {
+            throw discardCommand(e);
+        }
+        pipelinedCommands++;
+    }
+
+    /**
+     * @param reconnect false if a command must fail rather than open a new socket after the connection is closed
+     */
+    void setReconnect(final boolean reconnect) {
+        this.reconnect = reconnect;
+    }
+
+    private void beginCommand() {
+        commandDiscarded = false;
+        ensureConnected();
+        outputStream.markCommand();
+    }
+
+    /**
+     * Drops the failed command from the output buffer, so the next command does not follow a part of it.
+     * If a part of it has already been sent the connection is closed, unless it is shared
+     * and closed by its owner.
+     *
+     * @param e failure of the command
+     * @return the failure
+     */
+    private RuntimeException discardCommand(final RuntimeException e) {
+        if (outputStream != null && outputStream.resetCommand()) {
+            commandDiscarded = true;
+        } else if (reconnect) {
+            // replies of the commands sent before are lost with the socket
+            pipelinedCommands = 0;
+            try {
+                close();
+            } catch (RuntimeException ignored) {
+                // the connection is dropped anyway
+            }
+        }
+        return e;
+    }
+
+    /**
+     * @return true if the last command failed before any part of it was sent and was dropped from the buffer,
+     *         so the connection is still usable
+     */
+    boolean isCommandDiscarded() {
+        return commandDiscarded;
+    }
+
+    private void ensureConnected() {
+        if (!reconnect && !isConnected()) {
+            throw new RedisException("Connection is closed");
+        }
         try {
             connect();
         } catch (UnknownHostException e) {
@@ -86,14 +224,83 @@ class RedisConnectionImpl implements RedisConnection {
         } catch (IOException e) {
             throw new RedisException("Could not connect to redis-server", e);
         }
-        protocol.sendCommand(outputStream, cmd, args);
-        pipelinedCommands++;
     }
 
     public void sendCommand(final RedisCommand cmd) {
         sendCommand(cmd, new byte[0][]);
     }
 
+    public int getCopyThreshold() {
+        return copyThreshold;
+    }
+
+    /**
+     * Sets the argument size from which arguments are not copied into the output buffer.
+     *
+     * @param copyThreshold size in bytes, non-positive value means the buffer size
+     * @see RedisOutputStream#setCopyThreshold(int)
+     */
+    public void setCopyThreshold(final int copyThreshold) {
+        this.copyThreshold = copyThreshold;
+        if (outputStream != null) {
+            outputStream.setCopyThreshold(copyThreshold);
+        }
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the source of the stream buffers, <code>SizeClassedBufferPool.DEFAULT</code> by default.
+     * Takes effect on the next connect.
+     *
+     * @param bufferPool buffer pool, null to allocate buffers for every connection
+     */
+    public void setBufferPool(final BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Gives the stream buffers back to the buffer pool while the connection is idle,
+     * they are borrowed again on the next command. Buffers with unread replies or unsent commands are kept.
+     */
+    public void releaseBuffers() {
+        if (outputStream != null) {
+            outputStream.releaseBuffer();
+        }
+        if (inputStream != null) {
+            inputStream.releaseBuffer();
+        }
+    }
+
+    public void setAutoFlush(final boolean autoFlush) {
+        if (autoFlush && !this.autoFlush) {
+            flush();
+        }
+        this.autoFlush = autoFlush;
+    }
+
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    public void flush() {
+        if (outputStream != null) {
+            try {
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new RedisException(e);
+            }
+        }
+    }
+
+    private void flushDeferred() {
+        if (!autoFlush) {
+            flush();
+        }
+    }
+
     public String getHost() {
         return host;
     }
@@ -117,8 +324,9 @@ class RedisConnectionImpl implements RedisConnection {
         if (!isConnected()) {
             socket = new Socket(host, port);
             socket.setSoTimeout(timeout);
-            outputStream = new RedisOutputStream(socket.getOutputStream());
-            inputStream = new RedisInputStream(socket.getInputStream());
+            outputStream = new RedisOutputStream(socket.getOutputStream(), BUFFER_SIZE, bufferPool);
+            outputStream.setCopyThreshold(copyThreshold);
+            inputStream = new RedisInputStream(socket.getInputStream(), BUFFER_SIZE, bufferPool);
         }
     }
 
@@ -136,6 +344,20 @@ class RedisConnectionImpl implements RedisConnection {
         }
     }
 
+    /**
+     * Closes the socket only, so a thread blocked on it fails at once. The streams and their buffers
+     * are left to <code>close</code> of the thread which uses them.
+     */
+    void abort() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // the socket is dropped anyway
+            }
+        }
+    }
+
     public boolean isConnected() {
         return socket != null && socket.isBound() && !socket.isClosed()
                 && socket.isConnected() && !socket.isInputShutdown()
@@ -143,44 +365,106 @@ class RedisConnectionImpl implements RedisConnection {
     }
 
     public String getStatusCodeReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (String) protocol.read(inputStream);
     }
 
     public String getBulkReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (String) protocol.read(inputStream);
     }
 
     public byte[] getBinaryBulkReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (byte[]) protocol.read(inputStream, false);
     }
 
     public Long getIntegerReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (Long) protocol.read(inputStream);
     }
 
+    public long getIntegerReplyAsLong() {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readLong(inputStream);
+    }
+
+    public double getBulkReplyAsDouble() {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readDouble(inputStream);
+    }
+
+    public List<ElementScore> getElementScoreReply() {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readElementScores(inputStream);
+    }
+
+    public <T> T getBulkReply(final Codec<T> codec) {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readBulk(inputStream, codec);
+    }
+
+    public <T> List<T> getMultiBulkReply(final Codec<T> codec) {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readMultiBulk(inputStream, codec);
+    }
+
     @SuppressWarnings({"unchecked"})
     public List<String> getMultiBulkReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (List<String>) protocol.read(inputStream);
     }
 
     @SuppressWarnings("unchecked")
     public List<Object> getObjectMultiBulkReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (List<Object>) protocol.read(inputStream);
     }
 
     @SuppressWarnings({"unchecked"})
     public List<Object> getBinaryObjectMultiBulkReply() {
+        flushDeferred();
         pipelinedCommands--;
         return (List<Object>) protocol.read(inputStream, false);
     }
 
+    public List<Object> getSlabMultiBulkReply() {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readSlabMultiBulk(inputStream, true);
+    }
+
+    public List<Object> getBinarySlabMultiBulkReply() {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readSlabMultiBulk(inputStream, false);
+    }
+
+    public int getBulkReplyTo(final OutputStream out) {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readBulkReply(inputStream, out);
+    }
+
+    public int getBulkReplyTo(final WritableByteChannel channel) {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readBulkReply(inputStream, channel);
+    }
+
     public List<Object> getAll() {
+        flushDeferred();
         List<Object> all = new ArrayList<Object>();
         while (pipelinedCommands > 0) {
             all.add(protocol.read(inputStream));
@@ -190,6 +474,7 @@ class RedisConnectionImpl implements RedisConnection {
     }
 
     public List<Object> getBinaryAll() {
+        flushDeferred();
         List<Object> all = new ArrayList<Object>();
         while (pipelinedCommands > 0) {
             all.add(protocol.read(inputStream, false));
@@ -199,12 +484,20 @@ class RedisConnectionImpl implements RedisConnection {
     }
 
     public Object getOne() {
+        flushDeferred();
         pipelinedCommands--;
         return protocol.read(inputStream);
     }
 
     public Object getBinaryOne() {
+        flushDeferred();
         pipelinedCommands--;
         return protocol.read(inputStream, false);
     }
+
+    public Object getReply() {
+        flushDeferred();
+        pipelinedCommands--;
+        return protocol.readReply(inputStream, false);
+    }
 }
\ No newline at end of file
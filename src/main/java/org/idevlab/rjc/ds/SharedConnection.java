@@ -0,0 +1,374 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.Protocol;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Socket shared by many <code>MultiplexedRedisConnection</code>s. Writers append commands under a lock and
+ * register a <code>PendingReply</code> for each of them, the reader thread completes the pending replies
+ * in FIFO order. The last writer leaving the lock flushes, so concurrent commands go out in one write.
+ * <p/>
+ * With a flush window the last writer does not flush, the flusher thread sends the commands gathered
+ * during the window in one write unless <code>maxBatchSize</code> commands are buffered earlier.
+ * It trades a bounded latency for fewer writes and larger pipelines under high concurrency.
+ * <p/>
+ * A command which fails before any part of it is sent, e.g. for an invalid argument or a failing codec, is dropped
+ * from the buffer and fails its caller only. Any other failure while writing and any I/O failure break
+ * the connection: all pending replies fail and the data source opens another socket.
+ *
+ * @author Evgeny Dolgov
+ */
+class SharedConnection implements Runnable {
+
+    private final RedisConnectionImpl connection;
+    private final Protocol protocol = new Protocol();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicInteger writers = new AtomicInteger();
+    private final Queue<PendingReply> pending = new ConcurrentLinkedQueue<PendingReply>();
+    private final Condition flushScheduled = writeLock.newCondition();
+    private boolean flushRequested;
+    private int unflushed;
+    private long flushDeadline;
+    private Thread flusher;
+    private volatile long flushWindowNanos;
+    private volatile int maxBatchSize = Integer.MAX_VALUE;
+    private volatile RedisException failure;
+    private volatile boolean closing;
+
+    SharedConnection(RedisConnectionImpl connection) {
+        this.connection = connection;
+        connection.setAutoFlush(false);
+        // a writer racing with the failure must not reopen the socket under the pending replies
+        connection.setReconnect(false);
+        // replies are awaited with timeouts by the callers, the reader waits as long as the socket is open
+        connection.setTimeoutInfinite();
+        Thread reader = new Thread(this, "rjc-reader-" + connection.getHost() + ":" + connection.getPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Locks the connection for writing one command and registers its reply.
+     * Must be followed by <code>endWrite</code>.
+     */
+    PendingReply beginWrite() {
+        return beginWrite(new PendingReply());
+    }
+
+    <R extends PendingReply> R beginWrite(R reply) {
+        writers.incrementAndGet();
+        writeLock.lock();
+        if (failure != null) {
+            writers.decrementAndGet();
+            writeLock.unlock();
+            throw new RedisException("Connection is broken", failure);
+        }
+        // registered before writing, the command may be sent as soon as the buffer fills up
+        pending.offer(reply);
+        return reply;
+    }
+
+    /**
+     * @param reply the reply registered by <code>beginWrite</code>
+     * @param error exception thrown while writing, it breaks the connection if a part of the command may be sent
+     * @param flush whether the caller needs the command to be sent now
+     */
+    void endWrite(PendingReply reply, RuntimeException error, boolean flush) {
+        final boolean broken = error != null && !connection.isCommandDiscarded();
+        try {
+            if (broken) {
+                fail(error);
+                return;
+            }
+            if (error != null) {
+                // nothing of the command is in the buffer, so its reply is never read
+                pending.remove(reply);
+                reply.fail(error instanceof RedisException ? (RedisException) error
+                        : new RedisException(error.getMessage(), error));
+            } else {
+                flushRequested |= flush;
+                unflushed++;
+            }
+            final boolean last = writers.decrementAndGet() == 0;
+            if (last && flushRequested || unflushed >= maxBatchSize) {
+                if (flushWindowNanos <= 0 || unflushed >= maxBatchSize) {
+                    doFlush();
+                } else if (flushDeadline == 0) {
+                    scheduleFlush();
+                }
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            if (broken) {
+                writers.decrementAndGet();
+            }
+            writeLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        flushRequested = false;
+        unflushed = 0;
+        flushDeadline = 0;
+        connection.flush();
+    }
+
+    private void scheduleFlush() {
+        flushDeadline = System.nanoTime() + flushWindowNanos;
+        if (flushDeadline == 0) {
+            flushDeadline = 1;
+        }
+        if (flusher == null) {
+            flusher = new Thread(new Runnable() {
+                public void run() {
+                    runFlusher();
+                }
+            }, "rjc-flusher-" + connection.getHost() + ":" + connection.getPort());
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flushScheduled.signal();
+        }
+    }
+
+    private void runFlusher() {
+        writeLock.lock();
+        try {
+            while (failure == null) {
+                if (flushDeadline == 0) {
+                    flushScheduled.await();
+                    continue;
+                }
+                final long left = flushDeadline - System.nanoTime();
+                if (left > 0) {
+                    // releases the lock, so writers keep appending to the batch
+                    flushScheduled.awaitNanos(left);
+                } else {
+                    doFlush();
+                }
+            }
+        } catch (InterruptedException e) {
+            // the connection is closed
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param flushWindowNanos time the buffered commands wait for more commands, 0 to send them at once
+     */
+    void setFlushWindowNanos(long flushWindowNanos) {
+        this.flushWindowNanos = flushWindowNanos;
+    }
+
+    /**
+     * @param maxBatchSize number of buffered commands which are sent without waiting for the flush window
+     */
+    void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    RedisConnectionImpl getConnection() {
+        return connection;
+    }
+
+    /**
+     * Sends buffered commands of the writers which did not request flushing.
+     */
+    void flush() {
+        writeLock.lock();
+        try {
+            if (failure == null) {
+                doFlush();
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    boolean isBroken() {
+        return closing;
+    }
+
+    void close() {
+        fail(new RedisException("Connection is closed"));
+    }
+
+    private void fail(RuntimeException e) {
+        final boolean first;
+        synchronized (this) {
+            first = !closing;
+            closing = true;
+        }
+        if (first) {
+            // aborted before taking the lock, so a writer blocked on the socket releases it;
+            // the buffers are released by the reader, they may be in use by it right now
+            connection.abort();
+        }
+        writeLock.lock();
+        try {
+            if (failure == null) {
+                failure = e instanceof RedisException ? (RedisException) e : new RedisException(e.getMessage(), e);
+            }
+            // replies are registered under the lock only while there is no failure, so none can be added
+            // after this drain; every call drains since a writer may have registered one after the first call
+            PendingReply reply;
+            while ((reply = pending.poll()) != null) {
+                reply.fail(failure);
+            }
+            // stops the flusher
+            flushScheduled.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void run() {
+        try {
+            while (failure == null) {
+                final Object value;
+                try {
+                    value = protocol.readReply(connection.inputStream, false);
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                final PendingReply reply = pending.poll();
+                if (reply == null) {
+                    fail(new RedisException("Reply without a command"));
+                    return;
+                }
+                reply.complete(value);
+            }
+        } finally {
+            // writers do not touch the connection after the failure, so the output buffer is free as well
+            writeLock.lock();
+            try {
+                connection.close();
+            } catch (RuntimeException ignored) {
+                // the socket is dropped anyway
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reply of a command sent through the shared connection. Bulk values are kept as byte[].
+     * It is completed once, either by the reader or by the failure of the connection.
+     */
+    static class PendingReply {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Object value;
+        private RedisException error;
+
+        final void complete(Object value) {
+            this.value = value;
+            onDone();
+        }
+
+        final void fail(RedisException error) {
+            this.error = error;
+            onDone();
+        }
+
+        /**
+         * Called once by the thread which completes the reply, subclasses must call it.
+         */
+        void onDone() {
+            done.countDown();
+        }
+
+        public final boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        final boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return done.await(timeout, unit);
+        }
+
+        final void await() throws InterruptedException {
+            done.await();
+        }
+
+        /**
+         * @return raw reply of the completed command
+         * @throws RedisException for error replies and broken connection
+         */
+        final Object getValue() {
+            if (error != null) {
+                throw new RedisException(error.getMessage(), error);
+            }
+            if (value instanceof RedisException) {
+                throw new RedisException(((RedisException) value).getMessage());
+            }
+            return value;
+        }
+
+        /**
+         * @param timeout milliseconds to wait, non-positive to wait indefinitely
+         * @return raw reply
+         * @throws RedisException for error replies, broken connection and timeout
+         */
+        Object get(int timeout) {
+            awaitReply(timeout);
+            return getValue();
+        }
+
+        /**
+         * @param timeout milliseconds to wait, non-positive to wait indefinitely
+         * @return raw reply, <code>RedisException</code> for error replies
+         * @throws RedisException for broken connection and timeout
+         */
+        Object getReply(int timeout) {
+            awaitReply(timeout);
+            if (error != null) {
+                throw new RedisException(error.getMessage(), error);
+            }
+            return value;
+        }
+
+        private void awaitReply(int timeout) {
+            try {
+                if (timeout <= 0) {
+                    done.await();
+                } else if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new RedisException("Timeout waiting for reply");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.idevlab.rjc.ds;
 
+import org.idevlab.rjc.protocol.BufferPool;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
 import org.idevlab.rjc.protocol.Protocol;
 
 /**
@@ -27,9 +29,16 @@ public class SimpleDataSourceFactory implements DataSourceFactory {
 
     private int timeout = Protocol.DEFAULT_TIMEOUT;
     private String password;
+    private Transport transport = Transport.SOCKET;
+    private int copyThreshold;
+    private BufferPool bufferPool = SizeClassedBufferPool.DEFAULT;
 
     public DataSource create(String host, int port) {
-        return new SimpleDataSource(host, port, timeout, password);
+        SimpleDataSource dataSource = new SimpleDataSource(host, port, timeout, password);
+        dataSource.setTransport(transport);
+        dataSource.setCopyThreshold(copyThreshold);
+        dataSource.setBufferPool(bufferPool);
+        return dataSource;
     }
 
     public int getTimeout() {
@@ -47,4 +56,45 @@ public class SimpleDataSourceFactory implements DataSourceFactory {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets network transport of the connections, <code>Transport.SOCKET</code> by default.
+     *
+     * @param transport network transport
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getCopyThreshold() {
+        return copyThreshold;
+    }
+
+    /**
+     * Sets the argument size from which arguments are not copied into the output buffer of connections.
+     * With <code>Transport.CHANNEL</code> such arguments are sent by vectored writes together with the command header.
+     *
+     * @param copyThreshold size in bytes, non-positive value means the buffer size (default)
+     */
+    public void setCopyThreshold(int copyThreshold) {
+        this.copyThreshold = copyThreshold;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the source of the stream buffers of connections, shared <code>SizeClassedBufferPool.DEFAULT</code> by default.
+     * Use it to read the pool statistics as well.
+     *
+     * @param bufferPool buffer pool, null to allocate buffers for every connection
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
 }
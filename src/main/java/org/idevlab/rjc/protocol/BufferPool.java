@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.protocol;
+
+/**
+ * Source of the byte arrays used as buffers by <code>RedisInputStream</code> and <code>RedisOutputStream</code>.
+ * Implementations must be thread safe.
+ *
+ * @author Evgeny Dolgov
+ */
+public interface BufferPool {
+
+    /**
+     * @param size minimal buffer size
+     * @return buffer of at least <code>size</code> bytes, its content is undefined
+     */
+    byte[] acquire(int size);
+
+    /**
+     * Gives the buffer back. The caller must not use the buffer after this call.
+     *
+     * @param buffer buffer obtained from <code>acquire</code>
+     */
+    void release(byte[] buffer);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Output which is able to send several buffers with a single vectored write.
+ * <code>RedisOutputStream</code> uses it to send large arguments without copying them into its buffer.
+ *
+ * @author Evgeny Dolgov
+ */
+public interface GatheringOutput {
+
+    /**
+     * Writes all remaining bytes of the buffers.
+     *
+     * @param buffers buffers to write
+     * @throws IOException if an I/O error occurs
+     */
+    void write(ByteBuffer[] buffers) throws IOException;
+}
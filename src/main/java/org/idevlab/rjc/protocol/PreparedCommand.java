@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.protocol;
+
+/**
+ * Command with a fixed number of arguments whose header (<code>*N\r\n$len\r\nCMD\r\n</code>)
+ * is encoded once, so sending it costs only the encoding of the arguments.
+ * Instances are immutable and may be shared between threads, e.g. kept in static fields:
+ * <pre>
+ * static final PreparedCommand HGET = new PreparedCommand(RedisCommand.HGET, 2);
+ * ...
+ * client.getBulkReply(HGET, "user:1", "name");
+ * </pre>
+ *
+ * @author Evgeny Dolgov
+ */
+public final class PreparedCommand {
+    private final RedisCommand command;
+    private final int arity;
+    final byte[] prefix;
+
+    /**
+     * @param command redis command
+     * @param arity   number of arguments every invocation passes
+     */
+    public PreparedCommand(final RedisCommand command, final int arity) {
+        if (arity < 0) {
+            throw new IllegalArgumentException("Arity < 0");
+        }
+        this.command = command;
+        this.arity = arity;
+
+        final String header = "*" + (arity + 1) + "\r\n$" + command.raw.length + "\r\n";
+        prefix = new byte[header.length() + command.raw.length + 2];
+        for (int i = 0; i < header.length(); i++) {
+            prefix[i] = (byte) header.charAt(i);
+        }
+        System.arraycopy(command.raw, 0, prefix, header.length(), command.raw.length);
+        prefix[prefix.length - 2] = '\r';
+        prefix[prefix.length - 1] = '\n';
+    }
+
+    public RedisCommand getCommand() {
+        return command;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    void checkArity(final int argsCount) {
+        if (argsCount != arity) {
+            throw new IllegalArgumentException(command + " is prepared for " + arity + " arguments, got " + argsCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return command + "/" + arity;
+    }
+}
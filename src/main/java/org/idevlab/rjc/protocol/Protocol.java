@@ -16,10 +16,16 @@
 
 package org.idevlab.rjc.protocol;
 
+import org.idevlab.rjc.ElementScore;
 import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.codec.Codec;
 import org.idevlab.rjc.util.SafeEncoder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,25 +44,189 @@ public final class Protocol {
 
     public void sendCommand(final RedisOutputStream os, final RedisCommand command,
                             final byte[]... args) {
-        sendCommand(os, command.raw, args);
+        writeCommand(os, command.raw, args);
+        flush(os);
     }
 
-    private void sendCommand(final RedisOutputStream os, final byte[] command,
+    /**
+     * Encodes string arguments to UTF-8 right in the stream buffer, i.e. without temporary byte arrays.
+     *
+     * @param os      output stream
+     * @param command redis command
+     * @param args    command arguments
+     */
+    public void sendCommand(final RedisOutputStream os, final RedisCommand command,
+                            final String... args) {
+        writeCommand(os, command.raw, args);
+        flush(os);
+    }
+
+    /**
+     * Writes the command into the stream buffer without flushing it,
+     * so the command goes to the socket only when the buffer is full or explicitly flushed.
+     *
+     * @param os      output stream
+     * @param command redis command
+     * @param args    command arguments
+     */
+    public void writeCommand(final RedisOutputStream os, final RedisCommand command,
+                             final byte[]... args) {
+        writeCommand(os, command.raw, args);
+    }
+
+    public void writeCommand(final RedisOutputStream os, final RedisCommand command,
+                             final String... args) {
+        writeCommand(os, command.raw, args);
+    }
+
+    public void sendCommand(final RedisOutputStream os, final PreparedCommand command,
+                            final byte[]... args) {
+        writeCommand(os, command, args);
+        flush(os);
+    }
+
+    public void sendCommand(final RedisOutputStream os, final PreparedCommand command,
+                            final String... args) {
+        writeCommand(os, command, args);
+        flush(os);
+    }
+
+    /**
+     * Writes the cached header of the prepared command and encodes only the arguments.
+     *
+     * @param os      output stream
+     * @param command prepared command
+     * @param args    command arguments, their number must match the command arity
+     * @throws IllegalArgumentException if the number of arguments differs from the arity, nothing is written then
+     */
+    public void writeCommand(final RedisOutputStream os, final PreparedCommand command,
                              final byte[]... args) {
+        command.checkArity(args.length);
+        try {
+            os.write(command.prefix);
+            writeArgs(os, args);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    public void writeCommand(final RedisOutputStream os, final PreparedCommand command,
+                             final String... args) {
+        command.checkArity(args.length);
+        try {
+            os.write(command.prefix);
+            writeArgs(os, args);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    public <T> void sendCommand(final RedisOutputStream os, final RedisCommand command,
+                                final Codec<T> codec, final T value, final String... args) {
+        writeCommand(os, command, codec, value, args);
+        flush(os);
+    }
+
+    /**
+     * Writes the command with the value encoded by the codec right into the stream buffer as the last argument.
+     *
+     * @param os      output stream
+     * @param command redis command
+     * @param codec   value codec
+     * @param value   the last argument
+     * @param args    command arguments before the value
+     */
+    public <T> void writeCommand(final RedisOutputStream os, final RedisCommand command,
+                                 final Codec<T> codec, final T value, final String... args) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value is null");
+        }
         try {
-            os.write(ASTERISK_BYTE);
-            os.writeIntCrLf(args.length + 1);
+            writeHeader(os, command.raw, args.length + 1);
+            writeArgs(os, args);
+            codec.encode(value, os);
+            os.flushReferences();
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Sends the command with the value read from the input stream as the last argument.
+     * The value is copied through the stream buffer, so it is never loaded into memory as a whole.
+     *
+     * @param os      output stream
+     * @param command redis command
+     * @param value   the last argument source
+     * @param length  exact number of bytes to read from <code>value</code>
+     * @param args    command arguments before the value
+     */
+    public void sendCommand(final RedisOutputStream os, final RedisCommand command,
+                            final InputStream value, final int length, final byte[]... args) {
+        try {
+            writeHeader(os, command.raw, args.length + 1);
+            writeArgs(os, args);
             os.write(DOLLAR_BYTE);
-            os.writeIntCrLf(command.length);
-            os.write(command);
+            os.writeIntCrLf(length);
+            os.write(value, length);
             os.writeCrLf();
+            os.flush();
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
 
-            for (final byte[] arg : args) {
-                os.write(DOLLAR_BYTE);
-                os.writeIntCrLf(arg.length);
-                os.write(arg);
-                os.writeCrLf();
-            }
+    private void writeCommand(final RedisOutputStream os, final byte[] command,
+                              final byte[]... args) {
+        try {
+            writeHeader(os, command, args.length);
+            writeArgs(os, args);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    private void writeCommand(final RedisOutputStream os, final byte[] command,
+                              final String... args) {
+        try {
+            writeHeader(os, command, args.length);
+            writeArgs(os, args);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    private void writeArgs(final RedisOutputStream os, final byte[]... args) throws IOException {
+        for (final byte[] arg : args) {
+            os.write(DOLLAR_BYTE);
+            os.writeIntCrLf(arg.length);
+            os.write(arg);
+            os.writeCrLf();
+        }
+        // large arguments may be referenced rather than copied, caller is free to change them after return
+        os.flushReferences();
+    }
+
+    private void writeArgs(final RedisOutputStream os, final String... args) throws IOException {
+        for (final String arg : args) {
+            os.write(DOLLAR_BYTE);
+            os.writeIntCrLf(RedisOutputStream.utf8Length(arg));
+            os.writeUtf8CrLf(arg);
+        }
+    }
+
+    private void writeHeader(final RedisOutputStream os, final byte[] command,
+                             final int argsCount) throws IOException {
+        os.write(ASTERISK_BYTE);
+        os.writeIntCrLf(argsCount + 1);
+        os.write(DOLLAR_BYTE);
+        os.writeIntCrLf(command.length);
+        os.write(command);
+        os.writeCrLf();
+    }
+
+    private void flush(final RedisOutputStream os) {
+        try {
             os.flush();
         } catch (IOException e) {
             throw new RedisException(e);
@@ -70,26 +240,29 @@ public final class Protocol {
 
     private Object process(final RedisInputStream is, boolean stringsOnly) {
         try {
-            byte b = is.readByte();
-            if (b == MINUS_BYTE) {
-                processError(is);
-            } else if (b == ASTERISK_BYTE) {
-                return processMultiBulkReply(is, stringsOnly);
-            } else if (b == COLON_BYTE) {
-                return processInteger(is);
-            } else if (b == DOLLAR_BYTE) {
-                if (stringsOnly) {
-                    return processBulkReply(is);
-                }
-                return processBinaryBulkReply(is);
-            } else if (b == PLUS_BYTE) {
-                return processStatusCodeReply(is);
-            } else {
-                throw new RedisException("Unknown reply: " + (char) b);
-            }
+            return process(is, is.readByte(), stringsOnly);
         } catch (IOException e) {
             throw new RedisException(e);
         }
+    }
+
+    private Object process(final RedisInputStream is, final byte b, boolean stringsOnly) {
+        if (b == MINUS_BYTE) {
+            processError(is);
+        } else if (b == ASTERISK_BYTE) {
+            return processMultiBulkReply(is, stringsOnly);
+        } else if (b == COLON_BYTE) {
+            return processInteger(is);
+        } else if (b == DOLLAR_BYTE) {
+            if (stringsOnly) {
+                return processBulkReply(is);
+            }
+            return processBinaryBulkReply(is);
+        } else if (b == PLUS_BYTE) {
+            return processStatusCodeReply(is);
+        } else {
+            throw new RedisException("Unknown reply: " + (char) b);
+        }
         return null;
     }
 
@@ -106,7 +279,7 @@ public final class Protocol {
     }
 
     private byte[] processBinaryBulkReply(final RedisInputStream is) {
-        int len = Integer.parseInt(is.readLine());
+        int len = is.readIntCrLf();
         if (len == -1) {
             return null;
         }
@@ -127,12 +300,11 @@ public final class Protocol {
     }
 
     private Long processInteger(final RedisInputStream is) {
-        String num = is.readLine();
-        return Long.valueOf(num);
+        return is.readLongCrLf();
     }
 
     private List<Object> processMultiBulkReply(final RedisInputStream is, boolean stringsOnly) {
-        int num = Integer.parseInt(is.readLine());
+        int num = is.readIntCrLf();
         if (num == -1) {
             return null;
         }
@@ -143,6 +315,91 @@ public final class Protocol {
         return ret;
     }
 
+    /**
+     * Reads multi bulk reply into <code>SlabMultiBulkReply</code>: all bulk values are copied into one array
+     * and decoded only when an element is requested.
+     *
+     * @param is          input stream
+     * @param stringsOnly true to decode bulk elements to String, false to return them as byte[]
+     * @return reply or null for nil multi bulk reply
+     */
+    public SlabMultiBulkReply readSlabMultiBulk(final RedisInputStream is, final boolean stringsOnly) {
+        try {
+            byte b = is.readByte();
+            if (b == MINUS_BYTE) {
+                processError(is);
+            } else if (b != ASTERISK_BYTE) {
+                throw new RedisException("Unexpected reply, multi bulk expected: " + (char) b);
+            }
+            final int num = is.readIntCrLf();
+            if (num == -1) {
+                return null;
+            }
+
+            final int[] offsets = new int[num];
+            final int[] lengths = new int[num];
+            final Object[] values = new Object[num];
+            byte[] slab = new byte[Math.max(64, num * 16)];
+            int size = 0;
+            for (int i = 0; i < num; i++) {
+                lengths[i] = -1;
+                b = is.readByte();
+                if (b == DOLLAR_BYTE) {
+                    final int len = is.readIntCrLf();
+                    if (len == -1) {
+                        continue;
+                    }
+                    if (slab.length - size < len) {
+                        slab = grow(slab, size + len);
+                    }
+                    readFully(is, slab, size, len);
+                    readCrLf(is);
+                    offsets[i] = size;
+                    lengths[i] = len;
+                    size += len;
+                } else if (b == ASTERISK_BYTE) {
+                    values[i] = processMultiBulkReply(is, stringsOnly);
+                } else if (b == COLON_BYTE) {
+                    values[i] = processInteger(is);
+                } else if (b == PLUS_BYTE) {
+                    values[i] = processStatusCodeReply(is);
+                } else if (b == MINUS_BYTE) {
+                    processError(is);
+                } else {
+                    throw new RedisException("Unknown reply: " + (char) b);
+                }
+            }
+            if (slab.length - size > size / 4) {
+                // do not keep much unused space of the last growth
+                slab = copyOf(slab, size);
+            }
+            return new SlabMultiBulkReply(slab, offsets, lengths, values, stringsOnly);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    private static byte[] grow(final byte[] slab, final int required) {
+        return copyOf(slab, Math.max(required, slab.length * 2));
+    }
+
+    private static byte[] copyOf(final byte[] array, final int length) {
+        final byte[] copy = new byte[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private void readFully(final RedisInputStream is, final byte[] b, final int off, final int len) throws IOException {
+        int offset = 0;
+        while (offset < len) {
+            final int n = is.read(b, off + offset, len - offset);
+            if (n == -1) {
+                throw new RedisException("It seems like server has closed the connection.");
+            }
+            offset += n;
+        }
+    }
+
     public Object read(final RedisInputStream is) {
         return read(is, true);
     }
@@ -151,6 +408,305 @@ public final class Protocol {
         return process(is, stringsOnly);
     }
 
+    /**
+     * Reads a reply of any type, an error reply is returned as <code>RedisException</code> instead of being thrown,
+     * so thrown exceptions always mean that the stream is unusable. Errors inside multi bulk replies,
+     * e.g. in the reply of EXEC, are returned as <code>RedisException</code> elements as well.
+     *
+     * @param is          input stream
+     * @param stringsOnly true to decode bulk values to String, false to return them as byte[]
+     * @return reply or <code>RedisException</code> for an error reply
+     */
+    public Object readReply(final RedisInputStream is, boolean stringsOnly) {
+        try {
+            final byte b = is.readByte();
+            if (b == MINUS_BYTE) {
+                return new RedisException(is.readLine());
+            }
+            if (b == ASTERISK_BYTE) {
+                final int num = is.readIntCrLf();
+                if (num == -1) {
+                    return null;
+                }
+                final List<Object> ret = new ArrayList<Object>(num);
+                for (int i = 0; i < num; i++) {
+                    ret.add(readReply(is, stringsOnly));
+                }
+                return ret;
+            }
+            return process(is, b, stringsOnly);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Reads integer reply as primitive value, i.e. without boxing.
+     *
+     * @param is input stream
+     * @return integer reply
+     */
+    public long readLong(final RedisInputStream is) {
+        try {
+            byte b = is.readByte();
+            if (b == COLON_BYTE) {
+                return is.readLongCrLf();
+            } else if (b == MINUS_BYTE) {
+                processError(is);
+            }
+            throw new RedisException("Unexpected reply, integer expected: " + (char) b);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Copies bulk reply to the output stream in chunks of the input buffer size.
+     * If the output stream fails the rest of the value is still read, so the connection stays usable.
+     *
+     * @param is  input stream
+     * @param out destination
+     * @return value length or -1 for nil reply
+     */
+    public int readBulkReply(final RedisInputStream is, final OutputStream out) {
+        try {
+            final int len = readBulkLength(is);
+            if (len != -1) {
+                final Destination destination = new Destination(out, null);
+                is.copyTo((OutputStream) destination, len);
+                readCrLf(is);
+                destination.check();
+            }
+            return len;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Copies bulk reply to the blocking channel in chunks of the input buffer size.
+     * If the channel fails the rest of the value is still read, so the connection stays usable.
+     *
+     * @param is      input stream
+     * @param channel destination
+     * @return value length or -1 for nil reply
+     */
+    public int readBulkReply(final RedisInputStream is, final WritableByteChannel channel) {
+        try {
+            final int len = readBulkLength(is);
+            if (len != -1) {
+                final Destination destination = new Destination(null, channel);
+                is.copyTo((WritableByteChannel) destination, len);
+                readCrLf(is);
+                destination.check();
+            }
+            return len;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Reads bulk reply with the codec.
+     *
+     * @param is    input stream
+     * @param codec value codec
+     * @return decoded value or null for nil reply
+     */
+    public <T> T readBulk(final RedisInputStream is, final Codec<T> codec) {
+        try {
+            final int len = readBulkLength(is);
+            return len == -1 ? null : is.read(codec, len);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Reads multi bulk reply of bulk values with the codec.
+     *
+     * @param is    input stream
+     * @param codec value codec
+     * @return decoded values, nil elements are null, or null for nil reply
+     */
+    public <T> List<T> readMultiBulk(final RedisInputStream is, final Codec<T> codec) {
+        try {
+            byte b = is.readByte();
+            if (b == MINUS_BYTE) {
+                processError(is);
+            } else if (b != ASTERISK_BYTE) {
+                throw new RedisException("Unexpected reply, multi bulk expected: " + (char) b);
+            }
+            final int num = is.readIntCrLf();
+            if (num == -1) {
+                return null;
+            }
+            final List<T> result = new ArrayList<T>(num);
+            RuntimeException failure = null;
+            for (int i = 0; i < num; i++) {
+                final int len = readBulkLength(is);
+                if (len == -1) {
+                    result.add(null);
+                    continue;
+                }
+                try {
+                    result.add(is.read(codec, len));
+                } catch (RuntimeException e) {
+                    // the rest of the reply is read before the failure of the codec is thrown
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    private int readBulkLength(final RedisInputStream is) throws IOException {
+        byte b = is.readByte();
+        if (b == DOLLAR_BYTE) {
+            return is.readIntCrLf();
+        } else if (b == MINUS_BYTE) {
+            processError(is);
+        }
+        throw new RedisException("Unexpected reply, bulk expected: " + (char) b);
+    }
+
+    private void readCrLf(final RedisInputStream is) throws IOException {
+        is.readByte();
+        is.readByte();
+    }
+
+    /**
+     * Reads bulk reply holding a double, for instance the result of ZSCORE.
+     *
+     * @param is input stream
+     * @return parsed value or <code>Double.NaN</code> for nil reply
+     */
+    public double readDouble(final RedisInputStream is) {
+        try {
+            final int len = readBulkLength(is);
+            return len == -1 ? Double.NaN : is.readDouble(len);
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Reads multi bulk reply of WITHSCORES commands. Scores are parsed straight from the reply bytes.
+     *
+     * @param is input stream
+     * @return elements with scores
+     */
+    public List<ElementScore> readElementScores(final RedisInputStream is) {
+        try {
+            byte b = is.readByte();
+            if (b == MINUS_BYTE) {
+                processError(is);
+            } else if (b != ASTERISK_BYTE) {
+                throw new RedisException("Unexpected reply, multi bulk expected: " + (char) b);
+            }
+            final int num = is.readIntCrLf();
+            final List<ElementScore> result = new ArrayList<ElementScore>(Math.max(num / 2, 0));
+            for (int i = 0; i < num; i += 2) {
+                final String element = processBulkReply(expectBulk(is));
+                result.add(new ElementScore(element, readDouble(is)));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    private RedisInputStream expectBulk(final RedisInputStream is) throws IOException {
+        final byte b = is.readByte();
+        if (b != DOLLAR_BYTE) {
+            throw new RedisException("Unexpected reply, bulk expected: " + (char) b);
+        }
+        return is;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parses a double in the format used by Redis, including <code>inf</code> and <code>-inf</code>.
+     *
+     * @param value string representation
+     * @return parsed value
+     */
+    public static double toDouble(final String value) {
+        final byte[] bytes = SafeEncoder.encode(value);
+        return toDouble(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses a double in the format used by Redis from ASCII bytes.
+     *
+     * @param b   the bytes
+     * @param off offset of the value
+     * @param len length of the value
+     * @return parsed value
+     */
+    public static double toDouble(final byte[] b, final int off, final int len) {
+        final int end = off + len;
+        int i = off;
+        final boolean negative = len > 0 && b[i] == '-';
+        if (negative || (len > 0 && b[i] == '+')) {
+            i++;
+        }
+        if (end - i == 3 && (b[i] | 0x20) == 'i' && (b[i + 1] | 0x20) == 'n' && (b[i + 2] | 0x20) == 'f') {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        // exact when both the mantissa and the power of ten are exactly representable
+        long mantissa = 0;
+        int digits = 0;
+        int significant = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            final byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa != 0 || c != '0') {
+                    significant++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction >= 0) {
+                    fraction++;
+                }
+                if (significant > 15 || fraction >= POWERS_OF_TEN.length) {
+                    return parseDouble(b, off, len);
+                }
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                return parseDouble(b, off, len);
+            }
+        }
+        if (digits == 0) {
+            return parseDouble(b, off, len);
+        }
+        final double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double parseDouble(final byte[] b, final int off, final int len) {
+        final String value = SafeEncoder.encode(b, off, len);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new RedisException("Unexpected double value: " + value, e);
+        }
+    }
+
     public static byte[] toByteArray(final int value) {
         return SafeEncoder.encode(String.valueOf(value));
     }
@@ -163,4 +719,66 @@ public final class Protocol {
         return SafeEncoder.encode(String.valueOf(value));
     }
 
-}
\ No newline at end of file
+
+    /**
+     * Destination of a bulk reply which keeps the first failure and drops the rest of the value.
+     */
+    private static final class Destination extends OutputStream implements WritableByteChannel {
+        private final OutputStream out;
+        private final WritableByteChannel channel;
+        private Exception failure;
+
+        Destination(final OutputStream out, final WritableByteChannel channel) {
+            this.out = out;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(final int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            if (failure == null) {
+                try {
+                    out.write(b, off, len);
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        public int write(final ByteBuffer src) {
+            final int length = src.remaining();
+            if (failure == null) {
+                try {
+                    while (src.hasRemaining()) {
+                        channel.write(src);
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            src.position(src.limit());
+            return length;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        void check() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+        }
+    }
+}
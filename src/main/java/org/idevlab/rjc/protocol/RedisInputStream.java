@@ -16,24 +16,59 @@
 
 package org.idevlab.rjc.protocol;
 
+import org.idevlab.rjc.codec.Codec;
 import org.idevlab.rjc.RedisException;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class RedisInputStream extends FilterInputStream {
 
-    protected final byte buf[];
+    protected byte buf[];
 
     protected int count, limit;
 
+    private final int size;
+
+    private final BufferPool bufferPool;
+
+    private static final int IDLE = 0, FILLING = 1, RELEASING = 2;
+
+    private static final AtomicIntegerFieldUpdater<RedisInputStream> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(RedisInputStream.class, "state");
+
+    /**
+     * Guards the pooled buffer, a reader blocked in <code>fill</code> may be closed from another thread
+     */
+    private volatile int state;
+
     public RedisInputStream(InputStream in, int size) {
+        this(in, size, null);
+    }
+
+    /**
+     * Creates the stream which takes its buffer from the pool on the first read
+     * and gives it back on <code>releaseBuffer</code> or <code>close</code>.
+     *
+     * @param in         underlying stream
+     * @param size       buffer size
+     * @param bufferPool source of the buffer, null to allocate the buffer right now
+     */
+    public RedisInputStream(InputStream in, int size, BufferPool bufferPool) {
         super(in);
         if (size <= 0) {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
-        buf = new byte[size];
+        this.size = size;
+        this.bufferPool = bufferPool;
+        if (bufferPool == null) {
+            buf = new byte[size];
+        }
     }
 
     public RedisInputStream(InputStream in) {
@@ -93,6 +128,153 @@ public class RedisInputStream extends FilterInputStream {
         return reply;
     }
 
+    /**
+     * Reads a CRLF terminated decimal number straight from the buffer,
+     * i.e. without building intermediate strings.
+     *
+     * @return parsed value
+     */
+    public long readLongCrLf() {
+        try {
+            ensureFill();
+            final boolean negative = buf[count] == '-';
+            if (negative) {
+                count++;
+            }
+
+            long value = 0;
+            while (true) {
+                ensureFill();
+                final int b = buf[count++];
+                if (b == '\r') {
+                    ensureFill();
+                    if (buf[count++] != '\n') {
+                        throw new RedisException("Unexpected character in the number reply");
+                    }
+                    break;
+                }
+                if (b < '0' || b > '9') {
+                    throw new RedisException("Unexpected character in the number reply: " + (char) b);
+                }
+                value = value * 10 + (b - '0');
+            }
+            return negative ? -value : value;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    public int readIntCrLf() {
+        return (int) readLongCrLf();
+    }
+
+    /**
+     * Reads a bulk value of <code>len</code> bytes followed by CRLF as a double.
+     * Values which fit into the buffer are parsed in place.
+     *
+     * @param len value length
+     * @return parsed value
+     */
+    public double readDouble(final int len) {
+        try {
+            final double value;
+            if (fillAtLeast(len)) {
+                value = Protocol.toDouble(buf, count, len);
+                count += len;
+            } else {
+                final byte[] bytes = readBytes(len);
+                value = Protocol.toDouble(bytes, 0, len);
+            }
+            skipCrLf();
+            return value;
+        } catch (IOException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    /**
+     * Reads a bulk value of <code>len</code> bytes followed by CRLF with the codec.
+     * Values which fit into the buffer are decoded in place, bigger ones are copied first.
+     * The value is read to the end even if the codec fails.
+     *
+     * @param codec value codec
+     * @param len   value length
+     * @return decoded value
+     * @throws IOException if an I/O error occurs
+     */
+    public <T> T read(final Codec<T> codec, final int len) throws IOException {
+        final byte[] bytes;
+        final int offset;
+        if (fillAtLeast(len)) {
+            bytes = buf;
+            offset = count;
+            count += len;
+        } else {
+            bytes = readBytes(len);
+            offset = 0;
+        }
+        try {
+            return codec.decode(bytes, offset, len);
+        } finally {
+            skipCrLf();
+        }
+    }
+
+    private byte[] readBytes(final int len) throws IOException {
+        final byte[] bytes = new byte[len];
+        int offset = 0;
+        while (offset < len) {
+            ensureFill();
+            offset += read(bytes, offset, len - offset);
+        }
+        return bytes;
+    }
+
+    private void skipCrLf() throws IOException {
+        ensureFill();
+        count++;
+        ensureFill();
+        count++;
+    }
+
+    /**
+     * Copies next <code>len</code> bytes to the output stream through the internal buffer.
+     *
+     * @param out destination
+     * @param len number of bytes to copy
+     * @throws IOException if an I/O error occurs
+     */
+    public void copyTo(OutputStream out, int len) throws IOException {
+        while (len > 0) {
+            ensureFill();
+            final int length = Math.min(limit - count, len);
+            out.write(buf, count, length);
+            count += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Copies next <code>len</code> bytes to the channel through the internal buffer.
+     * The channel must be in blocking mode.
+     *
+     * @param channel destination
+     * @param len     number of bytes to copy
+     * @throws IOException if an I/O error occurs
+     */
+    public void copyTo(WritableByteChannel channel, int len) throws IOException {
+        while (len > 0) {
+            ensureFill();
+            final int length = Math.min(limit - count, len);
+            final ByteBuffer buffer = ByteBuffer.wrap(buf, count, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            count += length;
+            len -= length;
+        }
+    }
+
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         if (count == limit) {
@@ -107,7 +289,104 @@ public class RedisInputStream extends FilterInputStream {
     }
 
     private void fill() throws IOException {
-        limit = in.read(buf);
-        count = 0;
+        if (bufferPool == null) {
+            limit = in.read(buf);
+            count = 0;
+            return;
+        }
+        while (!STATE.compareAndSet(this, IDLE, FILLING)) {
+            Thread.yield();
+        }
+        try {
+            if (buf == null) {
+                buf = bufferPool.acquire(size);
+            }
+            limit = in.read(buf);
+            count = 0;
+        } finally {
+            state = IDLE;
+        }
+    }
+
+    /**
+     * Makes the next <code>len</code> bytes available in the buffer, moving unread data to its beginning if needed.
+     *
+     * @return false if the buffer is smaller than <code>len</code>
+     */
+    private boolean fillAtLeast(final int len) throws IOException {
+        ensureFill();
+        if (limit - count >= len) {
+            return true;
+        }
+        if (len > buf.length) {
+            return false;
+        }
+        if (bufferPool != null) {
+            while (!STATE.compareAndSet(this, IDLE, FILLING)) {
+                Thread.yield();
+            }
+        }
+        try {
+            System.arraycopy(buf, count, buf, 0, limit - count);
+            limit -= count;
+            count = 0;
+            while (limit < len) {
+                final int n = in.read(buf, limit, buf.length - limit);
+                if (n == -1) {
+                    throw new RedisException("It seems like server has closed the connection.");
+                }
+                limit += n;
+            }
+        } finally {
+            if (bufferPool != null) {
+                state = IDLE;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives the buffer back to the pool if all buffered data has been read.
+     * The buffer is borrowed again on the next read.
+     *
+     * @return false if the stream has not been created with a pool or there is unread data
+     */
+    public boolean releaseBuffer() {
+        if (bufferPool == null || !STATE.compareAndSet(this, IDLE, RELEASING)) {
+            return false;
+        }
+        try {
+            if (count < limit) {
+                return false;
+            }
+            if (buf != null) {
+                final byte[] buffer = buf;
+                buf = null;
+                count = limit = 0;
+                bufferPool.release(buffer);
+            }
+            return true;
+        } finally {
+            state = IDLE;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            count = limit = 0;
+            releaseBuffer();
+        }
+    }
+
+    private void ensureFill() throws IOException {
+        if (count == limit) {
+            fill();
+            if (limit == -1) {
+                throw new RedisException("It seems like server has closed the connection.");
+            }
+        }
     }
 }
@@ -23,7 +23,8 @@ import org.idevlab.rjc.util.SafeEncoder;
 */
 public enum RedisKeyword {
     AGGREGATE, ALPHA, ASC, BY, DESC, GET, LIMIT, MESSAGE, NO, NOSORT, PMESSAGE, PSUBSCRIBE, PUNSUBSCRIBE, OK,
-    ONE, QUEUED, SET, STORE, SUBSCRIBE, UNSUBSCRIBE, WEIGHTS, WITHSCORES, RESETSTAT;
+    ONE, QUEUED, SET, STORE, SUBSCRIBE, UNSUBSCRIBE, WEIGHTS, WITHSCORES, RESETSTAT,
+    LOAD, EXISTS, FLUSH, KILL, MATCH, COUNT;
     public final byte[] raw;
     public final String str;
 
@@ -17,37 +17,183 @@
 package org.idevlab.rjc.protocol;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The class implements a buffered output stream without synchronization
  * There are also special operations like in-place string encoding.
- * This stream fully ignore mark/reset and should not be used outside Redis
+ * This stream fully ignore mark/reset and should not be used outside Redis.
+ * A command which fails while it is written can be dropped with <code>markCommand</code> and
+ * <code>resetCommand</code> as long as none of it has been written out.
  */
 public final class RedisOutputStream extends FilterOutputStream {
-    protected final byte buf[];
+    protected byte buf[];
 
     protected int count;
 
+    private final int size;
+
+    private final BufferPool bufferPool;
+
+    private final GatheringOutput gatheringOut;
+
+    /**
+     * Chunks of the buffer and large arguments waiting for a vectored write
+     */
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+    private int segmentStart;
+
+    private int copyThreshold;
+
+    /**
+     * Number of writes to the underlying stream, counted before the write since it may fail half way
+     */
+    private long writes;
+
+    private int markCount;
+
+    private int markSegments;
+
+    private int markSegmentStart;
+
+    private long markWrites = -1;
+
     public RedisOutputStream(final OutputStream out) {
         this(out, 8192);
     }
 
     public RedisOutputStream(final OutputStream out, final int size) {
+        this(out, size, null);
+    }
+
+    /**
+     * Creates the stream which takes its buffer from the pool on the first write
+     * and gives it back on <code>releaseBuffer</code> or <code>close</code>.
+     *
+     * @param out        underlying stream
+     * @param size       buffer size
+     * @param bufferPool source of the buffer, null to allocate the buffer right now
+     */
+    public RedisOutputStream(final OutputStream out, final int size, final BufferPool bufferPool) {
         super(out);
         if (size <= 0) {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
-        buf = new byte[size];
+        this.size = size;
+        this.bufferPool = bufferPool;
+        if (bufferPool == null) {
+            buf = new byte[size];
+        }
+        copyThreshold = size;
+        gatheringOut = (out instanceof GatheringOutput) ? (GatheringOutput) out : null;
+    }
+
+    private void ensureBuffer() {
+        if (buf == null) {
+            buf = bufferPool.acquire(size);
+        }
+    }
+
+    /**
+     * Gives the buffer back to the pool if there is no buffered data.
+     * The buffer is borrowed again on the next write.
+     *
+     * @return false if the stream has not been created with a pool or there is buffered data
+     */
+    public boolean releaseBuffer() {
+        if (bufferPool == null || count > 0 || !segments.isEmpty()) {
+            return false;
+        }
+        if (buf != null) {
+            final byte[] buffer = buf;
+            buf = null;
+            bufferPool.release(buffer);
+        }
+        return true;
+    }
+
+    public int getCopyThreshold() {
+        return copyThreshold;
+    }
+
+    /**
+     * Sets the size from which byte arrays are not copied into the buffer.
+     * Such arrays are sent together with the buffered data by a vectored write if the underlying stream
+     * is a <code>GatheringOutput</code>, otherwise the buffer is flushed and the array is written directly.
+     * Smaller arrays are copied through the buffer.
+     *
+     * @param copyThreshold size in bytes, non-positive value means the buffer size
+     */
+    public void setCopyThreshold(final int copyThreshold) {
+        this.copyThreshold = copyThreshold > 0 ? copyThreshold : size;
     }
 
     private void flushBuffer() throws IOException {
-        if (count > 0) {
+        if (!segments.isEmpty()) {
+            addBufferSegment();
+            writes++;
+            gatheringOut.write(segments.toArray(new ByteBuffer[segments.size()]));
+            segments.clear();
+            segmentStart = 0;
+            count = 0;
+        } else if (count > 0) {
+            writes++;
             out.write(buf, 0, count);
             count = 0;
         }
     }
 
+    private void addBufferSegment() {
+        if (count > segmentStart) {
+            segments.add(ByteBuffer.wrap(buf, segmentStart, count - segmentStart));
+        }
+        segmentStart = count;
+    }
+
+    /**
+     * Writes the buffer out if it refers to byte arrays passed to <code>write</code>,
+     * so the caller may reuse them.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flushReferences() throws IOException {
+        if (!segments.isEmpty()) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Remembers the buffer state at the start of a command.
+     */
+    public void markCommand() {
+        markCount = count;
+        markSegments = segments.size();
+        markSegmentStart = segmentStart;
+        markWrites = writes;
+    }
+
+    /**
+     * Drops the data written since <code>markCommand</code>.
+     *
+     * @return false if a part of the data has already been written out, so the command can not be dropped
+     */
+    public boolean resetCommand() {
+        if (markWrites != writes) {
+            return false;
+        }
+        count = markCount;
+        while (segments.size() > markSegments) {
+            segments.remove(segments.size() - 1);
+        }
+        segmentStart = markSegmentStart;
+        return true;
+    }
+
     public void write(final byte b) throws IOException {
+        ensureBuffer();
         buf[count++] = b;
         if (count == buf.length) {
             flushBuffer();
@@ -58,21 +204,63 @@ public final class RedisOutputStream extends FilterOutputStream {
     	write(b, 0, b.length);
     }
 
-    public void write(final byte b[], final int off, final int len) throws IOException {
-        if (len >= buf.length) {
-            flushBuffer();
-            out.write(b, off, len);
+    public void write(final byte b[], int off, int len) throws IOException {
+        ensureBuffer();
+        if (len >= copyThreshold) {
+            if (gatheringOut != null) {
+                addBufferSegment();
+                segments.add(ByteBuffer.wrap(b, off, len));
+            } else {
+                flushBuffer();
+                writes++;
+                out.write(b, off, len);
+            }
         } else {
-            if (len >= buf.length - count) {
+            if (len >= buf.length - count && len < buf.length) {
+                // keep small arrays in one piece
                 flushBuffer();
             }
 
-            System.arraycopy(b, off, buf, count, len);
-            count += len;
+            while (len > 0) {
+                final int length = Math.min(len, buf.length - count);
+                System.arraycopy(b, off, buf, count, length);
+                count += length;
+                off += length;
+                len -= length;
+                if (count == buf.length) {
+                    flushBuffer();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads exactly <code>len</code> bytes from the input stream right into the buffer.
+     *
+     * @param in  source
+     * @param len number of bytes to copy
+     * @throws IOException if an I/O error occurs or the stream ends too early
+     */
+    public void write(final InputStream in, int len) throws IOException {
+        ensureBuffer();
+        while (len > 0) {
+            if (count == buf.length) {
+                flushBuffer();
+            }
+            final int n = in.read(buf, count, Math.min(len, buf.length - count));
+            if (n == -1) {
+                throw new EOFException("Unexpected end of the input stream, " + len + " bytes left");
+            }
+            count += n;
+            len -= n;
+        }
+        if (count == buf.length) {
+            flushBuffer();
         }
     }
 
     public void writeAsciiCrLf(final String in) throws IOException {
+        ensureBuffer();
         final int size = in.length();
 
         for (int i = 0; i != size; ++i) {
@@ -89,6 +277,11 @@ public final class RedisOutputStream extends FilterOutputStream {
         return ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE;
     }
 
+    private static boolean isSurrogatePair(final String str, final int i) {
+        return Character.isHighSurrogate(str.charAt(i)) && i + 1 < str.length()
+                && Character.isLowSurrogate(str.charAt(i + 1));
+    }
+
     public static int utf8Length (final String str) {
         int strLen = str.length(), utfLen = 0;
         for(int i = 0; i != strLen; ++i) {
@@ -98,8 +291,13 @@ public final class RedisOutputStream extends FilterOutputStream {
             } else if (c < 0x800) {
                 utfLen += 2;
             } else if (isSurrogate(c)) {
-                i++;
-                utfLen += 4;
+                if (isSurrogatePair(str, i)) {
+                    i++;
+                    utfLen += 4;
+                } else {
+                    // malformed surrogate is replaced by '?' as String.getBytes() does
+                    utfLen++;
+                }
             } else {
                 utfLen += 3;
             }
@@ -108,6 +306,7 @@ public final class RedisOutputStream extends FilterOutputStream {
     }
 
     public void writeCrLf() throws IOException {
+        ensureBuffer();
         if (2 >= buf.length - count) {
             flushBuffer();
         }
@@ -117,16 +316,24 @@ public final class RedisOutputStream extends FilterOutputStream {
     }
 
     public void writeUtf8CrLf(final String str) throws IOException {
+        ensureBuffer();
         int strLen = str.length();
 
-        int i;
-        for (i = 0; i < strLen; i++) {
-            char c = str.charAt(i);
-            if (!(c < 0x80)) break;
-            buf[count++] = (byte) c;
-            if(count == buf.length) {
+        int i = 0;
+        while (i < strLen) {
+            // ASCII run which fits into the free part of the buffer
+            final int limit = Math.min(strLen, i + buf.length - count);
+            for (; i < limit; i++) {
+                char c = str.charAt(i);
+                if (!(c < 0x80)) break;
+                buf[count++] = (byte) c;
+            }
+            if (count == buf.length) {
                 flushBuffer();
             }
+            if (i < limit) {
+                break;
+            }
         }
 
         for (; i < strLen; i++) {
@@ -143,10 +350,17 @@ public final class RedisOutputStream extends FilterOutputStream {
                 buf[count++] = (byte)(0xc0 | (c >> 6));
                 buf[count++] = (byte)(0x80 | (c & 0x3f));
             } else if (isSurrogate(c)) {
+                if (!isSurrogatePair(str, i)) {
+                    buf[count++] = '?';
+                    if(count == buf.length) {
+                        flushBuffer();
+                    }
+                    continue;
+                }
                 if(4 >= buf.length - count) {
                     flushBuffer();
                 }
-                int uc = Character.toCodePoint(c, str.charAt(i++));
+                int uc = Character.toCodePoint(c, str.charAt(++i));
                 buf[count++] = ((byte)(0xf0 | ((uc >> 18))));
                 buf[count++] = ((byte)(0x80 | ((uc >> 12) & 0x3f)));
                 buf[count++] = ((byte)(0x80 | ((uc >> 6) & 0x3f)));
@@ -202,8 +416,9 @@ public final class RedisOutputStream extends FilterOutputStream {
     };
 
     public void writeIntCrLf(int value) throws IOException {
+        ensureBuffer();
         if (value < 0) {
-            write('-');
+            write((byte) '-');
             value = -value;
         }
 
@@ -239,8 +454,79 @@ public final class RedisOutputStream extends FilterOutputStream {
         writeCrLf();
     }
 
+    /**
+     * @param value the number
+     * @return length of the decimal representation of the number, including the sign
+     */
+    public static int asciiLength(long value) {
+        if (value == Long.MIN_VALUE) {
+            return 20;
+        }
+        int size = 1;
+        if (value < 0) {
+            size++;
+            value = -value;
+        }
+        while (value > 9) {
+            value /= 10;
+            size++;
+        }
+        return size;
+    }
+
+    public void writeLongCrLf(long value) throws IOException {
+        if (value > Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            writeIntCrLf((int) value);
+            return;
+        }
+        if (value == Long.MIN_VALUE) {
+            writeAsciiCrLf(String.valueOf(value));
+            return;
+        }
+        ensureBuffer();
+        if (value < 0) {
+            write((byte) '-');
+            value = -value;
+        }
+        final int size = asciiLength(value);
+        if (size >= buf.length - count) {
+            flushBuffer();
+        }
+        int charPos = count + size;
+        while (value != 0) {
+            buf[--charPos] = digits[(int) (value % 10)];
+            value /= 10;
+        }
+        count += size;
+
+        writeCrLf();
+    }
+
+    /**
+     * Writes the bytes as one bulk argument: <code>$len CRLF bytes CRLF</code>.
+     */
+    public void writeBulk(final byte[] b, final int off, final int len) throws IOException {
+        write(Protocol.DOLLAR_BYTE);
+        writeIntCrLf(len);
+        write(b, off, len);
+        writeCrLf();
+    }
+
     public void flush() throws IOException {
         flushBuffer();
         out.flush();
     }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            count = 0;
+            segments.clear();
+            segmentStart = 0;
+            markWrites = -1;
+            releaseBuffer();
+        }
+    }
 }
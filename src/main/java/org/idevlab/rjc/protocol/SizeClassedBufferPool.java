@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.protocol;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe <code>BufferPool</code> with power of two size classes.
+ * <p/>
+ * A request is served from the smallest class which fits it. Requests above the largest class
+ * are allocated and dropped without pooling. The total size of the kept buffers is limited,
+ * buffers released above the limit are left to the garbage collector.
+ *
+ * @author Evgeny Dolgov
+ */
+public class SizeClassedBufferPool implements BufferPool {
+
+    /**
+     * Pool shared by all connections unless another one is configured: classes from 512 bytes to 1 MB,
+     * up to 32 MB of idle buffers.
+     */
+    public static final SizeClassedBufferPool DEFAULT = new SizeClassedBufferPool(512, 1024 * 1024, 32 * 1024 * 1024);
+
+    private final int minSizeShift;
+    private final int maxSize;
+    private final long maxPooledBytes;
+    private final Queue<byte[]>[] classes;
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param minSize        the smallest size class, rounded up to a power of two
+     * @param maxSize        the largest size class, rounded up to a power of two
+     * @param maxPooledBytes the limit of the total size of idle buffers
+     */
+    @SuppressWarnings("unchecked")
+    public SizeClassedBufferPool(int minSize, int maxSize, long maxPooledBytes) {
+        if (minSize <= 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("Wrong size classes: " + minSize + " - " + maxSize);
+        }
+        this.minSizeShift = shift(minSize);
+        this.maxSize = 1 << shift(maxSize);
+        this.maxPooledBytes = maxPooledBytes;
+        classes = new Queue[shift(maxSize) - minSizeShift + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ConcurrentLinkedQueue<byte[]>();
+        }
+    }
+
+    public byte[] acquire(int size) {
+        acquired.incrementAndGet();
+        if (size > maxSize) {
+            allocated.incrementAndGet();
+            return new byte[size];
+        }
+        final int index = index(size);
+        final byte[] buffer = classes[index].poll();
+        if (buffer != null) {
+            pooledBuffers.decrementAndGet();
+            pooledBytes.addAndGet(-buffer.length);
+            return buffer;
+        }
+        allocated.incrementAndGet();
+        return new byte[1 << (index + minSizeShift)];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        released.incrementAndGet();
+        final int length = buffer.length;
+        // only arrays of a class size are pooled, so acquire never returns a smaller one
+        if (length > maxSize || length < (1 << minSizeShift) || Integer.bitCount(length) != 1) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (pooledBytes.addAndGet(length) > maxPooledBytes) {
+            pooledBytes.addAndGet(-length);
+            dropped.incrementAndGet();
+            return;
+        }
+        pooledBuffers.incrementAndGet();
+        classes[index(length)].offer(buffer);
+    }
+
+    private int index(int size) {
+        return size <= 1 ? 0 : Math.max(shift(size) - minSizeShift, 0);
+    }
+
+    private static int shift(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * @return total size of the idle buffers kept by the pool
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * @return number of the idle buffers kept by the pool
+     */
+    public int getPooledBuffers() {
+        return pooledBuffers.get();
+    }
+
+    /**
+     * @return number of the idle buffers of the size class which serves <code>size</code>
+     */
+    public int getPooledBuffers(int size) {
+        return size > maxSize ? 0 : classes[index(size)].size();
+    }
+
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /**
+     * @return number of the acquisitions which allocated a new array
+     */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+
+    public long getReleasedCount() {
+        return released.get();
+    }
+
+    /**
+     * @return number of the released buffers which were left to the garbage collector
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return approximate number of the acquired buffers which have not been released yet
+     */
+    public long getBorrowedCount() {
+        return acquired.get() - released.get();
+    }
+
+    /**
+     * Drops all idle buffers.
+     */
+    public void clear() {
+        for (Queue<byte[]> queue : classes) {
+            byte[] buffer;
+            while ((buffer = queue.poll()) != null) {
+                pooledBuffers.decrementAndGet();
+                pooledBytes.addAndGet(-buffer.length);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SizeClassedBufferPool{pooledBytes=" + getPooledBytes() + ", pooledBuffers=" + getPooledBuffers()
+                + ", acquired=" + getAcquiredCount() + ", allocated=" + getAllocatedCount()
+                + ", released=" + getReleasedCount() + ", dropped=" + getDroppedCount() + "}";
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.protocol;
+
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only multi bulk reply which keeps the bulk values in one byte array and
+ * decodes an element only when it is requested. Decoded elements are cached.
+ * <p/>
+ * Bulk elements are returned as String or as byte[] depending on the reading mode,
+ * integer, status and nested multi bulk elements are decoded while reading as usual.
+ *
+ * @author Evgeny Dolgov
+ */
+public final class SlabMultiBulkReply extends AbstractList<Object> implements RandomAccess {
+    private final byte[] slab;
+    private final int[] offsets;
+    /**
+     * Length of the bulk element in the slab, -1 if the element is not in the slab
+     */
+    private final int[] lengths;
+    private final Object[] values;
+    private final boolean stringsOnly;
+
+    SlabMultiBulkReply(byte[] slab, int[] offsets, int[] lengths, Object[] values, boolean stringsOnly) {
+        this.slab = slab;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.values = values;
+        this.stringsOnly = stringsOnly;
+    }
+
+    @Override
+    public Object get(int index) {
+        Object value = values[index];
+        if (value == null && lengths[index] != -1) {
+            value = stringsOnly ? getString(index) : getBytes(index);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Decodes the bulk element to String regardless of the reading mode. The result is not cached.
+     *
+     * @param index element index
+     * @return string value, null for nil element
+     * @throws IllegalStateException if the element is not a bulk value
+     */
+    public String getString(int index) {
+        if (lengths[index] == -1) {
+            checkNil(index);
+            return null;
+        }
+        return SafeEncoder.encode(slab, offsets[index], lengths[index]);
+    }
+
+    /**
+     * Copies the bulk element regardless of the reading mode. The result is not cached.
+     *
+     * @param index element index
+     * @return bytes of the value, null for nil element
+     * @throws IllegalStateException if the element is not a bulk value
+     */
+    public byte[] getBytes(int index) {
+        if (lengths[index] == -1) {
+            checkNil(index);
+            return null;
+        }
+        byte[] bytes = new byte[lengths[index]];
+        System.arraycopy(slab, offsets[index], bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private void checkNil(int index) {
+        if (values[index] != null) {
+            throw new IllegalStateException("Element " + index + " is not a bulk value: " + values[index]);
+        }
+    }
+
+    /**
+     * @param index element index
+     * @return length of the bulk element in bytes, -1 for nil or not bulk element
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.sharding;
+
+import org.idevlab.rjc.AsyncRedisOperations;
+import org.idevlab.rjc.ElementScore;
+import org.idevlab.rjc.RedisFuture;
+import org.idevlab.rjc.codec.Codec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <code>AsyncRedisOperations</code> routed to the node of the key, so commands to different shards
+ * are in flight at the same time.
+ *
+ * @author Evgeny Dolgov
+ */
+public class AsyncShardedRedis implements AsyncRedisOperations {
+
+    private NodeLocator<? extends AsyncRedisOperations> locator;
+
+    public AsyncShardedRedis() {
+    }
+
+    public AsyncShardedRedis(NodeLocator<? extends AsyncRedisOperations> locator) {
+        this.locator = locator;
+    }
+
+    public void setLocator(NodeLocator<? extends AsyncRedisOperations> locator) {
+        this.locator = locator;
+    }
+
+    private AsyncRedisOperations getNode(String key) {
+        return locator.getNode(key);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the keys are on different nodes
+     */
+    private AsyncRedisOperations getNode(String... keys) {
+        final AsyncRedisOperations node = locator.getNode(keys[0]);
+        for (int i = 1; i < keys.length; i++) {
+            if (locator.getNode(keys[i]) != node) {
+                throw new IllegalArgumentException("Keys " + keys[0] + " and " + keys[i] + " are on different nodes");
+            }
+        }
+        return node;
+    }
+
+    public RedisFuture<String> set(final String key, final String value) {
+        return getNode(key).set(key, value);
+    }
+
+    public <T> RedisFuture<String> set(final String key, final T value, final Codec<T> codec) {
+        return getNode(key).set(key, value, codec);
+    }
+
+    public RedisFuture<String> setex(final String key, final int seconds, final String value) {
+        return getNode(key).setex(key, seconds, value);
+    }
+
+    public RedisFuture<String> get(final String key) {
+        return getNode(key).get(key);
+    }
+
+    public <T> RedisFuture<T> get(final String key, final Codec<T> codec) {
+        return getNode(key).get(key, codec);
+    }
+
+    public RedisFuture<String> getSet(final String key, final String value) {
+        return getNode(key).getSet(key, value);
+    }
+
+    public RedisFuture<Boolean> setnx(final String key, final String value) {
+        return getNode(key).setnx(key, value);
+    }
+
+    public RedisFuture<Boolean> exists(final String key) {
+        return getNode(key).exists(key);
+    }
+
+    public RedisFuture<Long> del(final String... keys) {
+        return getNode(keys).del(keys);
+    }
+
+    public RedisFuture<Boolean> expire(final String key, final int seconds) {
+        return getNode(key).expire(key, seconds);
+    }
+
+    public RedisFuture<Long> ttl(final String key) {
+        return getNode(key).ttl(key);
+    }
+
+    public RedisFuture<Long> incr(final String key) {
+        return getNode(key).incr(key);
+    }
+
+    public RedisFuture<Long> incrBy(final String key, final int value) {
+        return getNode(key).incrBy(key, value);
+    }
+
+    public RedisFuture<Long> decr(final String key) {
+        return getNode(key).decr(key);
+    }
+
+    public RedisFuture<Long> decrBy(final String key, final int value) {
+        return getNode(key).decrBy(key, value);
+    }
+
+    public RedisFuture<Boolean> hset(final String key, final String field, final String value) {
+        return getNode(key).hset(key, field, value);
+    }
+
+    public RedisFuture<String> hget(final String key, final String field) {
+        return getNode(key).hget(key, field);
+    }
+
+    public RedisFuture<Boolean> hdel(final String key, final String field) {
+        return getNode(key).hdel(key, field);
+    }
+
+    public RedisFuture<Boolean> hexists(final String key, final String field) {
+        return getNode(key).hexists(key, field);
+    }
+
+    public RedisFuture<Long> hincrBy(final String key, final String field, final int value) {
+        return getNode(key).hincrBy(key, field, value);
+    }
+
+    public RedisFuture<Map<String, String>> hgetAll(final String key) {
+        return getNode(key).hgetAll(key);
+    }
+
+    public RedisFuture<Long> rpush(final String key, final String value) {
+        return getNode(key).rpush(key, value);
+    }
+
+    public RedisFuture<Long> lpush(final String key, final String value) {
+        return getNode(key).lpush(key, value);
+    }
+
+    public RedisFuture<Long> llen(final String key) {
+        return getNode(key).llen(key);
+    }
+
+    public RedisFuture<List<String>> lrange(final String key, final int start, final int end) {
+        return getNode(key).lrange(key, start, end);
+    }
+
+    public RedisFuture<String> lpop(final String key) {
+        return getNode(key).lpop(key);
+    }
+
+    public RedisFuture<String> rpop(final String key) {
+        return getNode(key).rpop(key);
+    }
+
+    public RedisFuture<Boolean> sadd(final String key, final String member) {
+        return getNode(key).sadd(key, member);
+    }
+
+    public RedisFuture<Boolean> srem(final String key, final String member) {
+        return getNode(key).srem(key, member);
+    }
+
+    public RedisFuture<Set<String>> smembers(final String key) {
+        return getNode(key).smembers(key);
+    }
+
+    public RedisFuture<Boolean> sismember(final String key, final String member) {
+        return getNode(key).sismember(key, member);
+    }
+
+    public RedisFuture<Long> scard(final String key) {
+        return getNode(key).scard(key);
+    }
+
+    public RedisFuture<Boolean> zadd(final String key, final double score, final String member) {
+        return getNode(key).zadd(key, score, member);
+    }
+
+    public RedisFuture<Boolean> zrem(final String key, final String member) {
+        return getNode(key).zrem(key, member);
+    }
+
+    public RedisFuture<Double> zincrby(final String key, final double score, final String member) {
+        return getNode(key).zincrby(key, score, member);
+    }
+
+    public RedisFuture<Double> zscore(final String key, final String member) {
+        return getNode(key).zscore(key, member);
+    }
+
+    public RedisFuture<Long> zcard(final String key) {
+        return getNode(key).zcard(key);
+    }
+
+    public RedisFuture<List<String>> zrange(final String key, final int start, final int end) {
+        return getNode(key).zrange(key, start, end);
+    }
+
+    public RedisFuture<List<ElementScore>> zrangeWithScores(final String key, final int start, final int end) {
+        return getNode(key).zrangeWithScores(key, start, end);
+    }
+
+    public RedisFuture<Long> publish(final String channel, final String message) {
+        return getNode(channel).publish(channel, message);
+    }
+}
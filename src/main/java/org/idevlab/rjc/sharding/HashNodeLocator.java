@@ -18,12 +18,13 @@ package org.idevlab.rjc.sharding;
 
 import org.idevlab.rjc.RedisException;
 import org.idevlab.rjc.util.HashAlgorithm;
+import org.idevlab.rjc.util.SafeEncoder;
 
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class HashNodeLocator<T> implements NodeLocator<T> {
+public class HashNodeLocator<T> implements BinaryNodeLocator<T> {
 
     private TreeMap<Long, Shard<T>> shardedNodes;
     private Collection<? extends Shard<T>> shards;
@@ -123,7 +124,52 @@ public class HashNodeLocator<T> implements NodeLocator<T> {
 
     public T getNode(String key) {
         key = getKeyTag(key);
-        SortedMap<Long, Shard<T>> tail = shardedNodes.tailMap(algorithm.hash(key));
+        return getNode(algorithm.hash(key));
+    }
+
+    public T getNode(byte[] key) {
+        if (tagPattern == null) {
+            return getNode(algorithm.hash(key));
+        }
+        if (tagPattern == DEFAULT_KEY_TAG_PATTERN) {
+            final byte[] tag = getDefaultKeyTag(key);
+            if (tag != null) {
+                return getNode(algorithm.hash(tag));
+            }
+        }
+        // other patterns work with chars
+        return getNode(SafeEncoder.encode(key));
+    }
+
+    /**
+     * Matches <code>DEFAULT_KEY_TAG_PATTERN</code> on the bytes of the key. The tag is the UTF-8 form
+     * of the tag of the String key unless there is a line terminator, which the pattern does not match.
+     *
+     * @return the tag, the key if it has no tag, null if the key must be decoded
+     */
+    private static byte[] getDefaultKeyTag(byte[] key) {
+        int open = -1;
+        for (int i = 0; i < key.length; i++) {
+            final byte b = key[i];
+            if (b == '\n' || b == '\r' || b == (byte) 0xC2 || b == (byte) 0xE2) {
+                // CR, LF and the leading bytes of U+0085, U+2028 and U+2029
+                return null;
+            }
+            if (open < 0) {
+                if (b == '{') {
+                    open = i;
+                }
+            } else if (b == '}' && i > open + 1) {
+                final byte[] tag = new byte[i - open - 1];
+                System.arraycopy(key, open + 1, tag, 0, tag.length);
+                return tag;
+            }
+        }
+        return key;
+    }
+
+    private T getNode(long hash) {
+        SortedMap<Long, Shard<T>> tail = shardedNodes.tailMap(hash);
         if (tail.size() == 0) {
             return shardedNodes.get(shardedNodes.firstKey()).getNode();
         }
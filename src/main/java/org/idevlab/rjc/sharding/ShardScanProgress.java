@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.sharding;
+
+import org.idevlab.rjc.RedisOperations;
+import org.idevlab.rjc.ScanResult;
+
+/**
+ * Progress of one shard of a <code>ShardedScan</code>. Updated by the scanning thread, safe to read from any thread.
+ *
+ * @author Evgeny Dolgov
+ */
+public class ShardScanProgress {
+    private final int index;
+    private final RedisOperations node;
+    private volatile String cursor = ScanResult.START;
+    private volatile long pages;
+    private volatile long keys;
+    private volatile boolean done;
+    private volatile RuntimeException error;
+
+    ShardScanProgress(int index, RedisOperations node) {
+        this.index = index;
+        this.node = node;
+    }
+
+    void page(String cursor, int keys) {
+        this.cursor = cursor;
+        this.pages++;
+        this.keys += keys;
+    }
+
+    void done() {
+        done = true;
+    }
+
+    void fail(RuntimeException error) {
+        this.error = error;
+        this.done = true;
+    }
+
+    /**
+     * @return position of the node in <code>NodeLocator.getNodes()</code>
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public RedisOperations getNode() {
+        return node;
+    }
+
+    /**
+     * @return cursor of the next page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public long getPages() {
+        return pages;
+    }
+
+    /**
+     * @return number of the keys received from the node, some of them may still be in the queue
+     */
+    public long getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return true if the node is scanned completely or failed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return failure of the scan of the node, null if there is no failure
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardScanProgress{index=" + index + ", cursor=" + cursor + ", pages=" + pages + ", keys=" + keys
+                + ", done=" + done + (error != null ? ", error=" + error : "") + "}";
+    }
+}
@@ -17,12 +17,21 @@
 package org.idevlab.rjc.sharding;
 
 import org.idevlab.rjc.*;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.util.SafeEncoder;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
-public class ShardedRedis implements RedisOperations {
+public class ShardedRedis implements RedisOperations, BinaryRedisOperations {
 
     private NodeLocator<? extends RedisOperations> locator;
+    private Executor executor;
+    private int scanQueueCapacity = 1000;
+    private long scanIdleTimeoutMillis = 60000;
 
     public ShardedRedis() {
     }
@@ -31,18 +40,96 @@ public class ShardedRedis implements RedisOperations {
         this.locator = locator;
     }
 
+    public NodeLocator<? extends RedisOperations> getLocator() {
+        return locator;
+    }
+
     public void setLocator(NodeLocator<? extends RedisOperations> locator) {
         this.locator = locator;
     }
 
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Executor of the per shard tasks of <code>scan</code> and <code>keys</code>.
+     * If it is not set <code>scan</code> starts a thread per shard and <code>keys</code> queries the shards one by one.
+     *
+     * @param executor executor with at least as many threads as shards for a full parallelism
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getScanQueueCapacity() {
+        return scanQueueCapacity;
+    }
+
+    /**
+     * @param scanQueueCapacity number of the keys buffered by <code>scan</code> ahead of the consumer, 1000 by default
+     */
+    public void setScanQueueCapacity(int scanQueueCapacity) {
+        if (scanQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Scan queue capacity <= 0");
+        }
+        this.scanQueueCapacity = scanQueueCapacity;
+    }
+
+    public long getScanIdleTimeoutMillis() {
+        return scanIdleTimeoutMillis;
+    }
+
+    /**
+     * @param scanIdleTimeoutMillis time a <code>scan</code> waits for its consumer before it cancels itself,
+     *                              60 seconds by default, 0 to wait forever
+     */
+    public void setScanIdleTimeoutMillis(long scanIdleTimeoutMillis) {
+        this.scanIdleTimeoutMillis = scanIdleTimeoutMillis;
+    }
+
+    /**
+     * Scans the keys of all shards in parallel, see {@link ShardedScan}.
+     * <p/>
+     * <b>The scan must be iterated to the end or cancelled.</b> Leaving the loop with <code>break</code>,
+     * <code>return</code> or an exception abandons the scan: its tasks block a thread per shard, of the executor
+     * or their own, until the scan idle timeout expires. Call <code>cancel()</code> in a finally block:
+     * <pre>
+     * ShardedScan scan = redis.scan(params);
+     * try {
+     *     while (scan.hasNext()) {
+     *         ...
+     *     }
+     * } finally {
+     *     scan.cancel();
+     * }
+     * </pre>
+     *
+     * @param params options of SCAN, may be null
+     * @return started scan
+     */
+    public ShardedScan scan(ScanParams params) {
+        final ShardedScan scan = new ShardedScan(locator.getNodes(), params, scanQueueCapacity, scanIdleTimeoutMillis);
+        scan.start(executor);
+        return scan;
+    }
+
     public String set(final String key, final String value) {
         return locator.getNode(key).set(key, value);
     }
 
+    public <T> String set(final String key, final T value, final Codec<T> codec) {
+        return locator.getNode(key).set(key, value, codec);
+    }
+
     public String get(final String key) {
         return locator.getNode(key).get(key);
     }
 
+    public <T> T get(final String key, final Codec<T> codec) {
+        return locator.getNode(key).get(key, codec);
+    }
+
     public Boolean exists(final String key) {
         return locator.getNode(key).exists(key);
     }
@@ -75,6 +162,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).getSet(key, value);
     }
 
+    public <T> T getSet(final String key, final T value, final Codec<T> codec) {
+        return locator.getNode(key).getSet(key, value, codec);
+    }
+
     public Boolean setnx(final String key, final String value) {
         return locator.getNode(key).setnx(key, value);
     }
@@ -83,22 +174,42 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).setex(key, seconds, value);
     }
 
+    public <T> String setex(final String key, final int seconds, final T value, final Codec<T> codec) {
+        return locator.getNode(key).setex(key, seconds, value, codec);
+    }
+
     public Long decrBy(final String key, int value) {
         return locator.getNode(key).decrBy(key, value);
     }
 
+    public long decrByAsLong(final String key, final int value) {
+        return locator.getNode(key).decrByAsLong(key, value);
+    }
+
     public Long decr(final String key) {
         return locator.getNode(key).decr(key);
     }
 
+    public long decrAsLong(final String key) {
+        return locator.getNode(key).decrAsLong(key);
+    }
+
     public Long incrBy(final String key, int value) {
         return locator.getNode(key).incrBy(key, value);
     }
 
+    public long incrByAsLong(final String key, final int value) {
+        return locator.getNode(key).incrByAsLong(key, value);
+    }
+
     public Long incr(final String key) {
         return locator.getNode(key).incr(key);
     }
 
+    public long incrAsLong(final String key) {
+        return locator.getNode(key).incrAsLong(key);
+    }
+
     public Long append(final String key, String value) {
         return locator.getNode(key).append(key, value);
     }
@@ -115,10 +226,36 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).strlen(key);
     }
 
-    public Set<String> keys(String pattern) {
+    public Set<String> keys(final String pattern) {
         Set<String> result = new HashSet<String>();
-        for (RedisOperations node : locator.getNodes()) {
-            result.addAll(node.keys(pattern));
+        if (executor == null) {
+            for (RedisOperations node : locator.getNodes()) {
+                result.addAll(node.keys(pattern));
+            }
+            return result;
+        }
+        final List<FutureTask<Set<String>>> tasks = new ArrayList<FutureTask<Set<String>>>();
+        for (final RedisOperations node : locator.getNodes()) {
+            final FutureTask<Set<String>> task = new FutureTask<Set<String>>(new Callable<Set<String>>() {
+                public Set<String> call() {
+                    return node.keys(pattern);
+                }
+            });
+            executor.execute(task);
+            tasks.add(task);
+        }
+        for (FutureTask<Set<String>> task : tasks) {
+            try {
+                result.addAll(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RedisException(e.getMessage(), e.getCause());
+            }
         }
         return result;
     }
@@ -131,10 +268,18 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).hset(key, field, value);
     }
 
+    public <T> Boolean hset(final String key, final String field, final T value, final Codec<T> codec) {
+        return locator.getNode(key).hset(key, field, value, codec);
+    }
+
     public String hget(final String key, String field) {
         return locator.getNode(key).hget(key, field);
     }
 
+    public <T> T hget(final String key, final String field, final Codec<T> codec) {
+        return locator.getNode(key).hget(key, field, codec);
+    }
+
     public Boolean hsetnx(final String key, String field, String value) {
         return locator.getNode(key).hsetnx(key, field, value);
     }
@@ -151,6 +296,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).hincrBy(key, field, value);
     }
 
+    public long hincrByAsLong(final String key, final String field, final int value) {
+        return locator.getNode(key).hincrByAsLong(key, field, value);
+    }
+
     public Boolean hexists(final String key, String field) {
         return locator.getNode(key).hexists(key, field);
     }
@@ -179,6 +328,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).rpush(key, value);
     }
 
+    public <T> Long rpush(final String key, final T value, final Codec<T> codec) {
+        return locator.getNode(key).rpush(key, value, codec);
+    }
+
     public Long rpushx(String key, String value) {
         return locator.getNode(key).rpushx(key, value);
     }
@@ -187,6 +340,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).lpush(key, value);
     }
 
+    public <T> Long lpush(final String key, final T value, final Codec<T> codec) {
+        return locator.getNode(key).lpush(key, value, codec);
+    }
+
     public Long lpushx(String key, String value) {
         return locator.getNode(key).lpushx(key, value);
     }
@@ -199,6 +356,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).lrange(key, start, end);
     }
 
+    public <T> List<T> lrange(final String key, final int start, final int end, final Codec<T> codec) {
+        return locator.getNode(key).lrange(key, start, end, codec);
+    }
+
     public String ltrim(final String key, int start, int end) {
         return locator.getNode(key).ltrim(key, start, end);
     }
@@ -207,6 +368,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).lindex(key, index);
     }
 
+    public <T> T lindex(final String key, final int index, final Codec<T> codec) {
+        return locator.getNode(key).lindex(key, index, codec);
+    }
+
     public String lset(final String key, int index, String value) {
         return locator.getNode(key).lset(key, index, value);
     }
@@ -219,10 +384,18 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).lpop(key);
     }
 
+    public <T> T lpop(final String key, final Codec<T> codec) {
+        return locator.getNode(key).lpop(key, codec);
+    }
+
     public String rpop(final String key) {
         return locator.getNode(key).rpop(key);
     }
 
+    public <T> T rpop(final String key, final Codec<T> codec) {
+        return locator.getNode(key).rpop(key, codec);
+    }
+
     public Boolean sadd(final String key, String member) {
         return locator.getNode(key).sadd(key, member);
     }
@@ -275,6 +448,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).zincrby(key, score, member);
     }
 
+    public double zincrbyAsDouble(final String key, final double score, final String member) {
+        return locator.getNode(key).zincrbyAsDouble(key, score, member);
+    }
+
     public Long zrank(final String key, String member) {
 
         return locator.getNode(key).zrank(key, member);
@@ -295,11 +472,19 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).zrangeWithScores(key, start, end);
     }
 
+    public List<ElementScore> zrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return locator.getNode(key).zrangeWithScoresAsDouble(key, start, end);
+    }
+
     public List<ElementScore> zrevrangeWithScores(final String key, int start, int end) {
 
         return locator.getNode(key).zrevrangeWithScores(key, start, end);
     }
 
+    public List<ElementScore> zrevrangeWithScoresAsDouble(final String key, final int start, final int end) {
+        return locator.getNode(key).zrevrangeWithScoresAsDouble(key, start, end);
+    }
+
     public List<String> zrevrangeByScore(String key, String max, String min) {
         return locator.getNode(key).zrevrangeByScore(key, max, min);
     }
@@ -326,6 +511,10 @@ public class ShardedRedis implements RedisOperations {
         return locator.getNode(key).zscore(key, member);
     }
 
+    public double zscoreAsDouble(final String key, final String member) {
+        return locator.getNode(key).zscoreAsDouble(key, member);
+    }
+
     public List<String> sort(final String key) {
 
         return locator.getNode(key).sort(key);
@@ -384,4 +573,336 @@ public class ShardedRedis implements RedisOperations {
     public Long setBit(String key, int offset, String value) {
         return locator.getNode(key).setBit(key, offset, value);
     }
-}
\ No newline at end of file
+    public String set(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).set(key, value);
+    }
+
+    public byte[] get(final byte[] key) {
+        return getBinaryNode(key).get(key);
+    }
+
+    public Boolean exists(final byte[] key) {
+        return getBinaryNode(key).exists(key);
+    }
+
+    public Long del(final byte[]... keys) {
+        long result = 0;
+        for (RedisOperations node : locator.getNodes()) {
+            result += toBinary(node).del(keys);
+        }
+        return result;
+    }
+
+    public String type(final byte[] key) {
+        return getBinaryNode(key).type(key);
+    }
+
+    public Boolean expire(final byte[] key, final int seconds) {
+        return getBinaryNode(key).expire(key, seconds);
+    }
+
+    public Boolean expireAt(final byte[] key, final long unixTime) {
+        return getBinaryNode(key).expireAt(key, unixTime);
+    }
+
+    public Long ttl(final byte[] key) {
+        return getBinaryNode(key).ttl(key);
+    }
+
+    public byte[] getSet(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).getSet(key, value);
+    }
+
+    public Boolean setnx(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).setnx(key, value);
+    }
+
+    public String setex(final byte[] key, final int seconds, final byte[] value) {
+        return getBinaryNode(key).setex(key, seconds, value);
+    }
+
+    public Long decrBy(final byte[] key, final int value) {
+        return getBinaryNode(key).decrBy(key, value);
+    }
+
+    public Long decr(final byte[] key) {
+        return getBinaryNode(key).decr(key);
+    }
+
+    public Long incrBy(final byte[] key, final int value) {
+        return getBinaryNode(key).incrBy(key, value);
+    }
+
+    public Long incr(final byte[] key) {
+        return getBinaryNode(key).incr(key);
+    }
+
+    public Long append(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).append(key, value);
+    }
+
+    public byte[] getRange(final byte[] key, final int start, final int end) {
+        return getBinaryNode(key).getRange(key, start, end);
+    }
+
+    public Long setRange(final byte[] key, final int offset, final byte[] value) {
+        return getBinaryNode(key).setRange(key, offset, value);
+    }
+
+    public Long strlen(final byte[] key) {
+        return getBinaryNode(key).strlen(key);
+    }
+
+    public List<byte[]> keys(final byte[] pattern) {
+        List<byte[]> result = new ArrayList<byte[]>();
+        for (RedisOperations node : locator.getNodes()) {
+            result.addAll(toBinary(node).keys(pattern));
+        }
+        return result;
+    }
+
+    public Boolean persist(final byte[] key) {
+        return getBinaryNode(key).persist(key);
+    }
+
+    public Boolean hset(final byte[] key, final byte[] field, final byte[] value) {
+        return getBinaryNode(key).hset(key, field, value);
+    }
+
+    public byte[] hget(final byte[] key, final byte[] field) {
+        return getBinaryNode(key).hget(key, field);
+    }
+
+    public Boolean hsetnx(final byte[] key, final byte[] field, final byte[] value) {
+        return getBinaryNode(key).hsetnx(key, field, value);
+    }
+
+    public String hmset(final byte[] key, final Map<byte[], byte[]> hash) {
+        return getBinaryNode(key).hmset(key, hash);
+    }
+
+    public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
+        return getBinaryNode(key).hmget(key, fields);
+    }
+
+    public Long hincrBy(final byte[] key, final byte[] field, final int value) {
+        return getBinaryNode(key).hincrBy(key, field, value);
+    }
+
+    public Boolean hexists(final byte[] key, final byte[] field) {
+        return getBinaryNode(key).hexists(key, field);
+    }
+
+    public Boolean hdel(final byte[] key, final byte[] field) {
+        return getBinaryNode(key).hdel(key, field);
+    }
+
+    public Long hlen(final byte[] key) {
+        return getBinaryNode(key).hlen(key);
+    }
+
+    public List<byte[]> hkeys(final byte[] key) {
+        return getBinaryNode(key).hkeys(key);
+    }
+
+    public List<byte[]> hvals(final byte[] key) {
+        return getBinaryNode(key).hvals(key);
+    }
+
+    public Map<byte[], byte[]> hgetAll(final byte[] key) {
+        return getBinaryNode(key).hgetAll(key);
+    }
+
+    public Long rpush(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).rpush(key, value);
+    }
+
+    public Long rpushx(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).rpushx(key, value);
+    }
+
+    public Long lpush(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).lpush(key, value);
+    }
+
+    public Long lpushx(final byte[] key, final byte[] value) {
+        return getBinaryNode(key).lpushx(key, value);
+    }
+
+    public Long llen(final byte[] key) {
+        return getBinaryNode(key).llen(key);
+    }
+
+    public List<byte[]> lrange(final byte[] key, final int start, final int end) {
+        return getBinaryNode(key).lrange(key, start, end);
+    }
+
+    public String ltrim(final byte[] key, final int start, final int end) {
+        return getBinaryNode(key).ltrim(key, start, end);
+    }
+
+    public byte[] lindex(final byte[] key, final int index) {
+        return getBinaryNode(key).lindex(key, index);
+    }
+
+    public String lset(final byte[] key, final int index, final byte[] value) {
+        return getBinaryNode(key).lset(key, index, value);
+    }
+
+    public Long lrem(final byte[] key, final int count, final byte[] value) {
+        return getBinaryNode(key).lrem(key, count, value);
+    }
+
+    public byte[] lpop(final byte[] key) {
+        return getBinaryNode(key).lpop(key);
+    }
+
+    public byte[] rpop(final byte[] key) {
+        return getBinaryNode(key).rpop(key);
+    }
+
+    public Boolean sadd(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).sadd(key, member);
+    }
+
+    public List<byte[]> smembers(final byte[] key) {
+        return getBinaryNode(key).smembers(key);
+    }
+
+    public Boolean srem(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).srem(key, member);
+    }
+
+    public byte[] spop(final byte[] key) {
+        return getBinaryNode(key).spop(key);
+    }
+
+    public Long scard(final byte[] key) {
+        return getBinaryNode(key).scard(key);
+    }
+
+    public Boolean sismember(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).sismember(key, member);
+    }
+
+    public byte[] srandmember(final byte[] key) {
+        return getBinaryNode(key).srandmember(key);
+    }
+
+    public Boolean zadd(final byte[] key, final Number score, final byte[] member) {
+        return getBinaryNode(key).zadd(key, score, member);
+    }
+
+    public List<byte[]> zrange(final byte[] key, final int start, final int end) {
+        return getBinaryNode(key).zrange(key, start, end);
+    }
+
+    public Boolean zrem(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).zrem(key, member);
+    }
+
+    public double zincrby(final byte[] key, final Number score, final byte[] member) {
+        return getBinaryNode(key).zincrby(key, score, member);
+    }
+
+    public Long zrank(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).zrank(key, member);
+    }
+
+    public Long zrevrank(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).zrevrank(key, member);
+    }
+
+    public List<byte[]> zrevrange(final byte[] key, final int start, final int end) {
+        return getBinaryNode(key).zrevrange(key, start, end);
+    }
+
+    public List<byte[]> zrevrangeByScore(final byte[] key, final String max, final String min) {
+        return getBinaryNode(key).zrevrangeByScore(key, max, min);
+    }
+
+    public List<byte[]> zrevrangeByScore(final byte[] key, final String max, final String min, final int offset, final int count) {
+        return getBinaryNode(key).zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    public Long zcard(final byte[] key) {
+        return getBinaryNode(key).zcard(key);
+    }
+
+    public double zscore(final byte[] key, final byte[] member) {
+        return getBinaryNode(key).zscore(key, member);
+    }
+
+    public List<byte[]> sort(final byte[] key) {
+        return getBinaryNode(key).sort(key);
+    }
+
+    public List<byte[]> sort(final byte[] key, final SortingParams sortingParameters) {
+        return getBinaryNode(key).sort(key, sortingParameters);
+    }
+
+    public Long zcount(final byte[] key, final Number min, final Number max) {
+        return getBinaryNode(key).zcount(key, min, max);
+    }
+
+    public List<byte[]> zrangeByScore(final byte[] key, final String min, final String max) {
+        return getBinaryNode(key).zrangeByScore(key, min, max);
+    }
+
+    public List<byte[]> zrangeByScore(final byte[] key, final String min, final String max, final int offset, final int count) {
+        return getBinaryNode(key).zrangeByScore(key, min, max, offset, count);
+    }
+
+    public Long zremrangeByRank(final byte[] key, final int start, final int end) {
+        return getBinaryNode(key).zremrangeByRank(key, start, end);
+    }
+
+    public Long zremrangeByScore(final byte[] key, final String min, final String max) {
+        return getBinaryNode(key).zremrangeByScore(key, min, max);
+    }
+
+    public Long linsert(final byte[] key, final ListPosition where, final byte[] pivot, final byte[] value) {
+        return getBinaryNode(key).linsert(key, where, pivot, value);
+    }
+
+    public Long publish(final byte[] channel, final byte[] message) {
+        return getBinaryNode(channel).publish(channel, message);
+    }
+
+    public Long getBit(final byte[] key, final int offset) {
+        return getBinaryNode(key).getBit(key, offset);
+    }
+
+    public Long setBit(final byte[] key, final int offset, final String value) {
+        return getBinaryNode(key).setBit(key, offset, value);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are no keys to select the node or the keys are on different nodes
+     */
+    public Object eval(final RedisScript script, final List<String> keys, final List<String> args) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Script without keys cannot be routed to a node");
+        }
+        final RedisOperations node = locator.getNode(keys.get(0));
+        for (int i = 1; i < keys.size(); i++) {
+            if (locator.getNode(keys.get(i)) != node) {
+                throw new IllegalArgumentException("Keys " + keys.get(0) + " and " + keys.get(i) + " are on different nodes");
+            }
+        }
+        return node.eval(script, keys, args);
+    }
+
+    private BinaryRedisOperations getBinaryNode(byte[] key) {
+        return toBinary(locator instanceof BinaryNodeLocator
+                ? ((BinaryNodeLocator<? extends RedisOperations>) locator).getNode(key)
+                : locator.getNode(SafeEncoder.encode(key)));
+    }
+
+    private static BinaryRedisOperations toBinary(RedisOperations node) {
+        if (!(node instanceof BinaryRedisOperations)) {
+            throw new RedisException("Node " + node + " does not support binary operations");
+        }
+        return (BinaryRedisOperations) node;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.sharding;
+
+import org.idevlab.rjc.*;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyspace scan of all shards at once. Every shard is scanned by its own task with SCAN,
+ * the keys are merged into a bounded queue which is consumed through this iterator,
+ * so the memory used does not depend on the number of keys and a slow consumer stops the scanning.
+ * <p/>
+ * Like SCAN the iterator may return a key more than once. An iteration which is abandoned before
+ * the end, e.g. by a <code>break</code> out of a loop, must be cancelled, otherwise its tasks stay blocked
+ * on the full queue. As a safety net the tasks cancel the scan themselves when the queue is full and
+ * the iterator has not been polled for <code>idleTimeoutMillis</code>, a later <code>hasNext</code>
+ * then throws <code>RedisException</code>.
+ *
+ * @author Evgeny Dolgov
+ */
+public class ShardedScan implements Iterator<String> {
+    private static final long TIMEOUT_MILLIS = 100;
+
+    private final ScanParams params;
+    private final BlockingQueue<Object> queue;
+    private final List<ShardScanProgress> progress;
+    private final long idleTimeoutMillis;
+    private volatile long lastPoll = System.currentTimeMillis();
+    private volatile boolean cancelled;
+    private volatile boolean idle;
+    private int running;
+    private String next;
+
+    /**
+     * @param idleTimeoutMillis time without polling after which the tasks cancel the scan, 0 to wait forever
+     */
+    ShardedScan(Collection<? extends RedisOperations> nodes, ScanParams params, int queueCapacity, long idleTimeoutMillis) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity <= 0");
+        }
+        this.params = params;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<Object>(queueCapacity);
+        final List<ShardScanProgress> list = new ArrayList<ShardScanProgress>(nodes.size());
+        for (RedisOperations node : nodes) {
+            list.add(new ShardScanProgress(list.size(), node));
+        }
+        this.progress = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @param executor executor of the shard tasks, a daemon thread per shard is started if it is null
+     */
+    void start(Executor executor) {
+        for (ShardScanProgress shard : progress) {
+            final Runnable task = new ShardTask(shard);
+            try {
+                if (executor != null) {
+                    executor.execute(task);
+                } else {
+                    final Thread thread = new Thread(task, "rjc-sharded-scan-" + shard.getIndex());
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            } catch (RuntimeException e) {
+                cancel();
+                throw e;
+            }
+            running++;
+        }
+    }
+
+    public boolean hasNext() {
+        while (next == null) {
+            lastPoll = System.currentTimeMillis();
+            if (idle) {
+                throw new RedisException("Scan cancelled after " + idleTimeoutMillis + " ms without polling");
+            }
+            if (running == 0 || cancelled) {
+                return false;
+            }
+            final Object element;
+            try {
+                element = queue.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new RedisException(e.getMessage(), e);
+            }
+            if (element == null) {
+                // an interrupted task cannot put its marker
+                checkErrors();
+            } else if (element instanceof ShardScanProgress) {
+                running--;
+                checkErrors();
+            } else {
+                next = (String) element;
+            }
+        }
+        return true;
+    }
+
+    private void checkErrors() {
+        for (ShardScanProgress shard : progress) {
+            if (shard.getError() != null) {
+                cancel();
+                throw shard.getError();
+            }
+        }
+    }
+
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final String result = next;
+        next = null;
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the scan. Tasks finish after their current page, the keys left in the queue are dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+        next = null;
+        queue.clear();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return progress of every shard in the order of <code>NodeLocator.getNodes()</code>
+     */
+    public List<ShardScanProgress> getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return true if all shards are scanned completely
+     */
+    public boolean isDone() {
+        for (ShardScanProgress shard : progress) {
+            if (!shard.isDone() || shard.getError() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class ShardTask implements Runnable {
+        private final ShardScanProgress shard;
+
+        ShardTask(ShardScanProgress shard) {
+            this.shard = shard;
+        }
+
+        public void run() {
+            try {
+                final RedisOperations node = shard.getNode();
+                if (node instanceof SingleRedisOperations) {
+                    String cursor = ScanResult.START;
+                    do {
+                        final ScanResult<String> page = ((SingleRedisOperations) node).scan(cursor, params);
+                        if (!put(page.getResult())) {
+                            return;
+                        }
+                        cursor = page.getCursor();
+                        shard.page(cursor, page.getResult().size());
+                    } while (!ScanResult.START.equals(cursor));
+                } else {
+                    // nodes without SCAN are read at once
+                    final Set<String> keys = node.keys(params != null && params.getPattern() != null ? params.getPattern() : "*");
+                    if (!put(keys)) {
+                        return;
+                    }
+                    shard.page(ScanResult.START, keys.size());
+                }
+                shard.done();
+            } catch (RuntimeException e) {
+                shard.fail(e);
+            }
+            // marks the end of the shard in the stream
+            put(Collections.<Object>singleton(shard));
+        }
+
+        /**
+         * @return false if the scan is cancelled
+         */
+        private boolean put(Collection<?> elements) {
+            try {
+                for (Object element : elements) {
+                    while (!queue.offer(element, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (cancelled) {
+                            return false;
+                        }
+                        if (idleTimeoutMillis > 0 && System.currentTimeMillis() - lastPoll > idleTimeoutMillis) {
+                            idle = true;
+                            cancel();
+                            return false;
+                        }
+                    }
+                    if (cancelled) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shard.fail(new RedisException(e.getMessage(), e));
+                return false;
+            }
+        }
+    }
+}
@@ -146,6 +146,137 @@ public enum HashAlgorithm {
 		return rv & 0xffffffffL; /* Truncate to 32-bits */
 	}
 
+	/**
+	 * Compute the hash for the given raw key. The result equals the hash of the String key
+	 * whose UTF-8 form are these bytes.
+	 *
+	 * @return a positive integer hash
+	 */
+	public long hash(final byte[] k) {
+		long rv;
+		switch (this) {
+			case CRC32_HASH:
+				CRC32 crc32 = new CRC32();
+				crc32.update(k);
+				rv = (crc32.getValue() >> 16) & 0x7fff;
+				break;
+			case KETAMA_HASH:
+				byte[] bKey = computeMd5(k);
+				rv = ((long) (bKey[3] & 0xFF) << 24)
+						| ((long) (bKey[2] & 0xFF) << 16)
+						| ((long) (bKey[1] & 0xFF) << 8)
+						| (bKey[0] & 0xFF);
+				break;
+			case MURMUR_HASH:
+				rv = MurmurHash.hash64A(k, 0x1234ABCD);
+				break;
+			default:
+				return hashChars(k);
+		}
+		return rv & 0xffffffffL; /* Truncate to 32-bits */
+	}
+
+	/**
+	 * Hashes the chars of the UTF-8 key as they are decoded, without building the String.
+	 */
+	private long hashChars(final byte[] k) {
+		long rv = this == FNV1_64_HASH || this == FNV1A_64_HASH ? FNV_64_INIT : FNV_32_INIT;
+		int h = 0;
+		final Utf8Chars chars = new Utf8Chars(k);
+		int c;
+		while ((c = chars.next()) != Utf8Chars.END) {
+			if (c == Utf8Chars.MALFORMED) {
+				// the replacement of malformed input by the JDK decoder is not reproduced
+				return hash(SafeEncoder.encode(k));
+			}
+			switch (this) {
+				case NATIVE_HASH:
+					h = 31 * h + c;
+					break;
+				case FNV1_64_HASH:
+				case FNV1_32_HASH:
+					rv *= this == FNV1_64_HASH ? FNV_64_PRIME : FNV_32_PRIME;
+					rv ^= c;
+					break;
+				default:
+					rv ^= c;
+					rv *= this == FNV1A_64_HASH ? FNV_64_PRIME : FNV_32_PRIME;
+			}
+		}
+		if (this == NATIVE_HASH) {
+			rv = h;
+		}
+		return rv & 0xffffffffL; /* Truncate to 32-bits */
+	}
+
+	/**
+	 * Strict UTF-8 decoder returning UTF-16 chars one by one.
+	 */
+	private static final class Utf8Chars {
+		static final int END = -1;
+		static final int MALFORMED = -2;
+
+		private final byte[] bytes;
+		private int pos;
+		private int lowSurrogate = -1;
+
+		Utf8Chars(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		int next() {
+			if (lowSurrogate >= 0) {
+				final int c = lowSurrogate;
+				lowSurrogate = -1;
+				return c;
+			}
+			if (pos >= bytes.length) {
+				return END;
+			}
+			final int b = bytes[pos++];
+			if (b >= 0) {
+				return b;
+			}
+			int cp;
+			int n;
+			int min;
+			if ((b & 0xE0) == 0xC0) {
+				cp = b & 0x1F;
+				n = 1;
+				min = 0x80;
+			} else if ((b & 0xF0) == 0xE0) {
+				cp = b & 0x0F;
+				n = 2;
+				min = 0x800;
+			} else if ((b & 0xF8) == 0xF0) {
+				cp = b & 0x07;
+				n = 3;
+				min = 0x10000;
+			} else {
+				return MALFORMED;
+			}
+			if (pos + n > bytes.length) {
+				return MALFORMED;
+			}
+			for (int i = 0; i < n; i++) {
+				final int next = bytes[pos++];
+				if ((next & 0xC0) != 0x80) {
+					return MALFORMED;
+				}
+				cp = (cp << 6) | (next & 0x3F);
+			}
+			if (cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)) {
+				return MALFORMED;
+			}
+			if (cp >= 0x10000) {
+				cp -= 0x10000;
+				lowSurrogate = 0xDC00 | (cp & 0x3FF);
+				return 0xD800 | (cp >>> 10);
+			}
+			return cp;
+		}
+	}
+
 	/**
 	 * Get the md5 of the given key.
 	 */
@@ -160,5 +291,15 @@ public enum HashAlgorithm {
 		md5.update(KeyUtil.getKeyBytes(k));
 		return md5.digest();
 	}
+
+	private static byte[] computeMd5(byte[] k) {
+		MessageDigest md5;
+		try {
+			md5 = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("MD5 not supported", e);
+		}
+		return md5.digest(k);
+	}
 }
 
@@ -42,6 +42,14 @@ public class SafeEncoder {
         }
     }
 
+    public static String encode(final byte[] data, final int offset, final int length) {
+        try {
+            return new String(data, offset, length, Protocol.CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new RedisException(e);
+        }
+    }
+
     public static byte[][] encode(String[] args) {
         final byte[][] bargs = new byte[args.length][];
         for (int i = 0; i < args.length; i++) {
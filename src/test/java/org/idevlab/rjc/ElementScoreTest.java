@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ElementScoreTest {
+
+    @Test
+    public void formatsLikeRedis() {
+        // expected values are the replies of Redis to ZADD of the score and ZRANGE WITHSCORES
+        assertEquals("10", new ElementScore("a", 10d).getScore());
+        assertEquals("-3", new ElementScore("a", -3d).getScore());
+        assertEquals("1.5", new ElementScore("a", 1.5d).getScore());
+        assertEquals("1.1000000000000001", new ElementScore("a", 1.1d).getScore());
+        assertEquals("0.10000000000000001", new ElementScore("a", 0.1d).getScore());
+        assertEquals("-0.25", new ElementScore("a", -0.25d).getScore());
+        assertEquals("3.1415899999999999", new ElementScore("a", 3.14159d).getScore());
+        assertEquals("12345678.9", new ElementScore("a", 12345678.9d).getScore());
+        assertEquals("10000000000000000", new ElementScore("a", 1e16).getScore());
+        assertEquals("1e+17", new ElementScore("a", 1e17).getScore());
+        assertEquals("1.2345678901234567e+20", new ElementScore("a", 1.2345678901234567e20).getScore());
+        assertEquals("0.0001", new ElementScore("a", 1e-4).getScore());
+        assertEquals("1.0000000000000001e-05", new ElementScore("a", 1e-5).getScore());
+        assertEquals("inf", new ElementScore("a", Double.POSITIVE_INFINITY).getScore());
+        assertEquals("-inf", new ElementScore("a", Double.NEGATIVE_INFINITY).getScore());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codecs;
+import org.idevlab.rjc.ds.MultiplexedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITAsyncRedisNodeTest {
+    protected static HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+
+    private MultiplexedDataSource dataSource;
+    private AsyncRedisNode node;
+
+    @Before
+    public void setUp() {
+        dataSource = new MultiplexedDataSource(hnp.host, hnp.port);
+        new RedisNode(dataSource).flushAll();
+        node = new AsyncRedisNode(dataSource);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void futures() throws Exception {
+        RedisFuture<String> set = node.set("foo", "bar");
+        RedisFuture<String> get = node.get("foo");
+        RedisFuture<Long> incr = node.incr("counter");
+        RedisFuture<Boolean> exists = node.exists("nokey");
+        assertEquals("OK", set.get());
+        assertEquals("bar", get.get(1, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(1), incr.get());
+        assertFalse(exists.get());
+        assertTrue(get.isDone());
+    }
+
+    @Test
+    public void collections() throws Exception {
+        node.rpush("list", "a");
+        node.rpush("list", "b");
+        node.hset("hash", "f", "v");
+        node.sadd("set", "m");
+        node.zadd("zset", 1.5, "e");
+        assertEquals(Arrays.asList("a", "b"), node.lrange("list", 0, -1).get());
+        assertEquals("v", node.hgetAll("hash").get().get("f"));
+        assertTrue(node.smembers("set").get().contains("m"));
+        assertEquals(1.5, node.zscore("zset", "e").get(), 0);
+        assertTrue(Double.isNaN(node.zscore("zset", "none").get()));
+        assertEquals(Arrays.asList(new ElementScore("e", 1.5)), node.zrangeWithScores("zset", 0, -1).get());
+    }
+
+    @Test
+    public void codec() throws Exception {
+        node.set("long", 42L, Codecs.LONG);
+        assertEquals(Long.valueOf(42), node.get("long", Codecs.LONG).get());
+    }
+
+    @Test
+    public void errorReply() throws Exception {
+        node.set("foo", "bar");
+        try {
+            node.incr("foo").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RedisException);
+        }
+        assertEquals("bar", node.get("foo").get());
+    }
+
+    @Test
+    public void callbacks() throws Exception {
+        node.set("foo", "bar");
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicReference<Object> value = new AtomicReference<Object>();
+        final AtomicReference<Object> error = new AtomicReference<Object>();
+        node.get("foo").addCallback(new ReplyCallback<String>() {
+            public void onReply(String reply) {
+                value.set(reply);
+                done.countDown();
+            }
+
+            public void onError(RedisException e) {
+                value.set(e);
+                done.countDown();
+            }
+        });
+        node.incr("foo").addCallback(new ReplyCallback<Long>() {
+            public void onReply(Long reply) {
+                error.set(reply);
+                done.countDown();
+            }
+
+            public void onError(RedisException e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals("bar", value.get());
+        assertTrue(error.get() instanceof RedisException);
+
+        // a callback added to a completed future is invoked at once
+        RedisFuture<String> future = node.get("foo");
+        future.get();
+        final AtomicReference<String> late = new AtomicReference<String>();
+        future.addCallback(new ReplyCallback<String>() {
+            public void onReply(String reply) {
+                late.set(reply);
+            }
+
+            public void onError(RedisException e) {
+            }
+        });
+        assertEquals("bar", late.get());
+    }
+
+    @Test
+    public void fanOut() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            node.set("key" + i, "value" + i);
+        }
+        List<RedisFuture<String>> futures = new ArrayList<RedisFuture<String>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(node.get("key" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, futures.get(i).get());
+        }
+    }
+
+    @Test(expected = RedisException.class)
+    public void blockingCommandRejected() {
+        dataSource.getAsyncConnection().send(ReplyConverters.STRING_LIST, org.idevlab.rjc.protocol.RedisCommand.BLPOP, "list", "1");
+    }
+
+    @Test
+    public void closedDataSourceRejectsCommands() throws Exception {
+        RedisFuture<String> future = node.get("foo");
+        future.get();
+        dataSource.close();
+        try {
+            node.get("foo");
+            fail();
+        } catch (RedisException e) {
+            // the data source does not open new sockets
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITBinaryOperationsTest extends SingleNodeTestBase {
+    private static final byte[] KEY = {0, 1, 2, (byte) 0xFF};
+    private static final byte[] VALUE = {(byte) 0xC3, 0x28, 0, 10, 13};
+    private static final byte[] FIELD = {(byte) 0xA0, (byte) 0xA1};
+
+    @Test
+    public void strings() {
+        assertEquals("OK", session.set(KEY, VALUE));
+        assertArrayEquals(VALUE, session.get(KEY));
+        assertTrue(session.exists(KEY));
+        assertEquals("string", session.type(KEY));
+        assertEquals(Long.valueOf(VALUE.length), session.strlen(KEY));
+        assertArrayEquals(new byte[]{0x28, 0}, session.getRange(KEY, 1, 2));
+        assertArrayEquals(VALUE, session.getSet(KEY, FIELD));
+        assertFalse(session.setnx(KEY, VALUE));
+        assertEquals(Long.valueOf(1), session.del(KEY, FIELD));
+        assertNull(session.get(KEY));
+
+        assertEquals(Long.valueOf(5), session.incrBy(KEY, 5));
+        assertEquals(Long.valueOf(4), session.decr(KEY));
+        assertEquals(1, session.keys(KEY).size());
+    }
+
+    @Test
+    public void hashes() {
+        assertTrue(session.hset(KEY, FIELD, VALUE));
+        assertArrayEquals(VALUE, session.hget(KEY, FIELD));
+        assertTrue(session.hexists(KEY, FIELD));
+
+        Map<byte[], byte[]> hash = new LinkedHashMap<byte[], byte[]>();
+        hash.put(VALUE, FIELD);
+        assertEquals("OK", session.hmset(KEY, hash));
+        List<byte[]> values = session.hmget(KEY, FIELD, VALUE, KEY);
+        assertArrayEquals(VALUE, values.get(0));
+        assertArrayEquals(FIELD, values.get(1));
+        assertNull(values.get(2));
+
+        assertEquals(Long.valueOf(2), session.hlen(KEY));
+        assertEquals(2, session.hkeys(KEY).size());
+        Map<byte[], byte[]> all = session.hgetAll(KEY);
+        assertEquals(2, all.size());
+        for (Map.Entry<byte[], byte[]> entry : all.entrySet()) {
+            assertTrue(Arrays.equals(entry.getKey(), FIELD) ? Arrays.equals(entry.getValue(), VALUE)
+                    : Arrays.equals(entry.getValue(), FIELD));
+        }
+    }
+
+    @Test
+    public void listsAndSets() {
+        session.rpush(KEY, VALUE);
+        session.lpush(KEY, FIELD);
+        List<byte[]> range = session.lrange(KEY, 0, -1);
+        assertEquals(2, range.size());
+        assertArrayEquals(FIELD, range.get(0));
+        assertArrayEquals(VALUE, session.lindex(KEY, 1));
+        assertArrayEquals(VALUE, session.rpop(KEY));
+
+        byte[] set = {9, 9};
+        assertTrue(session.sadd(set, VALUE));
+        assertFalse(session.sadd(set, VALUE));
+        assertTrue(session.sismember(set, VALUE));
+        assertArrayEquals(VALUE, session.smembers(set).get(0));
+    }
+
+    @Test
+    public void sortedSets() {
+        assertTrue(session.zadd(KEY, 1.5, VALUE));
+        assertTrue(session.zadd(KEY, 3, FIELD));
+        assertEquals(1.5d, session.zscore(KEY, VALUE), 0);
+        assertTrue(Double.isNaN(session.zscore(KEY, KEY)));
+        assertEquals(4.5d, session.zincrby(KEY, 3, VALUE), 0);
+        assertEquals(Long.valueOf(0), session.zrank(KEY, FIELD));
+        assertArrayEquals(VALUE, session.zrange(KEY, 0, -1).get(1));
+        assertArrayEquals(FIELD, session.zrangeByScore(KEY, "-inf", "(4").get(0));
+        assertEquals(Long.valueOf(2), session.zcount(KEY, 0, 10));
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.ds.PoolableDataSource;
 import org.idevlab.rjc.ds.SimpleDataSource;
 import org.idevlab.rjc.protocol.RedisCommand;
 import org.idevlab.rjc.protocol.RedisKeyword;
@@ -24,8 +25,15 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * @author Evgeny Dolgov
@@ -128,4 +136,105 @@ public class ITBinaryTest {
         Assert.assertEquals("OK", response.get(0));
         Assert.assertArrayEquals(value, (byte[]) response.get(1));
     }
+
+    @Test
+    public void streamedValue() throws IOException {
+        byte[] value = new byte[5 * 1024 * 1024];
+        new Random(1).nextBytes(value);
+        byte[] key = {1, 2, 3};
+
+        Assert.assertEquals("OK", client.getStatusReplyFrom(RedisCommand.SET, new ByteArrayInputStream(value), value.length, key));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(value.length, client.getBulkReplyTo(RedisCommand.GET, out, key));
+        Assert.assertArrayEquals(value, out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        Assert.assertEquals(value.length, client.getBulkReplyTo(RedisCommand.GET, Channels.newChannel(out), key));
+        Assert.assertArrayEquals(value, out.toByteArray());
+
+        Assert.assertEquals(-1, client.getBulkReplyTo(RedisCommand.GET, out, new byte[]{4}));
+    }
+
+    @Test
+    public void streamFailures() throws IOException {
+        PoolableDataSource dataSource = new PoolableDataSource();
+        dataSource.setHost(hnp.host);
+        dataSource.setPort(hnp.port);
+        dataSource.setMaxActive(1);
+        // a broken connection must not depend on the PING of the borrow to be dropped
+        dataSource.setTestOnBorrow(false);
+        byte[] value = new byte[1024 * 1024];
+        new Random(1).nextBytes(value);
+        byte[] key = {1, 2, 3};
+
+        // the stream ends before the value is buffered, so nothing is sent
+        assertStreamFails(dataSource, new ByteArrayInputStream(value, 0, 10), value.length, key);
+        // the stream ends after a part of the value is sent
+        assertStreamFails(dataSource, new ByteArrayInputStream(value, 0, value.length / 2), value.length, key);
+
+        RedisClient pooled = new RedisClientImpl(dataSource.getConnection());
+        Assert.assertEquals("OK", pooled.getStatusReplyFrom(RedisCommand.SET, new ByteArrayInputStream(value), value.length, key));
+        try {
+            pooled.getBulkReplyTo(RedisCommand.GET, new OutputStream() {
+                private int written;
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    written += len;
+                    if (written > 1000) {
+                        throw new IOException("Disk is full");
+                    }
+                }
+            }, key);
+            Assert.fail("RedisException expected");
+        } catch (RedisException e) {
+            // the rest of the value must not be left to the next command
+        }
+        pooled.close();
+
+        pooled = new RedisClientImpl(dataSource.getConnection());
+        Assert.assertEquals("PONG", pooled.getStatusReply(RedisCommand.PING));
+        Assert.assertEquals(value.length, pooled.getBulkReplyTo(RedisCommand.GET, new ByteArrayOutputStream(), key));
+        pooled.close();
+        dataSource.close();
+    }
+
+    private static void assertStreamFails(PoolableDataSource dataSource, InputStream value, int length, byte[] key) {
+        RedisClient pooled = new RedisClientImpl(dataSource.getConnection());
+        try {
+            pooled.getStatusReplyFrom(RedisCommand.SET, value, length, key);
+            Assert.fail("RedisException expected");
+        } catch (RedisException e) {
+            // the partial command must not be followed by the next one
+        }
+        pooled.close();
+
+        pooled = new RedisClientImpl(dataSource.getConnection());
+        Assert.assertEquals("PONG", pooled.getStatusReply(RedisCommand.PING));
+        Assert.assertNull(pooled.getBinaryBulkReply(RedisCommand.GET, key));
+        pooled.close();
+    }
+
+    @Test
+    public void slabMultiBulkReply() {
+        for (int i = 0; i < 100; i++) {
+            client.getIntegerReply(RedisCommand.RPUSH, "list", "value" + i);
+        }
+
+        List<Object> values = client.getSlabMultiBulkReply(RedisCommand.LRANGE, "list", "0", "-1");
+        Assert.assertEquals(100, values.size());
+        Assert.assertEquals("value0", values.get(0));
+        Assert.assertEquals("value99", values.get(99));
+
+        values = client.getBinarySlabMultiBulkReply(RedisCommand.LRANGE, "list".getBytes(), "0".getBytes(), "1".getBytes());
+        Assert.assertArrayEquals("value1".getBytes(), (byte[]) values.get(1));
+
+        Assert.assertEquals(0, client.getSlabMultiBulkReply(RedisCommand.LRANGE, "nolist", "0", "-1").size());
+    }
 }
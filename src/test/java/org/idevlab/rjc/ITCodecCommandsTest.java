@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.codec.Codecs;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+import org.idevlab.rjc.util.SafeEncoder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITCodecCommandsTest extends SingleNodeTestBase {
+
+    private static final Codec<int[]> POINT = new Codec<int[]>() {
+        public void encode(int[] value, RedisOutputStream out) throws IOException {
+            byte[] bytes = SafeEncoder.encode(value[0] + ":" + value[1]);
+            out.writeBulk(bytes, 0, bytes.length);
+        }
+
+        public int[] decode(byte[] buf, int offset, int length) {
+            String[] parts = SafeEncoder.encode(buf, offset, length).split(":");
+            return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        }
+    };
+
+    @Test
+    public void setAndGetLong() {
+        assertEquals("OK", session.set("foo", 42L, Codecs.LONG));
+        assertEquals("42", session.get("foo"));
+        assertEquals(43, session.incrAsLong("foo"));
+        assertEquals(Long.valueOf(43), session.get("foo", Codecs.LONG));
+        assertEquals(Long.valueOf(43), session.getSet("foo", Long.MIN_VALUE, Codecs.LONG));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), session.get("foo", Codecs.LONG));
+        assertNull(session.get("bar", Codecs.LONG));
+    }
+
+    @Test
+    public void setAndGetDouble() {
+        session.setex("foo", 100, 1.5d, Codecs.DOUBLE);
+        assertEquals("1.5", session.get("foo"));
+        assertEquals(1.5d, session.get("foo", Codecs.DOUBLE), 0);
+        assertTrue(session.ttl("foo") > 0);
+    }
+
+    @Test
+    public void bytesAndStrings() {
+        byte[] value = new byte[20000];
+        Arrays.fill(value, (byte) 7);
+        session.set("foo", value, Codecs.BYTES);
+        assertArrayEquals(value, session.get("foo", Codecs.BYTES));
+
+        assertTrue(session.hset("hash", "field", "été", Codecs.STRING));
+        assertEquals("été", session.hget("hash", "field"));
+        assertEquals("été", session.hget("hash", "field", Codecs.STRING));
+    }
+
+    @Test
+    public void customCodec() {
+        session.rpush("points", new int[]{1, 2}, POINT);
+        session.rpush("points", new int[]{3, 4}, POINT);
+        session.lpush("points", new int[]{0, 0}, POINT);
+
+        List<int[]> points = session.lrange("points", 0, -1, POINT);
+        assertEquals(3, points.size());
+        assertArrayEquals(new int[]{3, 4}, points.get(2));
+        assertArrayEquals(new int[]{1, 2}, session.lindex("points", 1, POINT));
+        assertArrayEquals(new int[]{0, 0}, session.lpop("points", POINT));
+        assertArrayEquals(new int[]{3, 4}, session.rpop("points", POINT));
+    }
+
+    @Test
+    public void failingCodec() {
+        Codec<String> failing = new Codec<String>() {
+            public void encode(String value, RedisOutputStream out) throws IOException {
+                out.writeBulk(new byte[]{1, 2}, 0, 1);
+                throw new IllegalStateException("Cannot encode " + value);
+            }
+
+            public String decode(byte[] buf, int offset, int length) {
+                return null;
+            }
+        };
+        try {
+            session.set("foo", "bar", failing);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // the partial command must not be sent with the next one
+        }
+        assertEquals("OK", session.set("foo", "bar"));
+        assertEquals("bar", session.get("foo"));
+    }
+
+    @Test
+    public void failingDecode() {
+        Codec<String> failing = new Codec<String>() {
+            public void encode(String value, RedisOutputStream out) throws IOException {
+                Codecs.STRING.encode(value, out);
+            }
+
+            public String decode(byte[] buf, int offset, int length) {
+                throw new IllegalStateException("Cannot decode");
+            }
+        };
+        session.set("foo", "bar");
+        session.rpush("list", "a");
+        session.rpush("list", "b");
+        try {
+            session.get("foo", failing);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // the value must not be left to the next reply
+        }
+        assertEquals("bar", session.get("foo"));
+        try {
+            session.lrange("list", 0, -1, failing);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // the other elements must not be left to the next reply
+        }
+        assertEquals("bar", session.get("foo"));
+    }
+}
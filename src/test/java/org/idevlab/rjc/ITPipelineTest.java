@@ -0,0 +1,332 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.codec.Codecs;
+import org.idevlab.rjc.ds.PoolableDataSource;
+import org.idevlab.rjc.ds.SimpleDataSource;
+import org.idevlab.rjc.protocol.PreparedCommand;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITPipelineTest extends SingleNodeTestBase {
+
+    @Test
+    public void pipeline() {
+        List<Object> result = session.pipeline(new Pipeline() {
+            public void execute(RedisClient client) {
+                for (int i = 0; i < 500; i++) {
+                    client.noReply(RedisCommand.SET, "foo" + i, "bar" + i);
+                }
+                client.noReply(RedisCommand.GET, "foo499");
+                client.noReply(RedisCommand.INCR, "counter");
+            }
+        });
+
+        assertEquals(502, result.size());
+        assertEquals("OK", result.get(0));
+        assertEquals("bar499", result.get(500));
+        assertEquals(1L, result.get(501));
+
+        // regular commands flush immediately after the pipeline
+        assertEquals("bar0", session.get("foo0"));
+    }
+
+    @Test
+    public void preparedCommands() {
+        final PreparedCommand hset = new PreparedCommand(RedisCommand.HSET, 3);
+        final PreparedCommand incrBy = new PreparedCommand(RedisCommand.INCRBY, 2);
+
+        List<Object> result = session.pipeline(new Pipeline() {
+            public void execute(RedisClient client) {
+                for (int i = 0; i < 100; i++) {
+                    client.noReply(hset, "hash", "field" + i, "value" + i);
+                    client.noReply(incrBy, "counter", "2");
+                }
+            }
+        });
+
+        assertEquals(200, result.size());
+        assertEquals(1L, result.get(0));
+        assertEquals(200L, result.get(199));
+        assertEquals("value99", session.hget("hash", "field99"));
+    }
+
+    @Test
+    public void typedPipeline() {
+        session.set("bin", "value");
+        CommandPipeline pipeline = new CommandPipeline();
+        for (int i = 0; i < 500; i++) {
+            pipeline.set("foo" + i, "bar" + i);
+        }
+        Response<String> get = pipeline.get("foo499");
+        Response<byte[]> binary = pipeline.get(new byte[]{'b', 'i', 'n'});
+        Response<Long> counter = pipeline.incrBy("counter", 5);
+        Response<Boolean> hset = pipeline.hset("hash", "field", "value");
+        Response<List<String>> mget = pipeline.mget("foo0", "missing");
+        Response<Long> failed = pipeline.lpush("bin", "a");
+        Response<Double> score = pipeline.zscore("zset", "missing");
+
+        List<Object> result = session.pipeline(pipeline);
+
+        assertEquals(507, result.size());
+        assertEquals("bar499", get.get());
+        assertArrayEquals(new byte[]{'v', 'a', 'l', 'u', 'e'}, binary.get());
+        assertEquals(Long.valueOf(5), counter.get());
+        assertEquals(Boolean.TRUE, hset.get());
+        assertEquals(Arrays.asList("bar0", null), mget.get());
+        assertTrue(failed.isError());
+        assertTrue(result.get(505) instanceof RedisException);
+        assertTrue(Double.isNaN(score.get()));
+        assertEquals("PONG", session.ping());
+    }
+
+    @Test
+    public void typedCommands() {
+        CommandPipeline pipeline = new CommandPipeline();
+        Response<String> mset = pipeline.mset("a", "1", "b", "2");
+        pipeline.rpush("list", "x");
+        pipeline.rpush("list", 2L, Codecs.LONG);
+        pipeline.rpush("list", "z");
+        Response<String> lset = pipeline.lset("list", 0, "first");
+        Response<String> ltrim = pipeline.ltrim("list", 0, 1);
+        Response<List<Long>> list = pipeline.lrange("list", 1, 1, Codecs.LONG);
+        pipeline.sadd("s1", "m1");
+        pipeline.sadd("s1", "m2");
+        pipeline.sadd("s2", "m2");
+        Response<Set<String>> sinter = pipeline.sinter("s1", "s2");
+        Response<Long> sunionstore = pipeline.sunionstore("s3", "s1", "s2");
+        pipeline.zadd("zset", 1, "one");
+        pipeline.zadd("zset", 2, "two");
+        pipeline.zadd("zset", 3, "three");
+        Response<List<String>> zrevrange = pipeline.zrevrange("zset", 0, 0);
+        Response<List<String>> byScore = pipeline.zrangeByScore("zset", "2", "+inf", 1, 1);
+        Response<List<ElementScore>> revByScore = pipeline.zrevrangeByScoreWithScores("zset", "2", "-inf");
+        Response<Long> rank = pipeline.zrank("zset", "missing");
+        Response<Long> stored = pipeline.sort("s3", new SortingParams().alpha().desc(), "sorted");
+        Response<String> hmset = pipeline.hmset("hash", Collections.singletonMap("f", "v"));
+        Response<List<String>> hmget = pipeline.hmget("hash", "f", "missing");
+
+        session.pipeline(pipeline);
+
+        assertEquals("OK", mset.get());
+        assertEquals("OK", lset.get());
+        assertEquals("OK", ltrim.get());
+        assertEquals(Arrays.asList(2L), list.get());
+        assertEquals(Collections.singleton("m2"), sinter.get());
+        assertEquals(Long.valueOf(2), sunionstore.get());
+        assertEquals(Arrays.asList("three"), zrevrange.get());
+        assertEquals(Arrays.asList("three"), byScore.get());
+        assertEquals(2, revByScore.get().size());
+        assertEquals("two", revByScore.get().get(0).getElement());
+        assertNull(rank.get());
+        assertEquals(Long.valueOf(2), stored.get());
+        assertEquals(Arrays.asList("m2", "m1"), session.lrange("sorted", 0, -1));
+        assertEquals("OK", hmset.get());
+        assertEquals(Arrays.asList("v", null), hmget.get());
+        assertEquals("2", session.get("b"));
+    }
+
+    @Test
+    public void streamingPipeline() {
+        RedisNode node = new RedisNode(new SimpleDataSource(hnp.host, hnp.port));
+        CommandPipeline pipeline = new CommandPipeline();
+        for (int i = 0; i < 1000; i++) {
+            pipeline.incr("counter");
+        }
+        pipeline.hget("counter", "field");
+        final List<Object> replies = new ArrayList<Object>();
+        final List<RedisException> errors = new ArrayList<RedisException>();
+
+        node.pipeline(pipeline, new ReplyCallback<Object>() {
+            public void onReply(Object reply) {
+                replies.add(reply);
+            }
+
+            public void onError(RedisException e) {
+                errors.add(e);
+            }
+        });
+
+        assertEquals(1000, replies.size());
+        assertEquals(1L, replies.get(0));
+        assertEquals(1000L, replies.get(999));
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void failingCallback() {
+        CommandPipeline pipeline = new CommandPipeline();
+        for (int i = 0; i < 100; i++) {
+            pipeline.incr("counter");
+        }
+        try {
+            session.pipeline(pipeline, new ReplyCallback<Object>() {
+                public void onReply(Object reply) {
+                    if (reply.equals(10L)) {
+                        throw new IllegalStateException("Callback failed");
+                    }
+                }
+
+                public void onError(RedisException e) {
+                }
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // the remaining replies must not be left to the next command
+        }
+        assertEquals("PONG", session.ping());
+        assertEquals("100", session.get("counter"));
+    }
+
+    @Test
+    public void failingCodec() {
+        CommandPipeline pipeline = new CommandPipeline();
+        for (int i = 0; i < 10; i++) {
+            pipeline.incr("counter");
+        }
+        pipeline.set("foo", "bar", new Codec<String>() {
+            public void encode(String value, RedisOutputStream out) throws IOException {
+                throw new IllegalStateException("Cannot encode " + value);
+            }
+
+            public String decode(byte[] buf, int offset, int length) {
+                return null;
+            }
+        });
+        pipeline.incr("counter");
+        try {
+            session.pipeline(pipeline);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // the replies of the commands sent before must not be left to the next command
+        }
+        assertEquals("PONG", session.ping());
+        assertEquals("10", session.get("counter"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pipelineIsExecutedOnce() {
+        CommandPipeline pipeline = new CommandPipeline();
+        pipeline.ping();
+        session.pipeline(pipeline);
+        session.pipeline(pipeline);
+    }
+
+    @Test
+    public void windowedPipeline() {
+        session.set("string", "value");
+        final AtomicLong last = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        long sent = session.pipeline(64, new ReplyCallback<Object>() {
+            public void onReply(Object reply) {
+                assertEquals(last.get() + 1, reply);
+                last.set((Long) reply);
+            }
+
+            public void onError(RedisException e) {
+                errors.incrementAndGet();
+            }
+        }, new CommandStream() {
+            public void execute(StreamingPipeline pipeline) {
+                for (int i = 0; i < 100000; i++) {
+                    pipeline.send(RedisCommand.INCR, "counter");
+                    assertTrue(pipeline.getInFlightCount() < 64);
+                    if (i % 10000 == 0) {
+                        pipeline.send(RedisCommand.INCR, "string");
+                    }
+                }
+            }
+        });
+
+        assertEquals(100010, sent);
+        assertEquals(100000, last.get());
+        assertEquals(10, errors.get());
+        assertEquals("100000", session.get("counter"));
+    }
+
+    @Test
+    public void failingStream() {
+        PoolableDataSource dataSource = new PoolableDataSource();
+        dataSource.setHost(hnp.host);
+        dataSource.setPort(hnp.port);
+        dataSource.setMaxActive(1);
+        dataSource.setTestOnBorrow(false);
+        RedisNode node = new RedisNode(dataSource);
+        final ReplyCallback<Object> ignore = new ReplyCallback<Object>() {
+            public void onReply(Object reply) {
+            }
+
+            public void onError(RedisException e) {
+            }
+        };
+        try {
+            node.pipeline(64, ignore, new CommandStream() {
+                public void execute(StreamingPipeline pipeline) {
+                    for (int i = 0; i < 1000; i++) {
+                        pipeline.send(RedisCommand.INCR, "counter");
+                    }
+                    throw new IllegalStateException("Stream failed");
+                }
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // the replies in flight must not be left to the next user of the connection
+        }
+        assertEquals("PONG", node.ping());
+        assertEquals("1000", node.get("counter"));
+
+        try {
+            node.pipeline(64, new ReplyCallback<Object>() {
+                public void onReply(Object reply) {
+                    throw new IllegalStateException("Callback failed");
+                }
+
+                public void onError(RedisException e) {
+                }
+            }, new CommandStream() {
+                public void execute(StreamingPipeline pipeline) {
+                    for (int i = 0; i < 1000; i++) {
+                        pipeline.send(RedisCommand.INCR, "counter");
+                    }
+                }
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("PONG", node.ping());
+        assertEquals(0, dataSource.getNumActive());
+        dataSource.close();
+    }
+}
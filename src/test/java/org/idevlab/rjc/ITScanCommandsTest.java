@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.ds.PoolableDataSource;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITScanCommandsTest extends SingleNodeTestBase {
+
+    @Test
+    public void scan() {
+        for (int i = 0; i < 100; i++) {
+            session.set("key" + i, "value");
+        }
+        session.set("other", "value");
+
+        Set<String> keys = new HashSet<String>();
+        String cursor = ScanResult.START;
+        do {
+            ScanResult<String> result = session.scan(cursor, new ScanParams().match("key*").count(20));
+            keys.addAll(result.getResult());
+            cursor = result.getCursor();
+        } while (!ScanResult.START.equals(cursor));
+
+        assertEquals(100, keys.size());
+        assertFalse(keys.contains("other"));
+    }
+
+    @Test
+    public void sscan() {
+        session.sadd("set", "a");
+        session.sadd("set", "b");
+        session.sadd("set", "c");
+        ScanResult<String> result = session.sscan("set", ScanResult.START, null);
+        assertTrue(result.isComplete());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")), new HashSet<String>(result.getResult()));
+    }
+
+    @Test
+    public void hscan() {
+        session.hset("hash", "f1", "v1");
+        session.hset("hash", "f2", "v2");
+        Map<String, String> hash = new HashMap<String, String>();
+        for (Map.Entry<String, String> entry : session.hscan("hash", ScanResult.START, null).getResult()) {
+            hash.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(session.hgetAll("hash"), hash);
+    }
+
+    @Test
+    public void zscan() {
+        session.zadd("zset", 1, "a");
+        session.zadd("zset", 2.5, "b");
+        List<ElementScore> result = session.zscan("zset", ScanResult.START, new ScanParams().match("b")).getResult();
+        assertEquals(1, result.size());
+        assertEquals("b", result.get(0).getElement());
+        assertEquals(2.5, result.get(0).getScoreAsDouble(), 0);
+    }
+
+    @Test(expected = RedisException.class)
+    public void scanWrongType() {
+        session.set("foo", "bar");
+        session.sscan("foo", ScanResult.START, null);
+    }
+
+    @Test
+    public void scanIterators() {
+        PoolableDataSource dataSource = createDataSource();
+        RedisNode node = new RedisNode(dataSource);
+        for (int i = 0; i < 10000; i++) {
+            session.sadd("set", "member" + i);
+        }
+        session.set("foo", "bar");
+
+        Set<String> members = new HashSet<String>();
+        for (String member : node.scanMembers("set", new ScanParams().count(100))) {
+            members.add(member);
+        }
+        assertEquals(10000, members.size());
+
+        Set<String> keys = new HashSet<String>();
+        for (String key : node.scanKeys(null)) {
+            keys.add(key);
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("set", "foo")), keys);
+
+        int count = 0;
+        for (String member : node.scanMembers("set", new ScanParams().match("member1*"))) {
+            assertTrue(member.startsWith("member1"));
+            count++;
+        }
+        assertEquals(1111, count);
+        assertEquals(0, dataSource.getNumActive());
+        dataSource.close();
+    }
+
+    @Test
+    public void abandonedIterator() {
+        PoolableDataSource dataSource = createDataSource();
+        RedisNode node = new RedisNode(dataSource);
+        for (int i = 0; i < 1000; i++) {
+            session.hset("hash", "field" + i, "value" + i);
+        }
+
+        // more abandoned iterations than connections of the pool
+        for (int i = 0; i < 3; i++) {
+            for (Map.Entry<String, String> entry : node.scanHash("hash", new ScanParams().count(10))) {
+                assertTrue(entry.getKey().startsWith("field"));
+                assertEquals(0, dataSource.getNumActive());
+                break;
+            }
+        }
+        assertEquals(0, dataSource.getNumActive());
+        assertEquals("PONG", node.ping());
+        assertEquals("value1", node.hget("hash", "field1"));
+        dataSource.close();
+    }
+
+    private PoolableDataSource createDataSource() {
+        PoolableDataSource dataSource = new PoolableDataSource();
+        dataSource.setHost(hnp.host);
+        dataSource.setPort(hnp.port);
+        dataSource.setMaxActive(1);
+        return dataSource;
+    }
+}
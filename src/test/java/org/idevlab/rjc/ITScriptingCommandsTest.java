@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc;
+
+import org.idevlab.rjc.ds.SimpleDataSource;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITScriptingCommandsTest extends SingleNodeTestBase {
+    private static final RedisScript INCR_AND_GET = new RedisScript(
+            "redis.call('incrby', KEYS[1], ARGV[1]) return {redis.call('get', KEYS[1]), tonumber(ARGV[1])}");
+    private static final List<String> NO_KEYS = Collections.emptyList();
+
+    @Test
+    public void eval() {
+        session.scriptFlush();
+        assertEquals(Arrays.asList(false), session.scriptExists(INCR_AND_GET.getSha1()));
+
+        assertEquals(Arrays.<Object>asList("5", 5L), session.eval(INCR_AND_GET, Arrays.asList("counter"), Arrays.asList("5")));
+        assertEquals(Arrays.asList(true), session.scriptExists(INCR_AND_GET.getSha1()));
+        assertEquals(Arrays.<Object>asList("7", 2L), session.eval(INCR_AND_GET, Arrays.asList("counter"), Arrays.asList("2")));
+
+        assertNull(session.eval(new RedisScript("return nil"), NO_KEYS, NO_KEYS));
+        assertEquals("OK", session.eval(new RedisScript("return redis.call('set', 'foo', 'bar')"), NO_KEYS, NO_KEYS));
+    }
+
+    @Test
+    public void scriptLoad() {
+        assertEquals(INCR_AND_GET.getSha1(), session.scriptLoad(INCR_AND_GET.getSource()));
+        assertEquals(Arrays.asList(true, false), session.scriptExists(INCR_AND_GET.getSha1(), "0000000000000000000000000000000000000000"));
+        assertEquals("OK", session.scriptFlush());
+    }
+
+    @Test
+    public void scriptError() {
+        try {
+            session.eval(new RedisScript("return redis.call('incr', KEYS[1])"), Arrays.asList("foo"), NO_KEYS);
+            session.set("foo", "bar");
+            session.eval(new RedisScript("return redis.call('incr', KEYS[1])"), Arrays.asList("foo"), NO_KEYS);
+            fail();
+        } catch (RedisException e) {
+            // expected
+        }
+        assertEquals("PONG", session.ping());
+    }
+
+    @Test
+    public void evalOnNode() {
+        RedisNode node = new RedisNode(new SimpleDataSource(hnp.host, hnp.port));
+        node.scriptFlush();
+        assertEquals(Arrays.<Object>asList("1", 1L), node.eval(INCR_AND_GET, Arrays.asList("counter"), Arrays.asList("1")));
+    }
+
+    @Test
+    public void evalInPipeline() {
+        session.scriptFlush();
+        CommandPipeline pipeline = new CommandPipeline();
+        Response<Object> first = pipeline.eval(INCR_AND_GET, Arrays.asList("counter"), Arrays.asList("1"));
+        Response<Object> second = pipeline.eval(INCR_AND_GET, Arrays.asList("counter"), Arrays.asList("2"));
+        Response<Long> converted = pipeline.eval(new RedisScript("return 42"), ReplyConverters.LONG, NO_KEYS, NO_KEYS);
+        Response<Object> broken = pipeline.eval(new RedisScript("return {"), NO_KEYS, NO_KEYS);
+
+        List<Object> results = session.pipeline(pipeline);
+
+        assertEquals(4, results.size());
+        assertEquals(Arrays.<Object>asList("1", 1L), first.get());
+        assertEquals(Arrays.<Object>asList("3", 2L), second.get());
+        assertEquals(Long.valueOf(42), converted.get());
+        assertTrue(broken.isError());
+        try {
+            broken.get();
+            fail();
+        } catch (RedisException e) {
+            assertFalse(e.getMessage(), e.getMessage().startsWith("NOSCRIPT"));
+        }
+        assertEquals("PONG", session.ping());
+    }
+
+    @Test
+    public void evalInTransaction() {
+        session.scriptFlush();
+        Transaction tx = new Transaction();
+        tx.set("counter", "10");
+        Response<Object> result = tx.eval(INCR_AND_GET, Arrays.asList("counter"), Arrays.asList("5"));
+        session.exec(tx);
+        assertEquals(Arrays.<Object>asList("15", 5L), result.get());
+    }
+}
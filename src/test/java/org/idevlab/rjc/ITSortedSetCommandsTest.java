@@ -215,6 +215,49 @@ public class ITSortedSetCommandsTest extends SingleNodeTestBase {
         assertNull(score);
     }
 
+    @Test
+    public void zscoreAsDouble() {
+        session.zadd("foo", 0.1d, "a");
+        session.zadd("foo", Double.NEGATIVE_INFINITY, "b");
+
+        assertEquals(0.1d, session.zscoreAsDouble("foo", "a"), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, session.zscoreAsDouble("foo", "b"), 0);
+        assertTrue(Double.isNaN(session.zscoreAsDouble("foo", "s")));
+        assertEquals(2.6d, session.zincrbyAsDouble("foo", 2.5d, "a"), 1e-15);
+    }
+
+    @Test
+    public void zrangeWithScoresAsDouble() {
+        session.zadd("foo", 1d, "a");
+        session.zadd("foo", 10d, "b");
+        session.zadd("foo", 0.1d, "c");
+
+        List<ElementScore> range = session.zrangeWithScoresAsDouble("foo", 0, 100);
+        assertEquals(3, range.size());
+        assertEquals("c", range.get(0).getElement());
+        assertEquals(0.1d, range.get(0).getScoreAsDouble(), 0);
+        assertEquals(new ElementScore("b", "10"), range.get(2));
+
+        range = session.zrevrangeWithScoresAsDouble("foo", 0, 0);
+        assertEquals(new ElementScore("b", 10d), range.get(0));
+    }
+
+    @Test
+    public void doubleScoresFormatLikeReplies() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            double score = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            session.zadd("scores", score, "m" + i);
+        }
+        session.zadd("scores", 1.1d, "x");
+        List<ElementScore> strings = session.zrangeWithScores("scores", 0, -1);
+        List<ElementScore> doubles = session.zrangeWithScoresAsDouble("scores", 0, -1);
+        assertEquals(strings.size(), doubles.size());
+        for (int i = 0; i < strings.size(); i++) {
+            assertEquals(strings.get(i).getScore(), doubles.get(i).getScore());
+        }
+    }
+
     @Test
     public void zcount() {
         session.zadd("foo", 1d, "a");
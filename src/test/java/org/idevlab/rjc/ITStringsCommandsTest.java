@@ -130,6 +130,14 @@ public class ITStringsCommandsTest extends SingleNodeTestBase {
         assertEquals(2, value);
     }
 
+    @Test
+    public void incrAsLong() {
+        assertEquals(1, session.incrAsLong("foo"));
+        assertEquals(3, session.incrByAsLong("foo", 2));
+        assertEquals(2, session.decrAsLong("foo"));
+        assertEquals(-1, session.decrByAsLong("foo", 3));
+    }
+
     @Test(expected = RedisException.class)
     public void incrByWrongValue() {
         session.set("foo", "bar");
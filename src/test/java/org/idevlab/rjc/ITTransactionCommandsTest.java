@@ -16,7 +16,10 @@
 
 package org.idevlab.rjc;
 
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.ds.SimpleDataSource;
 import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisOutputStream;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -24,7 +27,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Evgeny Dolgov
@@ -94,4 +97,123 @@ public class ITTransactionCommandsTest extends SingleNodeTestBase {
         String status = session.discard();
         assertEquals("OK", status);
     }
+
+    @Test
+    public void transaction() {
+        Transaction tx = new Transaction();
+        Response<Boolean> added = tx.sadd("foo", "a");
+        tx.sadd("foo", "c");
+        Response<Long> card = tx.scard("foo");
+        Response<String> set = tx.set("boo", "val1");
+        Response<String> get = tx.get("boo");
+        Response<byte[]> binary = tx.get(new byte[]{'b', 'o', 'o'});
+        Response<Double> score = tx.zincrby("z", 1.5, "m");
+        assertFalse(get.isDone());
+
+        List<Object> results = session.exec(tx);
+
+        assertEquals(7, results.size());
+        assertEquals(Boolean.TRUE, added.get());
+        assertEquals(Long.valueOf(2), card.get());
+        assertEquals("OK", set.get());
+        assertEquals("val1", get.get());
+        assertArrayEquals(new byte[]{'v', 'a', 'l', '1'}, binary.get());
+        assertEquals(1.5, score.get(), 0);
+        assertEquals("val1", results.get(4));
+        assertEquals("val1", session.get("boo"));
+    }
+
+    @Test
+    public void transactionOnNode() {
+        RedisNode node = new RedisNode(new SimpleDataSource(hnp.host, hnp.port));
+        Transaction tx = new Transaction();
+        for (int i = 0; i < 50; i++) {
+            tx.incr("counter");
+        }
+        Response<Long> last = tx.incrBy("counter", 10);
+        node.exec(tx);
+        assertEquals(Long.valueOf(60), last.get());
+        assertEquals("60", node.get("counter"));
+    }
+
+    @Test
+    public void transactionWithFailedCommand() {
+        session.set("string", "value");
+        Transaction tx = new Transaction();
+        Response<Long> push = tx.lpush("string", "a");
+        Response<String> set = tx.set("key", "value");
+
+        List<Object> results = session.exec(tx);
+
+        assertTrue(push.isError());
+        assertTrue(results.get(0) instanceof RedisException);
+        try {
+            push.get();
+            fail();
+        } catch (RedisException e) {
+            // expected
+        }
+        assertEquals("OK", set.get());
+        assertEquals("PONG", session.ping());
+    }
+
+    @Test
+    public void transactionWithFailingCodec() {
+        Transaction tx = new Transaction();
+        tx.set("key", "value");
+        tx.set("foo", "bar", new Codec<String>() {
+            public void encode(String value, RedisOutputStream out) throws IOException {
+                throw new IllegalStateException("Cannot encode " + value);
+            }
+
+            public String decode(byte[] buf, int offset, int length) {
+                return null;
+            }
+        });
+        try {
+            session.exec(tx);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // the connection must not stay in MULTI state
+        assertEquals("PONG", session.ping());
+        assertNull(session.get("key"));
+    }
+
+    @Test
+    public void transactionWithRejectedCommand() {
+        Transaction tx = new Transaction();
+        Response<String> set = tx.set("key", "value");
+        Response<Long> rejected = tx.queue(ReplyConverters.LONG, RedisCommand.INCR, "a", "b");
+        try {
+            session.exec(tx);
+            fail();
+        } catch (RedisException e) {
+            // expected
+        }
+        assertTrue(set.isError());
+        assertTrue(rejected.isError());
+        assertNull(session.get("key"));
+        assertEquals("PONG", session.ping());
+    }
+
+    @Test
+    public void watchedTransaction() {
+        session.watch("mykey");
+        Session newSession = createSession();
+        newSession.set("mykey", "bar");
+        newSession.close();
+
+        Transaction tx = new Transaction();
+        Response<String> set = tx.set("mykey", "foo");
+        assertNull(session.exec(tx));
+        assertTrue(set.isError());
+        assertEquals("bar", session.get("mykey"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void responseBeforeExec() {
+        new Transaction().get("key").get();
+    }
 }
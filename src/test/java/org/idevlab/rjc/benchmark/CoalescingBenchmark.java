@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.benchmark;
+
+import org.idevlab.rjc.HostAndPortUtil;
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.ds.DataSource;
+import org.idevlab.rjc.ds.MultiplexedDataSource;
+import org.idevlab.rjc.ds.PoolableDataSource;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures throughput and latency of GET issued by many threads through <code>RedisNode</code>
+ * over a pool of connections and over one multiplexed connection with different coalescing windows.
+ *
+ * @author Evgeny Dolgov
+ */
+public class CoalescingBenchmark {
+    private static final int[] THREADS = {1, 16, 64, 256};
+    private static final long[] WINDOWS = {0, 20, 100, 500};
+    private static final int OPERATIONS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+
+        for (int threads : THREADS) {
+            PoolableDataSource pool = new PoolableDataSource();
+            pool.setHost(hnp.host);
+            pool.setPort(hnp.port);
+            pool.setMaxActive(threads);
+            pool.setMaxIdle(threads);
+            run(pool, threads, OPERATIONS / 4);
+            report("pool", threads, run(pool, threads, OPERATIONS));
+            pool.close();
+
+            for (long window : WINDOWS) {
+                MultiplexedDataSource multiplexed = new MultiplexedDataSource(hnp.host, hnp.port);
+                multiplexed.setFlushWindowMicros(window);
+                run(multiplexed, threads, OPERATIONS / 4);
+                report("multiplexed " + window + " us", threads, run(multiplexed, threads, OPERATIONS));
+                multiplexed.close();
+            }
+        }
+    }
+
+    private static long[] run(DataSource dataSource, int threads, int operations) throws Exception {
+        final RedisNode node = new RedisNode(dataSource);
+        node.set("key", "value");
+        final int perThread = operations / threads;
+        final long[][] latencies = new long[threads][perThread];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long[] own = latencies[t];
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int n = 0; n < perThread; n++) {
+                            long begin = System.nanoTime();
+                            node.get("key");
+                            own[n] = System.nanoTime() - begin;
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        long[] all = new long[perThread * threads];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        return new long[]{1000000000L * all.length / elapsed, all[all.length / 2], all[(int) (all.length * 0.99)]};
+    }
+
+    private static void report(String name, int threads, long[] result) {
+        System.out.println(name + " " + threads + " threads: " + result[0] + " ops, p50 " + result[1] / 1000
+                + " us, p99 " + result[2] / 1000 + " us");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.benchmark;
+
+import org.idevlab.rjc.HostAndPortUtil;
+import org.idevlab.rjc.ds.RedisConnection;
+import org.idevlab.rjc.ds.SimpleDataSource;
+import org.idevlab.rjc.ds.Transport;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+import java.util.Arrays;
+
+/**
+ * Measures MSET and HMSET of large values with copying through the output buffer
+ * and with vectored writes of the <code>CHANNEL</code> transport.
+ *
+ * @author Evgeny Dolgov
+ */
+public class GatheringWriteBenchmark {
+    private static final int[] VALUE_SIZES = {64 * 1024, 256 * 1024, 1024 * 1024};
+    private static final int TOTAL_BYTES = 1024 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+
+        for (int size : VALUE_SIZES) {
+            byte[] value = new byte[size];
+            Arrays.fill(value, (byte) 'x');
+            byte[][] msetArgs = {{'k', '1'}, value, {'k', '2'}, value};
+            byte[][] hmsetArgs = {{'h'}, {'f', '1'}, value, {'f', '2'}, value};
+
+            RedisConnection socket = connect(hnp, Transport.SOCKET, 0);
+            RedisConnection copying = connect(hnp, Transport.CHANNEL, Integer.MAX_VALUE);
+            RedisConnection gathering = connect(hnp, Transport.CHANNEL, 0);
+
+            run("socket", size, socket, msetArgs, hmsetArgs);
+            run("channel copy", size, copying, msetArgs, hmsetArgs);
+            run("channel gather", size, gathering, msetArgs, hmsetArgs);
+
+            socket.close();
+            copying.close();
+            gathering.close();
+        }
+    }
+
+    private static RedisConnection connect(HostAndPortUtil.HostAndPort hnp, Transport transport, int copyThreshold) {
+        SimpleDataSource dataSource = new SimpleDataSource(hnp.host, hnp.port);
+        dataSource.setTransport(transport);
+        dataSource.setCopyThreshold(copyThreshold);
+        return dataSource.getConnection();
+    }
+
+    private static void run(String name, int size, RedisConnection connection, byte[][] msetArgs, byte[][] hmsetArgs) {
+        final int operations = TOTAL_BYTES / (2 * size);
+        connection.sendCommand(RedisCommand.FLUSHALL);
+        connection.getStatusCodeReply();
+
+        long begin = System.nanoTime();
+        for (int n = 0; n < operations; n++) {
+            connection.sendCommand(RedisCommand.MSET, msetArgs);
+            connection.getStatusCodeReply();
+        }
+        report(name + " MSET", size, operations, begin);
+
+        begin = System.nanoTime();
+        for (int n = 0; n < operations; n++) {
+            connection.sendCommand(RedisCommand.HMSET, hmsetArgs);
+            connection.getStatusCodeReply();
+        }
+        report(name + " HMSET", size, operations, begin);
+    }
+
+    private static void report(String name, int size, int operations, long begin) {
+        long elapsed = System.nanoTime() - begin;
+        System.out.println(name + " " + (size / 1024) + "KB: " + (1000000000L * operations / elapsed) + " ops, "
+                + (1000L * operations * 2 * size / elapsed) + " MB/s");
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.benchmark;
+
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.idevlab.rjc.ds.ConcurrentObjectPool;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures borrow/return throughput and borrow latency of <code>GenericObjectPool</code>
+ * and <code>ConcurrentObjectPool</code> with and without thread affinity under contention. Redis is not needed, the pooled objects are trivial.
+ *
+ * @author Evgeny Dolgov
+ */
+public class PoolContentionBenchmark {
+    private static final int[] THREADS = {1, 8, 64, 128};
+    private static final int MAX_ACTIVE = 16;
+    private static final int OPERATIONS = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : THREADS) {
+            // warm up
+            run(createGenericPool(), threads, OPERATIONS / 4);
+            run(createConcurrentPool(false), threads, OPERATIONS / 4);
+            run(createConcurrentPool(true), threads, OPERATIONS / 4);
+
+            report("GenericObjectPool", threads, run(createGenericPool(), threads, OPERATIONS));
+            report("ConcurrentObjectPool", threads, run(createConcurrentPool(false), threads, OPERATIONS));
+            report("ConcurrentObjectPool affine", threads, run(createConcurrentPool(true), threads, OPERATIONS));
+        }
+    }
+
+    private static ObjectPool createGenericPool() {
+        GenericObjectPool pool = new GenericObjectPool(new TrivialFactory());
+        pool.setMaxActive(MAX_ACTIVE);
+        pool.setMaxIdle(MAX_ACTIVE);
+        return pool;
+    }
+
+    private static ObjectPool createConcurrentPool(boolean threadAffinity) {
+        ConcurrentObjectPool pool = new ConcurrentObjectPool(new TrivialFactory());
+        pool.setThreadAffinity(threadAffinity);
+        pool.setMaxActive(MAX_ACTIVE);
+        pool.setMaxIdle(MAX_ACTIVE);
+        return pool;
+    }
+
+    private static long[] run(final ObjectPool pool, int threads, int operations) throws Exception {
+        final int perThread = operations / threads;
+        final long[][] latencies = new long[threads][perThread];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long[] own = latencies[t];
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int n = 0; n < perThread; n++) {
+                            long begin = System.nanoTime();
+                            Object obj = pool.borrowObject();
+                            own[n] = System.nanoTime() - begin;
+                            pool.returnObject(obj);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        pool.close();
+
+        long[] all = new long[perThread * threads];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        return new long[]{1000000000L * all.length / elapsed, all[all.length / 2], all[(int) (all.length * 0.99)]};
+    }
+
+    private static void report(String name, int threads, long[] result) {
+        System.out.println(name + " " + threads + " threads: " + result[0] + " ops, borrow p50 " + result[1]
+                + " ns, p99 " + result[2] + " ns");
+    }
+
+    private static class TrivialFactory extends BasePoolableObjectFactory {
+        @Override
+        public Object makeObject() {
+            return new Object();
+        }
+    }
+}
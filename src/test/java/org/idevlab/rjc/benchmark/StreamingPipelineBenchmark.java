@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.benchmark;
+
+import org.idevlab.rjc.CommandStream;
+import org.idevlab.rjc.HostAndPortUtil;
+import org.idevlab.rjc.Pipeline;
+import org.idevlab.rjc.RedisClient;
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.ReplyCallback;
+import org.idevlab.rjc.StreamingPipeline;
+import org.idevlab.rjc.ds.SimpleDataSource;
+import org.idevlab.rjc.protocol.PreparedCommand;
+import org.idevlab.rjc.protocol.RedisCommand;
+
+/**
+ * Measures 1M SET commands sent by the whole-list pipeline and by the windowed streaming pipeline
+ * with different windows, and the heap used at the end of each run.
+ *
+ * @author Evgeny Dolgov
+ */
+public class StreamingPipelineBenchmark {
+    private static final int COMMANDS = 1000000;
+    private static final int[] WINDOWS = {10, 100, 1000, 10000};
+    private static final PreparedCommand SET = new PreparedCommand(RedisCommand.SET, 2);
+
+    public static void main(String[] args) {
+        HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+        RedisNode node = new RedisNode(new SimpleDataSource(hnp.host, hnp.port, 0));
+
+        for (int round = 0; round < 2; round++) {
+            long begin = System.nanoTime();
+            int replies = node.pipeline(new Pipeline() {
+                public void execute(RedisClient client) {
+                    for (int i = 0; i < COMMANDS; i++) {
+                        client.noReply(SET, "key" + i, "value");
+                    }
+                }
+            }).size();
+            report("list pipeline", replies, begin);
+
+            for (final int window : WINDOWS) {
+                final long[] counts = new long[1];
+                begin = System.nanoTime();
+                node.pipeline(window, new ReplyCallback<Object>() {
+                    public void onReply(Object reply) {
+                        counts[0]++;
+                    }
+
+                    public void onError(RedisException e) {
+                        counts[0]++;
+                    }
+                }, new CommandStream() {
+                    public void execute(StreamingPipeline pipeline) {
+                        for (int i = 0; i < COMMANDS; i++) {
+                            pipeline.send(SET, "key" + i, "value");
+                        }
+                    }
+                });
+                report("streaming window " + window, counts[0], begin);
+            }
+        }
+    }
+
+    private static void report(String name, long replies, long begin) {
+        long elapsed = System.nanoTime() - begin;
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(name + ": " + (1000000000L * replies / elapsed) + " ops, heap used "
+                + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB");
+    }
+}
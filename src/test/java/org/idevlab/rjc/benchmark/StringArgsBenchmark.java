@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.benchmark;
+
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+import org.idevlab.rjc.util.SafeEncoder;
+
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares encoding of String arguments through <code>SafeEncoder</code> with
+ * the direct UTF-8 encoding into the output buffer. No server is needed.
+ *
+ * @author Evgeny Dolgov
+ */
+public class StringArgsBenchmark {
+    private static final int TOTAL_OPERATIONS = 5000000;
+
+    public static void main(String[] args) {
+        final Protocol protocol = new Protocol();
+        final RedisOutputStream os = new RedisOutputStream(new NullOutputStream());
+        final String[] commandArgs = {"user:1000:profile", "name", "Иван Петров"};
+
+        for (int round = 0; round < 3; round++) {
+            long collections = collectionCount();
+            long begin = System.nanoTime();
+            for (int n = 0; n < TOTAL_OPERATIONS; n++) {
+                protocol.writeCommand(os, RedisCommand.HSET, SafeEncoder.encode(commandArgs));
+            }
+            report("SafeEncoder", begin, collections);
+
+            collections = collectionCount();
+            begin = System.nanoTime();
+            for (int n = 0; n < TOTAL_OPERATIONS; n++) {
+                protocol.writeCommand(os, RedisCommand.HSET, commandArgs);
+            }
+            report("direct UTF-8", begin, collections);
+        }
+    }
+
+    private static void report(String name, long begin, long collections) {
+        long elapsed = System.nanoTime() - begin;
+        System.out.println(name + ": " + (1000000000L * TOTAL_OPERATIONS / elapsed) + " ops, "
+                + (collectionCount() - collections) + " GC runs");
+    }
+
+    private static long collectionCount() {
+        long result = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += bean.getCollectionCount();
+        }
+        return result;
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
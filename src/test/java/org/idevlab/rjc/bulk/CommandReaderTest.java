@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.bulk;
+
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class CommandReaderTest {
+
+    @Test
+    public void commands() {
+        CommandReader reader = new CommandReader(new StringReader(
+                "set key value\n\n# comment\n  HSET hash \"field 1\" \"say \\\"hi\\\"\\n\"  \nping\n"));
+        assertTrue(reader.hasNext());
+        BulkCommand command = reader.next();
+        assertEquals(RedisCommand.SET, command.getCommand());
+        assertEquals("SET [key, value]", command.toString());
+        assertEquals("HSET [hash, field 1, say \"hi\"\n]", reader.next().toString());
+        assertEquals("PING []", reader.next().toString());
+        assertFalse(reader.hasNext());
+        assertEquals(5, reader.getLineNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCommand() {
+        new CommandReader(new StringReader("NOSUCH key")).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unclosedQuote() {
+        new CommandReader(new StringReader("SET key \"value")).next();
+    }
+
+    @Test
+    public void continueAfterMalformedLine() {
+        CommandReader reader = new CommandReader(new StringReader("SET a 1\nNOSUCH key\nSET b \"2\nSET c 3\n"));
+        assertEquals("SET [a, 1]", reader.next().toString());
+        try {
+            reader.next();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown command at line 2: NOSUCH", e.getMessage());
+        }
+        try {
+            reader.hasNext();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unclosed quote at line 3", e.getMessage());
+        }
+        assertEquals("SET [c, 3]", reader.next().toString());
+        assertFalse(reader.hasNext());
+    }
+}
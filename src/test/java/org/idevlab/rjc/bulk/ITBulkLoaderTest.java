@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.bulk;
+
+import org.idevlab.rjc.HostAndPortUtil;
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.RedisNodeFactory;
+import org.idevlab.rjc.SingleRedisOperations;
+import org.idevlab.rjc.ds.PoolableDataSource;
+import org.idevlab.rjc.ds.SimpleDataSource;
+import org.idevlab.rjc.ds.SimpleDataSourceFactory;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.sharding.HashNodeLocator;
+import org.idevlab.rjc.sharding.NodeLocator;
+import org.idevlab.rjc.sharding.Shard;
+import org.idevlab.rjc.sharding.ShardedRedis;
+import org.idevlab.rjc.sharding.ShardsFactoryImpl;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITBulkLoaderTest {
+    protected static HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+
+    @Test
+    public void loadNode() {
+        RedisNode node = new RedisNode(new SimpleDataSource(hnp.host, hnp.port));
+        node.flushAll();
+        node.set("string", "value");
+        BulkLoader loader = new BulkLoader(node);
+        loader.setWindow(100);
+
+        BulkLoadReport report = loader.load(new Commands(20000, "string"));
+
+        assertEquals(20001, report.getCommands());
+        assertEquals(1, report.getErrors());
+        assertNotNull(report.getFirstError());
+        assertEquals("value19999", node.get("key19999"));
+    }
+
+    @Test
+    public void loadText() {
+        RedisNode node = new RedisNode(new SimpleDataSource(hnp.host, hnp.port));
+        node.flushAll();
+        BulkLoadReport report = new BulkLoader(node).load(new StringReader(
+                "SET user:1 \"John Smith\"\nHSET user:1:props city \"New York\"\nINCR user:1\n"));
+
+        assertEquals(3, report.getCommands());
+        assertEquals(1, report.getErrors());
+        assertEquals("John Smith", node.get("user:1"));
+        assertEquals("New York", node.hget("user:1:props", "city"));
+    }
+
+    @Test
+    public void loadMalformedLine() {
+        PoolableDataSource dataSource = new PoolableDataSource();
+        dataSource.setHost(hnp.host);
+        dataSource.setPort(hnp.port);
+        dataSource.setMaxActive(1);
+        dataSource.setTestOnBorrow(false);
+        RedisNode node = new RedisNode(dataSource);
+        node.flushAll();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("SET key").append(i).append(" value").append(i).append('\n');
+            if (i == 2500) {
+                text.append("NOSUCH key\n");
+            }
+        }
+        BulkLoader loader = new BulkLoader(node);
+        loader.setWindow(100);
+
+        BulkLoadReport report = loader.load(new StringReader(text.toString()));
+
+        assertEquals(5001, report.getCommands());
+        assertEquals(1, report.getErrors());
+        assertEquals("Unknown command at line 2502: NOSUCH", report.getFirstError());
+        assertEquals("value4999", node.get("key4999"));
+        assertEquals("PONG", node.ping());
+        assertEquals(0, dataSource.getNumActive());
+        dataSource.close();
+    }
+
+    @Test
+    public void loadShards() {
+        ShardsFactoryImpl<SingleRedisOperations> shardsFactory = new ShardsFactoryImpl<SingleRedisOperations>();
+        shardsFactory.setDataSourceFactory(new SimpleDataSourceFactory());
+        shardsFactory.setNodeFactory(new RedisNodeFactory());
+        shardsFactory.setAddresses(System.getProperty("redis-hosts"));
+        Collection<Shard<SingleRedisOperations>> shards = shardsFactory.create();
+        NodeLocator<SingleRedisOperations> locator = new HashNodeLocator<SingleRedisOperations>(shards);
+        for (SingleRedisOperations node : locator.getNodes()) {
+            node.flushAll();
+        }
+        ShardedRedis redis = new ShardedRedis(locator);
+
+        BulkLoadReport report = new BulkLoader(redis).load(new Commands(20000, "counter"));
+
+        assertEquals(20001, report.getCommands());
+        assertEquals(0, report.getErrors());
+        assertEquals("value0", redis.get("key0"));
+        assertEquals("value19999", redis.get("key19999"));
+        assertEquals("1", redis.get("counter"));
+        long total = 0;
+        for (SingleRedisOperations node : locator.getNodes()) {
+            total += node.dbSize();
+        }
+        assertEquals(20001, total);
+    }
+
+    /**
+     * SET key{i} value{i} commands followed by INCR of the given key
+     */
+    private static class Commands implements Iterator<BulkCommand> {
+        private final int count;
+        private final String incrKey;
+        private int next;
+
+        Commands(int count, String incrKey) {
+            this.count = count;
+            this.incrKey = incrKey;
+        }
+
+        public boolean hasNext() {
+            return next <= count;
+        }
+
+        public BulkCommand next() {
+            if (next > count) {
+                throw new NoSuchElementException();
+            }
+            final int i = next++;
+            return i == count ? new BulkCommand(RedisCommand.INCR, incrKey) : new BulkCommand(RedisCommand.SET, "key" + i, "value" + i);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
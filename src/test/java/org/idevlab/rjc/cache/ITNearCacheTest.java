@@ -0,0 +1,209 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.cache;
+
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.SingleNodeTestBase;
+import org.idevlab.rjc.ds.PoolableDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITNearCacheTest extends SingleNodeTestBase {
+    private PoolableDataSource dataSource;
+    private RedisNode node;
+    private NearCache cache;
+    private NearCache other;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        dataSource = new PoolableDataSource();
+        dataSource.setHost(hnp.host);
+        dataSource.setPort(hnp.port);
+        node = new RedisNode(dataSource);
+        cache = new NearCache(node, dataSource);
+        other = new NearCache(node, dataSource);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+        other.close();
+        dataSource.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void cachedReads() throws InterruptedException {
+        session.set("foo", "bar");
+        session.hset("hash", "field", "value");
+        session.sadd("set", "member");
+        start(cache);
+
+        assertEquals("bar", cache.get("foo"));
+        assertEquals("bar", cache.get("foo"));
+        assertNull(cache.get("missing"));
+        assertNull(cache.get("missing"));
+        assertEquals("value", cache.hget("hash", "field"));
+        assertEquals("value", cache.hget("hash", "field"));
+        Map<String, String> hash = new HashMap<String, String>();
+        hash.put("field", "value");
+        assertEquals(hash, cache.hgetAll("hash"));
+        cache.hgetAll("hash").clear();
+        assertEquals(hash, cache.hgetAll("hash"));
+        assertEquals(new HashSet<String>(Arrays.asList("member")), cache.smembers("set"));
+        assertEquals(new HashSet<String>(Arrays.asList("member")), cache.smembers("set"));
+
+        assertEquals(5, cache.getMissCount());
+        assertEquals(6, cache.getHitCount());
+        assertEquals(5, cache.getSize());
+
+        // not written through a near cache, so the cached value stays until the TTL
+        session.set("foo", "baz");
+        assertEquals("bar", cache.get("foo"));
+    }
+
+    @Test
+    public void invalidationOnWrite() throws InterruptedException {
+        session.set("foo", "bar");
+        session.hset("hash", "field", "value");
+        start(cache);
+        start(other);
+
+        assertEquals("bar", cache.get("foo"));
+        assertEquals("value", cache.hget("hash", "field"));
+
+        other.hset("hash", "field", "changed");
+        other.set("foo", "baz");
+        assertEquals("baz", other.get("foo"));
+        waitFor(cache, "foo", "baz");
+        assertEquals("changed", cache.hget("hash", "field"));
+        assertTrue(cache.getInvalidationCount() >= 2);
+
+        other.del("foo");
+        waitFor(cache, "foo", null);
+    }
+
+    @Test
+    public void eviction() throws InterruptedException {
+        cache.setMaxSize(2);
+        start(cache);
+        session.set("a", "1");
+        session.set("b", "2");
+        session.set("c", "3");
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a");
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void ttl() throws InterruptedException {
+        cache.setTtl(50);
+        start(cache);
+        session.set("foo", "bar");
+        assertEquals("bar", cache.get("foo"));
+        session.set("foo", "baz");
+        Thread.sleep(100);
+        assertEquals("baz", cache.get("foo"));
+        assertEquals(1, cache.getExpiredCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void expireThenGet() throws InterruptedException {
+        session.set("foo", "bar");
+        start(cache);
+        start(other);
+        assertEquals("bar", cache.get("foo"));
+        assertEquals("bar", other.get("foo"));
+
+        long invalidations = other.getInvalidationCount();
+        cache.expire("foo", 1);
+        assertEquals("bar", cache.get("foo"));
+        for (int i = 0; i < 100 && other.getInvalidationCount() == invalidations; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals("bar", other.get("foo"));
+        Thread.sleep(1100);
+        assertNull(session.get("foo"));
+        assertNull(cache.get("foo"));
+        assertNull(other.get("foo"));
+    }
+
+    @Test
+    public void setexThenGet() throws InterruptedException {
+        cache.setTtl(60000);
+        start(cache);
+        cache.setex("foo", 1, "bar");
+        assertEquals("bar", cache.get("foo"));
+        assertEquals("bar", cache.get("foo"));
+        Thread.sleep(1100);
+        assertNull(cache.get("foo"));
+        assertTrue(cache.getExpiredCount() >= 1);
+    }
+
+    @Test
+    public void notSubscribed() throws InterruptedException {
+        session.set("foo", "bar");
+        assertEquals("bar", cache.get("foo"));
+        assertEquals("bar", cache.get("foo"));
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getMissCount());
+
+        start(cache);
+        cache.get("foo");
+        assertEquals(1, cache.getSize());
+        cache.close();
+        assertFalse(cache.isSubscribed());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static void start(NearCache cache) throws InterruptedException {
+        cache.start();
+        for (int i = 0; i < 100 && !cache.isSubscribed(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(cache.isSubscribed());
+    }
+
+    private static void waitFor(NearCache cache, String key, String expected) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            String value = cache.get(key);
+            if (expected == null ? value == null : expected.equals(value)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail(key + " is not invalidated");
+    }
+}
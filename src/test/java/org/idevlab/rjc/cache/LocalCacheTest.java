@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class LocalCacheTest {
+
+    @Test
+    public void invalidationDropsLoadOfSameKey() {
+        LocalCache cache = new LocalCache(10);
+        long generation = cache.getGeneration("foo");
+        cache.invalidate("foo");
+        cache.put("foo", "get", "bar", generation, 0, 100);
+        assertSame(LocalCache.MISS, cache.get("foo", "get", 0));
+    }
+
+    @Test
+    public void invalidationOfOtherKeyKeepsLoad() {
+        LocalCache cache = new LocalCache(10);
+        cache.invalidate("a");
+        String other = "b";
+        while (cache.getGeneration(other) != 0) {
+            other += "b";
+        }
+        long generation = cache.getGeneration("a");
+        cache.invalidate(other);
+        cache.put("a", "get", "1", generation, 0, 100);
+        assertEquals("1", cache.get("a", "get", 0));
+    }
+
+    @Test
+    public void clearDropsAllLoads() {
+        LocalCache cache = new LocalCache(10);
+        long generation = cache.getGeneration("foo");
+        cache.clear();
+        cache.put("foo", "get", "bar", generation, 0, 100);
+        assertSame(LocalCache.MISS, cache.get("foo", "get", 0));
+    }
+
+    @Test
+    public void entryIsCappedAtDeadline() {
+        LocalCache cache = new LocalCache(10);
+        cache.expire("foo", 50);
+        cache.put("foo", "get", "bar", cache.getGeneration("foo"), 0, 100);
+        assertEquals("bar", cache.get("foo", "get", 49));
+        assertSame(LocalCache.MISS, cache.get("foo", "get", 50));
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    public void lookupsCountTowardMaxSize() {
+        LocalCache cache = new LocalCache(3);
+        cache.put("a", "get", "1", cache.getGeneration("a"), 0, 100);
+        cache.put("hash", "f1", "1", cache.getGeneration("hash"), 0, 100);
+        cache.put("hash", "f2", "2", cache.getGeneration("hash"), 0, 100);
+        assertEquals(3, cache.size());
+        cache.put("hash", "f3", "3", cache.getGeneration("hash"), 0, 100);
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(LocalCache.MISS, cache.get("a", "get", 0));
+        assertEquals("1", cache.get("hash", "f1", 0));
+
+        cache.put("hash", "f4", "4", cache.getGeneration("hash"), 0, 100);
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    public void segmentsShareMaxSize() {
+        LocalCache cache = new LocalCache(10000);
+        for (int i = 0; i < 20000; i++) {
+            String key = "key" + i;
+            cache.put(key, "get", "value", cache.getGeneration(key), 0, 100);
+        }
+        assertTrue(cache.size() <= 10000);
+        assertTrue(cache.size() > 9000);
+        assertEquals("value", cache.get("key19999", "get", 0));
+
+        cache.setMaxSize(100);
+        assertTrue(cache.size() <= 100);
+        cache.put("foo", "get", "bar", cache.getGeneration("foo"), 0, 100);
+        assertEquals("bar", cache.get("foo", "get", 0));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.codec;
+
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.FragmentedByteArrayInputStream;
+import org.idevlab.rjc.protocol.Protocol;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisInputStream;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class CodecsTest {
+
+    @Test
+    public void encodeLongs() {
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$1\r\n0\r\n", send(Codecs.LONG, 0L));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$3\r\n-42\r\n", send(Codecs.LONG, -42L));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$19\r\n9223372036854775807\r\n", send(Codecs.LONG, Long.MAX_VALUE));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$20\r\n-9223372036854775808\r\n", send(Codecs.LONG, Long.MIN_VALUE));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$11\r\n-4294967296\r\n", send(Codecs.LONG, -4294967296L));
+    }
+
+    @Test
+    public void encodeOthers() {
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$3\r\n0.5\r\n", send(Codecs.DOUBLE, 0.5d));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$1\r\n3\r\n", send(Codecs.DOUBLE, 3d));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$4\r\n-inf\r\n", send(Codecs.DOUBLE, Double.NEGATIVE_INFINITY));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$5\r\nÃ©tÃ©\r\n", send(Codecs.STRING, "été"));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$2\r\nab\r\n", send(Codecs.BYTES, new byte[]{'a', 'b'}));
+    }
+
+    private <T> String send(Codec<T> codec, T value) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(bos);
+        new Protocol().sendCommand(os, RedisCommand.SET, codec, value, "foo");
+        try {
+            return bos.toString("ISO-8859-1");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void decodeFragmentedReply() {
+        RedisInputStream is = new RedisInputStream(new FragmentedByteArrayInputStream(
+                "*4\r\n$5\r\n12345\r\n$-1\r\n$2\r\n-7\r\n$12\r\n123456789012\r\n".getBytes()), 8);
+        List<Long> values = new Protocol().readMultiBulk(is, Codecs.LONG);
+        assertEquals(Arrays.asList(12345L, null, -7L, 123456789012L), values);
+    }
+
+    @Test
+    public void decodeValueLargerThanBuffer() {
+        RedisInputStream is = new RedisInputStream(new FragmentedByteArrayInputStream(
+                "$10\r\n0123456789\r\n$-1\r\n".getBytes()), 4);
+        Protocol protocol = new Protocol();
+        assertArrayEquals("0123456789".getBytes(), protocol.readBulk(is, Codecs.BYTES));
+        assertNull(protocol.readBulk(is, Codecs.STRING));
+    }
+
+    @Test
+    public void parseLong() {
+        byte[] bytes = "x-9223372036854775808x".getBytes();
+        assertEquals(Long.MIN_VALUE, Codecs.parseLong(bytes, 1, 20));
+        assertEquals(922337203685477580L, Codecs.parseLong(bytes, 2, 18));
+        assertEquals(-9L, Codecs.parseLong(bytes, 1, 2));
+    }
+
+    @Test(expected = RedisException.class)
+    public void parseLongOverflow() {
+        byte[] bytes = "9223372036854775808".getBytes();
+        Codecs.parseLong(bytes, 0, bytes.length);
+    }
+
+    @Test(expected = RedisException.class)
+    public void parseWrongLong() {
+        byte[] bytes = "1.5".getBytes();
+        Codecs.parseLong(bytes, 0, bytes.length);
+    }
+}
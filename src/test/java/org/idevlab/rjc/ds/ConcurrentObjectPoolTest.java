@@ -0,0 +1,417 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ConcurrentObjectPoolTest {
+
+    private CountingFactory factory;
+    private ConcurrentObjectPool pool;
+
+    @Before
+    public void setUp() {
+        factory = new CountingFactory();
+        pool = new ConcurrentObjectPool(factory);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void reusesReturnedObjects() throws Exception {
+        Object first = pool.borrowObject();
+        assertEquals(1, pool.getNumActive());
+        pool.returnObject(first);
+        assertEquals(0, pool.getNumActive());
+        assertEquals(1, pool.getNumIdle());
+        assertSame(first, pool.borrowObject());
+        assertEquals(1, factory.created.get());
+    }
+
+    @Test
+    public void timesOutWhenExhausted() throws Exception {
+        pool.setMaxActive(2);
+        pool.setMaxWait(50);
+        pool.borrowObject();
+        pool.borrowObject();
+        long begin = System.currentTimeMillis();
+        try {
+            pool.borrowObject();
+            fail();
+        } catch (NoSuchElementException e) {
+            assertTrue(System.currentTimeMillis() - begin >= 40);
+        }
+        assertEquals(2, pool.getNumActive());
+    }
+
+    @Test
+    public void waiterGetsReturnedObject() throws Exception {
+        pool.setMaxActive(1);
+        final Object borrowed = pool.borrowObject();
+        final AtomicReference<Object> received = new AtomicReference<Object>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    received.set(pool.borrowObject());
+                } catch (Exception e) {
+                    received.set(e);
+                }
+                done.countDown();
+            }
+        };
+        waiter.start();
+        Thread.sleep(50);
+        assertEquals(1, done.getCount());
+        pool.returnObject(borrowed);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertSame(borrowed, received.get());
+    }
+
+    @Test
+    public void invalidateReleasesSlot() throws Exception {
+        pool.setMaxActive(1);
+        pool.setMaxWait(10);
+        Object obj = pool.borrowObject();
+        pool.invalidateObject(obj);
+        assertEquals(0, pool.getNumActive());
+        assertEquals(1, factory.destroyed.get());
+        assertNotSame(obj, pool.borrowObject());
+    }
+
+    @Test
+    public void maxIdle() throws Exception {
+        pool.setMaxIdle(1);
+        Object first = pool.borrowObject();
+        Object second = pool.borrowObject();
+        pool.returnObject(first);
+        pool.returnObject(second);
+        assertEquals(1, pool.getNumIdle());
+        assertEquals(1, factory.destroyed.get());
+    }
+
+    @Test
+    public void testOnBorrowDropsInvalidObjects() throws Exception {
+        pool.setTestOnBorrow(true);
+        pool.addObject();
+        pool.addObject();
+        factory.valid = false;
+        try {
+            pool.borrowObject();
+            fail();
+        } catch (NoSuchElementException e) {
+            // the new object is invalid as well
+        }
+        assertEquals(3, factory.destroyed.get());
+        assertEquals(0, pool.getNumIdle());
+        assertEquals(0, pool.getNumActive());
+        factory.valid = true;
+        assertNotNull(pool.borrowObject());
+    }
+
+    @Test
+    public void evictsIdleObjects() throws Exception {
+        pool.setNumTestsPerEvictionRun(-1);
+        pool.setMinEvictableIdleTimeMillis(1);
+        pool.setMinIdle(1);
+        pool.addObject();
+        pool.addObject();
+        Thread.sleep(5);
+        pool.evict();
+        assertEquals(2, factory.destroyed.get());
+        assertEquals(1, pool.getNumIdle());
+    }
+
+    @Test
+    public void reusesLastReturnedObject() throws Exception {
+        Object first = pool.borrowObject();
+        Object second = pool.borrowObject();
+        pool.returnObject(first);
+        pool.returnObject(second);
+        assertSame(second, pool.borrowObject());
+        assertSame(first, pool.borrowObject());
+    }
+
+    @Test
+    public void evictsObjectsAboveTheLoad() throws Exception {
+        pool.setNumTestsPerEvictionRun(1);
+        pool.setMinEvictableIdleTimeMillis(50);
+        Object spare = pool.borrowObject();
+        Object used = pool.borrowObject();
+        pool.returnObject(spare);
+        pool.returnObject(used);
+        // a single borrower keeps reusing the same object, so the other one grows old
+        for (int i = 0; i < 10; i++) {
+            Object obj = pool.borrowObject();
+            Thread.sleep(10);
+            pool.returnObject(obj);
+        }
+        pool.evict();
+        assertEquals(1, factory.destroyed.get());
+        assertEquals(1, pool.getNumIdle());
+        assertSame(used, pool.borrowObject());
+    }
+
+    @Test
+    public void testWhileIdle() throws Exception {
+        pool.setTestWhileIdle(true);
+        pool.addObject();
+        pool.addObject();
+        pool.evict();
+        assertEquals(2, pool.getNumIdle());
+        factory.valid = false;
+        pool.evict();
+        assertEquals(0, pool.getNumIdle());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closed() throws Exception {
+        pool.addObject();
+        pool.close();
+        assertEquals(0, pool.getNumIdle());
+        assertEquals(1, factory.destroyed.get());
+        pool.borrowObject();
+    }
+
+    @Test
+    public void concurrentBorrowNeverExceedsMaxActive() throws Exception {
+        checkConcurrentBorrow();
+    }
+
+    @Test
+    public void concurrentBorrowWithThreadAffinity() throws Exception {
+        pool.setThreadAffinity(true);
+        checkConcurrentBorrow();
+    }
+
+    private void checkConcurrentBorrow() throws Exception {
+        pool.setMaxActive(4);
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int n = 0; n < 2000; n++) {
+                            Object obj = pool.borrowObject();
+                            int current = inUse.incrementAndGet();
+                            int max;
+                            while ((max = maxInUse.get()) < current && !maxInUse.compareAndSet(max, current)) {
+                                // retry
+                            }
+                            inUse.decrementAndGet();
+                            pool.returnObject(obj);
+                        }
+                    } catch (Exception e) {
+                        error.set(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+        assertTrue(maxInUse.get() <= 4);
+        assertTrue(factory.created.get() <= 4 + factory.destroyed.get());
+        assertEquals(pool.getNumParked(), pool.getNumActive());
+    }
+
+    @Test
+    public void threadAffinityReusesParkedObject() throws Exception {
+        pool.setThreadAffinity(true);
+        Object obj = pool.borrowObject();
+        pool.returnObject(obj);
+        assertEquals(1, pool.getNumParked());
+        assertEquals(1, pool.getNumActive());
+        assertEquals(0, pool.getNumIdle());
+        assertSame(obj, pool.borrowObject());
+        assertEquals(0, pool.getNumParked());
+        assertEquals(0, factory.passivated.get());
+    }
+
+    @Test
+    public void exhaustedPoolTakesParkedObject() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.setMaxActive(1);
+        pool.setMaxWait(1000);
+        final Object parked = borrowAndReturnInOtherThread();
+        assertEquals(1, pool.getNumActive());
+        long begin = System.currentTimeMillis();
+        assertSame(parked, pool.borrowObject());
+        assertTrue(System.currentTimeMillis() - begin < 500);
+        assertEquals(0, pool.getNumParked());
+        assertEquals(1, pool.getNumActive());
+    }
+
+    @Test
+    public void evictorReclaimsParkedObjects() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.returnObject(pool.borrowObject());
+        borrowAndReturnInOtherThread();
+        assertEquals(2, pool.getNumParked());
+
+        // the object of the finished thread goes back at once, the local one after a run without reuse
+        pool.evict();
+        assertEquals(1, pool.getNumParked());
+        assertEquals(1, pool.getNumIdle());
+        pool.evict();
+        assertEquals(0, pool.getNumParked());
+        assertEquals(2, pool.getNumIdle());
+        assertEquals(0, pool.getNumActive());
+    }
+
+    @Test
+    public void newThreadReclaimsSlotsOfFinishedThreads() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.setMaxActive(-1);
+        for (int i = 0; i < 10; i++) {
+            borrowAndReturnInOtherThread();
+            // the previous thread's object went back to the idle objects and was reused
+            assertEquals(1, pool.getNumParked());
+            assertEquals(1, pool.getNumActive());
+        }
+        assertEquals(1, factory.created.get());
+        assertEquals(1, pool.getNumSlots());
+    }
+
+    @Test
+    public void affineBorrowValidates() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.setTestOnBorrow(true);
+        Object obj = pool.borrowObject();
+        assertEquals(1, factory.validated.get());
+        pool.returnObject(obj);
+        assertSame(obj, pool.borrowObject());
+        assertEquals(2, factory.validated.get());
+    }
+
+    @Test
+    public void affineBorrowDropsInvalidObject() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.setTestOnBorrow(true);
+        pool.setMaxActive(1);
+        Object obj = pool.borrowObject();
+        pool.returnObject(obj);
+        factory.valid = false;
+        try {
+            pool.borrowObject();
+            fail();
+        } catch (NoSuchElementException e) {
+            // the new object is invalid as well
+        }
+        assertEquals(2, factory.destroyed.get());
+        assertEquals(0, pool.getNumParked());
+        assertEquals(0, pool.getNumActive());
+        factory.valid = true;
+        Object fresh = pool.borrowObject();
+        assertNotSame(obj, fresh);
+        assertEquals(1, pool.getNumActive());
+    }
+
+    @Test
+    public void disablingThreadAffinityReleasesParkedObjects() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.returnObject(pool.borrowObject());
+        pool.setThreadAffinity(false);
+        assertEquals(0, pool.getNumParked());
+        assertEquals(0, pool.getNumActive());
+        assertEquals(1, pool.getNumIdle());
+    }
+
+    @Test
+    public void clearDestroysParkedObjects() throws Exception {
+        pool.setThreadAffinity(true);
+        pool.returnObject(pool.borrowObject());
+        pool.clear();
+        assertEquals(0, pool.getNumParked());
+        assertEquals(0, pool.getNumActive());
+        assertEquals(1, factory.destroyed.get());
+    }
+
+    private Object borrowAndReturnInOtherThread() throws InterruptedException {
+        final AtomicReference<Object> borrowed = new AtomicReference<Object>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Object obj = pool.borrowObject();
+                    borrowed.set(obj);
+                    pool.returnObject(obj);
+                } catch (Exception e) {
+                    borrowed.set(e);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        return borrowed.get();
+    }
+
+    private static class CountingFactory extends BasePoolableObjectFactory {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger destroyed = new AtomicInteger();
+        final AtomicInteger passivated = new AtomicInteger();
+        final AtomicInteger validated = new AtomicInteger();
+        volatile boolean valid = true;
+
+        @Override
+        public Object makeObject() {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        @Override
+        public void destroyObject(Object obj) {
+            destroyed.incrementAndGet();
+        }
+
+        @Override
+        public void passivateObject(Object obj) {
+            passivated.incrementAndGet();
+        }
+
+        @Override
+        public boolean validateObject(Object obj) {
+            validated.incrementAndGet();
+            return valid;
+        }
+    }
+}
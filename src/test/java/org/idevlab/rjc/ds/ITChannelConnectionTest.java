@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.HostAndPortUtil;
+import org.idevlab.rjc.Pipeline;
+import org.idevlab.rjc.RedisClient;
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.RedisSessionImpl;
+import org.idevlab.rjc.Session;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITChannelConnectionTest {
+    protected static HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+
+    private ChannelRedisConnection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = new ChannelRedisConnection(hnp.host, hnp.port);
+        connection.setTimeout(500);
+        connection.sendCommand(RedisCommand.FLUSHALL);
+        connection.getStatusCodeReply();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void connectTimeout() throws IOException {
+        // a listener which never accepts drops the connection attempts once its backlog is full
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        List<Socket> backlog = new ArrayList<Socket>();
+        try {
+            while (true) {
+                Socket socket = new Socket();
+                backlog.add(socket);
+                try {
+                    socket.connect(server.getLocalSocketAddress(), 300);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+            }
+            ChannelRedisConnection unreachable = new ChannelRedisConnection("127.0.0.1", server.getLocalPort());
+            unreachable.setTimeout(300);
+            long begin = System.currentTimeMillis();
+            try {
+                unreachable.connect();
+                fail();
+            } catch (SocketTimeoutException e) {
+                assertTrue(System.currentTimeMillis() - begin < 3000);
+            }
+            assertFalse(unreachable.isConnected());
+        } finally {
+            for (Socket socket : backlog) {
+                socket.close();
+            }
+            server.close();
+        }
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void checkUnknownHost() throws UnknownHostException, IOException {
+        new ChannelRedisConnection("someunknownhost", 6379).connect();
+    }
+
+    @Test(expected = IOException.class)
+    public void checkWrongPort() throws UnknownHostException, IOException {
+        new ChannelRedisConnection("localhost", 55665).connect();
+    }
+
+    @Test
+    public void largeValue() {
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+
+        Session session = new RedisSessionImpl(connection);
+        assertEquals("OK", session.set("foo", value));
+        assertEquals(value, session.get("foo"));
+    }
+
+    @Test
+    public void gatheredLargeValues() {
+        byte[] value1 = new byte[300000];
+        byte[] value2 = new byte[70000];
+        Arrays.fill(value1, (byte) 1);
+        Arrays.fill(value2, (byte) 2);
+        byte[] key1 = {'k', '1'};
+        byte[] key2 = {'k', '2'};
+
+        connection.sendCommand(RedisCommand.MSET, key1, value1, key2, value2);
+        assertEquals("OK", connection.getStatusCodeReply());
+        connection.sendCommand(RedisCommand.GET, key1);
+        assertArrayEquals(value1, connection.getBinaryBulkReply());
+        connection.sendCommand(RedisCommand.GET, key2);
+        assertArrayEquals(value2, connection.getBinaryBulkReply());
+    }
+
+    @Test
+    public void pipeline() {
+        Session session = new RedisSessionImpl(connection);
+        List<Object> result = session.pipeline(new Pipeline() {
+            public void execute(RedisClient client) {
+                for (int i = 0; i < 1000; i++) {
+                    client.noReply(RedisCommand.INCR, "counter");
+                }
+            }
+        });
+        assertEquals(1000, result.size());
+        assertEquals(1000L, result.get(999));
+    }
+
+    @Test
+    public void readTimeout() {
+        connection.sendCommand(RedisCommand.BLPOP, "nokey", "0");
+        try {
+            connection.getMultiBulkReply();
+            fail("Timeout expected");
+        } catch (RedisException e) {
+            assertTrue(e.getCause() instanceof java.net.SocketTimeoutException);
+        }
+    }
+
+    @Test
+    public void poolableDataSource() {
+        PoolableDataSource dataSource = new PoolableDataSource();
+        dataSource.setHost(hnp.host);
+        dataSource.setPort(hnp.port);
+        dataSource.setTransport(Transport.CHANNEL);
+
+        RedisNode node = new RedisNode(dataSource);
+        node.set("foo", "bar");
+        assertEquals("bar", node.get("foo"));
+        assertEquals(1, dataSource.getNumIdle());
+        dataSource.close();
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.ds;
+
+import org.idevlab.rjc.HostAndPortUtil;
+import org.idevlab.rjc.RedisClient;
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.RedisScript;
+import org.idevlab.rjc.Response;
+import org.idevlab.rjc.Session;
+import org.idevlab.rjc.SessionFactoryImpl;
+import org.idevlab.rjc.Transaction;
+import org.idevlab.rjc.codec.Codec;
+import org.idevlab.rjc.codec.Codecs;
+import org.idevlab.rjc.protocol.PreparedCommand;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.RedisOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITMultiplexedConnectionTest {
+    protected static HostAndPortUtil.HostAndPort hnp = HostAndPortUtil.getRedisServers().get(0);
+
+    private MultiplexedDataSource dataSource;
+    private SessionFactoryImpl factory;
+
+    @Before
+    public void setUp() {
+        dataSource = new MultiplexedDataSource(hnp.host, hnp.port);
+        factory = new SessionFactoryImpl(dataSource);
+        Session session = factory.create();
+        session.flushAll();
+        session.close();
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void commands() {
+        Session session = factory.create();
+        assertEquals("OK", session.set("foo", "bar"));
+        assertEquals("bar", session.get("foo"));
+        assertEquals(Long.valueOf(1), session.rpush("list", "a"));
+        assertEquals(Arrays.asList("a"), session.lrange("list", 0, -1));
+        assertEquals(3L, session.incrByAsLong("counter", 3));
+        session.close();
+    }
+
+    @Test
+    public void errorReplyKeepsConnection() {
+        Session session = factory.create();
+        session.set("foo", "bar");
+        try {
+            session.incr("foo");
+            fail();
+        } catch (RedisException e) {
+            assertTrue(e.getMessage().startsWith("ERR"));
+        }
+        assertEquals("bar", session.get("foo"));
+        session.close();
+    }
+
+    @Test
+    public void pipeline() {
+        RedisConnection connection = dataSource.getConnection();
+        connection.setAutoFlush(false);
+        connection.sendCommand(RedisCommand.SET, "foo", "bar");
+        connection.sendCommand(RedisCommand.GET, "foo");
+        connection.sendCommand(RedisCommand.INCR, "counter");
+        assertEquals(Arrays.<Object>asList("OK", "bar", 1L), connection.getAll());
+        connection.close();
+    }
+
+    @Test
+    public void concurrentCallers() throws InterruptedException {
+        runConcurrentCallers(new RedisNode(dataSource));
+    }
+
+    @Test
+    public void coalescedCallers() throws InterruptedException {
+        RedisNode node = new RedisNode(dataSource);
+        node.setCoalescingWindow(200);
+        runConcurrentCallers(node);
+        node.setMaxBatchSize(8);
+        runConcurrentCallers(node);
+    }
+
+    @Test
+    public void coalescingWindowBoundsLatency() {
+        RedisNode node = new RedisNode(dataSource);
+        node.setCoalescingWindow(50000);
+        assertEquals("PONG", node.ping());
+
+        long begin = System.nanoTime();
+        assertEquals("PONG", node.ping());
+        long elapsed = System.nanoTime() - begin;
+        assertTrue("Flushed too early: " + elapsed, elapsed >= 40000000L);
+        assertTrue("Flushed too late: " + elapsed, elapsed < 1000000000L);
+
+        node.setMaxBatchSize(1);
+        begin = System.nanoTime();
+        assertEquals("PONG", node.ping());
+        elapsed = System.nanoTime() - begin;
+        assertTrue("Batch limit is ignored: " + elapsed, elapsed < 40000000L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void coalescingRequiresMultiplexedDataSource() {
+        new RedisNode(new SimpleDataSource(hnp.host, hnp.port)).setCoalescingWindow(100);
+    }
+
+    private void runConcurrentCallers(final RedisNode node) throws InterruptedException {
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[32];
+        for (int i = 0; i < threads.length; i++) {
+            final String key = "key" + i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        node.del(key + ":counter");
+                        for (int n = 0; n < 300; n++) {
+                            node.set(key, key + n);
+                            assertEquals(key + n, node.get(key));
+                            assertEquals(n + 1, node.incrAsLong(key + ":counter"));
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+    }
+
+    @Test
+    public void blockingCommandUsesDedicatedConnection() throws InterruptedException {
+        final AtomicReference<Object> popped = new AtomicReference<Object>();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                Session session = factory.create();
+                try {
+                    popped.set(session.blpop(5, "queue"));
+                } catch (Throwable e) {
+                    popped.set(e);
+                } finally {
+                    session.close();
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(200);
+
+        // the shared socket is not blocked
+        Session session = factory.create();
+        assertEquals("OK", session.set("foo", "bar"));
+        session.rpush("queue", "item");
+        session.close();
+
+        consumer.join();
+        assertEquals(Arrays.asList("queue", "item"), popped.get());
+    }
+
+    @Test
+    public void transactionUsesDedicatedConnection() {
+        Session session = factory.create();
+        RedisClient client = session.multi();
+        client.getStatusReply(RedisCommand.SET, "foo", "bar");
+        client.getStatusReply(RedisCommand.INCR, "counter");
+        List<Object> result = session.exec();
+        assertEquals(Arrays.<Object>asList("OK", 1L), result);
+        session.close();
+    }
+
+    @Test
+    public void pipelinedTransaction() {
+        RedisNode node = new RedisNode(dataSource);
+        Transaction tx = new Transaction();
+        tx.set("foo", "bar");
+        Response<Long> counter = tx.incr("counter");
+        assertEquals(Arrays.<Object>asList("OK", 1L), node.exec(tx));
+        assertEquals(Long.valueOf(1), counter.get());
+        assertEquals("bar", node.get("foo"));
+    }
+
+    @Test
+    public void scriptedTransaction() {
+        RedisNode node = new RedisNode(dataSource);
+        node.scriptFlush();
+        RedisScript script = new RedisScript("return redis.call('incrby', KEYS[1], ARGV[1])");
+        Transaction tx = new Transaction();
+        Response<Object> eval = tx.eval(script, Arrays.asList("counter"), Arrays.asList("5"));
+        Response<Long> counter = tx.incr("counter");
+        assertEquals(Arrays.<Object>asList(5L, 6L), node.exec(tx));
+        assertEquals(5L, eval.get());
+        assertEquals(Long.valueOf(6), counter.get());
+        assertEquals("PONG", node.ping());
+    }
+
+    @Test(expected = RedisException.class)
+    public void rejectBlockingCommand() {
+        dataSource.setRejectDedicatedCommands(true);
+        Session session = factory.create();
+        try {
+            session.blpop(1, "queue");
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void brokenConnectionIsReplaced() {
+        RedisConnection connection = dataSource.getConnection();
+        connection.sendCommand(RedisCommand.PING);
+        assertEquals("PONG", connection.getStatusCodeReply());
+        SharedConnection shared = dataSource.getSharedConnection();
+        shared.close();
+        assertFalse(connection.isConnected());
+        connection.close();
+
+        connection = dataSource.getConnection();
+        connection.sendCommand(RedisCommand.PING);
+        assertEquals("PONG", connection.getStatusCodeReply());
+        connection.close();
+    }
+
+    @Test
+    public void killedSocketFailsAllWriters() throws InterruptedException {
+        // without a timeout a reply which is never completed blocks its caller forever
+        dataSource.setTimeout(0);
+        final RedisNode node = new RedisNode(dataSource);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            final String key = "key" + i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (!stop.get()) {
+                        try {
+                            node.set(key, "value");
+                            node.get(key);
+                        } catch (RedisException e) {
+                            failures.incrementAndGet();
+                        } catch (Throwable e) {
+                            error.set(e);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int n = 0; n < 20; n++) {
+            Thread.sleep(10);
+            // the socket dies under the writers and the reader
+            dataSource.getSharedConnection().getConnection().abort();
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertFalse("Caller hangs on a lost reply", thread.isAlive());
+        }
+        assertNull(String.valueOf(error.get()), error.get());
+        assertTrue(failures.get() > 0);
+        assertEquals("PONG", node.ping());
+    }
+
+    @Test
+    public void invalidCommandFailsItsCallerOnly() throws InterruptedException {
+        final RedisNode node = new RedisNode(dataSource);
+        final Codec<String> failing = new Codec<String>() {
+            public void encode(String value, RedisOutputStream out) throws IOException {
+                out.writeBulk(new byte[]{1, 2}, 0, 1);
+                throw new IllegalStateException("Cannot encode " + value);
+            }
+
+            public String decode(byte[] buf, int offset, int length) {
+                return null;
+            }
+        };
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final String key = "key" + i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; !stop.get(); n++) {
+                        try {
+                            node.set(key, "value" + n);
+                            assertEquals("value" + n, node.get(key));
+                        } catch (Throwable e) {
+                            error.compareAndSet(null, e);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        int rejected = 0;
+        for (int n = 0; n < 300; n++) {
+            try {
+                switch (n % 3) {
+                    case 0:
+                        node.set("bad", null, Codecs.STRING);
+                        break;
+                    case 1:
+                        node.set("bad", "value", failing);
+                        break;
+                    default:
+                        RedisConnection connection = dataSource.getConnection();
+                        try {
+                            connection.sendCommand(new PreparedCommand(RedisCommand.GET, 1), "bad", "extra");
+                        } finally {
+                            connection.close();
+                        }
+                }
+            } catch (RuntimeException e) {
+                assertFalse(e.toString(), e instanceof RedisException);
+                rejected++;
+            }
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals(300, rejected);
+        assertNull(String.valueOf(error.get()), error.get());
+        assertNull(node.get("bad"));
+    }
+}
@@ -18,9 +18,12 @@ package org.idevlab.rjc.ds;
 
 import org.idevlab.rjc.HostAndPortUtil;
 import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.protocol.RedisCommand;
+import org.idevlab.rjc.protocol.SizeClassedBufferPool;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Evgeny Dolgov
@@ -48,6 +51,22 @@ public class ITPoolableConnectionTest {
         dataSource.close();
     }
 
+    @Test
+    public void threadAffinityTest() {
+        PoolableDataSource dataSource = createDataSource();
+        dataSource.setThreadAffinity(true);
+        RedisConnection redisConnection = dataSource.getConnection();
+        redisConnection.close();
+        assertEquals(1, dataSource.getNumActive());
+        assertEquals(0, dataSource.getNumIdle());
+        assertSame(redisConnection, dataSource.getConnection());
+        dataSource.setThreadAffinity(false);
+        redisConnection.close();
+        assertEquals(0, dataSource.getNumActive());
+        assertEquals(1, dataSource.getNumIdle());
+        dataSource.close();
+    }
+
     @Test
     public void initialSizeTest() {
         PoolableDataSource dataSource = createDataSource();
@@ -85,6 +104,32 @@ public class ITPoolableConnectionTest {
         assertEquals(3, dataSource.getNumIdle());
     }
 
+    @Test
+    public void idleConnectionReleasesBuffers() {
+        SizeClassedBufferPool bufferPool = new SizeClassedBufferPool(1024, 16384, 1024 * 1024);
+        PoolableDataSource dataSource = createDataSource();
+        dataSource.setBufferPool(bufferPool);
+
+        RedisConnection connection = dataSource.getConnection();
+        connection.sendCommand(RedisCommand.PING);
+        assertEquals("PONG", connection.getStatusCodeReply());
+        assertEquals(0, bufferPool.getPooledBuffers());
+
+        connection.close();
+        assertEquals(2, bufferPool.getPooledBuffers());
+
+        // buffers are borrowed again on the first use
+        connection = dataSource.getConnection();
+        connection.sendCommand(RedisCommand.PING);
+        assertEquals("PONG", connection.getStatusCodeReply());
+        assertEquals(0, bufferPool.getPooledBuffers());
+        assertEquals(2, bufferPool.getAllocatedCount());
+
+        connection.close();
+        dataSource.close();
+        assertEquals(2, bufferPool.getPooledBuffers());
+    }
+
     private PoolableDataSource createDataSource() {
         PoolableDataSource dataSource = new PoolableDataSource();
         dataSource.setHost(hnp.host);
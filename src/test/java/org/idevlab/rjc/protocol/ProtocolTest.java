@@ -16,14 +16,26 @@
 
 package org.idevlab.rjc.protocol;
 
+import org.idevlab.rjc.ElementScore;
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.util.SafeEncoder;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ProtocolTest {
     @Test
@@ -48,6 +60,120 @@ public class ProtocolTest {
         assertEquals(expectedCommand, sb.toString());
     }
 
+    @Test
+    public void buildAStringCommand() throws IOException {
+        String[] args = {"SOMEKEY", "\u0444\u0443\u0443 \u20ac", "\ud83d\ude00", "bad\ud83d", ""};
+        Protocol protocol = new Protocol();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        protocol.sendCommand(new RedisOutputStream(expected), RedisCommand.MSET, SafeEncoder.encode(args));
+
+        // tiny buffer makes multi-byte characters cross the buffer boundary
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        protocol.sendCommand(new RedisOutputStream(actual, 7), RedisCommand.MSET, args);
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void writeCommandWithoutFlush() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(bos);
+
+        Protocol protocol = new Protocol();
+        protocol.writeCommand(os, RedisCommand.GET, "foo".getBytes(Protocol.CHARSET));
+        protocol.writeCommand(os, RedisCommand.GET, "bar".getBytes(Protocol.CHARSET));
+        assertEquals(0, bos.size());
+
+        os.flush();
+        assertEquals("*2\r\n$3\r\nGET\r\n$3\r\nfoo\r\n*2\r\n$3\r\nGET\r\n$3\r\nbar\r\n", bos.toString());
+    }
+
+    @Test
+    public void buildAPreparedCommand() throws IOException {
+        PreparedCommand hget = new PreparedCommand(RedisCommand.HGET, 2);
+        Protocol protocol = new Protocol();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        protocol.sendCommand(new RedisOutputStream(expected), RedisCommand.HGET, "key", "\u20ac");
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        protocol.sendCommand(new RedisOutputStream(actual), hget, "key", "\u20ac");
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+        actual = new ByteArrayOutputStream();
+        protocol.sendCommand(new RedisOutputStream(actual), hget, SafeEncoder.encode("key"), SafeEncoder.encode("\u20ac"));
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void preparedCommandWrongArity() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(bos);
+        try {
+            new Protocol().writeCommand(os, new PreparedCommand(RedisCommand.GET, 1), "foo", "bar");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // nothing must be written
+        }
+        os.flush();
+        assertEquals(0, bos.size());
+    }
+
+    @Test
+    public void resetFailedCommand() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(bos);
+        Protocol protocol = new Protocol();
+        protocol.writeCommand(os, RedisCommand.GET, "foo".getBytes(Protocol.CHARSET));
+        os.markCommand();
+        os.write("*2\r\n$3\r\nGET".getBytes(Protocol.CHARSET));
+        assertTrue(os.resetCommand());
+        protocol.writeCommand(os, RedisCommand.GET, "bar".getBytes(Protocol.CHARSET));
+        os.flush();
+        assertEquals("*2\r\n$3\r\nGET\r\n$3\r\nfoo\r\n*2\r\n$3\r\nGET\r\n$3\r\nbar\r\n", bos.toString());
+    }
+
+    @Test
+    public void resetSentCommand() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(bos, 8);
+        os.markCommand();
+        os.write("*2\r\n$3\r\nGET".getBytes(Protocol.CHARSET));
+        assertFalse(os.resetCommand());
+    }
+
+    @Test
+    public void gatheredLargeArgument() throws IOException {
+        byte[] value = new byte[100];
+        Arrays.fill(value, (byte) 'v');
+        GatheringByteArrayOutputStream out = new GatheringByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(out, 64);
+        os.setCopyThreshold(16);
+
+        new Protocol().sendCommand(os, RedisCommand.SET, "key".getBytes(Protocol.CHARSET), value);
+
+        // header, the value and the trailing CRLF leave in one vectored write
+        assertEquals(1, out.gatheredWrites);
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$100\r\n" + new String(value, "ASCII") + "\r\n",
+                out.toString("ASCII"));
+    }
+
+    @Test
+    public void copiedLargeArgument() throws IOException {
+        byte[] value = new byte[100];
+        Arrays.fill(value, (byte) 'v');
+        GatheringByteArrayOutputStream out = new GatheringByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(out, 64);
+        os.setCopyThreshold(Integer.MAX_VALUE);
+
+        new Protocol().sendCommand(os, RedisCommand.SET, "key".getBytes(Protocol.CHARSET), value);
+
+        assertEquals(0, out.gatheredWrites);
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$100\r\n" + new String(value, "ASCII") + "\r\n",
+                out.toString("ASCII"));
+    }
+
     @Test
     public void bulkReply() {
         InputStream is = new ByteArrayInputStream("$6\r\nfoobar\r\n".getBytes());
@@ -65,6 +191,51 @@ public class ProtocolTest {
         assertEquals("012345678901234567890123456789", response);
     }
 
+    @Test
+    public void streamedBulkReply() {
+        FragmentedByteArrayInputStream fis = new FragmentedByteArrayInputStream(
+                "$30\r\n012345678901234567890123456789\r\n+OK\r\n".getBytes());
+        Protocol protocol = new Protocol();
+        RedisInputStream is = new RedisInputStream(fis, 8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(30, protocol.readBulkReply(is, out));
+        assertEquals("012345678901234567890123456789", out.toString());
+        // the stream stays consistent for the next reply
+        assertEquals("OK", protocol.read(is));
+    }
+
+    @Test
+    public void streamedBulkReplyToChannel() {
+        InputStream is = new ByteArrayInputStream("$6\r\nfoobar\r\n".getBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(6, new Protocol().readBulkReply(new RedisInputStream(is), Channels.newChannel(out)));
+        assertEquals("foobar", out.toString());
+    }
+
+    @Test
+    public void streamedNullBulkReply() {
+        InputStream is = new ByteArrayInputStream("$-1\r\n".getBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(-1, new Protocol().readBulkReply(new RedisInputStream(is), out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void streamedCommand() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        InputStream value = new FragmentedByteArrayInputStream("012345678901234567890123456789 tail".getBytes());
+        new Protocol().sendCommand(new RedisOutputStream(bos, 8), RedisCommand.SET, value, 30,
+                "foo".getBytes(Protocol.CHARSET));
+        assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$30\r\n012345678901234567890123456789\r\n",
+                bos.toString());
+    }
+
+    @Test(expected = RedisException.class)
+    public void streamedCommandTooShortStream() {
+        InputStream value = new ByteArrayInputStream("0123".getBytes());
+        new Protocol().sendCommand(new RedisOutputStream(new ByteArrayOutputStream()), RedisCommand.SET, value, 30);
+    }
+
     @Test
     public void nullBulkReply() {
         InputStream is = new ByteArrayInputStream("$-1\r\n".getBytes());
@@ -89,6 +260,46 @@ public class ProtocolTest {
         assertEquals(123, response);
     }
 
+    @Test
+    public void negativeIntegerReply() {
+        InputStream is = new ByteArrayInputStream(":-9223372036854775807\r\n".getBytes());
+        Protocol protocol = new Protocol();
+        long response = (Long) protocol.read(new RedisInputStream(is));
+        assertEquals(-9223372036854775807L, response);
+    }
+
+    @Test
+    public void primitiveIntegerReply() {
+        InputStream is = new ByteArrayInputStream(":1234567890123\r\n".getBytes());
+        Protocol protocol = new Protocol();
+        assertEquals(1234567890123L, protocol.readLong(new RedisInputStream(is)));
+    }
+
+    @Test(expected = RedisException.class)
+    public void primitiveIntegerErrorReply() {
+        InputStream is = new ByteArrayInputStream("-ERR wrong type\r\n".getBytes());
+        new Protocol().readLong(new RedisInputStream(is));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void fragmentedHeaders() {
+        // the buffer smaller than a header forces refills in the middle of a number
+        FragmentedByteArrayInputStream fis = new FragmentedByteArrayInputStream(
+                "*2\r\n:12345678\r\n$12\r\n012345678901\r\n".getBytes());
+        Protocol protocol = new Protocol();
+        List<Object> response = (List<Object>) protocol.read(new RedisInputStream(fis, 3));
+        assertEquals(2, response.size());
+        assertEquals(12345678L, response.get(0));
+        assertEquals("012345678901", response.get(1));
+    }
+
+    @Test(expected = RedisException.class)
+    public void closedConnection() {
+        InputStream is = new ByteArrayInputStream("$12".getBytes());
+        new Protocol().read(new RedisInputStream(is));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void multiBulkReply() {
@@ -110,6 +321,90 @@ public class ProtocolTest {
         }
     }
 
+    @Test
+    public void slabMultiBulkReply() {
+        InputStream is = new FragmentedByteArrayInputStream(
+                "*6\r\n$3\r\nfoo\r\n$-1\r\n:42\r\n+OK\r\n*1\r\n$1\r\nx\r\n$5\r\n\u00e9t\u00e9\r\n"
+                        .getBytes(Charset.forName("UTF-8")));
+        SlabMultiBulkReply response = new Protocol().readSlabMultiBulk(new RedisInputStream(is, 7), true);
+
+        assertEquals(6, response.size());
+        assertEquals("foo", response.get(0));
+        assertSame(response.get(0), response.get(0));
+        assertNull(response.get(1));
+        assertEquals(42L, response.get(2));
+        assertEquals("OK", response.get(3));
+        assertEquals(Arrays.asList("x"), response.get(4));
+        assertEquals(5, response.getLength(5));
+        assertEquals("\u00e9t\u00e9", response.get(5));
+        assertArrayEquals("foo".getBytes(), response.getBytes(0));
+        assertNull(response.getString(1));
+    }
+
+    @Test
+    public void doubleReply() {
+        InputStream is = new FragmentedByteArrayInputStream(
+                ("$3\r\n0.1\r\n$2\r\n-5\r\n$18\r\n1.1000000000000001\r\n$5\r\n1e-05\r\n"
+                        + "$3\r\ninf\r\n$4\r\n-inf\r\n$-1\r\n$1\r\n0\r\n").getBytes());
+        Protocol protocol = new Protocol();
+        RedisInputStream ris = new RedisInputStream(is, 7);
+        assertEquals(0.1d, protocol.readDouble(ris), 0);
+        assertEquals(-5d, protocol.readDouble(ris), 0);
+        assertEquals(1.1000000000000001d, protocol.readDouble(ris), 0);
+        assertEquals(1e-05d, protocol.readDouble(ris), 0);
+        assertEquals(Double.POSITIVE_INFINITY, protocol.readDouble(ris), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, protocol.readDouble(ris), 0);
+        assertTrue(Double.isNaN(protocol.readDouble(ris)));
+        assertEquals(0d, protocol.readDouble(ris), 0);
+    }
+
+    @Test
+    public void parseDouble() {
+        String[] values = {"0", "-0.5", "123456789012345", "1234567890123456789", "3.14159265358979",
+                "0.0000000000000000000001", "0.00000000000000000000001", "+2.5", "1E10"};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), Protocol.toDouble(value), 0);
+        }
+    }
+
+    @Test(expected = RedisException.class)
+    public void parseWrongDouble() {
+        Protocol.toDouble("abc");
+    }
+
+    @Test
+    public void elementScoreReply() {
+        InputStream is = new ByteArrayInputStream("*4\r\n$1\r\na\r\n$3\r\n0.5\r\n$1\r\nb\r\n$1\r\n2\r\n".getBytes());
+        List<ElementScore> reply = new Protocol().readElementScores(new RedisInputStream(is));
+
+        assertEquals(2, reply.size());
+        assertEquals("a", reply.get(0).getElement());
+        assertEquals(0.5d, reply.get(0).getScoreAsDouble(), 0);
+        assertEquals(new ElementScore("b", "2"), reply.get(1));
+    }
+
+    @Test
+    public void longReply() {
+        InputStream is = new ByteArrayInputStream(":-123\r\n".getBytes());
+        assertEquals(-123L, new Protocol().readLong(new RedisInputStream(is)));
+    }
+
+    @Test
+    public void binarySlabMultiBulkReply() {
+        InputStream is = new ByteArrayInputStream("*2\r\n$3\r\nfoo\r\n$0\r\n\r\n".getBytes());
+        SlabMultiBulkReply response = new Protocol().readSlabMultiBulk(new RedisInputStream(is), false);
+
+        assertArrayEquals("foo".getBytes(), (byte[]) response.get(0));
+        assertArrayEquals(new byte[0], (byte[]) response.get(1));
+        assertEquals("foo", response.getString(0));
+    }
+
+    @Test
+    public void nullSlabMultiBulkReply() {
+        InputStream is = new ByteArrayInputStream("*-1\r\n".getBytes());
+        assertNull(new Protocol().readSlabMultiBulk(new RedisInputStream(is), true));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void nullMultiBulkReply() {
@@ -120,5 +415,14 @@ public class ProtocolTest {
         assertNull(response);
     }
 
+    private static class GatheringByteArrayOutputStream extends ByteArrayOutputStream implements GatheringOutput {
+        private int gatheredWrites;
 
+        public void write(ByteBuffer[] buffers) {
+            gatheredWrites++;
+            for (ByteBuffer buffer : buffers) {
+                write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+        }
+    }
 }
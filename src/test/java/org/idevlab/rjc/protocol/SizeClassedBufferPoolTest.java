@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.idevlab.rjc.protocol;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class SizeClassedBufferPoolTest {
+
+    @Test
+    public void sizeClasses() {
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(512, 8192, 1024 * 1024);
+        assertEquals(512, pool.acquire(1).length);
+        assertEquals(512, pool.acquire(512).length);
+        assertEquals(1024, pool.acquire(513).length);
+        assertEquals(8192, pool.acquire(8192).length);
+        // above the largest class
+        assertEquals(10000, pool.acquire(10000).length);
+        assertEquals(5, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void reuse() {
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(512, 8192, 1024 * 1024);
+        byte[] buffer = pool.acquire(3000);
+        pool.release(buffer);
+        assertEquals(1, pool.getPooledBuffers());
+        assertEquals(4096, pool.getPooledBytes());
+        assertEquals(1, pool.getPooledBuffers(4096));
+
+        assertSame(buffer, pool.acquire(4000));
+        assertEquals(0, pool.getPooledBuffers());
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(2, pool.getAcquiredCount());
+    }
+
+    @Test
+    public void foreignBuffersAreDropped() {
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(512, 8192, 1024 * 1024);
+        pool.release(new byte[1000]);
+        pool.release(new byte[256]);
+        pool.release(new byte[16384]);
+        assertEquals(0, pool.getPooledBuffers());
+        assertEquals(3, pool.getDroppedCount());
+    }
+
+    @Test
+    public void footprintLimit() {
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(512, 8192, 16384);
+        for (int i = 0; i < 3; i++) {
+            pool.release(new byte[8192]);
+        }
+        assertEquals(2, pool.getPooledBuffers());
+        assertEquals(16384, pool.getPooledBytes());
+        assertEquals(1, pool.getDroppedCount());
+
+        pool.clear();
+        assertEquals(0, pool.getPooledBuffers());
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void outputStreamBorrowsOnFirstWrite() throws IOException {
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(512, 8192, 1024 * 1024);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RedisOutputStream os = new RedisOutputStream(bos, 1024, pool);
+        assertEquals(0, pool.getAcquiredCount());
+
+        new Protocol().writeCommand(os, RedisCommand.GET, "foo");
+        assertEquals(1, pool.getAcquiredCount());
+        // unsent data keeps the buffer
+        assertFalse(os.releaseBuffer());
+
+        os.flush();
+        assertTrue(os.releaseBuffer());
+        assertEquals(1, pool.getPooledBuffers());
+
+        new Protocol().sendCommand(os, RedisCommand.GET, "bar");
+        assertEquals("*2\r\n$3\r\nGET\r\n$3\r\nfoo\r\n*2\r\n$3\r\nGET\r\n$3\r\nbar\r\n", bos.toString());
+        assertEquals(0, pool.getPooledBuffers());
+
+        os.close();
+        assertEquals(1, pool.getPooledBuffers());
+    }
+
+    @Test
+    public void inputStreamKeepsUnreadData() throws IOException {
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(512, 8192, 1024 * 1024);
+        RedisInputStream is = new RedisInputStream(new ByteArrayInputStream(":1\r\n:2\r\n".getBytes()), 512, pool);
+        Protocol protocol = new Protocol();
+
+        assertEquals(1L, protocol.read(is));
+        assertFalse(is.releaseBuffer());
+        assertEquals(2L, protocol.read(is));
+        assertTrue(is.releaseBuffer());
+        assertEquals(1, pool.getPooledBuffers());
+
+        is.close();
+        assertEquals(1, pool.getPooledBuffers());
+        assertEquals(1, pool.getReleasedCount());
+    }
+}
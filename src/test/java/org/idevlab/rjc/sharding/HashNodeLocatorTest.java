@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.sharding;
+
+import org.idevlab.rjc.util.HashAlgorithm;
+import org.idevlab.rjc.util.SafeEncoder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class HashNodeLocatorTest {
+
+    @Test
+    public void binaryKeysGoToTheSameNodes() {
+        List<Shard<String>> shards = new ArrayList<Shard<String>>();
+        for (int i = 0; i < 5; i++) {
+            shards.add(new ShardImpl<String>("shard" + i, "node" + i));
+        }
+        String[] keys = {"foo", "bar", "key:1", "été", "user:{42}:name", "{}}", "a{b", "{x\n}{y}", "{\u2028}{é}",
+                "\u20ac{\u20ac}", "\ud83d\ude00{\ud83d\ude00}", "", "{", "{{}}"};
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            HashNodeLocator<String> locator = new HashNodeLocator<String>(shards, algorithm);
+            HashNodeLocator<String> tagLocator = new HashNodeLocator<String>(shards, algorithm,
+                    HashNodeLocator.DEFAULT_KEY_TAG_PATTERN);
+            for (String key : keys) {
+                assertEquals(algorithm + " " + key, locator.getNode(key), locator.getNode(SafeEncoder.encode(key)));
+                assertEquals(algorithm + " " + key, tagLocator.getNode(key), tagLocator.getNode(SafeEncoder.encode(key)));
+            }
+        }
+    }
+
+    @Test
+    public void malformedBinaryKeys() {
+        byte[][] keys = {{(byte) 0xC3}, {'a', (byte) 0xFF, 'b'}, {(byte) 0xED, (byte) 0xA0, (byte) 0x80}, {(byte) 0xC0, (byte) 0xAF}};
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            if (algorithm == HashAlgorithm.MURMUR_HASH || algorithm == HashAlgorithm.CRC32_HASH
+                    || algorithm == HashAlgorithm.KETAMA_HASH) {
+                // hash the raw bytes
+                continue;
+            }
+            for (byte[] key : keys) {
+                assertEquals(algorithm.toString(), algorithm.hash(SafeEncoder.encode(key)), algorithm.hash(key));
+            }
+        }
+    }
+}
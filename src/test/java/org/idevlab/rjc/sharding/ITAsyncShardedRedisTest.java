@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2011. Evgeny Dolgov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.idevlab.rjc.sharding;
+
+import org.idevlab.rjc.AsyncRedisNodeFactory;
+import org.idevlab.rjc.AsyncRedisOperations;
+import org.idevlab.rjc.RedisFuture;
+import org.idevlab.rjc.RedisNode;
+import org.idevlab.rjc.ds.MultiplexedDataSource;
+import org.idevlab.rjc.ds.MultiplexedDataSourceFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Evgeny Dolgov
+ */
+public class ITAsyncShardedRedisTest {
+    private final List<MultiplexedDataSource> dataSources = new ArrayList<MultiplexedDataSource>();
+    private AsyncShardedRedis redis;
+
+    @Before
+    public void setUp() {
+        final MultiplexedDataSourceFactory dataSourceFactory = new MultiplexedDataSourceFactory() {
+            @Override
+            public MultiplexedDataSource create(String host, int port) {
+                MultiplexedDataSource dataSource = (MultiplexedDataSource) super.create(host, port);
+                new RedisNode(dataSource).flushAll();
+                dataSources.add(dataSource);
+                return dataSource;
+            }
+        };
+        ShardsFactoryImpl<AsyncRedisOperations> shardsFactory = new ShardsFactoryImpl<AsyncRedisOperations>();
+        shardsFactory.setDataSourceFactory(dataSourceFactory);
+        shardsFactory.setNodeFactory(new AsyncRedisNodeFactory());
+        shardsFactory.setAddresses(System.getProperty("redis-hosts"));
+        Collection<Shard<AsyncRedisOperations>> shards = shardsFactory.create();
+        redis = new AsyncShardedRedis(new HashNodeLocator<AsyncRedisOperations>(shards, HashNodeLocator.DEFAULT_KEY_TAG_PATTERN));
+    }
+
+    @After
+    public void tearDown() {
+        for (MultiplexedDataSource dataSource : dataSources) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void fanOut() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            redis.set("key" + i, "value" + i);
+        }
+        List<RedisFuture<String>> futures = new ArrayList<RedisFuture<String>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(redis.get("key" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, futures.get(i).get());
+        }
+    }
+
+    @Test
+    public void delOnOneNode() throws Exception {
+        redis.set("{user}:a", "1");
+        redis.set("{user}:b", "2");
+        assertEquals(Long.valueOf(2), redis.del("{user}:a", "{user}:b").get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void delOnDifferentNodes() {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("key" + i);
+        }
+        redis.del(keys.toArray(new String[keys.size()]));
+    }
+}
@@ -16,14 +16,26 @@
 
 package org.idevlab.rjc.sharding;
 
+import org.idevlab.rjc.RedisException;
+import org.idevlab.rjc.RedisScript;
+import org.idevlab.rjc.ScanParams;
+import org.idevlab.rjc.util.SafeEncoder;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Evgeny Dolgov
@@ -50,4 +62,144 @@ public class ITShardedRedisTest extends ShardedRedisTestBase {
         }
     }
 
+    @Test
+    public void binaryKeys() {
+        ShardedRedis sharded = (ShardedRedis) redis;
+        for (int i = 0; i < 100; i++) {
+            sharded.set(SafeEncoder.encode("key" + i), new byte[]{(byte) i, 0});
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(redis.exists("key" + i));
+            assertArrayEquals(new byte[]{(byte) i, 0}, sharded.get(SafeEncoder.encode("key" + i)));
+        }
+        assertEquals(100, sharded.keys(SafeEncoder.encode("key*")).size());
+        assertEquals(Long.valueOf(2), sharded.del(SafeEncoder.encode("key1"), SafeEncoder.encode("key2")));
+    }
+
+
+    @Test
+    public void evalRoutesByFirstKey() {
+        RedisScript script = new RedisScript("redis.call('set', KEYS[1], ARGV[1]) return redis.call('get', KEYS[1])");
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, redis.eval(script, Arrays.asList("key" + i), Arrays.asList("value" + i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, redis.get("key" + i));
+        }
+    }
+
+    @Test
+    public void evalRejectsKeysOnDifferentNodes() {
+        ShardedRedis sharded = (ShardedRedis) redis;
+        RedisScript script = new RedisScript("return redis.call('mset', KEYS[1], ARGV[1], KEYS[2], ARGV[1])");
+        String other = "other";
+        while (sharded.getLocator().getNode(other) == sharded.getLocator().getNode("key")) {
+            other += "x";
+        }
+        try {
+            redis.eval(script, Arrays.asList("key", other), Arrays.asList("value"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertFalse(redis.exists("key"));
+
+        String same = "same";
+        while (sharded.getLocator().getNode(same) != sharded.getLocator().getNode("key")) {
+            same += "x";
+        }
+        assertEquals("OK", redis.eval(script, Arrays.asList("key", same), Arrays.asList("value")));
+        assertEquals("value", redis.get(same));
+    }
+
+    @Test
+    public void parallelScan() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            redis.set("key" + i, "value");
+        }
+        redis.set("other", "value");
+        ShardedRedis sharded = (ShardedRedis) redis;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        sharded.setExecutor(executor);
+        sharded.setScanQueueCapacity(10);
+
+        ShardedScan scan = sharded.scan(new ScanParams().match("key*").count(100));
+        Set<String> keys = new HashSet<String>();
+        while (scan.hasNext()) {
+            keys.add(scan.next());
+        }
+        assertEquals(5000, keys.size());
+        assertFalse(keys.contains("other"));
+        assertTrue(scan.isDone());
+        long scanned = 0;
+        for (ShardScanProgress progress : scan.getProgress()) {
+            assertTrue(progress.isDone());
+            assertEquals("0", progress.getCursor());
+            scanned += progress.getKeys();
+        }
+        assertTrue(scanned >= 5000);
+
+        assertEquals(keys, sharded.keys("key*"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void cancelScan() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            redis.set("key" + i, "value");
+        }
+        ShardedRedis sharded = (ShardedRedis) redis;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        sharded.setExecutor(executor);
+        sharded.setScanQueueCapacity(1);
+
+        ShardedScan scan = sharded.scan(new ScanParams().count(10));
+        assertTrue(scan.hasNext());
+        assertTrue(scan.next().startsWith("key"));
+        scan.cancel();
+        assertTrue(scan.isCancelled());
+        assertFalse(scan.hasNext());
+        assertFalse(scan.isDone());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void abandonedScanTimesOut() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            redis.set("key" + i, "value");
+        }
+        ShardedRedis sharded = (ShardedRedis) redis;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        sharded.setExecutor(executor);
+        sharded.setScanQueueCapacity(1);
+        sharded.setScanIdleTimeoutMillis(300);
+
+        ShardedScan scan = sharded.scan(new ScanParams().count(10));
+        assertTrue(scan.next().startsWith("key"));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(scan.isCancelled());
+        try {
+            scan.hasNext();
+            fail();
+        } catch (RedisException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void scanWithoutExecutor() {
+        for (int i = 0; i < 100; i++) {
+            redis.set("key" + i, "value");
+        }
+        ShardedScan scan = ((ShardedRedis) redis).scan(null);
+        Set<String> keys = new HashSet<String>();
+        while (scan.hasNext()) {
+            keys.add(scan.next());
+        }
+        assertEquals(100, keys.size());
+    }
 }